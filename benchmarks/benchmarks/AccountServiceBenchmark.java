@@ -0,0 +1,84 @@
+package benchmarks;
+
+import application.repositories.AccountRepository;
+import application.repositories.UserRepository;
+import application.services.AccountService;
+import domain.entity.Account;
+import domain.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks accounts up by code and by holder in a bank of {@code accounts} checking accounts,
+ * two per holder, picking a random one on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class AccountServiceBenchmark {
+    @Param({"10000", "1000000"})
+    public int accounts;
+
+    private AccountService accountService;
+    private String[] agencies;
+    private String[] numbers;
+    private String[] holders;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        UserRepository userRepository = new UserRepository();
+        accountService = new AccountService(new AccountRepository(), userRepository);
+        agencies = new String[accounts];
+        numbers = new String[accounts];
+        holders = new String[accounts / 2];
+
+        for (int i = 0; i < holders.length; i++) {
+            User holder = new User("User " + i, Cpfs.of(i), "user" + i + "@bank.test");
+            userRepository.save(holder);
+            holders[i] = holder.getId();
+        }
+        for (int i = 0; i < accounts; i++) {
+            Account account = accountService.createCheckingAccount(String.valueOf(1 + i % 50), holders[i / 2]);
+            agencies[i] = account.getBranchCode();
+            numbers[i] = account.getNumber();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    public Account getAccount(Picker picker) {
+        int i = picker.next(accounts);
+        return accountService.getAccount(agencies[i], numbers[i]);
+    }
+
+    @Benchmark
+    public List<Account> searchForUserAccounts(Picker picker) {
+        return accountService.searchForUserAccounts(holders[picker.next(holders.length)]);
+    }
+}
@@ -0,0 +1,154 @@
+package benchmarks;
+
+import application.repositories.AccountRepository;
+import application.repositories.MappedAccountRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import application.services.AccountService;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import domain.entity.Account;
+import domain.entity.User;
+import domain.valueObject.AccountCode;
+import support.Cpfs;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the heap the in-memory and the mapped account repositories retain for the same
+ * accounts, and the GC pauses of a random lookup and deposit load over them. JMH reports
+ * allocation rates but not pause percentiles, so this runs as a plain program, once per
+ * store so the two heaps do not mix:
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:exec -Dbench.main=benchmarks.AccountStoreFootprint -Dbench.args="heap 1000000 30"
+ * mvn -Pbench test-compile exec:exec -Dbench.main=benchmarks.AccountStoreFootprint -Dbench.args="mapped 1000000 30"
+ * </pre>
+ */
+public final class AccountStoreFootprint {
+    private static final int THREADS = 4;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    private AccountStoreFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String store = args.length > 0 ? args[0] : "heap";
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+        Path directory = Files.createTempDirectory("account-store");
+        UserRepository userRepository = new UserRepository();
+        AccountRepository accountRepository = store.equals("mapped")
+                ? new MappedAccountRepository(directory.resolve("accounts"), userRepository)
+                : new AccountRepository();
+        AccountLocks accountLocks = new AccountLocks();
+        AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+
+        // packed codes keep what the load picks from out of the retained heap
+        long[] accountKeys = new long[accounts];
+        User holder = null;
+        for (int i = 0; i < accounts; i++) {
+            if (i % 4 == 0) {
+                holder = new User("User", Cpfs.of(i / 4), "user" + i / 4 + "@bank.test");
+                userRepository.save(holder);
+            }
+            Account account = accountService.createCheckingAccount(String.valueOf(1 + i % 100), holder.getId());
+            accountKeys[i] = account.getAccountKey();
+        }
+
+        long retained = retainedHeap();
+        List<Long> pauses = Collections.synchronizedList(new ArrayList<>());
+        listenToPauses(pauses);
+
+        AtomicLong operations = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            Thread thread = new Thread(() -> {
+                long done = 0;
+                while (System.nanoTime() < deadline) {
+                    long accountKey = accountKeys[random.nextInt(accounts)];
+                    Account account = accountService.getAccount(AccountCode.branchOf(accountKey),
+                            AccountCode.numberOf(accountKey));
+                    accountLocks.withLock(account.getAccountKey(), () -> {
+                        account.deposit(AMOUNT, "Deposit");
+                        accountRepository.updateBalance(account);
+                        return null;
+                    });
+                    done++;
+                }
+                operations.addAndGet(done);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Long> sorted;
+        synchronized (pauses) {
+            sorted = new ArrayList<>(pauses);
+        }
+        Collections.sort(sorted);
+        System.out.printf("store=%s accounts=%d retainedHeapMB=%d ops/s=%d gcs=%d p99PauseMs=%d maxPauseMs=%d%n",
+                store, accounts, retained >> 20, operations.get() / seconds, sorted.size(),
+                percentile(sorted, 0.99), percentile(sorted, 1.0));
+
+        if (accountRepository instanceof Closeable closeable) {
+            closeable.close();
+        }
+        deleteRecursively(directory);
+    }
+
+    private static long retainedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void listenToPauses(List<Long> pauses) {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    pauses.add(info.getGcInfo().getDuration());
+                }
+            }, null, null);
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(quantile * sorted.size()) - 1));
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package benchmarks;
+
+import application.services.AccountLocks;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.Transaction;
+import domain.entity.User;
+import domain.enums.TransactionType;
+import domain.exception.InsufficientFundsException;
+import domain.valueObject.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits to and withdraws from one account from several threads, with a reader polling
+ * the balance meanwhile. {@link #compareAndSet} is the lock-free change the account does
+ * on its own. {@link #locked} is the path balances took before it: a plain {@code long}
+ * read, checked and written under the account lock, which then builds the transaction
+ * record. The record goes through the public constructor, so it also converts the
+ * previous balance to a {@code BigDecimal} and parses the account code. Run with
+ * {@code -prof gc} to see the allocation per change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class BalanceUpdateBenchmark {
+    private static final Money AMOUNT = Money.of(new BigDecimal("1.00"));
+    private static final BigDecimal AMOUNT_DECIMAL = AMOUNT.toBigDecimal();
+    private static final long OVERDRAFT_CENTS = 50_000;
+    private static final Clock CLOCK = Clock.systemDefaultZone();
+
+    private final AccountLocks accountLocks = new AccountLocks();
+    private Account account;
+    // guarded by the account lock
+    private long lockedCents;
+
+    @Setup(Level.Trial)
+    public void open() {
+        account = new CheckingAccount("1", new User("Holder", Cpfs.of(1), "holder@bank.test"));
+        account.deposit(new BigDecimal("1000000.00"), "Opening");
+        lockedCents = account.getBalanceCents();
+    }
+
+    @State(Scope.Thread)
+    public static class Direction {
+        private boolean deposit;
+
+        boolean flip() {
+            deposit = !deposit;
+            return deposit;
+        }
+    }
+
+    @Benchmark
+    public Transaction compareAndSet(Direction direction) {
+        return changeOnce(direction);
+    }
+
+    @Benchmark
+    public Transaction locked(Direction direction) {
+        return accountLocks.withLock(account.getAccountKey(), () -> changeLocked(direction));
+    }
+
+    @Benchmark
+    public long balance() {
+        return account.getBalanceCents();
+    }
+
+    private Transaction changeOnce(Direction direction) {
+        return direction.flip() ? account.deposit(AMOUNT, "Deposit") : account.withdraw(AMOUNT, "Withdraw");
+    }
+
+    private Transaction changeLocked(Direction direction) {
+        long previous = lockedCents;
+        if (direction.flip()) {
+            lockedCents = Money.add(previous, AMOUNT.cents());
+            return new Transaction(TransactionType.DEPOSIT, AMOUNT_DECIMAL, BigDecimal.valueOf(previous, 2),
+                    account.getAccountCode(), null, "Deposit", CLOCK);
+        }
+
+        long available = Money.add(previous, OVERDRAFT_CENTS);
+        if (AMOUNT.cents() > available) {
+            throw InsufficientFundsException.withoutStackTrace(available, AMOUNT.cents());
+        }
+        lockedCents = Money.subtract(previous, AMOUNT.cents());
+        return new Transaction(TransactionType.WITHDRAW, AMOUNT_DECIMAL, BigDecimal.valueOf(previous, 2),
+                account.getAccountCode(), null, "Withdraw", CLOCK);
+    }
+}
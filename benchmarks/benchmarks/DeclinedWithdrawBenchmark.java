@@ -0,0 +1,101 @@
+package benchmarks;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import application.services.AccountService;
+import application.services.LedgerService;
+import application.services.Outcome;
+import domain.entity.Account;
+import domain.entity.Transaction;
+import domain.entity.User;
+import domain.exception.InsufficientFundsException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Declines withdrawals from an empty savings account and a checking account past its
+ * overdraft, alternating between them, three ways: through the throwing call with its
+ * stackless exception, through the same call with the exception replaced by one that
+ * captures its stack and formats its message as the domain used to, and through
+ * {@link LedgerService#tryWithdraw}. The stackful exception is built in the benchmark
+ * frame, so its stack is a little shallower than the one captured under the account lock.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeclinedWithdrawBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("1000.00");
+
+    private final Account[] accounts = new Account[2];
+    private LedgerService ledgerService;
+    private int next;
+
+    @Setup
+    public void open() {
+        UserRepository userRepository = new UserRepository();
+        AccountRepository accountRepository = new AccountRepository();
+        AccountLocks accountLocks = new AccountLocks();
+        AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+        ledgerService = new LedgerService(accountRepository, new TransactionRepository(), accountLocks);
+
+        User holder = new User("Holder", Cpfs.of(1), "holder@bank.test");
+        userRepository.save(holder);
+        accounts[0] = accountService.createSavingAccount("1", holder.getId());
+        accounts[1] = accountService.createCheckingAccount("1", holder.getId());
+    }
+
+    @Benchmark
+    public InsufficientFundsException stackless() {
+        try {
+            withdraw(nextAccount());
+            throw new IllegalStateException("The withdrawal was not declined.");
+        } catch (InsufficientFundsException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public InsufficientFundsException stackful() {
+        try {
+            try {
+                withdraw(nextAccount());
+            } catch (InsufficientFundsException e) {
+                throw new InsufficientFundsException(e.getMessage());
+            }
+            throw new IllegalStateException("The withdrawal was not declined.");
+        } catch (InsufficientFundsException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Outcome<Transaction> outcome() {
+        Account account = nextAccount();
+        return ledgerService.tryWithdraw(account.getBranchCode(), account.getNumber(), AMOUNT, "Withdraw");
+    }
+
+    private Account nextAccount() {
+        return accounts[next++ & 1];
+    }
+
+    private void withdraw(Account account) {
+        ledgerService.withdraw(account.getBranchCode(), account.getNumber(), AMOUNT, "Withdraw");
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import application.services.AccountService;
+import application.services.LedgerService;
+import domain.entity.Account;
+import domain.entity.TransferTransactions;
+import domain.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers from {@code senders} accounts to a single hot destination through the
+ * {@link LedgerService}, with the destination taking its credits under its account lock
+ * like any other account or on split credit cells while only the origin is locked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(4)
+public class HotDestinationBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"locked", "split"})
+    public String credits;
+
+    @Param({"64"})
+    public int senders;
+
+    private Account[] origins;
+    private Account destination;
+    private LedgerService ledgerService;
+
+    @Setup(Level.Iteration)
+    public void open() {
+        UserRepository userRepository = new UserRepository();
+        AccountRepository accountRepository = new AccountRepository();
+        AccountLocks accountLocks = new AccountLocks();
+        AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+        ledgerService = new LedgerService(accountRepository, new TransactionRepository(), accountLocks);
+
+        User holder = new User("Holder", Cpfs.of(1), "holder@bank.test");
+        userRepository.save(holder);
+        origins = new Account[senders];
+        for (int i = 0; i < senders; i++) {
+            origins[i] = accountService.createCheckingAccount("1", holder.getId());
+            ledgerService.deposit(origins[i].getBranchCode(), origins[i].getNumber(),
+                    new BigDecimal("1000000.00"), "Opening");
+        }
+
+        destination = accountService.createCheckingAccount("1", holder.getId());
+        if (credits.equals("split")) {
+            accountService.enableSplitCredits(destination.getBranchCode(), destination.getNumber());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public TransferTransactions transfer(Picker picker) {
+        Account origin = origins[picker.random.nextInt(senders)];
+        return ledgerService.transfer(origin.getBranchCode(), origin.getNumber(),
+                destination.getBranchCode(), destination.getNumber(), AMOUNT, "Transfer");
+    }
+}
@@ -0,0 +1,99 @@
+package benchmarks;
+
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.Transaction;
+import domain.entity.TransferTransactions;
+import domain.entity.User;
+import domain.valueObject.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation per operation of the money arithmetic on the posting path: the overdraft
+ * check and balance update of a withdrawal in long cents and, for comparison, with the
+ * BigDecimal arithmetic it replaced, then whole postings and transfers, which should
+ * allocate nothing beyond their transaction records. Read gc.alloc.rate.norm from
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:exec -Dbench.args="MoneyBenchmark -f 1 -prof gc"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+    private static final Money AMOUNT = Money.of(new BigDecimal("1.00"));
+    private static final BigDecimal LEGACY_AMOUNT = new BigDecimal("1.00");
+    private static final long OVERDRAFT_LIMIT = 50_000;
+    private static final BigDecimal LEGACY_OVERDRAFT_LIMIT = new BigDecimal("500.00");
+
+    private long balance;
+    private BigDecimal legacyBalance;
+    private boolean credit;
+    private Account first;
+    private Account second;
+
+    @Setup
+    public void open() {
+        balance = 100_000;
+        legacyBalance = new BigDecimal("1000.00");
+
+        User holder = new User("Holder", Cpfs.of(1), "holder@bank.test");
+        first = new CheckingAccount("1", holder);
+        second = new CheckingAccount("1", holder);
+        first.deposit(new BigDecimal("1000000.00"), "Opening");
+        second.deposit(new BigDecimal("1000000.00"), "Opening");
+    }
+
+    @Benchmark
+    public void arithmetic(Blackhole blackhole) {
+        long amount = (credit = !credit) ? -AMOUNT.cents() : AMOUNT.cents();
+        if (amount > Money.add(balance, OVERDRAFT_LIMIT)) {
+            throw new IllegalStateException("Insufficient funds.");
+        }
+        blackhole.consume(balance);
+        balance = Money.subtract(balance, amount);
+        blackhole.consume(balance);
+    }
+
+    @Benchmark
+    public void legacyArithmetic(Blackhole blackhole) {
+        BigDecimal amount = (credit = !credit) ? LEGACY_AMOUNT.negate() : LEGACY_AMOUNT;
+        if (amount.compareTo(legacyBalance.add(LEGACY_OVERDRAFT_LIMIT)) > 0) {
+            throw new IllegalStateException("Insufficient funds.");
+        }
+        // the transaction record kept both balances at scale 2
+        blackhole.consume(legacyBalance.setScale(2, RoundingMode.HALF_EVEN));
+        legacyBalance = legacyBalance.subtract(amount);
+        blackhole.consume(legacyBalance.setScale(2, RoundingMode.HALF_EVEN));
+    }
+
+    @Benchmark
+    public Transaction depositOrWithdraw() {
+        return (credit = !credit) ? first.deposit(AMOUNT, "Deposit") : first.withdraw(AMOUNT, "Withdraw");
+    }
+
+    @Benchmark
+    public TransferTransactions transfer() {
+        return (credit = !credit) ? first.transfer(AMOUNT, second, "Transfer") : second.transfer(AMOUNT, first,
+                "Transfer");
+    }
+}
@@ -0,0 +1,150 @@
+package benchmarks;
+
+import application.persistence.DurableStorage;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import application.services.LedgerOperation;
+import application.services.LedgerService;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.User;
+import support.Cpfs;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link DurableStorage#open} takes to bring back a ledger of the given
+ * size: a snapshot of every account plus a journal tail of deposits written after it.
+ * The ledger is built and closed first, then recovered into fresh repositories in the
+ * same process once the first copy is collected:
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:exec -Dbench.main=benchmarks.RecoveryTime -Dbench.args="1000000 100000"
+ * </pre>
+ *
+ * Ten million heap accounts need about 5 GB for one copy, more than the bench profile
+ * gives the JVM; run the class directly with a larger -Xmx for that size.
+ */
+public final class RecoveryTime {
+    private static final int ACCOUNTS_PER_HOLDER = 10_000;
+    private static final int CHUNK = 10_000;
+    private static final int BATCH = 1_000;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    private RecoveryTime() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int tail = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        Path directory = Files.createTempDirectory("recovery-time");
+        long written = write(directory, accounts, tail);
+        System.out.printf("accounts=%d tailPostings=%d snapshotMB=%d journalMB=%d writeSeconds=%d%n",
+                accounts, tail, size(directory, "snapshot.bin") >> 20, journalSize(directory) >> 20,
+                TimeUnit.NANOSECONDS.toSeconds(written));
+
+        retainedHeap();
+        long start = System.nanoTime();
+        AccountRepository accountRepository = new AccountRepository();
+        DurableStorage storage = DurableStorage.open(directory, new UserRepository(), accountRepository,
+                new TransactionRepository(), new AccountLocks());
+        long recovery = System.nanoTime() - start;
+        System.out.printf("recovered=%d recoveryMs=%d retainedHeapMB=%d%n", accountRepository.getAll().size(),
+                TimeUnit.NANOSECONDS.toMillis(recovery), retainedHeap() >> 20);
+        storage.close();
+
+        deleteRecursively(directory);
+    }
+
+    /**
+     * Builds the ledger, snapshots it and posts the journal tail
+     *
+     * @return nanoseconds spent
+     */
+    private static long write(Path directory, int accounts, int tail) throws IOException {
+        long start = System.nanoTime();
+        UserRepository userRepository = new UserRepository();
+        AccountRepository accountRepository = new AccountRepository();
+        TransactionRepository transactionRepository = new TransactionRepository();
+        AccountLocks accountLocks = new AccountLocks();
+
+        try (DurableStorage storage = DurableStorage.open(directory, userRepository, accountRepository,
+                transactionRepository, accountLocks)) {
+            List<Account> chunk = new ArrayList<>(CHUNK);
+            User holder = null;
+            for (int i = 0; i < accounts; i++) {
+                if (i % ACCOUNTS_PER_HOLDER == 0) {
+                    holder = new User("User", Cpfs.of(i / ACCOUNTS_PER_HOLDER),
+                            "user" + i / ACCOUNTS_PER_HOLDER + "@bank.test");
+                    userRepository.save(holder);
+                }
+                chunk.add(new CheckingAccount(String.valueOf(1 + i % 100), holder));
+                if (chunk.size() == CHUNK || i == accounts - 1) {
+                    accountRepository.saveAll(chunk);
+                    chunk.clear();
+                }
+            }
+            storage.snapshot();
+
+            List<Account> all = new ArrayList<>(accountRepository.getAll());
+            LedgerService ledgerService = new LedgerService(accountRepository, transactionRepository, accountLocks);
+            SplittableRandom random = new SplittableRandom(42);
+            for (int posted = 0; posted < tail; posted += BATCH) {
+                List<LedgerOperation> batch = new ArrayList<>(BATCH);
+                for (int i = 0; i < Math.min(BATCH, tail - posted); i++) {
+                    Account account = all.get(random.nextInt(all.size()));
+                    batch.add(new LedgerOperation.Deposit(account.getBranchCode(), account.getNumber(), AMOUNT,
+                            "Deposit"));
+                }
+                ledgerService.postBatch(batch);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long journalSize(Path directory) throws IOException {
+        long total = 0;
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("journal")) {
+                    total += Files.size(file);
+                }
+            }
+        }
+        return total;
+    }
+
+    private static long size(Path directory, String name) throws IOException {
+        Path file = directory.resolve(name);
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    private static long retainedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Collections.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
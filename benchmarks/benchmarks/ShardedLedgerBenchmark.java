@@ -0,0 +1,137 @@
+package benchmarks;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import application.services.AccountService;
+import application.services.LedgerService;
+import application.services.ShardedLedgerEngine;
+import domain.entity.Account;
+import domain.entity.User;
+import domain.exception.InsufficientFundsException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers between {@code accounts} accounts through the lock based {@link LedgerService}
+ * and through the {@link ShardedLedgerEngine}, picking both sides uniformly or with a
+ * Zipf distribution that sends most of the traffic to a few hot accounts. The engine
+ * keeps a batch of transfers in flight per thread; the lock path runs the same batch
+ * one call at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(4)
+public class ShardedLedgerBenchmark {
+    private static final int BATCH = 64;
+    private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+    @Param({"uniform", "zipfian"})
+    public String distribution;
+
+    @Param({"1024"})
+    public int accounts;
+
+    private Account[] ledger;
+    private Zipfian zipfian;
+    private LedgerService ledgerService;
+    private ShardedLedgerEngine engine;
+
+    @Setup(Level.Iteration)
+    public void open() {
+        UserRepository userRepository = new UserRepository();
+        AccountRepository accountRepository = new AccountRepository();
+        TransactionRepository transactionRepository = new TransactionRepository();
+        AccountLocks accountLocks = new AccountLocks();
+        AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+        ledgerService = new LedgerService(accountRepository, transactionRepository, accountLocks);
+        engine = new ShardedLedgerEngine(accountRepository, transactionRepository, accountLocks);
+
+        User holder = new User("Holder", Cpfs.of(1), "holder@bank.test");
+        userRepository.save(holder);
+        ledger = new Account[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ledger[i] = accountService.createCheckingAccount("1", holder.getId());
+            ledgerService.deposit(ledger[i].getBranchCode(), ledger[i].getNumber(),
+                    new BigDecimal("1000000.00"), "Opening");
+        }
+        zipfian = new Zipfian(accounts, 0.99);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() {
+        engine.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom();
+
+        int next(ShardedLedgerBenchmark benchmark) {
+            return benchmark.distribution.equals("zipfian")
+                    ? benchmark.zipfian.next(random)
+                    : random.nextInt(benchmark.accounts);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void lockedTransfers(Picker picker) {
+        for (int i = 0; i < BATCH; i++) {
+            Account origin = ledger[picker.next(this)];
+            Account destination = ledger[picker.next(this)];
+            if (origin != destination) {
+                try {
+                    ledgerService.transfer(origin.getBranchCode(), origin.getNumber(),
+                            destination.getBranchCode(), destination.getNumber(), AMOUNT, "Transfer");
+                } catch (InsufficientFundsException e) {
+                    // counted like any other settled call
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void shardedTransfers(Picker picker) {
+        CompletableFuture<?>[] results = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            Account origin = ledger[picker.next(this)];
+            Account destination = ledger[picker.next(this)];
+            results[i] = origin == destination
+                    ? CompletableFuture.completedFuture(null)
+                    : engine.transfer(origin.getBranchCode(), origin.getNumber(),
+                            destination.getBranchCode(), destination.getNumber(), AMOUNT, "Transfer");
+        }
+        try {
+            CompletableFuture.allOf(results).join();
+        } catch (CompletionException e) {
+            // declined transfers are settled too
+        }
+    }
+}
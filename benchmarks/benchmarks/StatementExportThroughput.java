@@ -0,0 +1,163 @@
+package benchmarks;
+
+import application.repositories.TransactionRepository;
+import application.services.StatementExporter;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.Transaction;
+import domain.entity.User;
+import domain.valueObject.Money;
+import support.Cpfs;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lines per second and the heap an export needs on top of the history it reads:
+ * a statement of {@code rows} deposits and withdrawals on one account is exported in each
+ * format into a channel that only counts the bytes, with the peak of every heap pool
+ * reset right before the export:
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:exec -Dbench.main=benchmarks.StatementExportThroughput -Dbench.args="10000000"
+ * </pre>
+ *
+ * Ten million records take about 2.4 GB of heap before the export starts, which still fits
+ * the 3 GB the bench profile gives the JVM. The peak above the history is mostly garbage
+ * the young generation holds until it is collected, so it follows the heap sizing rather
+ * than the statement length.
+ */
+public final class StatementExportThroughput {
+    private static final Money AMOUNT = Money.of(new BigDecimal("1.00"));
+
+    private StatementExportThroughput() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        TransactionRepository transactionRepository = new TransactionRepository();
+        Account account = history(transactionRepository, rows);
+        StatementExporter exporter = new StatementExporter(transactionRepository);
+
+        long historyHeap = retainedHeap();
+        System.out.printf("rows=%d historyHeapMB=%d%n", rows, historyHeap >> 20);
+
+        // the first pass warms the exporter up; the second is the one reported
+        for (int pass = 0; pass < 2; pass++) {
+            for (StatementExporter.Format format : StatementExporter.Format.values()) {
+                retainedHeap();
+                resetPeaks();
+                CountingChannel channel = new CountingChannel();
+
+                long start = System.nanoTime();
+                long lines = exporter.export(account.getAccountCode(), null, null, format, channel);
+                long elapsed = System.nanoTime() - start;
+
+                if (pass == 1) {
+                    System.out.printf("format=%s lines=%d outputMB=%d seconds=%.2f linesPerSecond=%d "
+                                    + "peakHeapAboveHistoryMB=%d%n", format, lines, channel.bytes >> 20,
+                            elapsed / 1e9, lines * TimeUnit.SECONDS.toNanos(1) / elapsed,
+                            Math.max(0, peakHeap() - historyHeap) >> 20);
+                }
+            }
+        }
+    }
+
+    /**
+     * Posts the statement, one record a second, alternating deposits and withdrawals
+     */
+    private static Account history(TransactionRepository transactionRepository, int rows) {
+        Clock clock = new Clock() {
+            private Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                now = now.plus(Duration.ofSeconds(1));
+                return now;
+            }
+        };
+
+        Account account = new CheckingAccount("1", new User("Holder", Cpfs.of(1), "holder@bank.test"), clock);
+        for (int i = 0; i < rows; i++) {
+            Transaction transaction = i % 2 == 0
+                    ? account.deposit(AMOUNT, "Deposit")
+                    : account.withdraw(AMOUNT, i % 10 == 1 ? "Withdraw, \"cash\"" : "Withdraw");
+            transaction.confirm();
+            transactionRepository.save(transaction);
+        }
+        return account;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+
+    private static void resetPeaks() {
+        heapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    /**
+     * Sum of the pool peaks, an upper bound of the heap used at any one time
+     */
+    private static long peakHeap() {
+        return heapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    }
+
+    private static long retainedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Drops what is written, counting the bytes
+     */
+    private static final class CountingChannel implements WritableByteChannel {
+        private long bytes;
+
+        @Override
+        public int write(ByteBuffer source) {
+            int written = source.remaining();
+            source.position(source.limit());
+            bytes += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import application.repositories.TransactionRepository;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.Transaction;
+import domain.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves transactions spread over {@code accounts} accounts into a repository that starts
+ * empty on every iteration, and formats one for a statement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TransactionRepositoryBenchmark {
+    @Param({"100", "100000"})
+    public int accounts;
+
+    private Account[] ledger;
+    private TransactionRepository transactionRepository;
+    private Transaction detailed;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void open() {
+        User holder = new User("Holder", Cpfs.of(1), "holder@bank.test");
+        ledger = new Account[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ledger[i] = new CheckingAccount("1", holder);
+        }
+        detailed = ledger[0].deposit(new BigDecimal("1234.56"), "Salary");
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        transactionRepository = new TransactionRepository();
+    }
+
+    @Benchmark
+    public Transaction save() {
+        Transaction transaction = ledger[next++ % accounts].deposit(BigDecimal.ONE, "Deposit");
+        transactionRepository.save(transaction);
+        return transaction;
+    }
+
+    @Benchmark
+    public String toDetailedString() {
+        return detailed.toDetailedString();
+    }
+}
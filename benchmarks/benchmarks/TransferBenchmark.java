@@ -0,0 +1,119 @@
+package benchmarks;
+
+import application.metrics.Metrics;
+import application.metrics.OperationMetrics;
+import application.services.AccountLocks;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.TransferTransactions;
+import domain.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves money back and forth between two accounts under their account locks, once from a
+ * single thread and once from several threads all fighting over the same pair.
+ * <p>
+ * The {@code timed} variants also wrap each transfer in an {@link OperationMetrics} timer,
+ * as {@code LedgerService.transfer} does, and the {@code WithoutMetrics} ones run the same
+ * code in a fork started with {@value Metrics#ENABLED_PROPERTY}{@code =false}, so the pair
+ * shows what recording metrics costs:
+ *
+ * <pre>
+ * mvn -Pbench test-compile exec:exec -Dbench.args="TransferBenchmark.timed"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    private static final String METRICS_OFF = "-D" + Metrics.ENABLED_PROPERTY + "=false";
+
+    private final AccountLocks accountLocks = new AccountLocks();
+    private final OperationMetrics transferMetrics = Metrics.getDefault().operation("bench.transfer");
+    private Account first;
+    private Account second;
+
+    @Setup(Level.Trial)
+    public void open() {
+        User holder = new User("Holder", Cpfs.of(1), "holder@bank.test");
+        first = new CheckingAccount("1", holder);
+        second = new CheckingAccount("1", holder);
+        first.deposit(new BigDecimal("1000000.00"), "Opening");
+        second.deposit(new BigDecimal("1000000.00"), "Opening");
+    }
+
+    @State(Scope.Thread)
+    public static class Direction {
+        private boolean forward;
+
+        boolean flip() {
+            forward = !forward;
+            return forward;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TransferTransactions transfer(Direction direction) {
+        return transferOnce(direction);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TransferTransactions transferContended(Direction direction) {
+        return transferOnce(direction);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TransferTransactions timedTransfer(Direction direction) {
+        return transferMetrics.time(() -> transferOnce(direction));
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Fork(value = 1, jvmArgsAppend = METRICS_OFF)
+    public TransferTransactions timedTransferWithoutMetrics(Direction direction) {
+        return transferMetrics.time(() -> transferOnce(direction));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TransferTransactions timedTransferContended(Direction direction) {
+        return transferMetrics.time(() -> transferOnce(direction));
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Fork(value = 1, jvmArgsAppend = METRICS_OFF)
+    public TransferTransactions timedTransferContendedWithoutMetrics(Direction direction) {
+        return transferMetrics.time(() -> transferOnce(direction));
+    }
+
+    private TransferTransactions transferOnce(Direction direction) {
+        Account origin = direction.flip() ? first : second;
+        Account destination = origin == first ? second : first;
+        return accountLocks.withLocks(origin.getAccountKey(), destination.getAccountKey(),
+                () -> origin.transfer(AMOUNT, destination));
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import application.repositories.UserRepository;
+import domain.entity.User;
+import domain.valueObject.Email;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks users up by CPF and by email in repositories of growing size; with the unique
+ * indexes the latency should stay flat from ten thousand to ten million users. The largest
+ * size needs about 6 GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class UserLookupBenchmark {
+    @Param({"10000", "1000000", "10000000"})
+    public int users;
+
+    private UserRepository userRepository;
+    private String[] cpfs;
+    private Email[] emails;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        userRepository = new UserRepository();
+        // looks up a sample, so the key arrays do not add to the footprint being measured
+        int sample = Math.min(users, 65_536);
+        cpfs = new String[sample];
+        emails = new Email[sample];
+
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < users; i++) {
+            User user = new User("User", Cpfs.of(i), "user" + i + "@bank.test");
+            userRepository.save(user);
+            // reservoir keeps an even sample over the whole repository
+            int slot = i < sample ? i : random.nextInt(i + 1);
+            if (slot < sample) {
+                cpfs[slot] = user.getCpf();
+                emails[slot] = Email.of(user.getEmailAddress());
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Picker {
+        private final SplittableRandom random = new SplittableRandom(7);
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    public Optional<User> findByCPF(Picker picker) {
+        return userRepository.findByCPF(cpfs[picker.next(cpfs.length)]);
+    }
+
+    @Benchmark
+    public Optional<User> findByEmail(Picker picker) {
+        return userRepository.findByEmail(emails[picker.next(emails.length)]);
+    }
+}
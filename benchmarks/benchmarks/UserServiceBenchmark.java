@@ -0,0 +1,54 @@
+package benchmarks;
+
+import application.repositories.UserRepository;
+import application.services.UserService;
+import domain.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers users into a repository already holding {@code users} of them, so the cost of
+ * the CPF and email validation and of the duplicate checks is measured at each size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UserServiceBenchmark {
+    @Param({"10000", "1000000"})
+    public int users;
+
+    private UserService userService;
+    private long next;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        UserRepository userRepository = new UserRepository();
+        for (int i = 0; i < users; i++) {
+            userRepository.save(new User("User " + i, Cpfs.of(i), "user" + i + "@bank.test"));
+        }
+        userService = new UserService(userRepository);
+        next = users;
+    }
+
+    @Benchmark
+    public User createUser() {
+        long n = next++;
+        return userService.createUser("User " + n, Cpfs.of(n), "user" + n + "@bank.test");
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+import domain.valueObject.CPF;
+import domain.valueObject.Email;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import support.Cpfs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Validates formatted CPFs and mixed-case email addresses with the character scans and,
+ * for comparison, with the regular expressions they replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    private static final int INPUTS = 1024;
+    private static final Pattern LEGACY_EMAIL = Pattern.compile("^(?i)[a-z0-9._%+-]+@(?:[a-z0-9-]+\\.)+[a-z]{2,}$");
+
+    private final String[] cpfs = new String[INPUTS];
+    private final String[] emails = new String[INPUTS];
+    private int next;
+
+    @Setup
+    public void prepare() {
+        for (int i = 0; i < INPUTS; i++) {
+            String cpf = Cpfs.of(i * 7919L);
+            cpfs[i] = cpf.substring(0, 3) + "." + cpf.substring(3, 6) + "." + cpf.substring(6, 9) + "-"
+                    + cpf.substring(9);
+            emails[i] = (i % 2 == 0 ? "User." : "user.") + i + "@Bank" + i % 10 + ".com.br";
+        }
+    }
+
+    @Benchmark
+    public CPF cpf() {
+        return CPF.of(cpfs[next++ & (INPUTS - 1)]);
+    }
+
+    @Benchmark
+    public String legacyCpf() {
+        String digits = cpfs[next++ & (INPUTS - 1)].replaceAll("\\D", "");
+        if (digits.length() != 11 || digits.matches("(\\d)\\1{10}")) {
+            throw new IllegalArgumentException("Invalid CPF.");
+        }
+        return digits;
+    }
+
+    @Benchmark
+    public Email email() {
+        return Email.of(emails[next++ & (INPUTS - 1)]);
+    }
+
+    @Benchmark
+    public String legacyEmail() {
+        String address = emails[next++ & (INPUTS - 1)].toLowerCase().trim();
+        if (!LEGACY_EMAIL.matcher(address).matches()) {
+            throw new IllegalArgumentException("Invalid email.");
+        }
+        return address;
+    }
+}
@@ -0,0 +1,110 @@
+package application.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of durations in nanoseconds.
+ * <p>
+ * Like an HDR histogram, every power of two is split into {@value #SUB_BUCKETS} linear
+ * sub-buckets, so any recorded value is reported within about 3% and the whole range
+ * of a {@code long} fits in a fixed array. Recording is one array increment plus a
+ * {@link LongAdder} update and never allocates; the maximum is read from the highest
+ * bucket in use. The array holds one row of buckets per stripe and a thread records
+ * into the row of its id, so threads timing the same operation at once rarely write
+ * the same cell; a snapshot adds the rows up.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values below 2 * SUB_BUCKETS map one to one, each octave above adds SUB_BUCKETS buckets
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    // a power of two up to the processor count, at most 8
+    private static final int STRIPES = Integer.highestOneBit(
+            Math.min(Runtime.getRuntime().availableProcessors(), 8) * 2 - 1);
+
+    private final AtomicLongArray buckets = new AtomicLongArray(STRIPES * BUCKET_COUNT);
+    private final LongAdder total = new LongAdder();
+
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * Records a duration that stands for {@code count} calls, as a sampled timer does
+     */
+    public void record(long nanos, long count) {
+        long value = Math.max(nanos, 0);
+        int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        buckets.getAndAdd(stripe * BUCKET_COUNT + indexOf(value), count);
+        total.add(value * count);
+    }
+
+    /**
+     * Copies the current counts; concurrent recordings may be partly included
+     */
+    public LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long recorded = 0;
+        long max = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                counts[i] += buckets.get(stripe * BUCKET_COUNT + i);
+            }
+            recorded += counts[i];
+            if (counts[i] > 0) {
+                max = highestOf(i);
+            }
+        }
+
+        return new LatencySnapshot(recorded, total.sum(), max,
+                percentile(counts, recorded, 0.5), percentile(counts, recorded, 0.9),
+                percentile(counts, recorded, 0.99), percentile(counts, recorded, 0.999));
+    }
+
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        total.reset();
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        // keeps the top SUB_BUCKET_BITS + 1 bits of the value
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Highest value that falls into the bucket
+     */
+    static long highestOf(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static long percentile(long[] counts, long recorded, double quantile) {
+        if (recorded == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * recorded));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestOf(i);
+            }
+        }
+        return highestOf(counts.length - 1);
+    }
+}
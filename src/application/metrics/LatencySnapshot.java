@@ -0,0 +1,13 @@
+package application.metrics;
+
+/**
+ * Point-in-time copy of a {@link LatencyHistogram}; every duration is in nanoseconds, and
+ * the maximum and the percentiles are the upper bound of the bucket they fall into
+ */
+public record LatencySnapshot(long count, long totalNanos, long maxNanos, long p50Nanos, long p90Nanos,
+                              long p99Nanos, long p999Nanos) {
+
+    public double meanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+}
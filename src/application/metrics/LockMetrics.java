@@ -0,0 +1,53 @@
+package application.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Acquisition and contention counters of the striped account locks.
+ * <p>
+ * {@link #lock} first tries the lock without waiting; only when that fails is the
+ * acquisition counted as contended and its wait timed. Uncontended acquisitions are
+ * sampled like operation timings, so most of them cost no counter update at all.
+ */
+public final class LockMetrics {
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LatencyHistogram wait = new LatencyHistogram();
+
+    LockMetrics() {
+    }
+
+    /**
+     * Acquires the lock, recording whether it had to wait and for how long
+     */
+    public void lock(Lock lock) {
+        if (!Metrics.isEnabled()) {
+            lock.lock();
+            return;
+        }
+
+        if (lock.tryLock()) {
+            if (Metrics.sampled()) {
+                acquisitions.add(Metrics.SAMPLE_RATE);
+            }
+            return;
+        }
+
+        acquisitions.increment();
+        contended.increment();
+        long start = System.nanoTime();
+        lock.lock();
+        wait.record(System.nanoTime() - start);
+    }
+
+    public LockSnapshot snapshot() {
+        return new LockSnapshot(acquisitions.sum(), contended.sum(), wait.snapshot());
+    }
+
+    void reset() {
+        acquisitions.reset();
+        contended.reset();
+        wait.reset();
+    }
+}
@@ -0,0 +1,11 @@
+package application.metrics;
+
+/**
+ * Account lock acquisitions, how many found the lock taken, and how long those waited
+ */
+public record LockSnapshot(long acquisitions, long contended, LatencySnapshot waits) {
+
+    public double contentionRatio() {
+        return acquisitions == 0 ? 0 : (double) contended / acquisitions;
+    }
+}
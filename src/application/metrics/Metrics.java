@@ -0,0 +1,148 @@
+package application.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Registry of the operation and lock metrics of the process.
+ * <p>
+ * Services and repositories register their operations once, when they are built, and
+ * record into the returned {@link OperationMetrics} without any lookup. Everything can be
+ * read as a {@link MetricsSnapshot} or dumped in the Prometheus text format. Setting the
+ * system property {@value #ENABLED_PROPERTY} to {@code false} at startup turns recording
+ * off; the flag is a constant, so the JIT drops the timing code entirely.
+ * <p>
+ * Two clock reads cost a noticeable share of a sub-microsecond transfer, so only about one
+ * call in {@value #SAMPLE_RATE} is timed and recorded with that weight. Latency
+ * percentiles keep their accuracy, while call counts, latency sums and uncontended lock
+ * acquisitions are estimates. Failures, contended acquisitions and lock waits are
+ * recorded on every occurrence.
+ */
+public final class Metrics {
+    public static final String ENABLED_PROPERTY = "bank.metrics.enabled";
+    public static final int SAMPLE_RATE = 32;
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY));
+    private static final Metrics DEFAULT = new Metrics();
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final LockMetrics locks = new LockMetrics();
+
+    public static Metrics getDefault() {
+        return DEFAULT;
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Picks about one call in {@value #SAMPLE_RATE}; the per-thread random never contends
+     */
+    static boolean sampled() {
+        return ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+    }
+
+    /**
+     * Returns the metrics of the named operation, registering it on first use
+     */
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    public LockMetrics locks() {
+        return locks;
+    }
+
+    public MetricsSnapshot snapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>(operations.size());
+        for (OperationMetrics operation : operations.values()) {
+            snapshots.add(operation.snapshot());
+        }
+        snapshots.sort(Comparator.comparing(OperationSnapshot::name));
+        return new MetricsSnapshot(ENABLED, snapshots, locks.snapshot());
+    }
+
+    /**
+     * Clears every recorded value; registered operations stay registered
+     */
+    public void reset() {
+        for (OperationMetrics operation : operations.values()) {
+            operation.reset();
+        }
+        locks.reset();
+    }
+
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder(4096);
+        writePrometheusText(text);
+        return text.toString();
+    }
+
+    /**
+     * Writes a snapshot in the Prometheus text exposition format, durations in seconds
+     */
+    public void writePrometheusText(Appendable out) {
+        MetricsSnapshot snapshot = snapshot();
+        try {
+            out.append("# HELP bank_operation_duration_seconds Duration of service and repository operations.\n");
+            out.append("# TYPE bank_operation_duration_seconds summary\n");
+            for (OperationSnapshot operation : snapshot.operations()) {
+                writeSummary(out, "bank_operation_duration_seconds",
+                        "operation=\"" + operation.name() + "\"", operation.latency());
+            }
+
+            out.append("# HELP bank_operation_failures_total Failed operations by exception type.\n");
+            out.append("# TYPE bank_operation_failures_total counter\n");
+            for (OperationSnapshot operation : snapshot.operations()) {
+                for (Map.Entry<String, Long> failure : operation.failures().entrySet()) {
+                    out.append("bank_operation_failures_total{operation=\"").append(operation.name())
+                            .append("\",exception=\"").append(failure.getKey()).append("\"} ")
+                            .append(Long.toString(failure.getValue())).append('\n');
+                }
+            }
+
+            LockSnapshot locks = snapshot.locks();
+            out.append("# HELP bank_account_lock_acquisitions_total Account lock acquisitions.\n");
+            out.append("# TYPE bank_account_lock_acquisitions_total counter\n");
+            out.append("bank_account_lock_acquisitions_total ").append(Long.toString(locks.acquisitions())).append('\n');
+            out.append("# HELP bank_account_lock_contended_total Account lock acquisitions that had to wait.\n");
+            out.append("# TYPE bank_account_lock_contended_total counter\n");
+            out.append("bank_account_lock_contended_total ").append(Long.toString(locks.contended())).append('\n');
+            out.append("# HELP bank_account_lock_wait_seconds Time spent waiting for a taken account lock.\n");
+            out.append("# TYPE bank_account_lock_wait_seconds summary\n");
+            writeSummary(out, "bank_account_lock_wait_seconds", null, locks.waits());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeSummary(Appendable out, String name, String labels, LatencySnapshot latency)
+            throws IOException {
+        String prefix = labels == null ? "" : labels + ",";
+        writeSample(out, name, "{" + prefix + "quantile=\"0.5\"}", seconds(latency.p50Nanos()));
+        writeSample(out, name, "{" + prefix + "quantile=\"0.9\"}", seconds(latency.p90Nanos()));
+        writeSample(out, name, "{" + prefix + "quantile=\"0.99\"}", seconds(latency.p99Nanos()));
+        writeSample(out, name, "{" + prefix + "quantile=\"0.999\"}", seconds(latency.p999Nanos()));
+
+        String suffix = labels == null ? "" : "{" + labels + "}";
+        writeSample(out, name + "_sum", suffix, seconds(latency.totalNanos()));
+        out.append(name).append("_count").append(suffix).append(' ')
+                .append(Long.toString(latency.count())).append('\n');
+    }
+
+    private static void writeSample(Appendable out, String name, String labels, double value) throws IOException {
+        out.append(name).append(labels).append(' ').append(Double.toString(value)).append('\n');
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / NANOS_PER_SECOND;
+    }
+}
@@ -0,0 +1,9 @@
+package application.metrics;
+
+import java.util.List;
+
+/**
+ * Every operation and the account locks as they were when {@link Metrics#snapshot} ran
+ */
+public record MetricsSnapshot(boolean enabled, List<OperationSnapshot> operations, LockSnapshot locks) {
+}
@@ -0,0 +1,86 @@
+package application.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Latency histogram and failure counters of one operation.
+ * <p>
+ * Services keep the instance in a field and wrap each call in {@link #time}. Most calls
+ * only draw a per-thread random number; the sampled ones add two {@code nanoTime} reads
+ * and a histogram update. With metrics switched off it only runs the call.
+ */
+public final class OperationMetrics {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final Map<Class<?>, LongAdder> failures = new ConcurrentHashMap<>();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public <T> T time(Supplier<T> call) {
+        if (!Metrics.isEnabled()) {
+            return call.get();
+        }
+
+        if (!Metrics.sampled()) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                fail(e.getClass());
+                throw e;
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            latency.record(System.nanoTime() - start, Metrics.SAMPLE_RATE);
+            return result;
+        } catch (RuntimeException e) {
+            latency.record(System.nanoTime() - start, Metrics.SAMPLE_RATE);
+            fail(e.getClass());
+            throw e;
+        }
+    }
+
+    /**
+     * Counts a failure that was returned instead of thrown, under the exception type the
+     * throwing variant of the call would raise
+     */
+    public void countFailure(Class<? extends RuntimeException> type) {
+        if (Metrics.isEnabled()) {
+            fail(type);
+        }
+    }
+
+    public void time(Runnable call) {
+        time(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public OperationSnapshot snapshot() {
+        Map<String, Long> failed = new TreeMap<>();
+        failures.forEach((type, count) -> failed.merge(type.getSimpleName(), count.sum(), Long::sum));
+        return new OperationSnapshot(name, latency.snapshot(), failed);
+    }
+
+    private void fail(Class<?> type) {
+        failures.computeIfAbsent(type, key -> new LongAdder()).increment();
+    }
+
+    void reset() {
+        latency.reset();
+        failures.clear();
+    }
+}
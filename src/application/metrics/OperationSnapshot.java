@@ -0,0 +1,17 @@
+package application.metrics;
+
+import java.util.Map;
+
+/**
+ * Latency of every call of an operation, failed ones included, and the failures by exception type
+ */
+public record OperationSnapshot(String name, LatencySnapshot latency, Map<String, Long> failures) {
+
+    public long failureCount() {
+        long count = 0;
+        for (long failed : failures.values()) {
+            count += failed;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,451 @@
+package application.persistence;
+
+import application.repositories.AccountRepository;
+import application.repositories.IdempotencyCache;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import domain.entity.Account;
+import domain.entity.AccountNumberAllocator;
+import domain.entity.CheckingAccount;
+import domain.entity.SavingsAccount;
+import domain.entity.Transaction;
+import domain.entity.User;
+import domain.valueObject.Email;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable mode for the in-memory repositories.
+ * <p>
+ * {@link #open} recovers the repositories from the latest snapshot plus the journal
+ * tail written after it, then attaches the journal so every later change is logged.
+ * Balances are rebuilt from the {@code balanceAfter} of replayed transactions, so
+ * replay only ever sets absolute values and is safe to run over a snapshot that is
+ * newer than the journal position it records.
+ * <p>
+ * Each snapshot starts a new journal segment and records its start; the segments before
+ * it are then compacted: their transaction records move to {@code history.log} for
+ * {@link #loadHistory} and the segments are deleted, so the journal only ever holds
+ * what was written since the last snapshot or two.
+ */
+public final class DurableStorage implements Closeable {
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String HISTORY_FILE = "history.log";
+
+    private final Path directory;
+    private final Path snapshotFile;
+    private final HistoryFile history;
+    private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountLocks accountLocks;
+    private final IdempotencyCache idempotencyCache;
+    // keys replayed from the journal tail, resolved once their transactions are replayed too
+    private final List<PersistenceCodec.IdempotencyKeyState> replayedKeys = new ArrayList<>();
+    private final JournalReader.Position recoveredSnapshotPosition;
+    private final Journal journal;
+    private final Object snapshotLock = new Object();
+
+    private ScheduledExecutorService scheduler;
+    private volatile IOException lastSnapshotFailure;
+
+    private DurableStorage(Path directory, UserRepository userRepository, AccountRepository accountRepository,
+                           TransactionRepository transactionRepository, AccountLocks accountLocks,
+                           IdempotencyCache idempotencyCache) throws IOException {
+        this.directory = directory;
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.history = new HistoryFile(directory.resolve(HISTORY_FILE));
+        this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountLocks = accountLocks;
+        this.idempotencyCache = idempotencyCache;
+
+        this.recoveredSnapshotPosition = SnapshotFile.read(snapshotFile, userRepository::save, this::restoreAccount,
+                AccountNumberAllocator.getDefault()::reserveSequence, idempotencyCache::restore);
+        this.journal = replayJournal();
+    }
+
+    /**
+     * Replays the journal segments from the one holding the snapshot position on and
+     * opens the journal after the last valid record. Segments past a break in the chain
+     * can only follow records that were never acknowledged, so they are dropped like a
+     * torn tail.
+     */
+    private Journal replayJournal() throws IOException {
+        JournalReader.Position end = recoveredSnapshotPosition;
+        List<Long> bases = Journal.segmentBases(directory);
+
+        int next = 0;
+        while (next < bases.size() && bases.get(next) <= end.sequence()) {
+            next++;
+        }
+        if (next == 0) {
+            if (!bases.isEmpty()) {
+                throw new IOException("Journal segments do not continue the snapshot.");
+            }
+            // a legacy snapshot points into the first segment
+            return Journal.open(directory, end.offset() == 0 ? end.sequence() : 0, end);
+        }
+
+        long segmentBase = bases.get(next - 1);
+        end = JournalReader.read(Journal.segmentFile(directory, segmentBase), end, this::replay);
+        while (next < bases.size() && bases.get(next) == end.sequence()) {
+            segmentBase = bases.get(next++);
+            end = JournalReader.read(Journal.segmentFile(directory, segmentBase),
+                    new JournalReader.Position(segmentBase, 0), this::replay);
+        }
+        for (; next < bases.size(); next++) {
+            Files.delete(Journal.segmentFile(directory, bases.get(next)));
+        }
+
+        restoreReplayedKeys();
+        return Journal.open(directory, segmentBase, end);
+    }
+
+    /**
+     * Recovers the given empty repositories from the directory and starts journaling their changes.
+     * {@code accountLocks} must be the instance used by the services that post to the ledger.
+     */
+    public static DurableStorage open(Path directory, UserRepository userRepository,
+                                      AccountRepository accountRepository,
+                                      TransactionRepository transactionRepository,
+                                      AccountLocks accountLocks) throws IOException {
+        return open(directory, userRepository, accountRepository, transactionRepository, accountLocks,
+                new IdempotencyCache());
+    }
+
+    /**
+     * Same as above, also recovering and journaling the idempotency keys of {@code idempotencyCache},
+     * which must be the instance used by the ledger service
+     */
+    public static DurableStorage open(Path directory, UserRepository userRepository,
+                                      AccountRepository accountRepository,
+                                      TransactionRepository transactionRepository,
+                                      AccountLocks accountLocks, IdempotencyCache idempotencyCache)
+            throws IOException {
+        Files.createDirectories(directory);
+
+        DurableStorage storage = new DurableStorage(directory, userRepository, accountRepository,
+                transactionRepository, accountLocks, idempotencyCache);
+
+        userRepository.attachJournal(storage.journal);
+        accountRepository.attachJournal(storage.journal);
+        transactionRepository.attachJournal(storage.journal);
+        idempotencyCache.attachJournal(storage.journal);
+        return storage;
+    }
+
+    /**
+     * Loads the transaction history older than the recovered snapshot.
+     * Balances do not depend on it, so it can run after the services are already serving.
+     */
+    public void loadHistory() throws IOException {
+        long until = recoveredSnapshotPosition.sequence();
+
+        // compaction must not move records out of a segment while it is being read
+        synchronized (snapshotLock) {
+            long compacted = history.read(until, (sequence, type, payload) -> restoreHistory(type, payload));
+
+            // segments a crash left behind before they were compacted, or the tail of the
+            // first segment a legacy snapshot points into
+            for (long base : Journal.segmentBases(directory)) {
+                if (base >= until) {
+                    break;
+                }
+                JournalReader.read(Journal.segmentFile(directory, base), new JournalReader.Position(base, 0),
+                        Long.MAX_VALUE, (sequence, type, payload) -> {
+                            if (sequence > compacted && sequence <= until) {
+                                restoreHistory(type, payload);
+                            }
+                        });
+            }
+        }
+    }
+
+    private void restoreHistory(byte type, byte[] payload) throws IOException {
+        if (type == Journal.TRANSACTION) {
+            restoreTransaction(PersistenceCodec.readTransaction(inputOf(payload)));
+        } else if (type == Journal.VERSIONED_TRANSACTION) {
+            restoreTransaction(PersistenceCodec.readVersionedTransaction(inputOf(payload)));
+        } else if (type == Journal.SPLIT_CREDIT) {
+            DataInputStream in = inputOf(payload);
+            // stripe count and stripe only matter to balances
+            in.readShort();
+            in.readShort();
+            transactionRepository.restoreSplitCredit(PersistenceCodec.readTransaction(in));
+        }
+    }
+
+    /**
+     * Writes a snapshot so the next recovery only replays the journal written after it,
+     * then compacts the journal segments it made redundant
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            JournalReader.Position position = journal.roll();
+
+            List<Account> accounts = new ArrayList<>(accountRepository.getAll());
+
+            // holders of the copied accounts are included even if created after the user copy
+            Map<String, User> users = new LinkedHashMap<>();
+            for (User user : userRepository.findAll()) {
+                users.put(user.getId(), user);
+            }
+            for (Account account : accounts) {
+                users.putIfAbsent(account.getHolder().getId(), account.getHolder());
+            }
+
+            // the snapshot may hold balances whose records are only queued; it must not
+            // replace the previous one before those records are durable
+            SnapshotFile.write(snapshotFile, position, users.values(), accounts,
+                    AccountNumberAllocator.getDefault().highWaterMarks(), idempotencyCache.getRecorded(), accountLocks,
+                    () -> journal.awaitDurable(journal.appendedSequence()));
+
+            compact(position.sequence());
+        }
+    }
+
+    /**
+     * Moves the transaction records of the segments before the snapshot position to the
+     * history file, then deletes the segments; a crash in between only copies them again
+     */
+    private void compact(long snapshotSequence) throws IOException {
+        List<Long> sealed = new ArrayList<>();
+        for (long base : Journal.segmentBases(directory)) {
+            if (base < snapshotSequence) {
+                sealed.add(base);
+            }
+        }
+        if (sealed.isEmpty()) {
+            return;
+        }
+
+        history.append(directory, sealed);
+        for (long base : sealed) {
+            Files.delete(Journal.segmentFile(directory, base));
+        }
+    }
+
+    /**
+     * Takes a snapshot at a fixed interval on a background thread
+     */
+    public synchronized void scheduleSnapshots(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Snapshots are already scheduled.");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+                lastSnapshotFailure = null;
+            } catch (IOException e) {
+                lastSnapshotFailure = e;
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the error of the last scheduled snapshot, if it failed
+     */
+    public Optional<IOException> getLastSnapshotFailure() {
+        return Optional.ofNullable(lastSnapshotFailure);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        journal.close();
+    }
+
+    private void restoreAccount(PersistenceCodec.AccountState state) throws IOException {
+        // storage engines that outlive the process may already hold the account
+        Optional<Account> existing = accountRepository.getByAccountCode(state.accountCode());
+        if (existing.isPresent()) {
+            state.applyTo(existing.get());
+            if (state.balance() != null) {
+                existing.get().restoreBalance(state.balance());
+                existing.get().restoreSplitCredits(state.splitCredits());
+                existing.get().restoreVersion(state.version());
+            }
+            accountLocks.registerSplitAccount(existing.get());
+            accountRepository.updateBalance(existing.get());
+            return;
+        }
+
+        User holder = userRepository.findById(state.holderId())
+                .orElseThrow(() -> new IOException("Snapshot account references unknown user " + state.holderId()));
+        Account account = state.toAccount(holder);
+        accountLocks.registerSplitAccount(account);
+        accountRepository.save(account);
+    }
+
+    private void replay(byte type, byte[] payload) throws IOException {
+        DataInputStream in = inputOf(payload);
+
+        switch (type) {
+            case Journal.USER -> replayUser(PersistenceCodec.readUser(in));
+            case Journal.USER_REMOVED -> userRepository.findById(in.readUTF()).ifPresent(userRepository::remove);
+            case Journal.ACCOUNT -> restoreAccount(PersistenceCodec.readAccount(in, false, false, false, false));
+            case Journal.ACCOUNT_REMOVED -> {
+                String accountCode = in.readUTF();
+                int separator = accountCode.lastIndexOf('-');
+                String branchCode = accountCode.substring(0, separator);
+                String number = accountCode.substring(separator + 1);
+                // the number stays taken even though the account is gone
+                AccountNumberAllocator.getDefault().reserve(branchCode, number);
+                accountRepository.remove(branchCode, number);
+            }
+            case Journal.TRANSACTION -> replayTransaction(PersistenceCodec.readTransaction(in));
+            case Journal.VERSIONED_TRANSACTION -> replayTransaction(PersistenceCodec.readVersionedTransaction(in));
+            case Journal.IDEMPOTENCY_KEY -> replayedKeys.add(PersistenceCodec.readIdempotencyKey(in));
+            case Journal.SPLIT_CREDITS_ENABLED -> {
+                String accountCode = in.readUTF();
+                int stripes = in.readShort();
+                // through the repository, so storage engines without split cells refuse it here
+                accountRepository.getByAccountCode(accountCode).ifPresent(account -> {
+                    accountRepository.enableSplitCredits(account, stripes);
+                    accountLocks.registerSplitAccount(account);
+                });
+            }
+            case Journal.SPLIT_CREDIT -> replaySplitCredit(in.readShort(), in.readShort(),
+                    PersistenceCodec.readTransaction(in));
+            case Journal.FEE_PERIOD_SETTLED -> replayFeePeriod(PersistenceCodec.readFeePeriodSettled(in));
+            default -> throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private void replayUser(User user) {
+        Optional<User> existing = userRepository.findById(user.getId());
+
+        if (existing.isEmpty()) {
+            userRepository.save(user);
+            return;
+        }
+
+        // keeps the instance accounts already point to
+        User current = existing.get();
+        current.setName(user.getName());
+        if (!current.getEmailAddress().equals(user.getEmailAddress())) {
+            userRepository.changeEmail(current, Email.of(user.getEmailAddress()));
+        }
+    }
+
+    private void replayTransaction(Transaction transaction) {
+        if (!restoreTransaction(transaction)) {
+            return;
+        }
+
+        accountRepository.getByAccountKey(transaction.getLedgerAccountKey())
+                .ifPresent(account -> {
+                    // lock-free changes may reach the journal out of order; a record whose
+                    // version the balance already covers is only history
+                    long version = transaction.getAccountVersion();
+                    if (version == 0) {
+                        account.restoreBalance(transaction.getBalanceAfter());
+                    } else if (version > account.getVersion()) {
+                        account.restoreBalance(transaction.getBalanceAfter());
+                        account.restoreVersion(version);
+                    }
+                    // the monthly batch settles periods through these records
+                    if (account instanceof CheckingAccount checking) {
+                        CheckingAccount.feePeriodOf(transaction).ifPresent(checking::restoreLastFeePeriod);
+                    } else if (account instanceof SavingsAccount savings) {
+                        SavingsAccount.yieldDateOf(transaction).ifPresent(savings::restoreLastIncome);
+                    }
+                    accountRepository.updateBalance(account);
+                });
+    }
+
+    /**
+     * Marks a month settled without a fee; months settled with one are restored from the fee record
+     */
+    private void replayFeePeriod(PersistenceCodec.FeePeriodState state) {
+        accountRepository.getByAccountCode(state.accountCode()).ifPresent(account -> {
+            if (account instanceof CheckingAccount checking) {
+                checking.restoreLastFeePeriod(state.period());
+                accountRepository.updateBalance(account);
+            }
+        });
+    }
+
+    /**
+     * Applies a transfer credited to a split cell; the record holds the cell value, which only
+     * grows until a later record of the account absorbs it, so replaying it again is harmless
+     */
+    private void replaySplitCredit(int stripes, int stripe, Transaction transaction) {
+        transactionRepository.restoreSplitCredit(transaction);
+
+        accountRepository.getByAccountKey(transaction.getLedgerAccountKey())
+                .ifPresent(account -> {
+                    account.restoreSplitCredit(stripes, stripe, transaction.getBalanceAfterCents());
+                    accountLocks.registerSplitAccount(account);
+                    accountRepository.updateBalance(account);
+                });
+    }
+
+    /**
+     * Stores a transaction, or applies the status of a repeated record of one already stored
+     *
+     * @return true if it is the first record of the transaction
+     */
+    private boolean restoreTransaction(Transaction transaction) {
+        if (transactionRepository.restore(transaction)) {
+            return true;
+        }
+
+        // a settled two-step transfer is written again with its final status only
+        transactionRepository.findById(transaction.getTransactionId())
+                .ifPresent(existing -> existing.restoreStatus(transaction.getStatus()));
+        return false;
+    }
+
+    /**
+     * Restores replayed keys whose transactions all made it to the journal; a key whose
+     * request crashed before its transactions were durable is dropped so a retry runs again
+     */
+    private void restoreReplayedKeys() {
+        for (PersistenceCodec.IdempotencyKeyState state : replayedKeys) {
+            List<Transaction> transactions = new ArrayList<>(state.transactionIds().size());
+            for (String id : state.transactionIds()) {
+                transactionRepository.findById(id).ifPresent(transactions::add);
+            }
+
+            if (transactions.size() == state.transactionIds().size()) {
+                idempotencyCache.restore(state.key(), state.fingerprint(), state.createdAt(), transactions);
+            }
+        }
+        replayedKeys.clear();
+    }
+
+    private static DataInputStream inputOf(byte[] payload) {
+        return new DataInputStream(new ByteArrayInputStream(payload));
+    }
+}
@@ -0,0 +1,144 @@
+package application.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Transaction history moved out of the journal segments a snapshot made redundant.
+ * <p>
+ * Records keep the journal layout and their journal sequence, so sequences increase
+ * but leave gaps where the records that only mattered to balances were. Copying a
+ * segment again after a crash only adds the records newer than the last one in the
+ * file; reading stops at the first incomplete or corrupt record, which the next
+ * append overwrites.
+ */
+final class HistoryFile {
+    private final Path file;
+
+    // end of the valid records, found by the first read or append
+    private long endOffset = -1;
+    private long lastSequence;
+
+    HistoryFile(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Copies the transaction records of the given journal segments, oldest first, and
+     * forces them to disk
+     */
+    void append(Path directory, List<Long> segmentBases) throws IOException {
+        if (endOffset < 0) {
+            read(0, (sequence, type, payload) -> {
+            });
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(endOffset);
+            channel.position(endOffset);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+            ByteBuffer scratch = ByteBuffer.allocate(Byte.BYTES + Long.BYTES);
+            CRC32 crc = new CRC32();
+            long[] last = {lastSequence};
+
+            for (long base : segmentBases) {
+                JournalReader.read(Journal.segmentFile(directory, base), new JournalReader.Position(base, 0),
+                        Long.MAX_VALUE, (sequence, type, payload) -> {
+                            if (sequence > last[0] && isHistory(type)) {
+                                out.writeInt(payload.length);
+                                out.writeByte(type);
+                                out.writeLong(sequence);
+                                out.write(payload);
+                                out.writeInt(Journal.checksum(crc, scratch, type, sequence, payload));
+                                last[0] = sequence;
+                            }
+                        });
+            }
+            out.flush();
+            channel.force(false);
+
+            endOffset = channel.position();
+            lastSequence = last[0];
+        }
+    }
+
+    /**
+     * Feeds every valid record up to the given journal sequence to the handler
+     *
+     * @return sequence of the last valid record in the file
+     */
+    long read(long until, JournalReader.SequencedRecordHandler handler) throws IOException {
+        if (!Files.exists(file)) {
+            endOffset = 0;
+            lastSequence = 0;
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+
+            ByteBuffer scratch = ByteBuffer.allocate(Byte.BYTES + Long.BYTES);
+            CRC32 crc = new CRC32();
+
+            long offset = 0;
+            long sequence = 0;
+
+            while (true) {
+                byte type;
+                long recordSequence;
+                byte[] payload;
+
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > Journal.MAX_PAYLOAD_SIZE) {
+                        break;
+                    }
+
+                    type = in.readByte();
+                    recordSequence = in.readLong();
+                    payload = new byte[length];
+                    in.readFully(payload);
+
+                    if (in.readInt() != Journal.checksum(crc, scratch, type, recordSequence, payload)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                if (recordSequence <= sequence) {
+                    break;
+                }
+
+                if (recordSequence <= until) {
+                    handler.handle(recordSequence, type, payload);
+                }
+                offset += Journal.HEADER_SIZE + payload.length + Integer.BYTES;
+                sequence = recordSequence;
+            }
+
+            endOffset = offset;
+            lastSequence = sequence;
+            return sequence;
+        }
+    }
+
+    static boolean isHistory(byte type) {
+        return type == Journal.TRANSACTION || type == Journal.VERSIONED_TRANSACTION || type == Journal.SPLIT_CREDIT;
+    }
+}
@@ -0,0 +1,432 @@
+package application.persistence;
+
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.Transaction;
+import domain.entity.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, checksummed write-ahead journal.
+ * <p>
+ * Callers append records from any thread; a single writer thread drains everything
+ * queued since its last write, writes it through one {@code FileChannel} call and
+ * issues one {@code force}, so a single fsync covers every concurrent posting in the
+ * group. Each record is laid out as
+ * {@code [int payloadLength][byte type][long sequence][payload][int crc32]}, with the
+ * checksum covering type, sequence and payload so torn writes are detected on recovery.
+ * <p>
+ * The journal is a chain of segment files, each named after the sequence of the record
+ * right before its first one: {@code journal.log} for the first segment, then
+ * {@code journal.<base>.log}. {@link #roll()} seals the current segment, so a snapshot can
+ * start from a segment boundary and let everything before it go.
+ */
+public final class Journal implements Closeable {
+    static final byte USER = 1;
+    static final byte USER_REMOVED = 2;
+    static final byte ACCOUNT = 3;
+    static final byte ACCOUNT_REMOVED = 4;
+    static final byte TRANSACTION = 5;
+    static final byte IDEMPOTENCY_KEY = 6;
+    static final byte SPLIT_CREDITS_ENABLED = 7;
+    static final byte SPLIT_CREDIT = 8;
+    static final byte VERSIONED_TRANSACTION = 9;
+    static final byte FEE_PERIOD_SETTLED = 10;
+
+    static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Long.BYTES;
+    static final int MAX_PAYLOAD_SIZE = 1 << 20;
+
+    private static final byte ROLL = 0;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal(?:\\.(\\d+))?\\.log");
+
+    private final Path directory;
+    private final Thread writer;
+    private final Object lock = new Object();
+    private final ThreadLocal<long[]> lastAppended = ThreadLocal.withInitial(() -> new long[1]);
+
+    private FileChannel channel;
+    private List<PendingRecord> pending = new ArrayList<>();
+    private long segmentBase;
+    private long nextSequence;
+    private long durableSequence;
+    private long rolledSequence;
+    private boolean closed;
+    private IOException failure;
+
+    private Journal(Path directory, FileChannel channel, long segmentBase, long lastSequence) {
+        this.directory = directory;
+        this.channel = channel;
+        this.segmentBase = segmentBase;
+        this.rolledSequence = segmentBase;
+        this.nextSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Opens the segment with the given base for appending after the last valid record,
+     * dropping any torn tail
+     */
+    static Journal open(Path directory, long segmentBase, JournalReader.Position end) throws IOException {
+        FileChannel channel = FileChannel.open(segmentFile(directory, segmentBase), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.truncate(end.offset());
+        channel.position(end.offset());
+
+        Journal journal = new Journal(directory, channel, segmentBase, end.sequence());
+        journal.writer.start();
+        return journal;
+    }
+
+    static Path segmentFile(Path directory, long base) {
+        return directory.resolve(base == 0 ? "journal.log" : "journal." + base + ".log");
+    }
+
+    /**
+     * Returns the bases of the segment files in the directory, in chain order
+     */
+    static List<Long> segmentBases(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> SEGMENT_NAME.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> matcher.group(1) == null ? 0L : Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    public long logUser(User user) {
+        return append(USER, out -> PersistenceCodec.writeUser(out, user));
+    }
+
+    public long logUserRemoved(String userId) {
+        return append(USER_REMOVED, out -> out.writeUTF(userId));
+    }
+
+    public long logAccount(Account account) {
+        return append(ACCOUNT, out -> PersistenceCodec.writeAccount(out, account, false));
+    }
+
+    public long logAccountRemoved(String accountCode) {
+        return append(ACCOUNT_REMOVED, out -> out.writeUTF(accountCode));
+    }
+
+    /**
+     * Logs a transaction, with the account version of its balance when it has one
+     */
+    public long logTransaction(Transaction transaction) {
+        if (transaction.getAccountVersion() == 0) {
+            return append(TRANSACTION, out -> PersistenceCodec.writeTransaction(out, transaction));
+        }
+        return append(VERSIONED_TRANSACTION, out -> PersistenceCodec.writeVersionedTransaction(out, transaction));
+    }
+
+    /**
+     * Logs the records of one posting together: either all of them are queued or, if
+     * the journal refuses the append, none is
+     */
+    public long logTransactions(List<Transaction> transactions) {
+        byte[] types = new byte[transactions.size()];
+        byte[][] payloads = new byte[transactions.size()][];
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (transaction.getAccountVersion() == 0) {
+                types[i] = TRANSACTION;
+                payloads[i] = encode(out -> PersistenceCodec.writeTransaction(out, transaction));
+            } else {
+                types[i] = VERSIONED_TRANSACTION;
+                payloads[i] = encode(out -> PersistenceCodec.writeVersionedTransaction(out, transaction));
+            }
+        }
+        return enqueue(types, payloads);
+    }
+
+    /**
+     * Logs the transactions an idempotency key resolves to; written before the
+     * transaction records themselves, so the key is never lost while they survive
+     */
+    public long logIdempotencyKey(String key, String fingerprint, long createdAt, List<Transaction> transactions) {
+        return append(IDEMPOTENCY_KEY, out -> PersistenceCodec.writeIdempotencyKey(out, key, fingerprint,
+                createdAt, transactions));
+    }
+
+    public long logSplitCreditsEnabled(Account account) {
+        return append(SPLIT_CREDITS_ENABLED, out -> PersistenceCodec.writeSplitCreditsEnabled(out, account));
+    }
+
+    /**
+     * Logs a transfer credited to one split cell of the destination; its balances are
+     * the value of that cell, not of the account
+     */
+    public long logSplitCredit(Transaction transaction, int stripes, int stripe) {
+        return append(SPLIT_CREDIT, out -> PersistenceCodec.writeSplitCredit(out, transaction, stripes, stripe));
+    }
+
+    /**
+     * Logs a fee month the account settled without charging, which no fee record carries
+     */
+    public long logFeePeriodSettled(CheckingAccount account) {
+        return append(FEE_PERIOD_SETTLED, out -> PersistenceCodec.writeFeePeriodSettled(out, account));
+    }
+
+    /**
+     * Blocks until the record with the given sequence has been forced to disk
+     */
+    public void awaitDurable(long sequence) {
+        synchronized (lock) {
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal.", e);
+                }
+            }
+
+            if (durableSequence < sequence) {
+                throw new UncheckedIOException("Journal write failed.", failure);
+            }
+        }
+    }
+
+    /**
+     * Blocks until the last record appended by the calling thread is durable
+     */
+    public void awaitLastAppended() {
+        awaitDurable(lastAppended.get()[0]);
+    }
+
+    /**
+     * Returns the sequence of the last record appended by any thread
+     */
+    long appendedSequence() {
+        synchronized (lock) {
+            return nextSequence;
+        }
+    }
+
+    /**
+     * Seals the current segment once every record appended so far is durable and starts
+     * a new one after them; does nothing if the current segment is still empty
+     *
+     * @return position at the start of the segment that takes the next record
+     */
+    JournalReader.Position roll() {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed.");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal write failed.", failure);
+            }
+
+            long sequence = nextSequence;
+            if (sequence != segmentBase) {
+                segmentBase = sequence;
+                pending.add(new PendingRecord(sequence, ROLL, null));
+                lock.notifyAll();
+            }
+
+            while (rolledSequence < sequence && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the journal.", e);
+                }
+            }
+            if (rolledSequence < sequence) {
+                throw new UncheckedIOException("Journal write failed.", failure);
+            }
+            return new JournalReader.Position(sequence, 0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private long append(byte type, PayloadWriter payloadWriter) {
+        return enqueue(new byte[] {type}, new byte[][] {encode(payloadWriter)});
+    }
+
+    private static byte[] encode(PayloadWriter payloadWriter) {
+        byte[] payload;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            payloadWriter.write(new DataOutputStream(bytes));
+            payload = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (payload.length > MAX_PAYLOAD_SIZE) {
+            throw new IllegalArgumentException("Journal record too large.");
+        }
+        return payload;
+    }
+
+    /**
+     * Queues the records under consecutive sequences and returns the last one
+     */
+    private long enqueue(byte[] types, byte[][] payloads) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed.");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal write failed.", failure);
+            }
+
+            for (int i = 0; i < types.length; i++) {
+                pending.add(new PendingRecord(++nextSequence, types[i], payloads[i]));
+            }
+            lock.notifyAll();
+
+            lastAppended.get()[0] = nextSequence;
+            return nextSequence;
+        }
+    }
+
+    private void writeLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        ByteBuffer scratch = ByteBuffer.allocate(Byte.BYTES + Long.BYTES);
+        CRC32 crc = new CRC32();
+
+        while (true) {
+            List<PendingRecord> group;
+            synchronized (lock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                group = pending;
+                pending = new ArrayList<>();
+            }
+
+            try {
+                for (PendingRecord record : group) {
+                    if (record.type() == ROLL) {
+                        flush(buffer);
+                        startSegment(record.sequence());
+                        continue;
+                    }
+
+                    int size = HEADER_SIZE + record.payload().length + Integer.BYTES;
+                    if (buffer.remaining() < size) {
+                        flush(buffer);
+                        if (buffer.capacity() < size) {
+                            buffer = ByteBuffer.allocateDirect(size);
+                        }
+                    }
+
+                    buffer.putInt(record.payload().length)
+                            .put(record.type())
+                            .putLong(record.sequence())
+                            .put(record.payload())
+                            .putInt(checksum(crc, scratch, record.type(), record.sequence(), record.payload()));
+                }
+                flush(buffer);
+                channel.force(false);
+
+                synchronized (lock) {
+                    durableSequence = group.get(group.size() - 1).sequence();
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forces what the current segment holds and moves the channel to a new segment that
+     * continues after the given sequence
+     */
+    private void startSegment(long base) throws IOException {
+        channel.force(false);
+        FileChannel next = FileChannel.open(segmentFile(directory, base), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.close();
+        channel = next;
+
+        synchronized (lock) {
+            durableSequence = Math.max(durableSequence, base);
+            rolledSequence = base;
+            lock.notifyAll();
+        }
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * CRC32 over type, sequence and payload, reusing the caller's scratch buffer
+     */
+    static int checksum(CRC32 crc, ByteBuffer scratch, byte type, long sequence, byte[] payload) {
+        scratch.clear();
+        scratch.put(type).putLong(sequence).flip();
+
+        crc.reset();
+        crc.update(scratch);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private record PendingRecord(long sequence, byte type, byte[] payload) {
+    }
+
+    @FunctionalInterface
+    private interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,111 @@
+package application.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Sequential reader for {@link Journal} files.
+ * <p>
+ * Reading stops at the first incomplete or corrupt record: everything before it was
+ * acknowledged only after being forced to disk, everything from it on belongs to a
+ * group commit that never completed.
+ */
+final class JournalReader {
+
+    private JournalReader() {
+    }
+
+    static Position read(Path file, Position from, RecordHandler handler) throws IOException {
+        return read(file, from, Long.MAX_VALUE, handler);
+    }
+
+    /**
+     * Feeds every valid record between {@code from} and the {@code until} offset to the handler
+     *
+     * @return position right after the last valid record read
+     */
+    static Position read(Path file, Position from, long until, RecordHandler handler) throws IOException {
+        return read(file, from, until, (sequence, type, payload) -> handler.handle(type, payload));
+    }
+
+    /**
+     * Same as above, also passing each record's sequence to the handler
+     */
+    static Position read(Path file, Position from, long until, SequencedRecordHandler handler) throws IOException {
+        if (!Files.exists(file)) {
+            return from;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(from.offset());
+            DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+
+            ByteBuffer scratch = ByteBuffer.allocate(Byte.BYTES + Long.BYTES);
+            CRC32 crc = new CRC32();
+
+            long offset = from.offset();
+            long sequence = from.sequence();
+
+            while (offset < until) {
+                byte type;
+                long recordSequence;
+                byte[] payload;
+
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > Journal.MAX_PAYLOAD_SIZE) {
+                        break;
+                    }
+
+                    type = in.readByte();
+                    recordSequence = in.readLong();
+                    payload = new byte[length];
+                    in.readFully(payload);
+
+                    if (in.readInt() != Journal.checksum(crc, scratch, type, recordSequence, payload)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                if (recordSequence != sequence + 1) {
+                    break;
+                }
+
+                handler.handle(recordSequence, type, payload);
+                offset += Journal.HEADER_SIZE + payload.length + Integer.BYTES;
+                sequence = recordSequence;
+            }
+
+            return new Position(sequence, offset);
+        }
+    }
+
+    /**
+     * Sequence of the last record and the file offset right after it
+     */
+    record Position(long sequence, long offset) {
+        static final Position START = new Position(0, 0);
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void handle(byte type, byte[] payload) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface SequencedRecordHandler {
+        void handle(long sequence, byte type, byte[] payload) throws IOException;
+    }
+}
@@ -0,0 +1,422 @@
+package application.persistence;
+
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.SavingsAccount;
+import domain.entity.User;
+import domain.valueObject.AccountCode;
+import domain.valueObject.Money;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Account storage engine keeping one fixed-width record per account in a memory-mapped file.
+ * <p>
+ * Records are addressed by a dense ordinal assigned on first save, so the heap only holds
+ * the packed code to ordinal index and the holder id table; balances, flags and dates live off
+ * heap and are only turned into {@code Account} instances when {@link #load} is called.
+ * The file is mapped in fixed segments because a single mapping is limited to 2 GB.
+ * <p>
+ * Record layout, 64 bytes:
+ * <pre>
+ *  0 long  balance in cents
+ *  8 long  overdraft limit in cents (checking) or rate return in millionths (savings)
+ * 16 long  created at, epoch seconds
+ * 24 int   created at, nanoseconds
+ * 28 int   holder ordinal
+ * 32 long  anniversary date, epoch day
+ * 40 long  last income date (savings) or first day of the last fee month (checking), epoch day
+ * 48 int   account number
+ * 52 byte  flags
+ * 56 long  packed account code, see {@link AccountCode}
+ * </pre>
+ * Files written before the packed code held the branch code at 56 as 8 ASCII bytes, which
+ * left no room for 9 digit branches; such records are told apart by their first byte, an
+ * ASCII digit where a packed code has its small branch width, and still read.
+ * <p>
+ * Writers are expected to hold the account lock of the record they change.
+ * <p>
+ * Balance versions are kept on heap, one {@code long} per record, since they only have
+ * to outlive the account instance: recovery restores them from the snapshot and journal.
+ * The stored version only grows, so a lock-free writer finishing late cannot move it back.
+ */
+public final class MappedAccountStore implements Closeable {
+    static final int RECORD_SIZE = 64;
+
+    private static final int SEGMENT_RECORDS = 1 << 20;
+    private static final long SEGMENT_SIZE = (long) SEGMENT_RECORDS * RECORD_SIZE;
+
+    private static final int BALANCE = 0;
+    private static final int LIMIT_OR_RATE = 8;
+    private static final int CREATED_SECONDS = 16;
+    private static final int CREATED_NANOS = 24;
+    private static final int HOLDER = 28;
+    private static final int ANNIVERSARY = 32;
+    private static final int LAST_INCOME = 40;
+    private static final int NUMBER = 48;
+    private static final int FLAGS = 52;
+    private static final int ACCOUNT_KEY = 56;
+    private static final int LEGACY_BRANCH_LENGTH = 8;
+
+    private static final byte USED = 1;
+    private static final byte ACTIVE = 1 << 1;
+    private static final byte SAVINGS = 1 << 2;
+    private static final byte HAS_LIMIT_OR_RATE = 1 << 3;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final BigDecimal RATE_SCALE = BigDecimal.valueOf(1_000_000);
+
+    private final FileChannel channel;
+    private final FileChannel holderChannel;
+    private final Map<Long, Integer> ordinalsByKey = new ConcurrentHashMap<>();
+    private final Map<String, Integer> holderOrdinals = new ConcurrentHashMap<>();
+    private final List<String> holderIds = new ArrayList<>();
+    private final Object growLock = new Object();
+
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private volatile AtomicLongArray[] versions = new AtomicLongArray[0];
+    private int size;
+
+    private MappedAccountStore(FileChannel channel, FileChannel holderChannel) {
+        this.channel = channel;
+        this.holderChannel = holderChannel;
+    }
+
+    /**
+     * Opens or creates the store, rebuilding the in-heap indexes from the records on disk
+     */
+    public static MappedAccountStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel holderChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".holders"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        MappedAccountStore store = new MappedAccountStore(channel, holderChannel);
+        store.loadHolders();
+        store.loadRecords();
+        return store;
+    }
+
+    public int size() {
+        synchronized (growLock) {
+            return size;
+        }
+    }
+
+    public OptionalInt ordinalOf(long accountKey) {
+        Integer ordinal = ordinalsByKey.get(accountKey);
+        return ordinal == null ? OptionalInt.empty() : OptionalInt.of(ordinal);
+    }
+
+    /**
+     * Writes every field of the account, allocating a record on first save
+     *
+     * @return the account ordinal
+     */
+    public int put(Account account) {
+        int ordinal = ordinalsByKey.computeIfAbsent(account.getAccountKey(), key -> allocate());
+        int holder = holderOrdinalOf(account.getHolder().getId());
+
+        ByteBuffer segment = segmentOf(ordinal);
+        int base = offsetOf(ordinal);
+
+        byte flags = USED;
+        long limitOrRate = 0;
+        long anniversary = NO_DATE;
+        long lastIncome = NO_DATE;
+
+        if (account instanceof SavingsAccount savings) {
+            flags |= SAVINGS;
+            if (savings.getRateReturn() != null) {
+                flags |= HAS_LIMIT_OR_RATE;
+                limitOrRate = savings.getRateReturn().multiply(RATE_SCALE).setScale(0, RoundingMode.HALF_EVEN)
+                        .longValueExact();
+            }
+            anniversary = epochDayOf(savings.getAnniversaryDate());
+            lastIncome = epochDayOf(savings.getLastIncome());
+        } else if (account instanceof CheckingAccount checking) {
+            if (checking.getOverdraftLimit() != null) {
+                flags |= HAS_LIMIT_OR_RATE;
+                limitOrRate = Money.toCents(checking.getOverdraftLimit());
+            }
+            YearMonth lastFeePeriod = checking.getLastFeePeriod();
+            lastIncome = epochDayOf(lastFeePeriod != null ? lastFeePeriod.atDay(1) : null);
+        }
+        if (account.isActive()) {
+            flags |= ACTIVE;
+        }
+
+        LocalDateTime createdAt = account.getCreatedAt();
+
+        segment.putLong(base + BALANCE, account.getBalanceCents());
+        segment.putLong(base + LIMIT_OR_RATE, limitOrRate);
+        segment.putLong(base + CREATED_SECONDS, createdAt.toEpochSecond(ZoneOffset.UTC));
+        segment.putInt(base + CREATED_NANOS, createdAt.getNano());
+        segment.putInt(base + HOLDER, holder);
+        segment.putLong(base + ANNIVERSARY, anniversary);
+        segment.putLong(base + LAST_INCOME, lastIncome);
+        segment.putInt(base + NUMBER, Integer.parseInt(account.getNumber()));
+        segment.putLong(base + ACCOUNT_KEY, account.getAccountKey());
+        versionsOf(ordinal).accumulateAndGet(ordinal % SEGMENT_RECORDS, account.getVersion(), Math::max);
+        // written last so a record is only seen as used once complete
+        segment.put(base + FLAGS, flags);
+
+        return ordinal;
+    }
+
+    public long getBalanceCents(int ordinal) {
+        return segmentOf(ordinal).getLong(offsetOf(ordinal) + BALANCE);
+    }
+
+    public void setBalanceCents(int ordinal, long cents) {
+        segmentOf(ordinal).putLong(offsetOf(ordinal) + BALANCE, cents);
+    }
+
+    public long getVersion(int ordinal) {
+        return versionsOf(ordinal).get(ordinal % SEGMENT_RECORDS);
+    }
+
+    public boolean isActive(int ordinal) {
+        return (segmentOf(ordinal).get(offsetOf(ordinal) + FLAGS) & ACTIVE) != 0;
+    }
+
+    public String getHolderId(int ordinal) {
+        int holder = segmentOf(ordinal).getInt(offsetOf(ordinal) + HOLDER);
+        synchronized (holderIds) {
+            return holderIds.get(holder);
+        }
+    }
+
+    public String getAccountCode(int ordinal) {
+        return AccountCode.format(getAccountKey(ordinal));
+    }
+
+    public long getAccountKey(int ordinal) {
+        return accountKeyOf(segmentOf(ordinal), offsetOf(ordinal));
+    }
+
+    /**
+     * Clears the used flag; the ordinal is not reused
+     */
+    public void remove(int ordinal) {
+        ByteBuffer segment = segmentOf(ordinal);
+        int base = offsetOf(ordinal);
+
+        ordinalsByKey.remove(accountKeyOf(segment, base), ordinal);
+        segment.put(base + FLAGS, (byte) 0);
+    }
+
+    public boolean isSavings(int ordinal) {
+        return (segmentOf(ordinal).get(offsetOf(ordinal) + FLAGS) & SAVINGS) != 0;
+    }
+
+    /**
+     * Returns the day of month of a savings account anniversary, or 0 if it has none
+     */
+    public int getAnniversaryDay(int ordinal) {
+        LocalDate anniversary = dateOf(segmentOf(ordinal).getLong(offsetOf(ordinal) + ANNIVERSARY));
+        return anniversary == null ? 0 : anniversary.getDayOfMonth();
+    }
+
+    public boolean isUsed(int ordinal) {
+        return (segmentOf(ordinal).get(offsetOf(ordinal) + FLAGS) & USED) != 0;
+    }
+
+    /**
+     * Materializes the record as an account entity owned by the given holder
+     */
+    public Account load(int ordinal, User holder) {
+        ByteBuffer segment = segmentOf(ordinal);
+        int base = offsetOf(ordinal);
+
+        byte flags = segment.get(base + FLAGS);
+        if ((flags & USED) == 0) {
+            throw new IllegalArgumentException("No account stored at ordinal " + ordinal + ".");
+        }
+
+        long accountKey = accountKeyOf(segment, base);
+        String number = AccountCode.numberOf(accountKey);
+        String branchCode = AccountCode.branchOf(accountKey);
+        BigDecimal balance = BigDecimal.valueOf(segment.getLong(base + BALANCE), 2);
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(segment.getLong(base + CREATED_SECONDS),
+                segment.getInt(base + CREATED_NANOS), ZoneOffset.UTC);
+        boolean active = (flags & ACTIVE) != 0;
+        boolean hasLimitOrRate = (flags & HAS_LIMIT_OR_RATE) != 0;
+        long limitOrRate = segment.getLong(base + LIMIT_OR_RATE);
+
+        Account account;
+        if ((flags & SAVINGS) != 0) {
+            BigDecimal rateReturn = hasLimitOrRate ? BigDecimal.valueOf(limitOrRate, 6) : null;
+            account = new SavingsAccount(number, branchCode, holder, balance, createdAt, active, rateReturn,
+                    dateOf(segment.getLong(base + ANNIVERSARY)), dateOf(segment.getLong(base + LAST_INCOME)));
+        } else {
+            BigDecimal overdraftLimit = hasLimitOrRate ? BigDecimal.valueOf(limitOrRate, 2) : null;
+            LocalDate lastFeeMonth = dateOf(segment.getLong(base + LAST_INCOME));
+            account = new CheckingAccount(number, branchCode, holder, balance, createdAt, active, overdraftLimit,
+                    lastFeeMonth != null ? YearMonth.from(lastFeeMonth) : null);
+        }
+        // a version going back to zero would let replay skip newer journal records
+        account.restoreVersion(getVersion(ordinal));
+        return account;
+    }
+
+    /**
+     * Flushes every mapped segment and the holder table to disk
+     */
+    public void force() throws IOException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        holderChannel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        holderChannel.close();
+        channel.close();
+    }
+
+    private int allocate() {
+        synchronized (growLock) {
+            int ordinal = size;
+            if (ordinal / SEGMENT_RECORDS >= segments.length) {
+                grow();
+            }
+            size++;
+            return ordinal;
+        }
+    }
+
+    private void grow() {
+        try {
+            MappedByteBuffer[] current = segments;
+            MappedByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    current.length * SEGMENT_SIZE, SEGMENT_SIZE);
+
+            AtomicLongArray[] grownVersions = Arrays.copyOf(versions, current.length + 1);
+            grownVersions[current.length] = new AtomicLongArray(SEGMENT_RECORDS);
+            versions = grownVersions;
+            segments = grown;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int holderOrdinalOf(String holderId) {
+        return holderOrdinals.computeIfAbsent(holderId, id -> {
+            synchronized (holderIds) {
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+                    new DataOutputStream(bytes).writeUTF(id);
+                    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                    while (buffer.hasRemaining()) {
+                        holderChannel.write(buffer, holderChannel.size());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+
+                holderIds.add(id);
+                return holderIds.size() - 1;
+            }
+        });
+    }
+
+    private void loadHolders() throws IOException {
+        DataInputStream in = new DataInputStream(Channels.newInputStream(holderChannel.position(0)));
+        long end = holderChannel.size();
+
+        while (holderChannel.position() < end) {
+            String id = in.readUTF();
+            holderOrdinals.put(id, holderIds.size());
+            holderIds.add(id);
+        }
+    }
+
+    private void loadRecords() throws IOException {
+        long fileSize = channel.size();
+        int segmentCount = (int) ((fileSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        for (int i = 0; i < segmentCount; i++) {
+            grow();
+        }
+
+        // ordinals are allocated densely, so the first never written record ends the store
+        long capacity = (long) segmentCount * SEGMENT_RECORDS;
+        while (size < capacity) {
+            ByteBuffer segment = segmentOf(size);
+            int base = offsetOf(size);
+            byte flags = segment.get(base + FLAGS);
+
+            if (flags == 0 && segment.getLong(base + CREATED_SECONDS) == 0) {
+                break;
+            }
+            if ((flags & USED) != 0) {
+                ordinalsByKey.put(accountKeyOf(segment, base), size);
+            }
+            size++;
+        }
+    }
+
+    private ByteBuffer segmentOf(int ordinal) {
+        return segments[ordinal / SEGMENT_RECORDS];
+    }
+
+    private AtomicLongArray versionsOf(int ordinal) {
+        return versions[ordinal / SEGMENT_RECORDS];
+    }
+
+    private static int offsetOf(int ordinal) {
+        return (ordinal % SEGMENT_RECORDS) * RECORD_SIZE;
+    }
+
+    private static long accountKeyOf(ByteBuffer segment, int base) {
+        // the top byte of a packed code is below 20, the first byte of an ASCII branch a digit
+        if (segment.get(base + ACCOUNT_KEY) < '0') {
+            return segment.getLong(base + ACCOUNT_KEY);
+        }
+
+        byte[] branch = new byte[LEGACY_BRANCH_LENGTH];
+        int length = 0;
+        while (length < LEGACY_BRANCH_LENGTH && segment.get(base + ACCOUNT_KEY + length) != 0) {
+            branch[length] = segment.get(base + ACCOUNT_KEY + length);
+            length++;
+        }
+        return AccountCode.keyOf(new String(branch, 0, length, StandardCharsets.US_ASCII),
+                String.format("%08d", segment.getInt(base + NUMBER)));
+    }
+
+    private static long epochDayOf(LocalDate date) {
+        return date == null ? NO_DATE : date.toEpochDay();
+    }
+
+    private static LocalDate dateOf(long epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
@@ -0,0 +1,352 @@
+package application.persistence;
+
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.SavingsAccount;
+import domain.entity.Transaction;
+import domain.entity.User;
+import domain.enums.TransactionStatus;
+import domain.enums.TransactionType;
+import domain.valueObject.Money;
+import domain.valueObject.VersionedBalance;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of users, accounts and transactions shared by the journal and snapshots.
+ */
+final class PersistenceCodec {
+    static final byte CHECKING_ACCOUNT = 1;
+    static final byte SAVINGS_ACCOUNT = 2;
+
+    private PersistenceCodec() {
+    }
+
+    static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeUTF(user.getId());
+        out.writeUTF(user.getName());
+        out.writeUTF(user.getCpf());
+        out.writeUTF(user.getEmailAddress());
+        writeDateTime(out, user.getCreatedAt());
+    }
+
+    static User readUser(DataInput in) throws IOException {
+        return new User(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), readDateTime(in));
+    }
+
+    /**
+     * Writes account state; journal records leave the balance, the last fee period and the
+     * split credits out because they are carried by the transaction records, snapshots
+     * include them
+     */
+    static void writeAccount(DataOutput out, Account account, boolean withBalance) throws IOException {
+        boolean savings = account instanceof SavingsAccount;
+
+        out.writeByte(savings ? SAVINGS_ACCOUNT : CHECKING_ACCOUNT);
+        out.writeUTF(account.getNumber());
+        out.writeUTF(account.getBranchCode());
+        out.writeUTF(account.getHolder().getId());
+        writeDateTime(out, account.getCreatedAt());
+        out.writeBoolean(account.isActive());
+        // balance and version are read together, lock-free changes may land at any time
+        VersionedBalance balance = withBalance ? account.getVersionedBalance() : null;
+        if (withBalance) {
+            writeDecimal(out, Money.toBigDecimal(balance.cents()));
+        }
+
+        if (savings) {
+            SavingsAccount savingsAccount = (SavingsAccount) account;
+            writeNullableDecimal(out, savingsAccount.getRateReturn());
+            writeNullableDate(out, savingsAccount.getAnniversaryDate());
+            writeNullableDate(out, savingsAccount.getLastIncome());
+        } else {
+            CheckingAccount checkingAccount = (CheckingAccount) account;
+            writeNullableDecimal(out, checkingAccount.getOverdraftLimit());
+            if (withBalance) {
+                YearMonth lastFeePeriod = checkingAccount.getLastFeePeriod();
+                writeNullableDate(out, lastFeePeriod != null ? lastFeePeriod.atDay(1) : null);
+            }
+        }
+
+        if (withBalance) {
+            writeSplitCredits(out, account);
+            out.writeLong(balance.version());
+        }
+    }
+
+    /**
+     * Reads account state; {@code withFeePeriod}, {@code withSplitCredits} and {@code withVersion}
+     * are false for snapshots written before fee periods, split credits and versions were recorded
+     */
+    static AccountState readAccount(DataInput in, boolean withBalance, boolean withFeePeriod,
+                                    boolean withSplitCredits, boolean withVersion) throws IOException {
+        byte kind = in.readByte();
+        String number = in.readUTF();
+        String branchCode = in.readUTF();
+        String holderId = in.readUTF();
+        LocalDateTime createdAt = readDateTime(in);
+        boolean active = in.readBoolean();
+        BigDecimal balance = withBalance ? readDecimal(in) : null;
+
+        if (kind == SAVINGS_ACCOUNT) {
+            BigDecimal rateReturn = readNullableDecimal(in);
+            LocalDate anniversaryDate = readNullableDate(in);
+            LocalDate lastIncome = readNullableDate(in);
+            long[] splitCredits = readSplitCredits(in, withBalance && withSplitCredits);
+            return new AccountState(kind, number, branchCode, holderId, createdAt, active, balance,
+                    null, rateReturn, anniversaryDate, lastIncome, null, splitCredits,
+                    withBalance && withVersion ? in.readLong() : 0);
+        }
+
+        BigDecimal overdraftLimit = readNullableDecimal(in);
+        LocalDate lastFeeMonth = withBalance && withFeePeriod ? readNullableDate(in) : null;
+        long[] splitCredits = readSplitCredits(in, withBalance && withSplitCredits);
+        return new AccountState(kind, number, branchCode, holderId, createdAt, active, balance,
+                overdraftLimit, null, null, null, lastFeeMonth != null ? YearMonth.from(lastFeeMonth) : null,
+                splitCredits, withBalance && withVersion ? in.readLong() : 0);
+    }
+
+    /**
+     * Writes the event that turned on split credits for an account
+     */
+    static void writeSplitCreditsEnabled(DataOutput out, Account account) throws IOException {
+        out.writeUTF(account.getAccountCode());
+        out.writeShort(account.getSplitStripes());
+    }
+
+    /**
+     * Writes a transfer credited to a split cell, with the stripe whose value it records
+     */
+    static void writeSplitCredit(DataOutput out, Transaction transaction, int stripes, int stripe)
+            throws IOException {
+        out.writeShort(stripes);
+        out.writeShort(stripe);
+        writeTransaction(out, transaction);
+    }
+
+    private static void writeSplitCredits(DataOutput out, Account account) throws IOException {
+        long[] splitCredits = account.getSplitCredits();
+        out.writeShort(splitCredits.length);
+        for (long credits : splitCredits) {
+            out.writeLong(credits);
+        }
+    }
+
+    private static long[] readSplitCredits(DataInput in, boolean present) throws IOException {
+        long[] splitCredits = new long[present ? in.readShort() : 0];
+        for (int stripe = 0; stripe < splitCredits.length; stripe++) {
+            splitCredits[stripe] = in.readLong();
+        }
+        return splitCredits;
+    }
+
+    static void writeTransaction(DataOutput out, Transaction transaction) throws IOException {
+        out.writeUTF(transaction.getId());
+        out.writeByte(transaction.getType().ordinal());
+        writeDecimal(out, transaction.getAmount());
+        writeDecimal(out, transaction.getPreviousBalance());
+        writeDecimal(out, transaction.getBalanceAfter());
+        writeDateTime(out, transaction.getDateTime());
+        writeNullableString(out, transaction.getOriginAccountCode());
+        writeNullableString(out, transaction.getDestinationAccountCode());
+        writeNullableString(out, transaction.getDescription());
+        out.writeByte(transaction.getStatus().ordinal());
+        out.writeUTF(transaction.getAuthenticationCode());
+    }
+
+    static Transaction readTransaction(DataInput in) throws IOException {
+        return new Transaction(
+                in.readUTF(),
+                TransactionType.values()[in.readByte()],
+                readDecimal(in),
+                readDecimal(in),
+                readDecimal(in),
+                readDateTime(in),
+                readNullableString(in),
+                readNullableString(in),
+                readNullableString(in),
+                TransactionStatus.values()[in.readByte()],
+                in.readUTF()
+        );
+    }
+
+    /**
+     * Writes the account version a transaction's balance carries ahead of the transaction
+     */
+    static void writeVersionedTransaction(DataOutput out, Transaction transaction) throws IOException {
+        out.writeLong(transaction.getAccountVersion());
+        writeTransaction(out, transaction);
+    }
+
+    static Transaction readVersionedTransaction(DataInput in) throws IOException {
+        long version = in.readLong();
+        Transaction transaction = readTransaction(in);
+        transaction.restoreAccountVersion(version);
+        return transaction;
+    }
+
+    /**
+     * Writes an idempotency key with the ids of its transactions, which are journaled separately
+     */
+    static void writeIdempotencyKey(DataOutput out, String key, String fingerprint, long createdAt,
+                                    List<Transaction> transactions) throws IOException {
+        out.writeUTF(key);
+        out.writeUTF(fingerprint);
+        out.writeLong(createdAt);
+        out.writeByte(transactions.size());
+        for (Transaction transaction : transactions) {
+            out.writeUTF(transaction.getId());
+        }
+    }
+
+    static IdempotencyKeyState readIdempotencyKey(DataInput in) throws IOException {
+        String key = in.readUTF();
+        String fingerprint = in.readUTF();
+        long createdAt = in.readLong();
+
+        int count = in.readByte();
+        List<String> transactionIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactionIds.add(in.readUTF());
+        }
+        return new IdempotencyKeyState(key, fingerprint, createdAt, transactionIds);
+    }
+
+    /**
+     * Writes the fee month a checking account settled without a fee record
+     */
+    static void writeFeePeriodSettled(DataOutput out, CheckingAccount account) throws IOException {
+        out.writeUTF(account.getAccountCode());
+        out.writeLong(account.getLastFeePeriod().atDay(1).toEpochDay());
+    }
+
+    static FeePeriodState readFeePeriodSettled(DataInput in) throws IOException {
+        String accountCode = in.readUTF();
+        return new FeePeriodState(accountCode, YearMonth.from(LocalDate.ofEpochDay(in.readLong())));
+    }
+
+    private static void writeDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+        out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(dateTime.getNano());
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeNullableDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null) {
+            out.writeLong(date.toEpochDay());
+        }
+    }
+
+    private static LocalDate readNullableDate(DataInput in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeByte(value.scale());
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        int scale = in.readByte();
+        byte[] unscaled = new byte[in.readUnsignedByte()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static void writeNullableDecimal(DataOutput out, BigDecimal value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeDecimal(out, value);
+        }
+    }
+
+    private static BigDecimal readNullableDecimal(DataInput in) throws IOException {
+        return in.readBoolean() ? readDecimal(in) : null;
+    }
+
+    private static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Decoded account fields, turned into an entity once its holder is resolved
+     */
+    record AccountState(byte kind, String number, String branchCode, String holderId,
+                        LocalDateTime createdAt, boolean active, BigDecimal balance,
+                        BigDecimal overdraftLimit, BigDecimal rateReturn,
+                        LocalDate anniversaryDate, LocalDate lastIncome, YearMonth lastFeePeriod,
+                        long[] splitCredits, long version) {
+
+        String accountCode() {
+            return branchCode + "-" + number;
+        }
+
+        Account toAccount(User holder) {
+            BigDecimal openingBalance = balance != null ? balance : BigDecimal.ZERO;
+
+            Account account = kind == SAVINGS_ACCOUNT
+                    ? new SavingsAccount(number, branchCode, holder, openingBalance, createdAt, active,
+                            rateReturn, anniversaryDate, lastIncome)
+                    : new CheckingAccount(number, branchCode, holder, openingBalance, createdAt, active,
+                            overdraftLimit, lastFeePeriod);
+            account.restoreSplitCredits(splitCredits);
+            account.restoreVersion(version);
+            return account;
+        }
+
+        /**
+         * Applies the mutable, non-balance fields to an already restored account
+         */
+        void applyTo(Account account) {
+            if (active) {
+                account.enable();
+            } else {
+                account.disable();
+            }
+
+            if (account instanceof CheckingAccount checkingAccount) {
+                if (overdraftLimit != null) {
+                    checkingAccount.setOverdraftLimit(overdraftLimit);
+                }
+                if (lastFeePeriod != null) {
+                    checkingAccount.restoreLastFeePeriod(lastFeePeriod);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decoded idempotency key; the transactions are resolved by id once the journal is replayed
+     */
+    record IdempotencyKeyState(String key, String fingerprint, long createdAt, List<String> transactionIds) {
+    }
+
+    /**
+     * Decoded fee month settled without a fee record
+     */
+    record FeePeriodState(String accountCode, YearMonth period) {
+    }
+}
@@ -0,0 +1,225 @@
+package application.persistence;
+
+import application.repositories.IdempotencyCache;
+import application.services.AccountLocks;
+import domain.entity.Account;
+import domain.entity.Transaction;
+import domain.entity.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time image of users, accounts, account number high-water marks and recent
+ * idempotency keys tagged with the journal position it covers.
+ * <p>
+ * Snapshots are written to a temporary file, forced and atomically renamed over the
+ * previous one, so a crash while writing leaves the last complete snapshot in place.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x4A42534E;
+    private static final int VERSION = 6;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the snapshot; each account is encoded under its lock so its balance is never
+     * caught between a mutation and the journal append of the matching transaction. Lock-free
+     * changes can be, so accounts carry the version of their balance and replay skips
+     * records it already covers.
+     */
+    static void write(Path file, JournalReader.Position position, Collection<User> users,
+                      Collection<Account> accounts, Map<String, Long> accountNumberSequences,
+                      Collection<IdempotencyCache.RecordedKey> idempotencyKeys, AccountLocks accountLocks,
+                      Runnable beforeRename) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            OutputStream stream = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc);
+            DataOutputStream out = new DataOutputStream(stream);
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(position.sequence());
+            out.writeLong(position.offset());
+
+            out.writeInt(users.size());
+            for (User user : users) {
+                PersistenceCodec.writeUser(out, user);
+            }
+
+            out.writeInt(accounts.size());
+            for (Account account : accounts) {
+                IOException failure = accountLocks.withLock(account.getAccountKey(), () -> {
+                    try {
+                        PersistenceCodec.writeAccount(out, account, true);
+                        return null;
+                    } catch (IOException e) {
+                        return e;
+                    }
+                });
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+
+            // keeps numbers of removed accounts from being issued again
+            out.writeInt(accountNumberSequences.size());
+            for (Map.Entry<String, Long> sequence : accountNumberSequences.entrySet()) {
+                out.writeUTF(sequence.getKey());
+                out.writeLong(sequence.getValue());
+            }
+
+            // keys are written with their transactions, which may predate the journal tail
+            out.writeInt(idempotencyKeys.size());
+            for (IdempotencyCache.RecordedKey recorded : idempotencyKeys) {
+                out.writeUTF(recorded.key());
+                out.writeUTF(recorded.fingerprint());
+                out.writeLong(recorded.createdAt());
+                out.writeByte(recorded.transactions().size());
+                for (Transaction transaction : recorded.transactions()) {
+                    PersistenceCodec.writeTransaction(out, transaction);
+                }
+            }
+
+            out.flush();
+            // the checksum itself is written past the checked stream
+            new DataOutputStream(Channels.newOutputStream(channel))
+                    .writeInt((int) crc.getValue());
+            channel.force(true);
+        }
+
+        beforeRename.run();
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Streams the snapshot contents to the consumers
+     *
+     * @return journal position the snapshot covers, or the journal start if there is no snapshot
+     */
+    static JournalReader.Position read(Path file, UserConsumer users, AccountConsumer accounts,
+                                       SequenceConsumer accountNumberSequences,
+                                       IdempotencyKeyConsumer idempotencyKeys) throws IOException {
+        if (!Files.exists(file)) {
+            return JournalReader.Position.START;
+        }
+
+        // nothing reaches the consumers before the whole file is known to be intact
+        verify(file);
+
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            DataInputStream in = new DataInputStream(raw);
+
+            int version;
+            if (in.readInt() != MAGIC || (version = in.readInt()) < 1 || version > VERSION) {
+                throw new IOException("Unrecognized snapshot file: " + file);
+            }
+
+            JournalReader.Position position = new JournalReader.Position(in.readLong(), in.readLong());
+
+            int userCount = in.readInt();
+            for (int i = 0; i < userCount; i++) {
+                users.accept(PersistenceCodec.readUser(in));
+            }
+
+            int accountCount = in.readInt();
+            for (int i = 0; i < accountCount; i++) {
+                accounts.accept(PersistenceCodec.readAccount(in, true, version >= 3, version >= 5, version >= 6));
+            }
+
+            // version 1 snapshots predate the high-water marks
+            int sequenceCount = version >= 2 ? in.readInt() : 0;
+            for (int i = 0; i < sequenceCount; i++) {
+                accountNumberSequences.accept(in.readUTF(), in.readLong());
+            }
+
+            int keyCount = version >= 4 ? in.readInt() : 0;
+            for (int i = 0; i < keyCount; i++) {
+                String key = in.readUTF();
+                String fingerprint = in.readUTF();
+                long createdAt = in.readLong();
+
+                int transactionCount = in.readByte();
+                List<Transaction> transactions = new ArrayList<>(transactionCount);
+                for (int j = 0; j < transactionCount; j++) {
+                    transactions.add(PersistenceCodec.readTransaction(in));
+                }
+                idempotencyKeys.accept(key, fingerprint, createdAt, transactions);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Checks the trailing checksum against everything before it
+     */
+    private static void verify(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size < Integer.BYTES) {
+            throw new IOException("Corrupt snapshot file: " + file);
+        }
+
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            CRC32 crc = new CRC32();
+            InputStream checked = new CheckedInputStream(raw, crc);
+
+            byte[] buffer = new byte[1 << 16];
+            long remaining = size - Integer.BYTES;
+            while (remaining > 0) {
+                int read = checked.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new IOException("Corrupt snapshot file: " + file);
+                }
+                remaining -= read;
+            }
+
+            if (new DataInputStream(raw).readInt() != (int) crc.getValue()) {
+                throw new IOException("Corrupt snapshot file: " + file);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface UserConsumer {
+        void accept(User user) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface AccountConsumer {
+        void accept(PersistenceCodec.AccountState account) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface SequenceConsumer {
+        void accept(String branchCode, long sequence);
+    }
+
+    @FunctionalInterface
+    interface IdempotencyKeyConsumer {
+        void accept(String key, String fingerprint, long createdAt, List<Transaction> transactions);
+    }
+}
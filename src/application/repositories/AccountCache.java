@@ -0,0 +1,450 @@
+package application.repositories;
+
+import domain.entity.Account;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded read-through cache of accounts keyed by their packed code, with a
+ * W-TinyLFU-like eviction policy.
+ * <p>
+ * New entries land in a small LRU window. Entries leaving the window only enter the
+ * main space if they were requested more often than the entry they would evict, as
+ * estimated by a count-min sketch of recent lookups that is halved periodically; the
+ * main space is a segmented LRU where entries hit again on probation move to a protected segment.
+ * A scan of accounts read once therefore churns the window but never the hot set.
+ * <p>
+ * Hits read a concurrent map and never block: recording the access needs the policy
+ * lock, and is skipped when another thread holds it. Loads, writes and evictions take
+ * the lock. The cache is bounded by a total weight, either one per entry or an estimate
+ * of the bytes each account holds.
+ * <p>
+ * Cached values are the live account instances the repository hands out, the same ones
+ * balance changes are applied to under the account lock, so a cached balance is never
+ * older than the last committed change.
+ */
+public class AccountCache {
+    // rough heap footprint of an account with its node and map entry, strings excluded
+    private static final int ACCOUNT_OVERHEAD_BYTES = 224;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final Map<Long, Node> entries = new ConcurrentHashMap<>();
+    private final ToIntFunction<Account> weigher;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final FrequencySketch sketch;
+    // guards the queues, the weights and the sketch
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AccessQueue window = new AccessQueue();
+    private final AccessQueue probation = new AccessQueue();
+    private final AccessQueue protectedQueue = new AccessQueue();
+    private long windowWeight;
+    private long mainWeight;
+    private long protectedWeight;
+    // raised by every invalidation, so a load that overlapped one is not cached
+    private volatile long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private AccountCache(long maximumWeight, ToIntFunction<Account> weigher, int expectedEntries) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Cache size must be greater than zero.");
+        }
+
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum) * PROTECTED_PERCENT / 100;
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    /**
+     * Creates a cache holding up to maxEntries accounts
+     */
+    public static AccountCache ofEntries(int maxEntries) {
+        return new AccountCache(maxEntries, account -> 1, maxEntries);
+    }
+
+    /**
+     * Creates a cache holding accounts up to an estimated total of maxBytes of heap
+     */
+    public static AccountCache ofEstimatedBytes(long maxBytes) {
+        int expectedEntries = (int) Math.min(Integer.MAX_VALUE, maxBytes / ACCOUNT_OVERHEAD_BYTES);
+        return new AccountCache(maxBytes, AccountCache::estimateBytes, expectedEntries);
+    }
+
+    /**
+     * Returns the cached account, or loads it, caches it and returns it; null when the loader finds nothing
+     */
+    public Account get(long accountKey, LongFunction<Account> loader) {
+        Node node = entries.get(accountKey);
+        if (node != null) {
+            hits.increment();
+            recordHit(node);
+            return node.account;
+        }
+
+        misses.increment();
+        long invalidationsBeforeLoad = invalidations;
+        Account loaded = loader.apply(accountKey);
+        if (loaded != null) {
+            install(accountKey, loaded, invalidationsBeforeLoad);
+        }
+        return loaded;
+    }
+
+    /**
+     * Caches account, replacing any entry under its key; used to write saved accounts through
+     */
+    public void put(long accountKey, Account account) {
+        install(accountKey, account, -1);
+    }
+
+    /**
+     * Caches account unless an invalidation ran since invalidationsBeforeLoad was read, or
+     * unconditionally for -1: the loader may have read an account that was removed and
+     * invalidated before it got here, and caching it would hand the removed account out
+     */
+    private void install(long accountKey, Account account, long invalidationsBeforeLoad) {
+        int weight = weigher.applyAsInt(account);
+
+        lock.lock();
+        try {
+            if (invalidationsBeforeLoad != -1 && invalidations != invalidationsBeforeLoad) {
+                return;
+            }
+            sketch.increment(accountKey);
+
+            Node node = entries.get(accountKey);
+            if (node != null) {
+                node.account = account;
+                changeWeight(node, weight - node.weight);
+                onAccess(node);
+            } else {
+                node = new Node(accountKey, account, weight);
+                entries.put(accountKey, node);
+                window.addLast(node);
+                node.queue = window;
+                windowWeight += weight;
+            }
+            evictEntries();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(long accountKey) {
+        lock.lock();
+        try {
+            invalidations++;
+            Node node = entries.remove(accountKey);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            invalidations++;
+            for (Node node : entries.values()) {
+                node.queue = null;
+            }
+            entries.clear();
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+            windowWeight = 0;
+            mainWeight = 0;
+            protectedWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public AccountCacheStats stats() {
+        long weight;
+        lock.lock();
+        try {
+            weight = windowWeight + mainWeight;
+        } finally {
+            lock.unlock();
+        }
+        return new AccountCacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), weight,
+                maximumWeight);
+    }
+
+    /**
+     * Estimated heap bytes of an account, not counting its holder, which the user repository owns
+     */
+    static int estimateBytes(Account account) {
+        return ACCOUNT_OVERHEAD_BYTES + stringBytes(account.getNumber()) + stringBytes(account.getBranchCode())
+                + stringBytes(account.getAccountCode());
+    }
+
+    private static int stringBytes(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + value.length();
+    }
+
+    private void recordHit(Node node) {
+        // a lost access only makes the policy slightly less precise
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            sketch.increment(node.key);
+            if (node.queue != null) {
+                onAccess(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onAccess(Node node) {
+        if (node.queue == window || node.queue == protectedQueue) {
+            node.queue.moveToLast(node);
+            return;
+        }
+
+        // a hit on probation promotes the entry, demoting the oldest protected ones
+        probation.remove(node);
+        protectedQueue.addLast(node);
+        node.queue = protectedQueue;
+        protectedWeight += node.weight;
+
+        while (protectedWeight > protectedMaximum && protectedQueue.first != node) {
+            Node demoted = protectedQueue.first;
+            protectedQueue.remove(demoted);
+            protectedWeight -= demoted.weight;
+            probation.addLast(demoted);
+            demoted.queue = probation;
+        }
+    }
+
+    private void changeWeight(Node node, int delta) {
+        node.weight += delta;
+        if (node.queue == window) {
+            windowWeight += delta;
+        } else {
+            mainWeight += delta;
+            if (node.queue == protectedQueue) {
+                protectedWeight += delta;
+            }
+        }
+    }
+
+    /**
+     * Moves entries out of the window into probation, each admitted only if it is
+     * requested more often than the probation entry it would push out
+     */
+    private void evictEntries() {
+        while (windowWeight > windowMaximum && window.first != null) {
+            Node candidate = window.first;
+            window.remove(candidate);
+            windowWeight -= candidate.weight;
+            probation.addLast(candidate);
+            candidate.queue = probation;
+            mainWeight += candidate.weight;
+
+            admit(candidate);
+        }
+
+        // a grown entry may still leave the cache over its bound
+        while (windowWeight + mainWeight > maximumWeight) {
+            Node victim = probation.first != null ? probation.first : protectedQueue.first;
+            evict(victim != null ? victim : window.first);
+        }
+    }
+
+    private void admit(Node candidate) {
+        while (windowWeight + mainWeight > maximumWeight) {
+            Node victim = probation.first;
+            if (victim == candidate) {
+                victim = protectedQueue.first;
+            }
+
+            if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evict(candidate);
+                return;
+            }
+            evict(victim);
+        }
+    }
+
+    private void evict(Node node) {
+        entries.remove(node.key, node);
+        unlink(node);
+        evictions.increment();
+    }
+
+    private void unlink(Node node) {
+        AccessQueue queue = node.queue;
+        if (queue == null) {
+            return;
+        }
+
+        queue.remove(node);
+        node.queue = null;
+        if (queue == window) {
+            windowWeight -= node.weight;
+        } else {
+            mainWeight -= node.weight;
+            if (queue == protectedQueue) {
+                protectedWeight -= node.weight;
+            }
+        }
+    }
+
+    private static final class Node {
+        private final long key;
+        private volatile Account account;
+        private int weight;
+        // queue the node is linked in, null once removed; guarded by the policy lock
+        private AccessQueue queue;
+        private Node previous;
+        private Node next;
+
+        Node(long key, Account account, int weight) {
+            this.key = key;
+            this.account = account;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list in access order, least recent first
+     */
+    private static final class AccessQueue {
+        private Node first;
+        private Node last;
+
+        void addLast(Node node) {
+            node.previous = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+        }
+
+        void remove(Node node) {
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+        }
+
+        void moveToLast(Node node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            first = null;
+            last = null;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, sixteen to a long, over four hashed rows.
+     * Once the number of increments reaches ten times the table size every counter is
+     * halved, so old popularity fades.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0x97CB3127C5A1F3B3L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final long ONE_MASK = 0x1111111111111111L;
+        private static final int MAX_COUNT = 15;
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int length = Integer.highestOneBit(Math.max(16, Math.min(expectedEntries, 1 << 26)) - 1) << 1;
+            this.table = new long[length];
+            this.mask = length - 1;
+            this.sampleSize = 10 * length;
+        }
+
+        int frequency(long key) {
+            long hash = spread(key);
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, (int) (table[indexOf(hash, row)] >>> offsetOf(hash, row)) & MAX_COUNT);
+            }
+            return frequency;
+        }
+
+        void increment(long key) {
+            long hash = spread(key);
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = indexOf(hash, row);
+                int offset = offsetOf(hash, row);
+                if (((table[index] >>> offset) & MAX_COUNT) != MAX_COUNT) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            int odd = 0;
+            for (int i = 0; i < table.length; i++) {
+                odd += Long.bitCount(table[i] & ONE_MASK);
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            // halving drops the odd remainders, four rows to each addition
+            additions = (additions - (odd >>> 2)) >>> 1;
+        }
+
+        private int indexOf(long hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+
+        // counter within the long picked by a byte of the hash per row
+        private static int offsetOf(long hash, int row) {
+            return (int) ((hash >>> (row << 3)) & 15) << 2;
+        }
+
+        private static long spread(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 29);
+        }
+    }
+}
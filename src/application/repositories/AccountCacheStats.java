@@ -0,0 +1,18 @@
+package application.repositories;
+
+/**
+ * Counters of an {@link AccountCache} since it was created, with its current size and
+ * weight. Weights are entries or estimated bytes, depending on how the cache was sized.
+ */
+public record AccountCacheStats(long hits, long misses, long evictions, long entries, long weight,
+                                long maximumWeight) {
+
+    public long requests() {
+        return hits + misses;
+    }
+
+    public double hitRate() {
+        long requests = requests();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+}
@@ -1,36 +1,174 @@
 package application.repositories;
 
+import application.persistence.Journal;
 import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.SavingsAccount;
+import domain.exception.StaleAccountException;
+import domain.valueObject.AccountCode;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Repository class for managing {@code Account} entities in memory.
+ * <p>
+ * Backed by a {@code ConcurrentHashMap} so it can be read and written from many
+ * request threads at once; balance changes themselves are serialized per account
+ * by {@link application.services.AccountLocks}, or made lock-free through the
+ * balance version, which {@link #save(Account, long)} checks to reject stale writes.
+ * Accounts are keyed by their packed code ({@link AccountCode}), so lookups never build
+ * a code string.
+ */
 public class AccountRepository {
-    private Map<String, Account> accounts;
+    private final Map<Long, Account> accounts;
+    private final Map<String, Set<Long>> accountKeysByHolder;
+    private final Map<Integer, Set<Long>> savingsKeysByAnniversaryDay;
+    private volatile Journal journal;
 
     public AccountRepository() {
-        accounts = new HashMap<>();
+        accounts = new ConcurrentHashMap<>();
+        accountKeysByHolder = new ConcurrentHashMap<>();
+        savingsKeysByAnniversaryDay = new ConcurrentHashMap<>();
     }
 
+    /**
+     * Persists account and keeps the holder index in sync; throws if its code belongs to another account
+     */
     public void save(Account account) {
-        String accountCode = account.getAccountCode();
-        accounts.put(accountCode, account);
+        awaitDurable(register(account));
+    }
+
+    /**
+     * Persists account only if its version is still expectedVersion, the one the caller
+     * read before deciding on the change; throws {@link StaleAccountException} if another
+     * change got in between. The version is raised, so of two writers expecting the same
+     * version only the first succeeds.
+     */
+    public void save(Account account, long expectedVersion) {
+        if (!account.claimVersion(expectedVersion)) {
+            throw StaleAccountException.withoutStackTrace();
+        }
+        save(account);
+    }
+
+    /**
+     * Persists many accounts waiting once for the journal. An account whose code belongs to
+     * another account is skipped; its failure is returned keyed by its position in accounts.
+     */
+    public Map<Integer, RuntimeException> saveAll(List<Account> accounts) {
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+        long lastSequence = 0;
+
+        for (int i = 0; i < accounts.size(); i++) {
+            try {
+                lastSequence = register(accounts.get(i));
+            } catch (RuntimeException e) {
+                failures.put(i, e);
+            }
+        }
+
+        awaitDurable(lastSequence);
+        return failures;
+    }
+
+    /**
+     * Stores account and updates the indexes, returning the journal sequence of its record or zero
+     */
+    private long register(Account account) {
+        long accountKey = account.getAccountKey();
+        Account previous = accounts.putIfAbsent(accountKey, account);
+
+        if (previous != null && previous != account) {
+            throw new IllegalArgumentException("Account number already in use: " + account.getAccountCode());
+        }
+
+        String holderId = account.getHolder().getId();
+        // adds inside compute so it cannot race with unindex dropping an emptied set
+        accountKeysByHolder.compute(holderId, (k, accountKeys) -> {
+            Set<Long> keys = accountKeys != null ? accountKeys : ConcurrentHashMap.newKeySet();
+            keys.add(accountKey);
+            return keys;
+        });
+        if (previous == null && account instanceof SavingsAccount savingsAccount) {
+            savingsKeysByAnniversaryDay
+                    .computeIfAbsent(savingsAccount.getAnniversaryDay(), day -> ConcurrentHashMap.newKeySet())
+                    .add(accountKey);
+        }
+
+        return logAccount(account);
+    }
+
+    /**
+     * Writes back the state of an account whose balance was changed in place.
+     * Accounts held here are the live instances, so there is nothing to do; storage
+     * engines that keep accounts outside the heap override it.
+     */
+    public void updateBalance(Account account) {
     }
 
     public Optional<Account> getByCode(String agency, String number) {
-        String accountCode = agency + "-" + number;
-        return Optional.ofNullable(accounts.get(accountCode));
+        return getByAccountKey(AccountCode.keyOf(agency, number));
+    }
+
+    public Optional<Account> getByAccountCode(String accountCode) {
+        return getByAccountKey(AccountCode.parse(accountCode));
+    }
+
+    public Optional<Account> getByAccountKey(long accountKey) {
+        return Optional.ofNullable(accounts.get(accountKey));
     }
 
     /**
-     * Returns accounts filtered by holder's identifier
+     * Returns a read-only list of the holder's accounts, active or not, resolved from the holder index
      */
-    public Collection<Account> getByHolder(String userId) {
-        return accounts.values().stream()
-                .filter(account -> account.getHolder().getId().equals(userId))
-                .toList();
+    public List<Account> getByHolder(String userId) {
+        Set<Long> accountKeys = accountKeysByHolder.get(userId);
+        if (accountKeys == null) {
+            return List.of();
+        }
+
+        List<Account> holderAccounts = new ArrayList<>(accountKeys.size());
+        for (Long accountKey : accountKeys) {
+            Account account = accounts.get(accountKey);
+            if (account != null) {
+                holderAccounts.add(account);
+            }
+        }
+        return Collections.unmodifiableList(holderAccounts);
+    }
+
+    /**
+     * Returns the savings accounts whose yield falls due on date, read from the anniversary day
+     * index instead of scanning every account
+     */
+    public List<Account> getSavingsDueOn(LocalDate date) {
+        List<Account> due = new ArrayList<>();
+
+        for (int day = 1; day <= 31; day++) {
+            Set<Long> accountKeys = SavingsAccount.isAnniversaryDay(day, date)
+                    ? savingsKeysByAnniversaryDay.get(day)
+                    : null;
+            if (accountKeys == null) {
+                continue;
+            }
+
+            for (Long accountKey : accountKeys) {
+                Account account = accounts.get(accountKey);
+                if (account != null) {
+                    due.add(account);
+                }
+            }
+        }
+        return due;
     }
 
     public Collection<Account> getAll() {
@@ -38,7 +176,82 @@ public class AccountRepository {
     }
 
     public void remove(String agency, String number) {
-        String accountCode = agency + "-" + number;
-        accounts.remove(accountCode);
+        Account removed = accounts.remove(AccountCode.keyOf(agency, number));
+
+        if (removed != null) {
+            unindex(removed.getHolder().getId(), removed.getAccountKey());
+            if (removed instanceof SavingsAccount savingsAccount) {
+                Set<Long> accountKeys = savingsKeysByAnniversaryDay.get(savingsAccount.getAnniversaryDay());
+                if (accountKeys != null) {
+                    accountKeys.remove(removed.getAccountKey());
+                }
+            }
+
+            awaitDurable(logAccountRemoved(removed.getAccountCode()));
+        }
+    }
+
+    /**
+     * Turns on split credits for a hot transfer destination; callers hold the account lock
+     */
+    public void enableSplitCredits(Account account, int stripes) {
+        boolean enabled = !account.hasSplitCredits();
+        account.enableSplitCredits(stripes);
+
+        if (enabled && journal != null) {
+            journal.awaitDurable(journal.logSplitCreditsEnabled(account));
+        }
+    }
+
+    /**
+     * Records the fee month a checking account settled without charging. A charged month
+     * is carried by its fee record; a waived one would otherwise be forgotten by a crash
+     * before the next snapshot, and a rerun could then charge it. Not waited for: the
+     * caller waits once for everything it appended.
+     */
+    public void recordFeePeriodSettled(CheckingAccount account) {
+        Journal current = journal;
+        if (current != null) {
+            current.logFeePeriodSettled(account);
+        }
+    }
+
+    /**
+     * Starts recording every change in the journal; called once recovery is complete
+     */
+    public void attachJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Records the account in the attached journal, returning the sequence of its record or
+     * zero; storage engines that keep accounts themselves log through here as well
+     */
+    protected long logAccount(Account account) {
+        Journal current = journal;
+        return current != null ? current.logAccount(account) : 0;
+    }
+
+    protected long logAccountRemoved(String accountCode) {
+        Journal current = journal;
+        return current != null ? current.logAccountRemoved(accountCode) : 0;
+    }
+
+    /**
+     * Waits until the journal record with the sequence is durable; returns at once without a journal
+     */
+    protected void awaitDurable(long sequence) {
+        Journal current = journal;
+        if (current != null) {
+            current.awaitDurable(sequence);
+        }
+    }
+
+    private void unindex(String holderId, long accountKey) {
+        // drops the holder entry atomically once its last account is gone
+        accountKeysByHolder.computeIfPresent(holderId, (k, accountKeys) -> {
+            accountKeys.remove(accountKey);
+            return accountKeys.isEmpty() ? null : accountKeys;
+        });
     }
 }
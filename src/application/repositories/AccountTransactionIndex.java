@@ -0,0 +1,294 @@
+package application.repositories;
+
+import domain.entity.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Per-account list of transactions kept in {@code dateTime} order.
+ * <p>
+ * Entries live in two parallel arrays (primitive time keys and transaction
+ * references), so a lookup is a binary search over a {@code long[]} followed by a
+ * sequential read, and an account with millions of entries costs two array slots
+ * per entry instead of a boxed list of ids. Transactions normally arrive in time
+ * order and are appended; late arrivals are inserted after entries with the same key.
+ * <p>
+ * A third array keeps the running sum of the balance changes, so the balance at any
+ * time is a binary search plus one read. The lowest and highest running sums of every
+ * block of {@value #BLOCK} entries sit in a segment tree, so the balance range of a
+ * period costs two partial blocks plus a logarithmic walk. Both are kept current on
+ * every add: an append touches one leaf path, a late insert rebuilds from its block on.
+ */
+final class AccountTransactionIndex {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int BLOCK = 64;
+
+    private long[] timeKeys = new long[INITIAL_CAPACITY];
+    private Transaction[] entries = new Transaction[INITIAL_CAPACITY];
+    // sum of the balance changes of entries 0..i
+    private long[] running = new long[INITIAL_CAPACITY];
+    private int size;
+
+    // earliest entry whose balances are those of the account, -1 if none
+    private int anchor = -1;
+    // segment trees over blocks of running sums; leaves start at index leaves
+    private long[] blockLows = new long[2];
+    private long[] blockHighs = new long[2];
+    private int leaves = 1;
+
+    /**
+     * @param accountBalance false when the record balances are not the account's, as for
+     *                       credits taken by a split cell
+     */
+    synchronized void add(long timeKey, Transaction transaction, boolean accountBalance) {
+        if (size == entries.length) {
+            int capacity = size + (size >> 1);
+            timeKeys = Arrays.copyOf(timeKeys, capacity);
+            entries = Arrays.copyOf(entries, capacity);
+            running = Arrays.copyOf(running, capacity);
+        }
+
+        int position = size;
+        if (size > 0 && timeKeys[size - 1] > timeKey) {
+            position = upperBound(timeKey);
+            System.arraycopy(timeKeys, position, timeKeys, position + 1, size - position);
+            System.arraycopy(entries, position, entries, position + 1, size - position);
+        }
+
+        timeKeys[position] = timeKey;
+        entries[position] = transaction;
+        size++;
+
+        if (anchor >= position) {
+            anchor++;
+        }
+        if (accountBalance && (anchor < 0 || position < anchor)) {
+            anchor = position;
+        }
+
+        for (int i = position; i < size; i++) {
+            running[i] = (i > 0 ? running[i - 1] : 0) + changeOf(entries[i]);
+        }
+
+        if (blockOf(size - 1) >= leaves) {
+            while (blockOf(size - 1) >= leaves) {
+                leaves <<= 1;
+            }
+            blockLows = new long[2 * leaves];
+            blockHighs = new long[2 * leaves];
+            rebuildBlocks(0);
+        } else if (position == size - 1) {
+            updateBlock(blockOf(position), running[position]);
+        } else {
+            rebuildBlocks(blockOf(position));
+        }
+    }
+
+    /**
+     * Returns the balance right after every entry with a key up to {@code timeKey}
+     */
+    synchronized long balanceAt(long timeKey) {
+        return runningBalance(upperBound(timeKey));
+    }
+
+    /**
+     * Returns the opening, closing, lowest and highest balance over [fromKey, toKey), in cents
+     */
+    synchronized long[] balanceRange(long fromKey, long toKey) {
+        int from = lowerBound(fromKey);
+        int to = Math.max(from, lowerBound(toKey));
+
+        long opening = runningBalance(from);
+        long low = opening;
+        long high = opening;
+
+        if (from < to) {
+            long offset = openingBalance();
+            int firstBlock = blockOf(from);
+            int lastBlock = blockOf(to - 1);
+
+            if (firstBlock == lastBlock) {
+                for (int i = from; i < to; i++) {
+                    low = Math.min(low, offset + running[i]);
+                    high = Math.max(high, offset + running[i]);
+                }
+            } else {
+                // partial edge blocks are read directly, whole blocks between them from the tree
+                int firstWhole = from % BLOCK == 0 ? firstBlock : firstBlock + 1;
+                int lastWhole = to % BLOCK == 0 ? lastBlock : lastBlock - 1;
+                for (int i = from; i < firstWhole * BLOCK; i++) {
+                    low = Math.min(low, offset + running[i]);
+                    high = Math.max(high, offset + running[i]);
+                }
+                for (int i = (lastWhole + 1) * BLOCK; i < to; i++) {
+                    low = Math.min(low, offset + running[i]);
+                    high = Math.max(high, offset + running[i]);
+                }
+
+                long[] extremes = {Long.MAX_VALUE, Long.MIN_VALUE};
+                queryBlocks(firstWhole, lastWhole + 1, extremes);
+                if (extremes[0] != Long.MAX_VALUE) {
+                    low = Math.min(low, offset + extremes[0]);
+                    high = Math.max(high, offset + extremes[1]);
+                }
+            }
+        }
+        return new long[]{opening, runningBalance(to), low, high};
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Collects matching entries with keys in [fromKey, toKey), starting after the cursor
+     *
+     * @param cursorKey time key of the last entry already read, ignored when {@code cursorTie} is 0
+     * @param cursorTie how many entries with {@code cursorKey} were already read
+     * @param limit maximum number of entries to return, or -1 for all
+     * @return entries found plus the cursor pointing after the last scanned entry
+     */
+    synchronized Slice read(long fromKey, long toKey, long cursorKey, int cursorTie,
+                            Predicate<Transaction> filter, int limit) {
+        int position = lowerBound(fromKey);
+        if (cursorTie > 0) {
+            position = Math.max(position, lowerBound(cursorKey) + cursorTie);
+        }
+
+        List<Transaction> found = new ArrayList<>(limit < 0 ? 16 : Math.min(limit, 256));
+        int last = -1;
+
+        while (position < size && timeKeys[position] < toKey && (limit < 0 || found.size() < limit)) {
+            Transaction transaction = entries[position];
+            if (filter == null || filter.test(transaction)) {
+                found.add(transaction);
+            }
+            last = position++;
+        }
+
+        boolean exhausted = position >= size || timeKeys[position] >= toKey;
+        if (last < 0 || exhausted) {
+            return new Slice(found, 0, 0, false);
+        }
+
+        long lastKey = timeKeys[last];
+        return new Slice(found, lastKey, last - lowerBound(lastKey) + 1, true);
+    }
+
+    /**
+     * Balance before the first entry: taken from the earliest record that holds account
+     * balances, or zero if there is none and the history starts at the account opening
+     */
+    private long openingBalance() {
+        if (anchor < 0) {
+            return 0;
+        }
+        return entries[anchor].getPreviousBalanceCents() - (anchor > 0 ? running[anchor - 1] : 0);
+    }
+
+    /**
+     * Balance after the first {@code count} entries
+     */
+    private long runningBalance(int count) {
+        return openingBalance() + (count > 0 ? running[count - 1] : 0);
+    }
+
+    private static long changeOf(Transaction transaction) {
+        return transaction.getBalanceAfterCents() - transaction.getPreviousBalanceCents();
+    }
+
+    private static int blockOf(int position) {
+        return position / BLOCK;
+    }
+
+    private void updateBlock(int block, long value) {
+        int node = leaves + block;
+        // a fresh block starts at its first entry
+        boolean first = block * BLOCK == size - 1;
+        blockLows[node] = first ? value : Math.min(blockLows[node], value);
+        blockHighs[node] = first ? value : Math.max(blockHighs[node], value);
+
+        for (node >>= 1; node > 0; node >>= 1) {
+            blockLows[node] = Math.min(blockLows[2 * node], blockLows[2 * node + 1]);
+            blockHighs[node] = Math.max(blockHighs[2 * node], blockHighs[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Recomputes the leaves from {@code fromBlock} on and every inner node
+     */
+    private void rebuildBlocks(int fromBlock) {
+        for (int block = fromBlock; block < leaves; block++) {
+            long low = Long.MAX_VALUE;
+            long high = Long.MIN_VALUE;
+            for (int i = block * BLOCK, end = Math.min(size, (block + 1) * BLOCK); i < end; i++) {
+                low = Math.min(low, running[i]);
+                high = Math.max(high, running[i]);
+            }
+            blockLows[leaves + block] = low;
+            blockHighs[leaves + block] = high;
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            blockLows[node] = Math.min(blockLows[2 * node], blockLows[2 * node + 1]);
+            blockHighs[node] = Math.max(blockHighs[2 * node], blockHighs[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Folds the lowest and highest running sums of blocks [fromBlock, toBlock) into extremes
+     */
+    private void queryBlocks(int fromBlock, int toBlock, long[] extremes) {
+        for (int left = fromBlock + leaves, right = toBlock + leaves; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                extremes[0] = Math.min(extremes[0], blockLows[left]);
+                extremes[1] = Math.max(extremes[1], blockHighs[left]);
+                left++;
+            }
+            if ((right & 1) == 1) {
+                right--;
+                extremes[0] = Math.min(extremes[0], blockLows[right]);
+                extremes[1] = Math.max(extremes[1], blockHighs[right]);
+            }
+        }
+    }
+
+    /**
+     * First position whose key is greater than or equal to {@code key}
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeKeys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First position whose key is greater than {@code key}
+     */
+    private int upperBound(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeKeys[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    record Slice(List<Transaction> transactions, long nextKey, int nextTie, boolean hasMore) {
+    }
+}
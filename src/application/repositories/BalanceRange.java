@@ -0,0 +1,10 @@
+package application.repositories;
+
+import java.math.BigDecimal;
+
+/**
+ * Balances of an account over a statement period: before its first transaction, after
+ * its last one, and the lowest and highest in between.
+ */
+public record BalanceRange(BigDecimal opening, BigDecimal closing, BigDecimal lowest, BigDecimal highest) {
+}
@@ -0,0 +1,315 @@
+package application.repositories;
+
+import application.persistence.Journal;
+import domain.entity.Transaction;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded cache of recent idempotency keys and the transactions their request posted.
+ * <p>
+ * The first request with a key claims it and runs; a retry finds the recorded
+ * transactions with one map lookup and never reaches the account locks, while a
+ * duplicate arriving mid-flight waits for the first one to finish. Keys expire after
+ * a fixed time and the oldest are dropped once the cache holds too many. A released key
+ * leaves the cache at once, so failed requests neither count toward the limit nor keep
+ * their exception around. Recorded keys are journaled ahead of the transactions they
+ * point to, so a restart keeps them.
+ */
+public class IdempotencyCache {
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofHours(24);
+    public static final int DEFAULT_MAX_ENTRIES = 1_000_000;
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Map<String, Entry> entries;
+    // claim order, oldest first; guarded by itself
+    private final ClaimOrder order;
+    private final long timeToLiveMillis;
+    private final int maxEntries;
+    private final Clock clock;
+    private volatile Journal journal;
+
+    public IdempotencyCache() {
+        this(DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_ENTRIES, Clock.systemUTC());
+    }
+
+    public IdempotencyCache(Duration timeToLive, int maxEntries, Clock clock) {
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive.");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive.");
+        }
+
+        this.entries = new ConcurrentHashMap<>();
+        this.order = new ClaimOrder();
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the transactions posted by the first request with key, waiting for it if it
+     * is still running; otherwise the caller becomes the owner of the key and must
+     * {@link Claim#record record} and {@link Claim#complete complete} it, or
+     * {@link Claim#release release} it if the request fails.
+     *
+     * @param fingerprint identifies the request; a key reused for another request is rejected
+     */
+    public Claim claim(String key, String fingerprint) {
+        validateKey(key);
+        long now = clock.millis();
+
+        while (true) {
+            Entry entry = entries.get(key);
+            if (entry != null && isExpired(entry, now)) {
+                remove(entry);
+                entry = null;
+            }
+
+            if (entry == null) {
+                Entry claimed = new Entry(key, fingerprint, now);
+                if (entries.putIfAbsent(key, claimed) == null) {
+                    admit(claimed, now);
+                    return new Claim(claimed, null);
+                }
+                continue;
+            }
+
+            if (!entry.fingerprint.equals(fingerprint)) {
+                throw new IllegalArgumentException("Idempotency key already used for a different request: " + key);
+            }
+            return new Claim(entry, await(entry));
+        }
+    }
+
+    /**
+     * Adds a key recovered from persisted state unless it has already expired
+     */
+    public void restore(String key, String fingerprint, long createdAt, List<Transaction> transactions) {
+        long now = clock.millis();
+        Entry entry = new Entry(key, fingerprint, createdAt);
+        if (isExpired(entry, now)) {
+            return;
+        }
+
+        entry.transactions = List.copyOf(transactions);
+        entry.result.complete(entry.transactions);
+        Entry previous = entries.put(key, entry);
+        if (previous == null) {
+            admit(entry, now);
+        } else {
+            synchronized (order) {
+                order.remove(previous);
+                order.addLast(entry);
+            }
+        }
+    }
+
+    /**
+     * Returns the live keys that have recorded transactions, oldest first
+     */
+    public List<RecordedKey> getRecorded() {
+        long now = clock.millis();
+        List<RecordedKey> recorded = new ArrayList<>();
+
+        synchronized (order) {
+            for (Entry entry = order.first; entry != null; entry = entry.next) {
+                List<Transaction> transactions = entry.transactions;
+                if (transactions != null && !isExpired(entry, now) && entries.get(entry.key) == entry) {
+                    recorded.add(new RecordedKey(entry.key, entry.fingerprint, entry.createdAt, transactions));
+                }
+            }
+        }
+        return recorded;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Starts recording claimed keys in the journal; called once recovery is complete
+     */
+    public void attachJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    private void admit(Entry entry, long now) {
+        synchronized (order) {
+            order.addLast(entry);
+
+            // every entry in the map is linked, so bounding the list bounds the map
+            Entry oldest;
+            while ((oldest = order.first) != null && (order.size > maxEntries || isExpired(oldest, now))) {
+                order.remove(oldest);
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        synchronized (order) {
+            order.remove(entry);
+        }
+        entries.remove(entry.key, entry);
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAt >= timeToLiveMillis;
+    }
+
+    private static List<Transaction> await(Entry entry) {
+        try {
+            return entry.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a duplicate request.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void validateKey(String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalArgumentException("Idempotency key is required.");
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must have at most " + MAX_KEY_LENGTH + " characters.");
+        }
+    }
+
+    /**
+     * A key whose request posted its transactions
+     */
+    public record RecordedKey(String key, String fingerprint, long createdAt, List<Transaction> transactions) {
+    }
+
+    /**
+     * Outcome of {@link #claim}: either the result of an earlier request with the same key,
+     * or ownership of the key for the calling request
+     */
+    public final class Claim {
+        private final Entry entry;
+        private final List<Transaction> previous;
+
+        private Claim(Entry entry, List<Transaction> previous) {
+            this.entry = entry;
+            this.previous = previous;
+        }
+
+        public boolean isDuplicate() {
+            return previous != null;
+        }
+
+        /**
+         * Returns the transactions posted by the earlier request; only for duplicates
+         */
+        public List<Transaction> getTransactions() {
+            if (previous == null) {
+                throw new IllegalStateException("Claim is not a duplicate.");
+            }
+            return previous;
+        }
+
+        /**
+         * Records the transactions posted for the key; called under the account locks,
+         * after confirming and before saving them, so the key reaches the journal first
+         */
+        public void record(List<Transaction> transactions) {
+            entry.transactions = List.copyOf(transactions);
+
+            Journal current = journal;
+            // a key evicted while running is not written; its retries are not deduplicated
+            if (current != null && entries.get(entry.key) == entry) {
+                current.logIdempotencyKey(entry.key, entry.fingerprint, entry.createdAt, entry.transactions);
+            }
+        }
+
+        /**
+         * Hands the recorded transactions to duplicates; called once they are durable
+         */
+        public void complete() {
+            entry.result.complete(entry.transactions);
+        }
+
+        /**
+         * Gives up the key after the request failed so a retry runs again;
+         * duplicates already waiting fail with the same exception
+         */
+        public void release(RuntimeException failure) {
+            remove(entry);
+            entry.result.completeExceptionally(failure);
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long createdAt;
+        private final CompletableFuture<List<Transaction>> result = new CompletableFuture<>();
+        private volatile List<Transaction> transactions;
+        // links in the claim order; guarded by it
+        private boolean linked;
+        private Entry previous;
+        private Entry next;
+
+        private Entry(String key, String fingerprint, long createdAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list of the entries in claim order, oldest first
+     */
+    private static final class ClaimOrder {
+        private Entry first;
+        private Entry last;
+        private int size;
+
+        void addLast(Entry entry) {
+            entry.previous = last;
+            entry.next = null;
+            if (last == null) {
+                first = entry;
+            } else {
+                last.next = entry;
+            }
+            last = entry;
+            entry.linked = true;
+            size++;
+        }
+
+        void remove(Entry entry) {
+            if (!entry.linked) {
+                return;
+            }
+            if (entry.previous == null) {
+                first = entry.next;
+            } else {
+                entry.previous.next = entry.next;
+            }
+            if (entry.next == null) {
+                last = entry.previous;
+            } else {
+                entry.next.previous = entry.previous;
+            }
+            entry.previous = null;
+            entry.next = null;
+            entry.linked = false;
+            size--;
+        }
+    }
+}
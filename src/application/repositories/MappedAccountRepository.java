@@ -0,0 +1,411 @@
+package application.repositories;
+
+import application.persistence.MappedAccountStore;
+import domain.entity.Account;
+import domain.entity.SavingsAccount;
+import domain.entity.AccountNumberAllocator;
+import domain.entity.User;
+import domain.valueObject.AccountCode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * {@code AccountRepository} backed by a {@link MappedAccountStore} instead of heap objects.
+ * <p>
+ * Accounts are materialized on lookup and tracked in a weak identity map, so every
+ * caller working on an account at the same time shares one instance (and one balance)
+ * while accounts nobody references are left to the garbage collector. Balance changes
+ * made in place are written back to the mapped record through {@link #updateBalance}.
+ */
+public class MappedAccountRepository extends AccountRepository implements Closeable {
+    public static final int DEFAULT_CACHED_ACCOUNTS = 65_536;
+
+    private final MappedAccountStore store;
+    private final UserRepository userRepository;
+    private final Map<Integer, AccountReference> liveAccounts;
+    private final ReferenceQueue<Account> collected;
+    private final Map<String, Set<Integer>> ordinalsByHolder;
+    private final Map<Integer, Set<Integer>> savingsOrdinalsByAnniversaryDay;
+    private final AccountCache cache;
+
+    public MappedAccountRepository(Path file, UserRepository userRepository) throws IOException {
+        this(file, userRepository, AccountCache.ofEntries(DEFAULT_CACHED_ACCOUNTS));
+    }
+
+    public MappedAccountRepository(Path file, UserRepository userRepository, AccountCache cache)
+            throws IOException {
+        this.store = MappedAccountStore.open(file);
+        this.cache = cache;
+        this.userRepository = userRepository;
+        this.liveAccounts = new ConcurrentHashMap<>();
+        this.collected = new ReferenceQueue<>();
+        this.ordinalsByHolder = new ConcurrentHashMap<>();
+        this.savingsOrdinalsByAnniversaryDay = new ConcurrentHashMap<>();
+
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            // removed records keep their code, so their numbers stay taken as well
+            String accountCode = store.getAccountCode(ordinal);
+            int separator = accountCode.lastIndexOf('-');
+            AccountNumberAllocator.getDefault()
+                    .reserve(accountCode.substring(0, separator), accountCode.substring(separator + 1));
+
+            if (store.isUsed(ordinal)) {
+                indexHolder(store.getHolderId(ordinal), ordinal);
+                if (store.isSavings(ordinal)) {
+                    indexAnniversary(store.getAnniversaryDay(ordinal), ordinal);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void save(Account account) {
+        awaitDurable(register(account));
+    }
+
+    /**
+     * Saves each account in turn, waiting once for the journal
+     */
+    @Override
+    public Map<Integer, RuntimeException> saveAll(List<Account> accounts) {
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+        long lastSequence = 0;
+
+        for (int i = 0; i < accounts.size(); i++) {
+            try {
+                lastSequence = register(accounts.get(i));
+            } catch (RuntimeException e) {
+                failures.put(i, e);
+            }
+        }
+
+        awaitDurable(lastSequence);
+        return failures;
+    }
+
+    /**
+     * Writes the record and updates the indexes, returning the journal sequence of the
+     * account record or zero
+     */
+    private long register(Account account) {
+        if (account.hasSplitCredits()) {
+            throw new UnsupportedOperationException("Split credits are not supported by the mapped account store.");
+        }
+
+        OptionalInt previous = store.ordinalOf(account.getAccountKey());
+        String previousHolder = null;
+
+        if (previous.isPresent()) {
+            // the stored account is in use only through its live instance, if any
+            AccountReference live = liveAccounts.get(previous.getAsInt());
+            if (live == null || live.get() != account) {
+                throw new IllegalArgumentException("Account number already in use: " + account.getAccountCode());
+            }
+            previousHolder = store.getHolderId(previous.getAsInt());
+        }
+
+        int ordinal = store.put(account);
+        String holderId = account.getHolder().getId();
+
+        if (previousHolder != null && !previousHolder.equals(holderId)) {
+            unindexHolder(previousHolder, ordinal);
+        }
+        indexHolder(holderId, ordinal);
+        if (previous.isEmpty() && account instanceof SavingsAccount savingsAccount) {
+            indexAnniversary(savingsAccount.getAnniversaryDay(), ordinal);
+        }
+
+        purgeCollected();
+        liveAccounts.put(ordinal, new AccountReference(ordinal, account, collected));
+        cache.put(account.getAccountKey(), account);
+
+        // the mapping is only forced on close, so the journal is what makes the save durable
+        return logAccount(account);
+    }
+
+    @Override
+    public void updateBalance(Account account) {
+        store.ordinalOf(account.getAccountKey()).ifPresent(ordinal -> {
+            // a lock-free change may land while the record is written; writing again until
+            // the version holds still leaves the record with the newest balance
+            long version;
+            do {
+                version = account.getVersion();
+                store.put(account);
+            } while (account.getVersion() != version);
+        });
+    }
+
+    /**
+     * Not supported: accounts are rebuilt from the mapped file, which has no room for split
+     * cells. Refused before the account changes, and by recovery when the journal asks for it.
+     */
+    @Override
+    public void enableSplitCredits(Account account, int stripes) {
+        throw new UnsupportedOperationException("Split credits are not supported by the mapped account store.");
+    }
+
+    @Override
+    public Optional<Account> getByAccountKey(long accountKey) {
+        return Optional.ofNullable(cache.get(accountKey, key -> {
+            OptionalInt ordinal = store.ordinalOf(key);
+            return ordinal.isPresent() ? materialize(ordinal.getAsInt()) : null;
+        }));
+    }
+
+    @Override
+    public List<Account> getByHolder(String userId) {
+        Set<Integer> ordinals = ordinalsByHolder.get(userId);
+        if (ordinals == null) {
+            return List.of();
+        }
+
+        List<Account> holderAccounts = new ArrayList<>(ordinals.size());
+        for (int ordinal : ordinals) {
+            Account account = materialize(ordinal);
+            if (account != null) {
+                holderAccounts.add(account);
+            }
+        }
+        return Collections.unmodifiableList(holderAccounts);
+    }
+
+    @Override
+    public List<Account> getSavingsDueOn(LocalDate date) {
+        List<Account> due = new ArrayList<>();
+
+        for (int day = 1; day <= 31; day++) {
+            Set<Integer> ordinals = SavingsAccount.isAnniversaryDay(day, date)
+                    ? savingsOrdinalsByAnniversaryDay.get(day)
+                    : null;
+            if (ordinals == null) {
+                continue;
+            }
+
+            for (int ordinal : ordinals) {
+                Account account = materialize(ordinal);
+                if (account != null) {
+                    due.add(account);
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Returns a view that materializes accounts one at a time while iterating
+     */
+    @Override
+    public Collection<Account> getAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Account> iterator() {
+                return new Iterator<>() {
+                    private final int end = store.size();
+                    private int ordinal = advance(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return ordinal < end;
+                    }
+
+                    @Override
+                    public Account next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Account account = materialize(ordinal);
+                        ordinal = advance(ordinal + 1);
+                        return account;
+                    }
+
+                    private int advance(int from) {
+                        int next = from;
+                        while (next < end && !store.isUsed(next)) {
+                            next++;
+                        }
+                        return next;
+                    }
+                };
+            }
+
+            /**
+             * Splits by ordinal range, so batch jobs can partition the store evenly
+             */
+            @Override
+            public Spliterator<Account> spliterator() {
+                return new OrdinalSpliterator(0, store.size());
+            }
+
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
+    }
+
+    @Override
+    public void remove(String agency, String number) {
+        long accountKey = AccountCode.keyOf(agency, number);
+        OptionalInt ordinal = store.ordinalOf(accountKey);
+
+        if (ordinal.isPresent()) {
+            unindexHolder(store.getHolderId(ordinal.getAsInt()), ordinal.getAsInt());
+            if (store.isSavings(ordinal.getAsInt())) {
+                Set<Integer> ordinals = savingsOrdinalsByAnniversaryDay.get(store.getAnniversaryDay(ordinal.getAsInt()));
+                if (ordinals != null) {
+                    ordinals.remove(ordinal.getAsInt());
+                }
+            }
+            store.remove(ordinal.getAsInt());
+            liveAccounts.remove(ordinal.getAsInt());
+            cache.invalidate(accountKey);
+
+            awaitDurable(logAccountRemoved(AccountCode.format(accountKey)));
+        }
+    }
+
+    public AccountCacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    /**
+     * Returns the live instance for the ordinal, loading it from the store if none is reachable
+     */
+    private Account materialize(int ordinal) {
+        purgeCollected();
+
+        while (true) {
+            AccountReference reference = liveAccounts.get(ordinal);
+            Account account = reference != null ? reference.get() : null;
+            if (account != null) {
+                return account;
+            }
+            if (!store.isUsed(ordinal)) {
+                return null;
+            }
+
+            Optional<User> holder = userRepository.findById(store.getHolderId(ordinal));
+            if (holder.isEmpty()) {
+                return null;
+            }
+
+            Account loaded = store.load(ordinal, holder.get());
+            AccountReference created = new AccountReference(ordinal, loaded, collected);
+
+            // another thread may have loaded the same account meanwhile; keep a single instance
+            boolean installed = reference == null
+                    ? liveAccounts.putIfAbsent(ordinal, created) == null
+                    : liveAccounts.replace(ordinal, reference, created);
+            if (installed) {
+                return loaded;
+            }
+        }
+    }
+
+    private void purgeCollected() {
+        AccountReference reference;
+        while ((reference = (AccountReference) collected.poll()) != null) {
+            liveAccounts.remove(reference.ordinal, reference);
+        }
+    }
+
+    private void indexHolder(String holderId, int ordinal) {
+        ordinalsByHolder.compute(holderId, (k, ordinals) -> {
+            Set<Integer> holderOrdinals = ordinals != null ? ordinals : ConcurrentHashMap.newKeySet();
+            holderOrdinals.add(ordinal);
+            return holderOrdinals;
+        });
+    }
+
+    private void indexAnniversary(int anniversaryDay, int ordinal) {
+        savingsOrdinalsByAnniversaryDay.computeIfAbsent(anniversaryDay, day -> ConcurrentHashMap.newKeySet())
+                .add(ordinal);
+    }
+
+    private void unindexHolder(String holderId, int ordinal) {
+        ordinalsByHolder.computeIfPresent(holderId, (k, ordinals) -> {
+            ordinals.remove(ordinal);
+            return ordinals.isEmpty() ? null : ordinals;
+        });
+    }
+
+    private final class OrdinalSpliterator implements Spliterator<Account> {
+        private int ordinal;
+        private final int end;
+
+        OrdinalSpliterator(int ordinal, int end) {
+            this.ordinal = ordinal;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Account> action) {
+            while (ordinal < end) {
+                Account account = store.isUsed(ordinal) ? materialize(ordinal) : null;
+                ordinal++;
+                if (account != null) {
+                    action.accept(account);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Account> trySplit() {
+            int middle = (ordinal + end) >>> 1;
+            if (middle <= ordinal) {
+                return null;
+            }
+
+            OrdinalSpliterator prefix = new OrdinalSpliterator(ordinal, middle);
+            ordinal = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - ordinal;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.NONNULL | Spliterator.DISTINCT;
+        }
+    }
+
+    private static final class AccountReference extends WeakReference<Account> {
+        private final int ordinal;
+
+        AccountReference(int ordinal, Account account, ReferenceQueue<Account> queue) {
+            super(account, queue);
+            this.ordinal = ordinal;
+        }
+    }
+}
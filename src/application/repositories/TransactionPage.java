@@ -0,0 +1,15 @@
+package application.repositories;
+
+import domain.entity.Transaction;
+
+import java.util.List;
+
+/**
+ * One page of an account statement. {@code nextCursor} is {@code null} on the last page.
+ */
+public record TransactionPage(List<Transaction> transactions, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
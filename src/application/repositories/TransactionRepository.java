@@ -1,31 +1,314 @@
 package application.repositories;
 
+import application.metrics.Metrics;
+import application.metrics.OperationMetrics;
+import application.persistence.Journal;
 import domain.entity.Transaction;
+import domain.enums.TransactionStatus;
+import domain.enums.TransactionType;
+import domain.valueObject.AccountCode;
+import domain.valueObject.Money;
+import domain.valueObject.TransactionId;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
+/**
+ * Repository class for managing {@code Transaction} records in memory.
+ * <p>
+ * Besides the id lookup, every transaction is indexed under its ledger account
+ * (a transfer posts one record on each side) in {@code dateTime} order, so
+ * statement queries and cursor pages cost a binary search plus the size of the
+ * result, not a scan. The same index answers point-in-time balances and the balance
+ * range of a period in logarithmic time. Both maps are keyed on the compact identities
+ * ({@link TransactionId} and the packed account code), never on strings.
+ */
 public class TransactionRepository {
-    private Map<String, Transaction> transactions;
-    private Map<String, List<String>> transactionsByAccountCode;
+    private static final int MAX_PAGE_SIZE = 1_000;
+    // widest epoch seconds whose nanoseconds, nano part included, fit a long
+    private static final long MIN_KEY_SECONDS = Long.MIN_VALUE / 1_000_000_000L;
+    private static final long MAX_KEY_SECONDS = Long.MAX_VALUE / 1_000_000_000L - 1;
+
+    private final Map<TransactionId, Transaction> transactions;
+    private final Map<Long, AccountTransactionIndex> transactionsByAccountKey;
+    private volatile Journal journal;
+    private final OperationMetrics durabilityMetrics = Metrics.getDefault().operation("transactions.await_durability");
+    private final OperationMetrics pageMetrics = Metrics.getDefault().operation("transactions.find_page");
+    private final OperationMetrics balanceMetrics = Metrics.getDefault().operation("transactions.balance_query");
 
     public  TransactionRepository() {
-        this.transactions = new HashMap<>();
-        this.transactionsByAccountCode = new HashMap<>();
+        this.transactions = new ConcurrentHashMap<>();
+        this.transactionsByAccountKey = new ConcurrentHashMap<>();
     }
 
     /**
-     * Persists transaction and indexes by origin account
+     * Persists transaction and indexes it under the account whose balance it records
      */
     public void save(Transaction transaction) {
-        String transactionId = transaction.getId();
+        if (transactions.containsKey(transaction.getTransactionId())) {
+            return;
+        }
+
+        // journaled before it is indexed, so a refused append leaves nothing behind; only
+        // queued here: callers hold account locks, they wait for the fsync after releasing them
+        if (journal != null) {
+            journal.logTransaction(transaction);
+        }
+        restore(transaction);
+    }
+
+    /**
+     * Persists the records of one posting, journaled together so either all of them are
+     * saved or, if the journal refuses them, none is
+     */
+    public void saveAll(List<Transaction> transactions) {
+        List<Transaction> unsaved = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            if (!this.transactions.containsKey(transaction.getTransactionId())) {
+                unsaved.add(transaction);
+            }
+        }
+        if (unsaved.isEmpty()) {
+            return;
+        }
+
+        if (journal != null) {
+            journal.logTransactions(unsaved);
+        }
+        for (Transaction transaction : unsaved) {
+            restore(transaction);
+        }
+    }
+
+    /**
+     * Stores and indexes a transaction without journaling it; used when loading persisted history
+     *
+     * @return false if a transaction with the same id was already stored
+     */
+    public boolean restore(Transaction transaction) {
+        return restore(transaction, true);
+    }
+
+    /**
+     * Same as {@link #restore(Transaction)} for a transfer credited to a split cell, whose
+     * balances are those of the cell and not of the account
+     */
+    public boolean restoreSplitCredit(Transaction transaction) {
+        return restore(transaction, false);
+    }
+
+    /**
+     * Persists a transfer credited to a split cell of its destination, recording the stripe
+     * whose value its balances hold
+     */
+    public void saveSplitCredit(Transaction transaction, int stripes, int stripe) {
+        if (transactions.containsKey(transaction.getTransactionId())) {
+            return;
+        }
+
+        if (journal != null) {
+            journal.logSplitCredit(transaction, stripes, stripe);
+        }
+        restoreSplitCredit(transaction);
+    }
 
-        transactions.put(transactionId, transaction);
+    /**
+     * Journals the new status of a saved transaction; the record is written again in full
+     * and recovery keeps the amounts and balances of the first one
+     */
+    public void updateStatus(Transaction transaction) {
+        if (journal != null && transactions.get(transaction.getTransactionId()) == transaction) {
+            journal.logTransaction(transaction);
+        }
+    }
+
+    /**
+     * Blocks until every transaction saved by the calling thread is durable
+     */
+    public void awaitDurability() {
+        Journal current = journal;
+        if (current != null) {
+            durabilityMetrics.time(current::awaitLastAppended);
+        }
+    }
+
+    /**
+     * Starts recording every saved transaction in the journal; called once recovery is complete
+     */
+    public void attachJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    public Optional<Transaction> findById(String id) {
+        TransactionId transactionId;
+        try {
+            transactionId = TransactionId.parse(id);
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+        return findById(transactionId);
+    }
+
+    public Optional<Transaction> findById(TransactionId id) {
+        return Optional.ofNullable(transactions.get(id));
+    }
+
+    /**
+     * Returns every transaction sent or received by the account, oldest first
+     */
+    public List<Transaction> findByAccount(String accountCode) {
+        return find(accountCode, null, null, null);
+    }
+
+    /**
+     * Returns account transactions with {@code from <= dateTime < to}; null bounds are open
+     */
+    public List<Transaction> findByAccount(String accountCode, LocalDateTime from, LocalDateTime to) {
+        return find(accountCode, from, to, null);
+    }
+
+    public List<Transaction> findByAccountAndType(String accountCode, TransactionType type) {
+        return find(accountCode, null, null, transaction -> transaction.getType() == type);
+    }
+
+    public List<Transaction> findByAccountAndStatus(String accountCode, TransactionStatus status) {
+        return find(accountCode, null, null, transaction -> transaction.getStatus() == status);
+    }
+
+    public TransactionPage findPage(String accountCode, LocalDateTime from, LocalDateTime to,
+                                    String cursor, int pageSize) {
+        return findPage(accountCode, from, to, null, null, cursor, pageSize);
+    }
+
+    /**
+     * Returns the next page of account transactions in time order.
+     * Null bounds and filters are ignored; pass the previous page's cursor to continue.
+     */
+    public TransactionPage findPage(String accountCode, LocalDateTime from, LocalDateTime to,
+                                    TransactionType type, TransactionStatus status,
+                                    String cursor, int pageSize) {
+        return pageMetrics.time(() -> readPage(accountCode, from, to, type, status, cursor, pageSize));
+    }
+
+    private TransactionPage readPage(String accountCode, LocalDateTime from, LocalDateTime to,
+                                     TransactionType type, TransactionStatus status,
+                                     String cursor, int pageSize) {
+        if (pageSize <= 0 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+
+        AccountTransactionIndex index = transactionsByAccountKey.get(AccountCode.parse(accountCode));
+        if (index == null) {
+            return new TransactionPage(List.of(), null);
+        }
+
+        long cursorKey = 0;
+        int cursorTie = 0;
+        if (cursor != null) {
+            int separator = cursor.indexOf('.');
+            try {
+                cursorKey = Long.parseLong(cursor.substring(0, separator), Character.MAX_RADIX);
+                cursorTie = Integer.parseInt(cursor.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+
+        Predicate<Transaction> filter = null;
+        if (type != null || status != null) {
+            filter = transaction -> (type == null || transaction.getType() == type)
+                    && (status == null || transaction.getStatus() == status);
+        }
+
+        AccountTransactionIndex.Slice slice = index.read(lowerKeyOf(from), upperKeyOf(to),
+                cursorKey, cursorTie, filter, pageSize);
+
+        String nextCursor = slice.hasMore()
+                ? Long.toString(slice.nextKey(), Character.MAX_RADIX) + "." + slice.nextTie()
+                : null;
+        return new TransactionPage(slice.transactions(), nextCursor);
+    }
+
+    /**
+     * Returns the balance of the account right after its last transaction dated up to {@code at},
+     * found without replaying the history. It needs the history loaded back to the account
+     * opening or to a record that holds account balances.
+     */
+    public BigDecimal getBalanceAt(String accountCode, LocalDateTime at) {
+        AccountTransactionIndex index = transactionsByAccountKey.get(AccountCode.parse(accountCode));
+        return balanceMetrics.time(() -> Money.toBigDecimal(index == null ? 0 : index.balanceAt(timeKeyOf(at))));
+    }
+
+    /**
+     * Returns the opening, closing, lowest and highest balance of the account over
+     * {@code from <= dateTime < to}; null bounds are open
+     */
+    public BalanceRange getBalanceRange(String accountCode, LocalDateTime from, LocalDateTime to) {
+        AccountTransactionIndex index = transactionsByAccountKey.get(AccountCode.parse(accountCode));
+        if (index == null) {
+            return new BalanceRange(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+
+        long[] range = balanceMetrics.time(() -> index.balanceRange(lowerKeyOf(from), upperKeyOf(to)));
+        return new BalanceRange(Money.toBigDecimal(range[0]), Money.toBigDecimal(range[1]),
+                Money.toBigDecimal(range[2]), Money.toBigDecimal(range[3]));
+    }
+
+    private boolean restore(Transaction transaction, boolean accountBalance) {
+        if (transactions.putIfAbsent(transaction.getTransactionId(), transaction) != null) {
+            return false;
+        }
 
         // Update account index
-        transactionsByAccountCode.computeIfAbsent(transaction.getOriginAccountCode(),
-                k -> new ArrayList<>()).add(transactionId);
+        long accountKey = transaction.getLedgerAccountKey();
+        if (accountKey != AccountCode.INVALID) {
+            indexOf(accountKey).add(timeKeyOf(transaction.getDateTime()), transaction, accountBalance);
+        }
+        return true;
+    }
+
+    private List<Transaction> find(String accountCode, LocalDateTime from, LocalDateTime to,
+                                   Predicate<Transaction> filter) {
+        AccountTransactionIndex index = transactionsByAccountKey.get(AccountCode.parse(accountCode));
+        if (index == null) {
+            return List.of();
+        }
+        return index.read(lowerKeyOf(from), upperKeyOf(to), 0, 0, filter, -1).transactions();
+    }
+
+    private AccountTransactionIndex indexOf(long accountKey) {
+        return transactionsByAccountKey.computeIfAbsent(accountKey, k -> new AccountTransactionIndex());
+    }
+
+    private static long lowerKeyOf(LocalDateTime from) {
+        return from == null ? Long.MIN_VALUE : timeKeyOf(from);
+    }
+
+    private static long upperKeyOf(LocalDateTime to) {
+        // an end past the last key still takes the records saturated onto it
+        return to == null || to.toEpochSecond(ZoneOffset.UTC) > MAX_KEY_SECONDS ? Long.MAX_VALUE : timeKeyOf(to);
+    }
+
+    /**
+     * Packs a date time into epoch nanoseconds. Only 1677 to 2262 fit a long; dates outside
+     * it saturate one step inside the open bounds, so such records still sort first or last
+     * and {@code LocalDateTime.MIN} and {@code MAX} work as bounds.
+     */
+    private static long timeKeyOf(LocalDateTime dateTime) {
+        long seconds = dateTime.toEpochSecond(ZoneOffset.UTC);
+        if (seconds < MIN_KEY_SECONDS) {
+            return Long.MIN_VALUE + 1;
+        }
+        if (seconds > MAX_KEY_SECONDS) {
+            return Long.MAX_VALUE - 1;
+        }
+        return seconds * 1_000_000_000L + dateTime.getNano();
     }
 }
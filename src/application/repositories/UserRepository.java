@@ -1,30 +1,133 @@
 package application.repositories;
 
+import application.persistence.Journal;
 import domain.entity.User;
+import domain.exception.EmailAlreadyInUseException;
 import domain.valueObject.CPF;
 import domain.valueObject.Email;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
  * Repository class for managing {@code User} entities in memory.
  * Provides methods for saving, finding, verifying existence,
  * retrieving all, and removing users.
  * <p>
- * This class is implemented using a {@code HashMap} for storage.
+ * This class is implemented using a {@code ConcurrentHashMap} for storage, plus two
+ * unique secondary indexes (CPF and normalized email to user id) that are claimed
+ * atomically, so lookups are O(1) and concurrent creates cannot register duplicates.
  */
 public class UserRepository {
-    private Map<String, User> users;
+    private final Map<String, User> users;
+    private final Map<String, String> userIdsByCpf;
+    private final Map<String, String> userIdsByEmail;
+    private volatile Journal journal;
 
     public UserRepository() {
-        this.users = new HashMap<>();
+        this.users = new ConcurrentHashMap<>();
+        this.userIdsByCpf = new ConcurrentHashMap<>();
+        this.userIdsByEmail = new ConcurrentHashMap<>();
     }
 
+    /**
+     * Persists user and updates indexes; throws if CPF or email belongs to another user
+     */
     public void save(User user) {
-        users.put(user.getId(), user);
+        long sequence = register(user);
+
+        if (journal != null) {
+            journal.awaitDurable(sequence);
+        }
+    }
+
+    /**
+     * Persists many users waiting once for the journal. A user whose CPF or email belongs
+     * to another user is skipped; its failure is returned keyed by its position in users.
+     */
+    public Map<Integer, RuntimeException> saveAll(List<User> users) {
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+        long lastSequence = 0;
+
+        for (int i = 0; i < users.size(); i++) {
+            try {
+                lastSequence = register(users.get(i));
+            } catch (RuntimeException e) {
+                failures.put(i, e);
+            }
+        }
+
+        if (journal != null) {
+            journal.awaitDurable(lastSequence);
+        }
+        return failures;
+    }
+
+    /**
+     * Claims the indexes and stores user, returning the journal sequence of its record or zero
+     */
+    private long register(User user) {
+        String userId = user.getId();
+        String cpf = user.getCpf();
+        String email = user.getEmailAddress();
+
+        boolean claimedCpf = claim(userIdsByCpf, cpf, userId);
+        if (!claimedCpf && !userId.equals(userIdsByCpf.get(cpf))) {
+            throw new IllegalArgumentException("CPF already exists");
+        }
+
+        if (!claim(userIdsByEmail, email, userId) && !userId.equals(userIdsByEmail.get(email))) {
+            if (claimedCpf) {
+                userIdsByCpf.remove(cpf, userId);
+            }
+            throw EmailAlreadyInUseException.withoutStackTrace("Email already in use.");
+        }
+
+        User previous = users.put(userId, user);
+
+        // drops the index entry left behind when the saved user changed email
+        if (previous != null && previous != user) {
+            releaseStaleKeys(previous, user);
+        }
+
+        return journal != null ? journal.logUser(user) : 0;
+    }
+
+    /**
+     * Changes user email keeping the email index in sync; throws if already in use.
+     * This is the only way to change an email: the user refuses an address the index
+     * does not hold for it.
+     */
+    public void changeEmail(User user, Email newEmail) {
+        String userId = user.getId();
+        String previousEmail = user.getEmailAddress();
+        String email = newEmail.address();
+
+        boolean claimed = claim(userIdsByEmail, email, userId);
+        if (!claimed && !userId.equals(userIdsByEmail.get(email))) {
+            throw EmailAlreadyInUseException.withoutStackTrace("Email already in use.");
+        }
+
+        try {
+            user.changeEmail(newEmail, userIdsByEmail::get);
+        } catch (RuntimeException e) {
+            if (claimed) {
+                userIdsByEmail.remove(email, userId);
+            }
+            throw e;
+        }
+
+        userIdsByEmail.remove(previousEmail, userId);
+        users.put(userId, user);
+
+        if (journal != null) {
+            journal.awaitDurable(journal.logUser(user));
+        }
     }
 
     public Optional<User> findById(String id) {
@@ -32,15 +135,18 @@ public class UserRepository {
     }
 
     public Optional<User> findByCPF(String cpf) {
-        return users.values().stream()
-                .filter(user -> user.getCpf().equals(cpf))
-                .findFirst();
+        if (cpf == null) {
+            return Optional.empty();
+        }
+
+        // strips formatting so "123.456.789-09" and "12345678909" hit the same key
+        String key = CPF.digitsOf(cpf);
+        return resolve(userIdsByCpf, key, user -> user.getCpf().equals(key));
     }
 
     public Optional<User> findByEmail(Email email) {
-        return users.values().stream()
-                .filter(user -> user.getEmail().equals(email.toString()))
-                .findFirst();
+        String key = email.address();
+        return resolve(userIdsByEmail, key, user -> user.getEmailAddress().equals(key));
     }
 
     public Collection<User> findAll() {
@@ -52,6 +158,56 @@ public class UserRepository {
     }
 
     public void remove(User user) {
-        users.remove(user.getId());
+        String userId = user.getId();
+
+        if (users.remove(userId) != null) {
+            userIdsByCpf.remove(user.getCpf(), userId);
+            userIdsByEmail.remove(user.getEmailAddress(), userId);
+
+            if (journal != null) {
+                journal.awaitDurable(journal.logUserRemoved(userId));
+            }
+        }
+    }
+
+    /**
+     * Starts recording every change in the journal; called once recovery is complete
+     */
+    public void attachJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Looks the key up; an entry whose user is not stored yet, or no longer matches, reads
+     * as not found. Entries are never dropped here: {@link #register} and
+     * {@link #changeEmail(User, Email)} claim a key before the user carries it, and dropping
+     * a claim in between would let a second user take the same key.
+     */
+    private Optional<User> resolve(Map<String, String> index, String key, Predicate<User> stillMatches) {
+        String userId = index.get(key);
+        if (userId == null) {
+            return Optional.empty();
+        }
+
+        User user = users.get(userId);
+        if (user == null || !stillMatches.test(user)) {
+            return Optional.empty();
+        }
+        return Optional.of(user);
+    }
+
+    private static boolean claim(Map<String, String> index, String key, String userId) {
+        return index.putIfAbsent(key, userId) == null;
+    }
+
+    private void releaseStaleKeys(User previous, User current) {
+        String userId = current.getId();
+
+        if (!previous.getCpf().equals(current.getCpf())) {
+            userIdsByCpf.remove(previous.getCpf(), userId);
+        }
+        if (!previous.getEmailAddress().equals(current.getEmailAddress())) {
+            userIdsByEmail.remove(previous.getEmailAddress(), userId);
+        }
     }
 }
@@ -0,0 +1,186 @@
+package application.services;
+
+import application.metrics.LockMetrics;
+import application.metrics.Metrics;
+import domain.entity.Account;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Fixed pool of striped locks keyed by packed account code ({@code Account.getAccountKey()}).
+ * <p>
+ * Accounts are mapped to a stripe by hashing their key, so memory stays constant
+ * regardless of how many accounts exist and operations on accounts that fall into
+ * different stripes never contend. When two accounts must be locked together the
+ * stripes are always acquired in ascending stripe index, which gives every thread
+ * the same global lock order and makes transfers deadlock free. For accounts with split
+ * credits the lock also holds those credits back while it is held. Acquisitions that
+ * find their stripe taken are counted and timed in {@link Metrics}.
+ */
+public class AccountLocks {
+    private static final int DEFAULT_STRIPES = 1024;
+    private static final AccountLocks DEFAULT = new AccountLocks();
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final Map<Long, Account> splitAccounts = new ConcurrentHashMap<>();
+    private final LockMetrics lockMetrics = Metrics.getDefault().locks();
+
+    /**
+     * Returns the locks shared by every service built without locks of its own, so that
+     * services over the same accounts always exclude each other
+     */
+    public static AccountLocks getDefault() {
+        return DEFAULT;
+    }
+
+    public AccountLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public AccountLocks(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("Stripe count must be greater than zero.");
+        }
+
+        // rounds up to a power of two so the stripe can be picked with a mask
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Runs the action holding the lock of a single account
+     */
+    public <T> T withLock(long accountKey, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripeOf(accountKey)];
+        lockMetrics.lock(lock);
+        try {
+            return holding(accountKey, action);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs the action holding the locks of both accounts, acquired in stripe order
+     */
+    public <T> T withLocks(long firstAccountKey, long secondAccountKey, Supplier<T> action) {
+        int first = stripeOf(firstAccountKey);
+        int second = stripeOf(secondAccountKey);
+
+        if (first == second) {
+            ReentrantLock lock = stripes[first];
+            lockMetrics.lock(lock);
+            try {
+                return holding(firstAccountKey, () -> holding(secondAccountKey, action));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        ReentrantLock lower = stripes[Math.min(first, second)];
+        ReentrantLock upper = stripes[Math.max(first, second)];
+
+        lockMetrics.lock(lower);
+        try {
+            lockMetrics.lock(upper);
+            try {
+                return holding(firstAccountKey, () -> holding(secondAccountKey, action));
+            } finally {
+                upper.unlock();
+            }
+        } finally {
+            lower.unlock();
+        }
+    }
+
+    /**
+     * Runs the action holding the locks of every given account, each stripe taken once in stripe order
+     */
+    public <T> T withAllLocks(Collection<Long> accountKeys, Supplier<T> action) {
+        int[] indexes = accountKeys.stream()
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                lockMetrics.lock(stripes[index]);
+                acquired++;
+            }
+            return holdingAll(accountKeys, action);
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Registers an account whose transfer credits are split, so taking its lock also holds
+     * those credits back and the balance seen under the lock is exact
+     */
+    public void registerSplitAccount(Account account) {
+        if (account.hasSplitCredits()) {
+            splitAccounts.put(account.getAccountKey(), account);
+        }
+    }
+
+    private <T> T holding(long accountKey, Supplier<T> action) {
+        Account account = splitAccounts.isEmpty() ? null : splitAccounts.get(accountKey);
+        if (account == null) {
+            return action.get();
+        }
+
+        account.holdSplitCredits();
+        try {
+            return action.get();
+        } finally {
+            account.releaseSplitCredits();
+        }
+    }
+
+    private <T> T holdingAll(Collection<Long> accountKeys, Supplier<T> action) {
+        if (splitAccounts.isEmpty()) {
+            return action.get();
+        }
+
+        List<Account> held = new ArrayList<>();
+        try {
+            for (long accountKey : accountKeys) {
+                Account account = splitAccounts.get(accountKey);
+                if (account != null) {
+                    account.holdSplitCredits();
+                    held.add(account);
+                }
+            }
+            return action.get();
+        } finally {
+            for (Account account : held) {
+                account.releaseSplitCredits();
+            }
+        }
+    }
+
+    private int stripeOf(long accountKey) {
+        // keys of one branch are consecutive numbers; the multiply spreads them over every stripe
+        long h = accountKey * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
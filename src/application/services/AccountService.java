@@ -1,5 +1,7 @@
 package application.services;
 
+import application.metrics.Metrics;
+import application.metrics.OperationMetrics;
 import application.repositories.AccountRepository;
 import application.repositories.UserRepository;
 import domain.entity.Account;
@@ -9,7 +11,7 @@ import domain.entity.User;
 import domain.exception.AccountNotFoundException;
 import domain.exception.UserNotFoundException;
 
-import java.math.BigDecimal;
+import java.time.Clock;
 import java.util.List;
 
 /**
@@ -18,49 +20,124 @@ import java.util.List;
  * associated with users.
  */
 public class AccountService {
+    public static final int DEFAULT_SPLIT_STRIPES = 16;
+
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
+    private final AccountLocks accountLocks;
+    private final Clock clock;
+    private final OperationMetrics createMetrics = Metrics.getDefault().operation("account.create");
+    private final OperationMetrics getMetrics = Metrics.getDefault().operation("account.get");
+    private final OperationMetrics searchMetrics = Metrics.getDefault().operation("account.search_by_holder");
+    private final OperationMetrics deactivateMetrics = Metrics.getDefault().operation("account.deactivate");
 
     public AccountService(AccountRepository accountRepository, UserRepository userRepository) {
+        this(accountRepository, userRepository, AccountLocks.getDefault());
+    }
+
+    public AccountService(AccountRepository accountRepository, UserRepository userRepository,
+                          AccountLocks accountLocks) {
+        this(accountRepository, userRepository, accountLocks, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates the service with the clock new accounts are dated by
+     */
+    public AccountService(AccountRepository accountRepository, UserRepository userRepository,
+                          AccountLocks accountLocks, Clock clock) {
         this.accountRepository = accountRepository;
         this.userRepository = userRepository;
+        this.accountLocks = accountLocks;
+        this.clock = clock;
     }
 
     public Account createCheckingAccount(String agency, String userId) {
-        User holder = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
+        return createMetrics.time(() -> {
+            User holder = userRepository.findById(userId).orElseThrow(UserNotFoundException::withoutStackTrace);
 
-        Account newAccount = new CheckingAccount(agency, holder);
-        accountRepository.save(newAccount);
-        return newAccount;
+            Account newAccount = new CheckingAccount(agency, holder, clock);
+            accountRepository.save(newAccount);
+            return newAccount;
+        });
     }
 
     public Account createSavingAccount(String agency, String userId) {
-        User holder = userRepository.findById(userId).orElseThrow(UserNotFoundException::new);
+        return createMetrics.time(() -> {
+            User holder = userRepository.findById(userId).orElseThrow(UserNotFoundException::withoutStackTrace);
 
-        Account newAccount =  new SavingsAccount(agency, holder);
-        accountRepository.save(newAccount);
-        return newAccount;
+            Account newAccount =  new SavingsAccount(agency, holder, clock);
+            accountRepository.save(newAccount);
+            return newAccount;
+        });
     }
 
     public Account getAccount(String agency, String number) {
-        return accountRepository.getByCode(agency, number).orElseThrow(AccountNotFoundException::new);
+        return getMetrics.time(() -> accountRepository.getByCode(agency, number)
+                .orElseThrow(AccountNotFoundException::withoutStackTrace));
+    }
+
+    /**
+     * Looks an account up, returning a missing one as a failed outcome instead of throwing
+     */
+    public Outcome<Account> tryGetAccount(String agency, String number) {
+        return getMetrics.time(() -> Outcome.counted(getMetrics, accountRepository.getByCode(agency, number)
+                .map(Outcome::success)
+                .orElseGet(() -> Outcome.failure(Outcome.Failure.ACCOUNT_NOT_FOUND))));
     }
 
     public List<Account> searchForUserAccounts(String userId) {
-        return accountRepository.getByHolder(userId).stream().toList();
+        // already an unmodifiable snapshot, no need to copy it again
+        return searchMetrics.time(() -> accountRepository.getByHolder(userId));
+    }
+
+    /**
+     * Lets a hot transfer destination take credits on {@code stripes} striped cells instead of
+     * queueing on its lock; debits, deactivation and snapshots still see the exact balance
+     * because taking the account lock holds the cells back. The mode cannot be turned off.
+     */
+    public Account enableSplitCredits(String agency, String number, int stripes) {
+        Account account = accountRepository.getByCode(agency, number).orElseThrow(AccountNotFoundException::withoutStackTrace);
+
+        accountLocks.withLock(account.getAccountKey(), () -> {
+            accountRepository.enableSplitCredits(account, stripes);
+            accountLocks.registerSplitAccount(account);
+            return null;
+        });
+        return account;
+    }
+
+    public Account enableSplitCredits(String agency, String number) {
+        return enableSplitCredits(agency, number, DEFAULT_SPLIT_STRIPES);
     }
 
     public void deactivateAccount(String agency, String number) {
-        Account account = accountRepository.getByCode(agency, number).orElseThrow(AccountNotFoundException::new);
+        deactivateMetrics.time(() -> {
+            Account account = accountRepository.getByCode(agency, number).orElseThrow(AccountNotFoundException::withoutStackTrace);
+
+            // Balance check and disable must not interleave with a concurrent transfer
+            accountLocks.withLock(account.getAccountKey(), () -> {
+                validateZeroBalance(account.getBalanceCents());
 
-        // Throws if an account has nonzero balance
-        if (account.getBalance().compareTo(BigDecimal.ZERO) > 0) {
+                account.disable();
+                // lock-free changes skip the lock; one racing the check shows up here or is refused
+                long balance = account.getBalanceCents();
+                if (balance != 0) {
+                    account.enable();
+                    validateZeroBalance(balance);
+                }
+                return null;
+            });
+
+            accountRepository.save(account);
+        });
+    }
+
+    // Throws if an account has nonzero balance
+    private static void validateZeroBalance(long balance) {
+        if (balance > 0) {
             throw new IllegalArgumentException("It is not possible to deactivate account with balance.");
-        } else if (account.getBalance().compareTo(BigDecimal.ZERO) < 0) {
+        } else if (balance < 0) {
             throw new  IllegalArgumentException("Account cannot be deactivated with a negative balance.");
         }
-
-        account.disable();
-        accountRepository.save(account);
     }
 }
@@ -0,0 +1,50 @@
+package application.services;
+
+import domain.entity.Account;
+import domain.valueObject.AccountCode;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over {@link AccountService}.
+ * <p>
+ * Calls naming an existing account run in submission order for that account through
+ * the {@link RequestExecutor}; account creation and holder searches are not tied to
+ * an account and run in parallel. Balance changes go through {@link AsyncLedgerService},
+ * ordered on the same chains. Failures complete the future exceptionally with the
+ * exception the synchronous service throws.
+ */
+public class AsyncAccountService {
+    private final AccountService accountService;
+    private final RequestExecutor requestExecutor;
+
+    public AsyncAccountService(AccountService accountService, RequestExecutor requestExecutor) {
+        this.accountService = accountService;
+        this.requestExecutor = requestExecutor;
+    }
+
+    public CompletableFuture<Account> createCheckingAccount(String agency, String userId) {
+        return requestExecutor.submit(() -> accountService.createCheckingAccount(agency, userId));
+    }
+
+    public CompletableFuture<Account> createSavingAccount(String agency, String userId) {
+        return requestExecutor.submit(() -> accountService.createSavingAccount(agency, userId));
+    }
+
+    public CompletableFuture<Account> getAccount(String agency, String number) {
+        return requestExecutor.submit(AccountCode.keyOf(agency, number),
+                () -> accountService.getAccount(agency, number));
+    }
+
+    public CompletableFuture<List<Account>> searchForUserAccounts(String userId) {
+        return requestExecutor.submit(() -> accountService.searchForUserAccounts(userId));
+    }
+
+    public CompletableFuture<Void> deactivateAccount(String agency, String number) {
+        return requestExecutor.submit(AccountCode.keyOf(agency, number), () -> {
+            accountService.deactivateAccount(agency, number);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package application.services;
+
+import domain.entity.Transaction;
+import domain.entity.TransferTransactions;
+import domain.valueObject.AccountCode;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over {@link LedgerService}.
+ * <p>
+ * Deposits and withdrawals run in submission order for their account, and a transfer
+ * after every call submitted earlier for either of its accounts, so the balance changes
+ * of one account are applied in the order callers asked for them. Calls share the
+ * admission limit of the {@link RequestExecutor} with the user and account calls.
+ * Failures complete the future exceptionally with the exception the synchronous service
+ * throws.
+ */
+public class AsyncLedgerService {
+    private final LedgerService ledgerService;
+    private final RequestExecutor requestExecutor;
+
+    public AsyncLedgerService(LedgerService ledgerService, RequestExecutor requestExecutor) {
+        this.ledgerService = ledgerService;
+        this.requestExecutor = requestExecutor;
+    }
+
+    public CompletableFuture<Transaction> deposit(String agency, String number, BigDecimal amount,
+                                                  String description) {
+        return requestExecutor.submit(AccountCode.keyOf(agency, number),
+                () -> ledgerService.deposit(agency, number, amount, description));
+    }
+
+    public CompletableFuture<Transaction> withdraw(String agency, String number, BigDecimal amount,
+                                                   String description) {
+        return requestExecutor.submit(AccountCode.keyOf(agency, number),
+                () -> ledgerService.withdraw(agency, number, amount, description));
+    }
+
+    public CompletableFuture<TransferTransactions> transfer(String originAgency, String originNumber,
+                                                            String destinationAgency, String destinationNumber,
+                                                            BigDecimal amount, String description) {
+        return requestExecutor.submit(AccountCode.keyOf(originAgency, originNumber),
+                AccountCode.keyOf(destinationAgency, destinationNumber),
+                () -> ledgerService.transfer(originAgency, originNumber, destinationAgency, destinationNumber,
+                        amount, description));
+    }
+}
@@ -0,0 +1,39 @@
+package application.services;
+
+import domain.entity.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over {@link UserService}; calls run on the {@link RequestExecutor}
+ * and share its admission limit with the account calls.
+ */
+public class AsyncUserService {
+    private final UserService userService;
+    private final RequestExecutor requestExecutor;
+
+    public AsyncUserService(UserService userService, RequestExecutor requestExecutor) {
+        this.userService = userService;
+        this.requestExecutor = requestExecutor;
+    }
+
+    public CompletableFuture<User> createUser(String name, String cpf, String email) {
+        return requestExecutor.submit(() -> userService.createUser(name, cpf, email));
+    }
+
+    public CompletableFuture<User> getUserById(String id) {
+        return requestExecutor.submit(() -> userService.getUserById(id));
+    }
+
+    public CompletableFuture<Void> updateEmail(String userId, String newEmail) {
+        return requestExecutor.submit(() -> {
+            userService.updateEmail(userId, newEmail);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<User>> getUsers() {
+        return requestExecutor.submit(userService::getUsers);
+    }
+}
@@ -0,0 +1,19 @@
+package application.services;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a bulk import: how many data rows were read, how many users and accounts
+ * were created, and how many rows were rejected into the report.
+ */
+public record BulkImportResult(long rowsRead, long usersCreated, long accountsCreated, long rejected,
+                               Duration elapsed) {
+
+    public boolean hasRejections() {
+        return rejected > 0;
+    }
+
+    public double rowsPerSecond() {
+        return MonthlyBatchProgress.rate(rowsRead, elapsed);
+    }
+}
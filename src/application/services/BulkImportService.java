@@ -0,0 +1,402 @@
+package application.services;
+
+import application.metrics.Metrics;
+import application.metrics.OperationMetrics;
+import application.repositories.AccountRepository;
+import application.repositories.UserRepository;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.SavingsAccount;
+import domain.entity.User;
+import domain.valueObject.AccountCode;
+import domain.valueObject.Email;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Onboards users and their first account from a line-delimited CSV file.
+ * <p>
+ * Each data row is {@code name,cpf,email,agency,account_type}, with an account type of
+ * {@code CHECKING} or {@code SAVINGS}, fields optionally quoted as in RFC 4180 and an
+ * optional header row. The file is read in batches of rows. While one batch is being
+ * read, the previous one is parsed and checked against the repositories on a fork/join
+ * pool, and the one before that is written: users and accounts are saved through the
+ * batch repository calls, waiting once per batch for the journal. At most two batches
+ * are held at a time, so memory stays flat whatever the file size.
+ * <p>
+ * Rejected rows are streamed to a CSV report with their line number and reason, in file
+ * order. A row is rejected when it does not parse, when its CPF or email is invalid or
+ * already taken, or when an earlier row of the file claimed the same CPF or email. A user
+ * whose account cannot be opened is removed again, so every imported user has an account.
+ */
+public class BulkImportService {
+    public static final int DEFAULT_BATCH_SIZE = 4_096;
+    // rows parsed by one fork/join task before it stops splitting
+    private static final int CHUNK_SIZE = 256;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int FIELD_COUNT = 5;
+    private static final String HEADER = "name,cpf,email,agency,account_type";
+    private static final String REPORT_HEADER = "line,reason,row\n";
+
+    private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
+    private final ForkJoinPool pool;
+    private final Clock clock;
+    private final int batchSize;
+    private final OperationMetrics batchMetrics = Metrics.getDefault().operation("import.batch");
+
+    public BulkImportService(UserRepository userRepository, AccountRepository accountRepository) {
+        this(userRepository, accountRepository, ForkJoinPool.commonPool(), Clock.systemDefaultZone(),
+                DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkImportService(UserRepository userRepository, AccountRepository accountRepository,
+                             ForkJoinPool pool, Clock clock, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than zero.");
+        }
+
+        this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
+        this.pool = pool;
+        this.clock = clock;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the file at input and writes the rejected rows to the report file, replacing it
+     */
+    public BulkImportResult importFile(Path input, Path report) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(report, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            return importFrom(in, out);
+        }
+    }
+
+    /**
+     * Imports the UTF-8 rows read from input and writes the rejected rows to report as CSV.
+     * Both channels are left open.
+     */
+    public BulkImportResult importFrom(ReadableByteChannel input, WritableByteChannel report) throws IOException {
+        long startedAt = System.nanoTime();
+        // undecodable bytes become replacement characters and fail validation instead of the import
+        BufferedReader reader = new BufferedReader(Channels.newReader(input, StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), BUFFER_SIZE), BUFFER_SIZE);
+        Writer rejects = new BufferedWriter(Channels.newWriter(report, StandardCharsets.UTF_8.newEncoder(),
+                BUFFER_SIZE), BUFFER_SIZE);
+        rejects.write(REPORT_HEADER);
+
+        Totals totals = new Totals();
+        Batch batch = readBatch(reader, 0);
+        ForkJoinTask<?> validating = batch == null ? null : pool.submit(new Validation(batch.rows, 0, batch.size));
+
+        while (batch != null) {
+            // reads ahead while the current batch is validated
+            Batch next = readBatch(reader, batch.lastLine);
+            validating.join();
+
+            ForkJoinTask<?> validatingNext = next == null
+                    ? null
+                    : pool.submit(new Validation(next.rows, 0, next.size));
+            Batch current = batch;
+            batchMetrics.time(() -> commit(current, totals));
+            writeRejects(current, rejects);
+
+            batch = next;
+            validating = validatingNext;
+        }
+
+        rejects.flush();
+        return new BulkImportResult(totals.rows, totals.users, totals.accounts, totals.rejected,
+                Duration.ofNanos(System.nanoTime() - startedAt));
+    }
+
+    /**
+     * Reads up to batchSize data rows, skipping blank lines and the header; null at the end of input
+     */
+    private Batch readBatch(BufferedReader reader, long lastLine) throws IOException {
+        Row[] rows = new Row[batchSize];
+        int size = 0;
+        long lineNumber = lastLine;
+
+        String line;
+        while (size < batchSize && (line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && isHeader(line))) {
+                continue;
+            }
+            rows[size++] = new Row(lineNumber, line);
+        }
+        return size == 0 ? null : new Batch(rows, size, lineNumber);
+    }
+
+    /**
+     * Saves the users of the valid rows, then their accounts, recording every rejection in its row
+     */
+    private void commit(Batch batch, Totals totals) {
+        Set<String> cpfs = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<Row> accepted = new ArrayList<>(batch.size);
+        List<User> users = new ArrayList<>(batch.size);
+
+        for (int i = 0; i < batch.size; i++) {
+            Row row = batch.rows[i];
+            if (row.rejection != null) {
+                continue;
+            }
+
+            // earlier batches are already saved, so the repository catches repeats across batches
+            if (!cpfs.add(row.user.getCpf())) {
+                row.rejection = "CPF repeated in the file";
+            } else if (!emails.add(row.user.getEmailAddress())) {
+                row.rejection = "Email repeated in the file";
+            } else {
+                accepted.add(row);
+                users.add(row.user);
+            }
+        }
+
+        Map<Integer, RuntimeException> userFailures = userRepository.saveAll(users);
+        List<Row> created = new ArrayList<>(accepted.size());
+        List<Account> accounts = new ArrayList<>(accepted.size());
+
+        for (int i = 0; i < accepted.size(); i++) {
+            Row row = accepted.get(i);
+            RuntimeException failure = userFailures.get(i);
+            if (failure != null) {
+                row.rejection = failure.getMessage();
+                continue;
+            }
+
+            try {
+                accounts.add(row.savings
+                        ? new SavingsAccount(row.agency, row.user, clock)
+                        : new CheckingAccount(row.agency, row.user, clock));
+                created.add(row);
+            } catch (RuntimeException e) {
+                rejectCreatedUser(row, e);
+            }
+        }
+
+        Map<Integer, RuntimeException> accountFailures = accountRepository.saveAll(accounts);
+        for (Map.Entry<Integer, RuntimeException> failure : accountFailures.entrySet()) {
+            rejectCreatedUser(created.get(failure.getKey()), failure.getValue());
+        }
+
+        int imported = created.size() - accountFailures.size();
+        totals.rows += batch.size;
+        totals.users += imported;
+        totals.accounts += imported;
+        totals.rejected += batch.size - imported;
+    }
+
+    private void rejectCreatedUser(Row row, RuntimeException failure) {
+        userRepository.remove(row.user);
+        row.rejection = failure.getMessage();
+    }
+
+    private static void writeRejects(Batch batch, Writer rejects) throws IOException {
+        for (int i = 0; i < batch.size; i++) {
+            Row row = batch.rows[i];
+            if (row.rejection == null) {
+                continue;
+            }
+
+            rejects.write(Long.toString(row.lineNumber));
+            rejects.write(',');
+            writeField(rejects, row.rejection);
+            rejects.write(',');
+            writeField(rejects, row.line);
+            rejects.write('\n');
+        }
+    }
+
+    /**
+     * Parses the row and checks it against the repositories; runs on the pool
+     */
+    private void validate(Row row) {
+        List<String> fields = fieldsOf(row.line);
+        if (fields == null) {
+            row.rejection = "Unterminated quoted field";
+            return;
+        } else if (fields.size() != FIELD_COUNT) {
+            row.rejection = "Expected " + FIELD_COUNT + " fields, found " + fields.size();
+            return;
+        }
+
+        String name = fields.get(0).trim();
+        String agency = fields.get(3).trim();
+        String accountType = fields.get(4).trim();
+
+        if (name.isEmpty()) {
+            row.rejection = "Name cannot be null or empty.";
+            return;
+        } else if (!AccountCode.isValidBranch(agency)) {
+            row.rejection = "Invalid agency: " + agency;
+            return;
+        } else if (!accountType.equalsIgnoreCase("CHECKING") && !accountType.equalsIgnoreCase("SAVINGS")) {
+            row.rejection = "Invalid account type: " + accountType;
+            return;
+        }
+
+        User user;
+        try {
+            user = new User(name, fields.get(1), fields.get(2));
+        } catch (IllegalArgumentException e) {
+            row.rejection = e.getMessage();
+            return;
+        }
+
+        if (userRepository.findByCPF(user.getCpf()).isPresent()) {
+            row.rejection = "CPF already exists";
+        } else if (userRepository.findByEmail(new Email(user.getEmailAddress())).isPresent()) {
+            row.rejection = "Email already in use.";
+        } else {
+            row.user = user;
+            row.agency = agency;
+            row.savings = accountType.equalsIgnoreCase("SAVINGS");
+        }
+    }
+
+    private static boolean isHeader(String line) {
+        return line.strip().equalsIgnoreCase(HEADER);
+    }
+
+    /**
+     * Splits an RFC 4180 line into its fields, or returns null when a quote is left open
+     */
+    private static List<String> fieldsOf(String line) {
+        List<String> fields = new ArrayList<>(FIELD_COUNT);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void writeField(Writer out, String value) throws IOException {
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!needsQuotes) {
+            out.write(value);
+            return;
+        }
+
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    /**
+     * Validates a range of rows, splitting it until ranges are small enough
+     */
+    private final class Validation extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Row[] rows;
+        private final int from;
+        private final int to;
+
+        Validation(Row[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    validate(rows[i]);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new Validation(rows, from, middle), new Validation(rows, middle, to));
+        }
+    }
+
+    private record Batch(Row[] rows, int size, long lastLine) {
+    }
+
+    // filled by the validation task, then by the committing thread after joining it
+    private static final class Row {
+        private final long lineNumber;
+        private final String line;
+        private User user;
+        private String agency;
+        private boolean savings;
+        private String rejection;
+
+        Row(long lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+    }
+
+    private static final class Totals {
+        private long rows;
+        private long users;
+        private long accounts;
+        private long rejected;
+    }
+}
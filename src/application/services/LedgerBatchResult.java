@@ -0,0 +1,17 @@
+package application.services;
+
+import domain.entity.Transaction;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a batch posting: the transactions written, in posting order, and the
+ * failure of each rejected operation keyed by its position in the submitted batch.
+ */
+public record LedgerBatchResult(List<Transaction> posted, Map<Integer, RuntimeException> failures) {
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
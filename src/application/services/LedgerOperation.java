@@ -0,0 +1,22 @@
+package application.services;
+
+import java.math.BigDecimal;
+
+/**
+ * A single balance change submitted to {@link LedgerService#postBatch}.
+ */
+public sealed interface LedgerOperation {
+
+    record Deposit(String agency, String number, BigDecimal amount, String description)
+            implements LedgerOperation {
+    }
+
+    record Withdraw(String agency, String number, BigDecimal amount, String description)
+            implements LedgerOperation {
+    }
+
+    record Transfer(String originAgency, String originNumber,
+                    String destinationAgency, String destinationNumber,
+                    BigDecimal amount, String description) implements LedgerOperation {
+    }
+}
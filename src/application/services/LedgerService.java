@@ -0,0 +1,443 @@
+package application.services;
+
+import application.metrics.Metrics;
+import application.metrics.OperationMetrics;
+import application.repositories.AccountRepository;
+import application.repositories.IdempotencyCache;
+import application.repositories.TransactionRepository;
+import domain.entity.Account;
+import domain.entity.Transaction;
+import domain.entity.TransferTransactions;
+import domain.enums.TransactionStatus;
+import domain.exception.AccountNotFoundException;
+import domain.valueObject.AccountCode;
+import domain.valueObject.Money;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Service class that posts balance changes to the ledger.
+ * <p>
+ * Each operation mutates the balance and records the resulting {@code Transaction}
+ * while holding the striped lock of every account involved, so no locked reader can
+ * observe a balance without its record. Transfers touching different accounts run
+ * in parallel without a global lock. When a journal is attached, the calls wait for
+ * the group commit after releasing the locks, so one fsync covers many postings.
+ * <p>
+ * Operations given an idempotency key run at most once per key: a retried request
+ * returns the transactions of the first one from the {@link IdempotencyCache}.
+ * <p>
+ * Transfers to an account with split credits lock the origin only, so senders to a
+ * hot destination do not queue on its lock.
+ */
+public class LedgerService {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountLocks accountLocks;
+    private final IdempotencyCache idempotencyCache;
+    private final OperationMetrics depositMetrics = Metrics.getDefault().operation("ledger.deposit");
+    private final OperationMetrics withdrawMetrics = Metrics.getDefault().operation("ledger.withdraw");
+    private final OperationMetrics transferMetrics = Metrics.getDefault().operation("ledger.transfer");
+    private final OperationMetrics batchMetrics = Metrics.getDefault().operation("ledger.batch");
+
+    public LedgerService(AccountRepository accountRepository, TransactionRepository transactionRepository) {
+        this(accountRepository, transactionRepository, AccountLocks.getDefault());
+    }
+
+    public LedgerService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                         AccountLocks accountLocks) {
+        this(accountRepository, transactionRepository, accountLocks, new IdempotencyCache());
+    }
+
+    public LedgerService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                         AccountLocks accountLocks, IdempotencyCache idempotencyCache) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountLocks = accountLocks;
+        this.idempotencyCache = idempotencyCache;
+    }
+
+    public Transaction deposit(String agency, String number, BigDecimal amount, String description) {
+        return depositMetrics.time(() -> deposit(agency, number, amount, description, null));
+    }
+
+    /**
+     * Deposits once per idempotency key; a retry returns the transaction of the first request
+     */
+    public Transaction deposit(String idempotencyKey, String agency, String number, BigDecimal amount,
+                               String description) {
+        return depositMetrics.time(() -> once(idempotencyKey,
+                "deposit|" + agency + "-" + number + "|" + Money.toCents(amount),
+                claim -> deposit(agency, number, amount, description, claim), transactions -> transactions.get(0)));
+    }
+
+    public Transaction withdraw(String agency, String number, BigDecimal amount, String description) {
+        return withdrawMetrics.time(() -> withdraw(agency, number, amount, description, null));
+    }
+
+    /**
+     * Withdraws once per idempotency key; a retry returns the transaction of the first request
+     */
+    public Transaction withdraw(String idempotencyKey, String agency, String number, BigDecimal amount,
+                                String description) {
+        return withdrawMetrics.time(() -> once(idempotencyKey,
+                "withdraw|" + agency + "-" + number + "|" + Money.toCents(amount),
+                claim -> withdraw(agency, number, amount, description, claim), transactions -> transactions.get(0)));
+    }
+
+    /**
+     * Transfers amount between two accounts holding both account locks
+     */
+    public TransferTransactions transfer(String originAgency, String originNumber,
+                                         String destinationAgency, String destinationNumber,
+                                         BigDecimal amount, String description) {
+        return transferMetrics.time(() -> transfer(originAgency, originNumber, destinationAgency, destinationNumber,
+                amount, description, null));
+    }
+
+    /**
+     * Transfers once per idempotency key; a retry returns the transactions of the first request
+     */
+    public TransferTransactions transfer(String idempotencyKey, String originAgency, String originNumber,
+                                         String destinationAgency, String destinationNumber,
+                                         BigDecimal amount, String description) {
+        String fingerprint = "transfer|" + originAgency + "-" + originNumber + "|"
+                + destinationAgency + "-" + destinationNumber + "|" + Money.toCents(amount);
+
+        return transferMetrics.time(() -> once(idempotencyKey, fingerprint,
+                claim -> transfer(originAgency, originNumber, destinationAgency, destinationNumber, amount,
+                        description, claim),
+                transactions -> new TransferTransactions(transactions.get(0), transactions.get(1))));
+    }
+
+    /**
+     * Withdraws like {@link #withdraw(String, String, BigDecimal, String)}, but a missing or
+     * inactive account and a declined amount come back as a failed outcome instead of an exception
+     */
+    public Outcome<Transaction> tryWithdraw(String agency, String number, BigDecimal amount, String description) {
+        return withdrawMetrics.time(() -> Outcome.counted(withdrawMetrics,
+                tryWithdraw(agency, number, Money.of(amount), description)));
+    }
+
+    /**
+     * Transfers like {@link #transfer(String, String, String, String, BigDecimal, String)}, but
+     * expected failures come back as a failed outcome instead of an exception
+     */
+    public Outcome<TransferTransactions> tryTransfer(String originAgency, String originNumber,
+                                                     String destinationAgency, String destinationNumber,
+                                                     BigDecimal amount, String description) {
+        return transferMetrics.time(() -> Outcome.counted(transferMetrics, tryTransfer(originAgency, originNumber,
+                destinationAgency, destinationNumber, Money.of(amount), description)));
+    }
+
+    private Transaction deposit(String agency, String number, BigDecimal amount, String description,
+                                IdempotencyCache.Claim claim) {
+        Account account = findAccount(agency, number);
+
+        Transaction transaction = accountLocks.withLock(account.getAccountKey(),
+                () -> post(account.deposit(amount, description), account, claim));
+
+        transactionRepository.awaitDurability();
+        return transaction;
+    }
+
+    private Transaction withdraw(String agency, String number, BigDecimal amount, String description,
+                                 IdempotencyCache.Claim claim) {
+        Account account = findAccount(agency, number);
+
+        Transaction transaction = accountLocks.withLock(account.getAccountKey(),
+                () -> post(account.withdraw(amount, description), account, claim));
+
+        transactionRepository.awaitDurability();
+        return transaction;
+    }
+
+    private TransferTransactions transfer(String originAgency, String originNumber,
+                                          String destinationAgency, String destinationNumber,
+                                          BigDecimal amount, String description, IdempotencyCache.Claim claim) {
+        Account origin = findAccount(originAgency, originNumber);
+        Account destination = findAccount(destinationAgency, destinationNumber);
+
+        if (origin == destination) {
+            throw new IllegalArgumentException("Origin and destination accounts must be different.");
+        }
+
+        TransferTransactions transactions = destination.hasSplitCredits()
+                ? accountLocks.withLock(origin.getAccountKey(),
+                        () -> postSplit(origin, destination, Money.of(amount), description, claim))
+                : accountLocks.withLocks(origin.getAccountKey(), destination.getAccountKey(),
+                        () -> post(origin.transfer(amount, destination, description), origin, destination, claim));
+
+        transactionRepository.awaitDurability();
+        return transactions;
+    }
+
+    private Outcome<Transaction> tryWithdraw(String agency, String number, Money amount, String description) {
+        validateAmount(amount);
+
+        Account account = accountRepository.getByCode(agency, number).orElse(null);
+        if (account == null) {
+            return Outcome.failure(Outcome.Failure.ACCOUNT_NOT_FOUND);
+        }
+
+        // checked under the lock, so the withdrawal cannot be declined after the check
+        Outcome<Transaction> outcome = accountLocks.withLock(account.getAccountKey(), () -> {
+            if (!account.isActive()) {
+                return Outcome.failure(Outcome.Failure.ACCOUNT_INACTIVE);
+            } else if (!account.canWithdraw(amount)) {
+                return Outcome.failure(Outcome.Failure.INSUFFICIENT_FUNDS);
+            }
+            return Outcome.success(post(account.withdraw(amount, description), account, null));
+        });
+
+        if (outcome.isSuccess()) {
+            transactionRepository.awaitDurability();
+        }
+        return outcome;
+    }
+
+    private Outcome<TransferTransactions> tryTransfer(String originAgency, String originNumber,
+                                                      String destinationAgency, String destinationNumber,
+                                                      Money amount, String description) {
+        validateAmount(amount);
+
+        Account origin = accountRepository.getByCode(originAgency, originNumber).orElse(null);
+        Account destination = accountRepository.getByCode(destinationAgency, destinationNumber).orElse(null);
+        if (origin == null || destination == null) {
+            return Outcome.failure(Outcome.Failure.ACCOUNT_NOT_FOUND);
+        }
+
+        if (origin == destination) {
+            throw new IllegalArgumentException("Origin and destination accounts must be different.");
+        }
+
+        boolean split = destination.hasSplitCredits();
+        Supplier<Outcome<TransferTransactions>> attempt = () -> {
+            if (!origin.isActive() || !destination.isActive()) {
+                return Outcome.failure(Outcome.Failure.ACCOUNT_INACTIVE);
+            } else if (!origin.canTransfer(amount)) {
+                return Outcome.failure(Outcome.Failure.INSUFFICIENT_FUNDS);
+            }
+            return Outcome.success(split
+                    ? postSplit(origin, destination, amount, description, null)
+                    : post(origin.transfer(amount, destination, description), origin, destination, null));
+        };
+
+        Outcome<TransferTransactions> outcome = split
+                ? accountLocks.withLock(origin.getAccountKey(), attempt)
+                : accountLocks.withLocks(origin.getAccountKey(), destination.getAccountKey(), attempt);
+
+        if (outcome.isSuccess()) {
+            transactionRepository.awaitDurability();
+        }
+        return outcome;
+    }
+
+    /**
+     * Transfers to an account with split credits holding only the origin lock: the debit is
+     * posted under it and the credit lands on a striped cell of the destination. A credit
+     * refused by the destination is given back to the origin through a reversal.
+     */
+    private TransferTransactions postSplit(Account origin, Account destination, Money amount, String description,
+                                           IdempotencyCache.Claim claim) {
+        if (!destination.isActive()) {
+            throw new IllegalArgumentException("Invalid destination account.");
+        }
+
+        Transaction sent = origin.debitTransfer(amount, destination.getAccountKey(), description);
+        try {
+            Transaction received = destination.creditSplit(sent, (credit, stripe) -> {
+                accountRepository.updateBalance(origin);
+                sent.confirm();
+                credit.confirm();
+                record(claim, () -> List.of(sent, credit));
+                transactionRepository.save(sent);
+                transactionRepository.saveSplitCredit(credit, destination.getSplitStripes(), stripe);
+            });
+            return new TransferTransactions(sent, received);
+        } catch (RuntimeException e) {
+            // the destination was deactivated after the check; nothing was saved yet
+            if (sent.getStatus() == TransactionStatus.PENDING) {
+                Transaction reversal = origin.reverseTransfer(sent);
+                accountRepository.updateBalance(origin);
+                reversal.confirm();
+                transactionRepository.save(sent);
+                transactionRepository.save(reversal);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Posts many operations taking each account lock once for the whole batch.
+     * Operations are applied in order; a rejected operation is reported in the
+     * result and does not stop the ones after it.
+     */
+    public LedgerBatchResult postBatch(List<LedgerOperation> operations) {
+        return batchMetrics.time(() -> postOperations(operations));
+    }
+
+    private LedgerBatchResult postOperations(List<LedgerOperation> operations) {
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+        Map<Long, Account> accounts = new HashMap<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            try {
+                resolveAccounts(operations.get(i), accounts);
+            } catch (RuntimeException e) {
+                failures.put(i, e);
+            }
+        }
+
+        Set<Long> accountKeys = new HashSet<>();
+        for (Account account : accounts.values()) {
+            accountKeys.add(account.getAccountKey());
+        }
+
+        List<Transaction> posted = new ArrayList<>(operations.size());
+
+        accountLocks.withAllLocks(accountKeys, () -> {
+            for (int i = 0; i < operations.size(); i++) {
+                if (failures.containsKey(i)) {
+                    continue;
+                }
+
+                try {
+                    apply(operations.get(i), accounts, posted);
+                } catch (RuntimeException e) {
+                    failures.put(i, e);
+                }
+            }
+            return null;
+        });
+
+        transactionRepository.awaitDurability();
+        return new LedgerBatchResult(posted, failures);
+    }
+
+    private void apply(LedgerOperation operation, Map<Long, Account> accounts, List<Transaction> posted) {
+        if (operation instanceof LedgerOperation.Deposit deposit) {
+            Account account = accounts.get(keyOf(deposit.agency(), deposit.number()));
+            posted.add(post(account.deposit(deposit.amount(), deposit.description()), account, null));
+        } else if (operation instanceof LedgerOperation.Withdraw withdraw) {
+            Account account = accounts.get(keyOf(withdraw.agency(), withdraw.number()));
+            posted.add(post(account.withdraw(withdraw.amount(), withdraw.description()), account, null));
+        } else if (operation instanceof LedgerOperation.Transfer transfer) {
+            Account origin = accounts.get(keyOf(transfer.originAgency(), transfer.originNumber()));
+            Account destination = accounts.get(keyOf(transfer.destinationAgency(), transfer.destinationNumber()));
+
+            if (origin == destination) {
+                throw new IllegalArgumentException("Origin and destination accounts must be different.");
+            }
+
+            TransferTransactions transactions = post(origin.transfer(transfer.amount(), destination,
+                    transfer.description()), origin, destination, null);
+            posted.add(transactions.sent());
+            posted.add(transactions.received());
+        }
+    }
+
+    private void resolveAccounts(LedgerOperation operation, Map<Long, Account> accounts) {
+        if (operation instanceof LedgerOperation.Deposit deposit) {
+            resolve(deposit.agency(), deposit.number(), accounts);
+        } else if (operation instanceof LedgerOperation.Withdraw withdraw) {
+            resolve(withdraw.agency(), withdraw.number(), accounts);
+        } else if (operation instanceof LedgerOperation.Transfer transfer) {
+            resolve(transfer.originAgency(), transfer.originNumber(), accounts);
+            resolve(transfer.destinationAgency(), transfer.destinationNumber(), accounts);
+        }
+    }
+
+    private void resolve(String agency, String number, Map<Long, Account> accounts) {
+        long key = keyOf(agency, number);
+        if (!accounts.containsKey(key)) {
+            accounts.put(key, findAccount(agency, number));
+        }
+    }
+
+    /**
+     * Runs operation unless a request with the same key already ran, in which case its
+     * transactions are returned without touching the accounts
+     */
+    private <T> T once(String idempotencyKey, String fingerprint, Function<IdempotencyCache.Claim, T> operation,
+                       Function<List<Transaction>, T> previousResult) {
+        IdempotencyCache.Claim claim = idempotencyCache.claim(idempotencyKey, fingerprint);
+        if (claim.isDuplicate()) {
+            return previousResult.apply(claim.getTransactions());
+        }
+
+        T result;
+        try {
+            result = operation.apply(claim);
+        } catch (RuntimeException e) {
+            claim.release(e);
+            throw e;
+        }
+        claim.complete();
+        return result;
+    }
+
+    /**
+     * Saves a balance change the account already made; if the journal refuses the record,
+     * which is then neither indexed nor returned, the change is taken back before the
+     * failure is rethrown, so the balance never holds what no record explains
+     */
+    private Transaction post(Transaction transaction, Account account, IdempotencyCache.Claim claim) {
+        try {
+            transaction.confirm();
+            record(claim, () -> List.of(transaction));
+            transactionRepository.save(transaction);
+        } catch (RuntimeException e) {
+            account.undo(transaction);
+            throw e;
+        }
+        accountRepository.updateBalance(account);
+        return transaction;
+    }
+
+    private TransferTransactions post(TransferTransactions transactions, Account origin, Account destination,
+                                      IdempotencyCache.Claim claim) {
+        try {
+            transactions.sent().confirm();
+            transactions.received().confirm();
+            record(claim, () -> List.of(transactions.sent(), transactions.received()));
+            transactionRepository.saveAll(List.of(transactions.sent(), transactions.received()));
+        } catch (RuntimeException e) {
+            origin.undo(transactions.sent());
+            destination.undo(transactions.received());
+            throw e;
+        }
+        accountRepository.updateBalance(origin);
+        accountRepository.updateBalance(destination);
+        return transactions;
+    }
+
+    // the key is journaled ahead of its transactions so recovery never finds them without it
+    private static void record(IdempotencyCache.Claim claim, Supplier<List<Transaction>> transactions) {
+        if (claim != null) {
+            claim.record(transactions.get());
+        }
+    }
+
+    private static void validateAmount(Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("The amount must be greater than zero.");
+        }
+    }
+
+    private Account findAccount(String agency, String number) {
+        return accountRepository.getByCode(agency, number).orElseThrow(AccountNotFoundException::withoutStackTrace);
+    }
+
+    private static long keyOf(String agency, String number) {
+        return AccountCode.keyOf(agency, number);
+    }
+}
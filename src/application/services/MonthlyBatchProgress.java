@@ -0,0 +1,18 @@
+package application.services;
+
+import java.time.Duration;
+
+/**
+ * Progress of a running monthly batch, reported at a fixed interval and once at the end.
+ */
+public record MonthlyBatchProgress(long processed, long total, Duration elapsed) {
+
+    public double accountsPerSecond() {
+        return rate(processed, elapsed);
+    }
+
+    static double rate(long processed, Duration elapsed) {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : processed * 1_000_000_000.0 / nanos;
+    }
+}
@@ -0,0 +1,21 @@
+package application.services;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Outcome of a monthly batch run: how many accounts were visited, how many fees and
+ * yields were posted, and the failure of each account that could not be settled keyed
+ * by its account code.
+ */
+public record MonthlyBatchResult(long processed, long feesCharged, long yieldsPaid,
+                                 Map<String, RuntimeException> failures, Duration elapsed) {
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public double accountsPerSecond() {
+        return MonthlyBatchProgress.rate(processed, elapsed);
+    }
+}
@@ -0,0 +1,220 @@
+package application.services;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.SavingsAccount;
+import domain.entity.Transaction;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * End-of-month job that charges checking account fees and pays savings yields, plus
+ * the daily job that pays the yields due on a single day.
+ * <p>
+ * The accounts are split into partitions through the repository spliterator and
+ * settled on a fork/join pool, each account under its striped lock, so the job runs
+ * alongside normal traffic. Accounts remember the last month they were settled, which
+ * makes reruns safe: accounts already settled are skipped, and a waived fee month is
+ * journaled on its own so a restart remembers it too. Each partition waits once for the
+ * group commit of every record it posted. The daily job reads its accounts
+ * from the repository anniversary day index, so it never scans the whole store.
+ */
+public class MonthlyBatchService {
+    private static final int PARTITION_SIZE = 4_096;
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountLocks accountLocks;
+    private final ForkJoinPool pool;
+
+    public MonthlyBatchService(AccountRepository accountRepository, TransactionRepository transactionRepository) {
+        this(accountRepository, transactionRepository, AccountLocks.getDefault(), ForkJoinPool.commonPool());
+    }
+
+    public MonthlyBatchService(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                               AccountLocks accountLocks, ForkJoinPool pool) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountLocks = accountLocks;
+        this.pool = pool;
+    }
+
+    public MonthlyBatchResult run(LocalDate date) {
+        return run(date, null, progress -> {
+        });
+    }
+
+    /**
+     * Settles every account for the month containing date, reporting progress every
+     * {@code reportInterval} (null for no periodic reports) and once when done
+     */
+    public MonthlyBatchResult run(LocalDate date, Duration reportInterval,
+                                  Consumer<MonthlyBatchProgress> progressListener) {
+        return settleAll(accountRepository.getAll(), date, reportInterval, progressListener);
+    }
+
+    public MonthlyBatchResult runDailyYields(LocalDate date) {
+        return runDailyYields(date, null, progress -> {
+        });
+    }
+
+    /**
+     * Pays the yield of every savings account whose anniversary falls on date
+     */
+    public MonthlyBatchResult runDailyYields(LocalDate date, Duration reportInterval,
+                                             Consumer<MonthlyBatchProgress> progressListener) {
+        return settleAll(accountRepository.getSavingsDueOn(date), date, reportInterval, progressListener);
+    }
+
+    private MonthlyBatchResult settleAll(Collection<Account> accounts, LocalDate date, Duration reportInterval,
+                                         Consumer<MonthlyBatchProgress> progressListener) {
+        Run run = new Run(date, accounts.size());
+
+        ScheduledExecutorService reporter = null;
+        if (reportInterval != null) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "monthly-batch-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> progressListener.accept(run.progress()),
+                    reportInterval.toMillis(), reportInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            pool.invoke(new Partition(accounts.spliterator(), run));
+        } finally {
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+        }
+
+        progressListener.accept(run.progress());
+        return new MonthlyBatchResult(run.processed.sum(), run.feesCharged.sum(), run.yieldsPaid.sum(),
+                Map.copyOf(run.failures), run.elapsed());
+    }
+
+    private void settle(Account account, Run run) {
+        try {
+            Optional<Transaction> posted = accountLocks.withLock(account.getAccountKey(), () -> {
+                YearMonth feePeriod = lastFeePeriodOf(account);
+                Optional<Transaction> transaction = settle(account, run.date);
+                // written back even without a record so waived months stay settled
+                accountRepository.updateBalance(account);
+                if (transaction.isPresent()) {
+                    post(transaction.get());
+                } else if (!Objects.equals(feePeriod, lastFeePeriodOf(account))) {
+                    accountRepository.recordFeePeriodSettled((CheckingAccount) account);
+                }
+                return transaction;
+            });
+
+            if (posted.isPresent()) {
+                if (account instanceof CheckingAccount) {
+                    run.feesCharged.increment();
+                } else {
+                    run.yieldsPaid.increment();
+                }
+            }
+        } catch (RuntimeException e) {
+            run.failures.put(account.getAccountCode(), e);
+        } finally {
+            run.processed.increment();
+        }
+    }
+
+    private static Optional<Transaction> settle(Account account, LocalDate date) {
+        if (account instanceof CheckingAccount checkingAccount) {
+            return checkingAccount.chargeMonthlyFee(date);
+        }
+        if (account instanceof SavingsAccount savingsAccount) {
+            return savingsAccount.applyYield(date);
+        }
+        return Optional.empty();
+    }
+
+    private static YearMonth lastFeePeriodOf(Account account) {
+        return account instanceof CheckingAccount checkingAccount ? checkingAccount.getLastFeePeriod() : null;
+    }
+
+    private void post(Transaction transaction) {
+        transaction.confirm();
+        transactionRepository.save(transaction);
+    }
+
+    /**
+     * Splits its accounts until partitions are small enough, then settles its own share
+     */
+    private final class Partition extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Spliterator<Account> accounts;
+        private final Run run;
+
+        Partition(Spliterator<Account> accounts, Run run) {
+            this.accounts = accounts;
+            this.run = run;
+        }
+
+        @Override
+        protected void compute() {
+            List<Partition> forked = new ArrayList<>();
+
+            Spliterator<Account> split;
+            while (accounts.estimateSize() > PARTITION_SIZE && (split = accounts.trySplit()) != null) {
+                Partition partition = new Partition(split, run);
+                partition.fork();
+                forked.add(partition);
+            }
+
+            accounts.forEachRemaining(account -> settle(account, run));
+            transactionRepository.awaitDurability();
+
+            for (Partition partition : forked) {
+                partition.join();
+            }
+        }
+    }
+
+    private static final class Run {
+        private final LocalDate date;
+        private final long total;
+        private final long startedAt = System.nanoTime();
+        private final LongAdder processed = new LongAdder();
+        private final LongAdder feesCharged = new LongAdder();
+        private final LongAdder yieldsPaid = new LongAdder();
+        private final Map<String, RuntimeException> failures = new ConcurrentHashMap<>();
+
+        Run(LocalDate date, long total) {
+            this.date = date;
+            this.total = total;
+        }
+
+        MonthlyBatchProgress progress() {
+            return new MonthlyBatchProgress(processed.sum(), total, elapsed());
+        }
+
+        Duration elapsed() {
+            return Duration.ofNanos(System.nanoTime() - startedAt);
+        }
+    }
+}
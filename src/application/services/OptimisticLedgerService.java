@@ -0,0 +1,162 @@
+package application.services;
+
+import application.metrics.Metrics;
+import application.metrics.OperationMetrics;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import domain.entity.Account;
+import domain.entity.Transaction;
+import domain.entity.TransferTransactions;
+import domain.enums.TransactionStatus;
+import domain.exception.AccountNotFoundException;
+import domain.valueObject.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Service class that posts balance changes to the ledger without account locks.
+ * <p>
+ * Deposits and withdrawals are a compare-and-set on the versioned balance of the account,
+ * retried when another change got there first, so writers to a hot account never park
+ * and readers never wait. Transfers settle in two steps, as in {@link ShardedLedgerEngine}:
+ * the origin is debited with a pending sent record, the destination is credited, and a
+ * refused credit is given back through a reversal. In between, the amount is in neither
+ * balance.
+ * <p>
+ * Records of one account may reach the journal out of balance order; each carries the
+ * account version its balance had, so recovery keeps the newest. Accounts with split
+ * credits absorb their cells only under the account lock, so they can receive transfers
+ * here but otherwise go through {@link LedgerService}; split credits should not be turned
+ * on for an account while it takes lock-free traffic.
+ */
+public class OptimisticLedgerService {
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final OperationMetrics depositMetrics = Metrics.getDefault().operation("ledger.optimistic_deposit");
+    private final OperationMetrics withdrawMetrics = Metrics.getDefault().operation("ledger.optimistic_withdraw");
+    private final OperationMetrics transferMetrics = Metrics.getDefault().operation("ledger.optimistic_transfer");
+
+    public OptimisticLedgerService(AccountRepository accountRepository, TransactionRepository transactionRepository) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+    }
+
+    public Transaction deposit(String agency, String number, BigDecimal amount, String description) {
+        return depositMetrics.time(() -> {
+            Account account = findLockFreeAccount(agency, number);
+
+            Transaction transaction = post(account.deposit(amount, description), account);
+
+            transactionRepository.awaitDurability();
+            return transaction;
+        });
+    }
+
+    public Transaction withdraw(String agency, String number, BigDecimal amount, String description) {
+        return withdrawMetrics.time(() -> {
+            Account account = findLockFreeAccount(agency, number);
+
+            Transaction transaction = post(account.withdraw(amount, description), account);
+
+            transactionRepository.awaitDurability();
+            return transaction;
+        });
+    }
+
+    /**
+     * Transfers amount in two steps; the returned sent record is confirmed, or the call
+     * throws after the origin got the amount back
+     */
+    public TransferTransactions transfer(String originAgency, String originNumber,
+                                         String destinationAgency, String destinationNumber,
+                                         BigDecimal amount, String description) {
+        return transferMetrics.time(() -> {
+            Account origin = findLockFreeAccount(originAgency, originNumber);
+            Account destination = findAccount(destinationAgency, destinationNumber);
+
+            if (origin == destination) {
+                throw new IllegalArgumentException("Origin and destination accounts must be different.");
+            }
+            if (!destination.isActive()) {
+                throw new IllegalArgumentException("Invalid destination account.");
+            }
+
+            TransferTransactions transactions = destination.hasSplitCredits()
+                    ? settleSplit(origin, destination, Money.of(amount), description)
+                    : settle(origin, destination, Money.of(amount), description);
+
+            transactionRepository.awaitDurability();
+            return transactions;
+        });
+    }
+
+    private TransferTransactions settle(Account origin, Account destination, Money amount, String description) {
+        Transaction sent = origin.debitTransfer(amount, destination.getAccountKey(), description);
+        accountRepository.updateBalance(origin);
+        transactionRepository.save(sent);
+
+        Transaction received;
+        try {
+            received = post(destination.creditTransfer(sent), destination);
+        } catch (RuntimeException e) {
+            // the destination was deactivated after the check
+            post(origin.reverseTransfer(sent), origin);
+            transactionRepository.updateStatus(sent);
+            throw e;
+        }
+
+        sent.confirm();
+        transactionRepository.updateStatus(sent);
+        return new TransferTransactions(sent, received);
+    }
+
+    /**
+     * Credits a split cell of the destination, saving both records once the credit is in
+     * place, as {@link LedgerService} does under the origin lock
+     */
+    private TransferTransactions settleSplit(Account origin, Account destination, Money amount, String description) {
+        Transaction sent = origin.debitTransfer(amount, destination.getAccountKey(), description);
+        try {
+            Transaction received = destination.creditSplit(sent, (credit, stripe) -> {
+                accountRepository.updateBalance(origin);
+                sent.confirm();
+                credit.confirm();
+                transactionRepository.save(sent);
+                transactionRepository.saveSplitCredit(credit, destination.getSplitStripes(), stripe);
+            });
+            return new TransferTransactions(sent, received);
+        } catch (RuntimeException e) {
+            // nothing was saved yet
+            if (sent.getStatus() == TransactionStatus.PENDING) {
+                Transaction reversal = origin.reverseTransfer(sent);
+                accountRepository.updateBalance(origin);
+                reversal.confirm();
+                transactionRepository.save(sent);
+                transactionRepository.save(reversal);
+            }
+            throw e;
+        }
+    }
+
+    private Transaction post(Transaction transaction, Account account) {
+        accountRepository.updateBalance(account);
+        transaction.confirm();
+        transactionRepository.save(transaction);
+        return transaction;
+    }
+
+    /**
+     * Finds an account whose own balance may change here; split credit accounts may not
+     */
+    private Account findLockFreeAccount(String agency, String number) {
+        Account account = findAccount(agency, number);
+        if (account.hasSplitCredits()) {
+            throw new IllegalStateException("Accounts with split credits only change under the account lock.");
+        }
+        return account;
+    }
+
+    private Account findAccount(String agency, String number) {
+        return accountRepository.getByCode(agency, number).orElseThrow(AccountNotFoundException::withoutStackTrace);
+    }
+}
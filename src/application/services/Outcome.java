@@ -0,0 +1,105 @@
+package application.services;
+
+import application.metrics.OperationMetrics;
+import domain.exception.AccountNotFoundException;
+import domain.exception.EmailAlreadyInUseException;
+import domain.exception.InsufficientFundsException;
+import domain.exception.UserNotFoundException;
+
+/**
+ * Result of a service call that reports expected business failures instead of throwing.
+ * <p>
+ * A declined withdrawal or a missing account is routine traffic, and returning it is far
+ * cheaper than unwinding an exception through the locks and metrics wrappers. Failed
+ * outcomes are shared constants, so a failure allocates nothing. Invalid arguments are
+ * still programming errors and keep throwing.
+ */
+public final class Outcome<T> {
+    private static final Outcome<?>[] FAILURES = new Outcome<?>[Failure.values().length];
+
+    static {
+        for (Failure failure : Failure.values()) {
+            FAILURES[failure.ordinal()] = new Outcome<>(null, failure);
+        }
+    }
+
+    private final T value;
+    private final Failure failure;
+
+    private Outcome(T value, Failure failure) {
+        this.value = value;
+        this.failure = failure;
+    }
+
+    public static <T> Outcome<T> success(T value) {
+        return new Outcome<>(value, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> Outcome<T> failure(Failure failure) {
+        return (Outcome<T>) FAILURES[failure.ordinal()];
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * Returns the value of a successful outcome; throws if the call failed
+     */
+    public T getValue() {
+        if (failure != null) {
+            throw new IllegalStateException("Outcome failed: " + failure.getMessage());
+        }
+        return value;
+    }
+
+    /**
+     * Returns why the call failed, or null when it succeeded
+     */
+    public Failure getFailure() {
+        return failure;
+    }
+
+    /**
+     * Counts a failed outcome on the metrics of the call that returned it
+     */
+    static <T> Outcome<T> counted(OperationMetrics metrics, Outcome<T> outcome) {
+        if (outcome.failure != null) {
+            metrics.countFailure(outcome.failure.getExceptionType());
+        }
+        return outcome;
+    }
+
+    @Override
+    public String toString() {
+        return failure == null ? "Success[" + value + "]" : "Failure[" + failure + "]";
+    }
+
+    /**
+     * Expected failures, each tied to the exception the throwing variant of the call raises
+     */
+    public enum Failure {
+        ACCOUNT_NOT_FOUND("Account not found.", AccountNotFoundException.class),
+        ACCOUNT_INACTIVE("The account is not active.", IllegalStateException.class),
+        INSUFFICIENT_FUNDS("Insufficient funds.", InsufficientFundsException.class),
+        USER_NOT_FOUND("User not found.", UserNotFoundException.class),
+        EMAIL_IN_USE("Email already in use.", EmailAlreadyInUseException.class);
+
+        private final String message;
+        private final Class<? extends RuntimeException> exceptionType;
+
+        Failure(String message, Class<? extends RuntimeException> exceptionType) {
+            this.message = message;
+            this.exceptionType = exceptionType;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Class<? extends RuntimeException> getExceptionType() {
+            return exceptionType;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package application.services;
+
+import domain.valueObject.AccountCode;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs service calls asynchronously with per-account ordering and bounded admission.
+ * <p>
+ * Calls keyed by the same account ({@code Account.getAccountKey()}) are chained and run
+ * one after the other in submission order; a call keyed by two accounts waits for both
+ * chains. Calls on different accounts, and unkeyed calls, run in parallel. A queued call holds no thread, only a link in its account
+ * chain. At most {@code maxInFlight} calls are admitted at once, queued ones included;
+ * beyond that a submitter waits up to the admission timeout and then gets a future
+ * failed with {@link RejectedExecutionException}, so overload pushes back on callers
+ * instead of growing the heap.
+ */
+public class RequestExecutor implements AutoCloseable {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 10_000;
+    public static final Duration DEFAULT_ADMISSION_TIMEOUT = Duration.ofSeconds(1);
+
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+    private static final int CHAIN_STRIPES = 64;
+
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final Semaphore permits;
+    private final long admissionTimeoutNanos;
+    private final Map<Long, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Object[] chainLocks = new Object[CHAIN_STRIPES];
+
+    public RequestExecutor() {
+        this(newDefaultExecutor(), true, DEFAULT_MAX_IN_FLIGHT, DEFAULT_ADMISSION_TIMEOUT);
+    }
+
+    /**
+     * Runs calls on the given executor, which is left running on {@link #close}
+     */
+    public RequestExecutor(Executor executor, int maxInFlight, Duration admissionTimeout) {
+        this(executor, false, maxInFlight, admissionTimeout);
+    }
+
+    private RequestExecutor(Executor executor, boolean ownsExecutor, int maxInFlight, Duration admissionTimeout) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Max in-flight requests must be greater than zero.");
+        }
+
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.permits = new Semaphore(maxInFlight);
+        this.admissionTimeoutNanos = admissionTimeout.toNanos();
+        for (int i = 0; i < CHAIN_STRIPES; i++) {
+            chainLocks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns a virtual thread per task executor when the runtime has one, otherwise a
+     * pool of daemon platform threads. The code targets Java 17, so virtual threads are
+     * looked up reflectively.
+     */
+    public static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 16, runnable -> {
+                Thread thread = new Thread(runnable, "request-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Runs a call that is not tied to an account
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        if (!admit()) {
+            return rejected();
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(call, executor).whenComplete((result, failure) -> permits.release());
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Runs a call after every call previously submitted for the same account; a key that
+     * names no account ({@link AccountCode#INVALID}) is not ordered with anything
+     */
+    public <T> CompletableFuture<T> submit(long accountKey, Supplier<T> call) {
+        if (accountKey == AccountCode.INVALID) {
+            return submit(call);
+        }
+        return submitChained(new long[]{accountKey}, call);
+    }
+
+    /**
+     * Runs a call after every call previously submitted for either account, as a transfer
+     * between them must
+     */
+    public <T> CompletableFuture<T> submit(long firstAccountKey, long secondAccountKey, Supplier<T> call) {
+        if (firstAccountKey == AccountCode.INVALID || firstAccountKey == secondAccountKey) {
+            return submit(secondAccountKey, call);
+        } else if (secondAccountKey == AccountCode.INVALID) {
+            return submit(firstAccountKey, call);
+        }
+        return submitChained(new long[]{firstAccountKey, secondAccountKey}, call);
+    }
+
+    private <T> CompletableFuture<T> submitChained(long[] accountKeys, Supplier<T> call) {
+        if (!admit()) {
+            return rejected();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Void> link;
+        try {
+            link = append(accountKeys, result, call);
+        } catch (RejectedExecutionException e) {
+            // the chains were idle and the executor refused to start the call; nothing was appended
+            permits.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // the chain of an idle account is dropped so the map only holds busy accounts
+        link.whenComplete((ignored, failure) -> {
+            for (long accountKey : accountKeys) {
+                tails.remove(accountKey, link);
+            }
+            permits.release();
+            if (failure != null && !result.isDone()) {
+                // the executor refused the call
+                result.completeExceptionally(failure);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Appends the call to the chain of every account; the chains are read and replaced
+     * under their stripe monitors, taken in index order, so calls naming two accounts
+     * always wait on calls appended before them and never on each other
+     */
+    private <T> CompletableFuture<Void> append(long[] accountKeys, CompletableFuture<T> result, Supplier<T> call) {
+        int first = stripeOf(accountKeys[0]);
+        int last = accountKeys.length == 1 ? first : stripeOf(accountKeys[1]);
+
+        synchronized (chainLocks[Math.min(first, last)]) {
+            synchronized (chainLocks[Math.max(first, last)]) {
+                CompletableFuture<Void> previous = accountKeys.length == 1
+                        ? tails.getOrDefault(accountKeys[0], IDLE)
+                        : CompletableFuture.allOf(tails.getOrDefault(accountKeys[0], IDLE),
+                                tails.getOrDefault(accountKeys[1], IDLE));
+
+                CompletableFuture<Void> link = previous.handleAsync((ignored, previousFailure) -> {
+                    try {
+                        result.complete(call.get());
+                    } catch (Throwable failure) {
+                        result.completeExceptionally(failure);
+                    }
+                    return null;
+                }, executor);
+
+                for (long accountKey : accountKeys) {
+                    tails.put(accountKey, link);
+                }
+                return link;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of calls that can still be admitted right now
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor && executor instanceof ExecutorService service) {
+            service.shutdown();
+        }
+    }
+
+    private boolean admit() {
+        try {
+            return permits.tryAcquire(admissionTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static int stripeOf(long accountKey) {
+        long h = accountKey * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (CHAIN_STRIPES - 1);
+    }
+
+    private static <T> CompletableFuture<T> rejected() {
+        return CompletableFuture.failedFuture(new RejectedExecutionException("Too many requests in flight."));
+    }
+}
@@ -0,0 +1,78 @@
+package application.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring of commands with many producers and a single consumer.
+ * <p>
+ * Every slot carries a sequence number: a producer claims the next position with a CAS
+ * on the tail, fills the slot and publishes it by advancing the slot sequence; the
+ * consumer takes slots in order and hands them back one lap ahead. No producer ever
+ * blocks another one, and a full ring is reported instead of waited on.
+ */
+final class ShardRing {
+    private final Runnable[] commands;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final int mask;
+    // only touched by the consumer thread
+    private long head;
+
+    ShardRing(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.commands = new Runnable[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds a command; returns false if the ring is full
+     */
+    boolean offer(Runnable command) {
+        while (true) {
+            long position = tail.get();
+            int slot = (int) position & mask;
+            long difference = sequences.getAcquire(slot) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    commands[slot] = command;
+                    sequences.setRelease(slot, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // the consumer has not freed this slot yet
+                return false;
+            }
+            // otherwise another producer took the position first
+        }
+    }
+
+    /**
+     * Takes the oldest command, or returns null if none is published; consumer thread only
+     */
+    Runnable poll() {
+        int slot = (int) head & mask;
+        if (sequences.getAcquire(slot) != head + 1) {
+            return null;
+        }
+
+        Runnable command = commands[slot];
+        commands[slot] = null;
+        sequences.setRelease(slot, head + commands.length);
+        head++;
+        return command;
+    }
+
+    boolean isEmpty() {
+        return sequences.getAcquire((int) head & mask) != head + 1;
+    }
+}
@@ -0,0 +1,396 @@
+package application.services;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import domain.entity.Account;
+import domain.entity.Transaction;
+import domain.entity.TransferTransactions;
+import domain.exception.AccountNotFoundException;
+import domain.valueObject.Money;
+
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Alternative to {@link LedgerService} where every account is owned by a single writer thread.
+ * <p>
+ * Accounts are partitioned into shards by hashing their packed code; each shard thread
+ * takes commands from a lock-free {@link ShardRing} and applies them one at a time, so
+ * a hot account is never contended, only queued. A transfer between two accounts of the
+ * same shard is applied in one step. A transfer across shards is settled in two: the
+ * origin shard debits and saves a {@code PENDING} sent record, the destination shard
+ * credits and saves the received record, and the origin shard then marks the sent
+ * record {@code CONFIRMED}. If the credit fails, the origin shard saves a reversal and
+ * marks the sent record {@code FAILED}.
+ * <p>
+ * Shards still take the striped account lock around each change, which costs nothing
+ * uncontended and keeps snapshots, the monthly batch and the lock-based service safe to
+ * use alongside. Each shard waits once for the group commit of every command it drained
+ * before completing their futures; futures complete on the shard threads, so stages
+ * chained on them must not block.
+ */
+public class ShardedLedgerEngine implements AutoCloseable {
+    public static final int DEFAULT_RING_CAPACITY = 8_192;
+    private static final int MAX_DRAIN = 256;
+    private static final int IDLE_SPINS = 200;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AccountRepository accountRepository;
+    private final TransactionRepository transactionRepository;
+    private final AccountLocks accountLocks;
+    private final Shard[] shards;
+    private final int mask;
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private volatile boolean closed;
+    private volatile boolean stopped;
+
+    public ShardedLedgerEngine(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                               AccountLocks accountLocks) {
+        this(accountRepository, transactionRepository, accountLocks,
+                Runtime.getRuntime().availableProcessors(), DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * Starts {@code shardCount} shard threads, rounded up to a power of two
+     */
+    public ShardedLedgerEngine(AccountRepository accountRepository, TransactionRepository transactionRepository,
+                               AccountLocks accountLocks, int shardCount, int ringCapacity) {
+        if (shardCount <= 0 || ringCapacity <= 0) {
+            throw new IllegalArgumentException("Shard count and ring capacity must be greater than zero.");
+        }
+
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.accountLocks = accountLocks;
+
+        int size = 1;
+        while (size < shardCount) {
+            size <<= 1;
+        }
+        this.shards = new Shard[size];
+        this.mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard(ringCapacity, "ledger-shard-" + i);
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+    }
+
+    public CompletableFuture<Transaction> deposit(String agency, String number, BigDecimal amount,
+                                                  String description) {
+        Account account = findAccount(agency, number);
+        Shard shard = shardOf(account);
+
+        CompletableFuture<Transaction> result = track(new CompletableFuture<>());
+        shard.submit(() -> shard.apply(result, () -> accountLocks.withLock(account.getAccountKey(),
+                () -> post(account.deposit(amount, description), account))));
+        return result;
+    }
+
+    public CompletableFuture<Transaction> withdraw(String agency, String number, BigDecimal amount,
+                                                   String description) {
+        Account account = findAccount(agency, number);
+        Shard shard = shardOf(account);
+
+        CompletableFuture<Transaction> result = track(new CompletableFuture<>());
+        shard.submit(() -> shard.apply(result, () -> accountLocks.withLock(account.getAccountKey(),
+                () -> post(account.withdraw(amount, description), account))));
+        return result;
+    }
+
+    /**
+     * Transfers amount between two accounts; the future completes once both sides are settled
+     */
+    public CompletableFuture<TransferTransactions> transfer(String originAgency, String originNumber,
+                                                            String destinationAgency, String destinationNumber,
+                                                            BigDecimal amount, String description) {
+        Account origin = findAccount(originAgency, originNumber);
+        Account destination = findAccount(destinationAgency, destinationNumber);
+
+        if (origin == destination) {
+            throw new IllegalArgumentException("Origin and destination accounts must be different.");
+        }
+
+        Shard originShard = shardOf(origin);
+        Shard destinationShard = shardOf(destination);
+        CompletableFuture<TransferTransactions> result = track(new CompletableFuture<>());
+
+        if (originShard == destinationShard) {
+            originShard.submit(() -> originShard.apply(result, () -> accountLocks.withLocks(origin.getAccountKey(),
+                    destination.getAccountKey(), () -> post(origin.transfer(amount, destination, description),
+                            origin, destination))));
+        } else {
+            Money money = Money.of(amount);
+            originShard.submit(() -> debit(origin, destination, money, description, originShard,
+                    destinationShard, result));
+        }
+        return result;
+    }
+
+    /**
+     * Stops accepting commands, waits for the submitted ones to settle and stops the shard threads
+     */
+    @Override
+    public void close() {
+        closed = true;
+        while (inFlight.get() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        stopped = true;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // origin shard: debits and saves the pending sent record, then hands the credit over
+    private void debit(Account origin, Account destination, Money amount, String description,
+                       Shard originShard, Shard destinationShard, CompletableFuture<TransferTransactions> result) {
+        Transaction sent;
+        try {
+            sent = accountLocks.withLock(origin.getAccountKey(), () -> {
+                Transaction pending = origin.debitTransfer(amount, destination.getAccountKey(), description);
+                accountRepository.updateBalance(origin);
+                transactionRepository.save(pending);
+                return pending;
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        destinationShard.handOff(() -> credit(origin, destination, sent, originShard, result));
+    }
+
+    // destination shard: credits and saves the received record, then lets the origin settle
+    private void credit(Account origin, Account destination, Transaction sent, Shard originShard,
+                        CompletableFuture<TransferTransactions> result) {
+        Transaction received;
+        try {
+            received = accountLocks.withLock(destination.getAccountKey(),
+                    () -> post(destination.creditTransfer(sent), destination));
+        } catch (RuntimeException e) {
+            originShard.handOff(() -> reverse(origin, sent, e, originShard, result));
+            return;
+        }
+
+        originShard.handOff(() -> originShard.apply(result, () -> accountLocks.withLock(origin.getAccountKey(), () -> {
+            sent.confirm();
+            transactionRepository.updateStatus(sent);
+            return new TransferTransactions(sent, received);
+        })));
+    }
+
+    // origin shard: gives the amount back after the credit failed
+    private void reverse(Account origin, Transaction sent, RuntimeException failure, Shard originShard,
+                         CompletableFuture<TransferTransactions> result) {
+        try {
+            accountLocks.withLock(origin.getAccountKey(), () -> {
+                post(origin.reverseTransfer(sent), origin);
+                transactionRepository.updateStatus(sent);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+        originShard.awaitingDurability.add(new Deferred<>(result, null, failure));
+    }
+
+    private Transaction post(Transaction transaction, Account account) {
+        accountRepository.updateBalance(account);
+        transaction.confirm();
+        transactionRepository.save(transaction);
+        return transaction;
+    }
+
+    private TransferTransactions post(TransferTransactions transactions, Account origin, Account destination) {
+        accountRepository.updateBalance(origin);
+        accountRepository.updateBalance(destination);
+        transactions.sent().confirm();
+        transactions.received().confirm();
+        transactionRepository.save(transactions.sent());
+        transactionRepository.save(transactions.received());
+        return transactions;
+    }
+
+    /**
+     * Counts the command in before checking for close, so that {@link #close()} either
+     * waits for it or the command sees the engine closed and is refused
+     */
+    private <T> CompletableFuture<T> track(CompletableFuture<T> result) {
+        inFlight.incrementAndGet();
+        if (closed) {
+            inFlight.decrementAndGet();
+            throw new RejectedExecutionException("Ledger engine is closed.");
+        }
+
+        result.whenComplete((value, failure) -> inFlight.decrementAndGet());
+        return result;
+    }
+
+    private Shard shardOf(Account account) {
+        long hash = account.getAccountKey() * 0x9E3779B97F4A7C15L;
+        return shards[(int) (hash >>> 32) & mask];
+    }
+
+    private Account findAccount(String agency, String number) {
+        return accountRepository.getByCode(agency, number).orElseThrow(AccountNotFoundException::withoutStackTrace);
+    }
+
+    private final class Shard implements Runnable {
+        private final ShardRing ring;
+        // commands passed between shards; unbounded so two full shards can never wait on each other
+        private final Queue<Runnable> handOffs = new ConcurrentLinkedQueue<>();
+        // futures completed once the records saved by the drained commands are durable
+        private final List<Deferred<?>> awaitingDurability = new ArrayList<>();
+        private final Thread thread;
+        private volatile boolean parked;
+
+        private Shard(int ringCapacity, String name) {
+            this.ring = new ShardRing(ringCapacity);
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Queues a command from a caller thread, waiting while the ring is full
+         */
+        void submit(Runnable command) {
+            while (!ring.offer(command)) {
+                LockSupport.parkNanos(1_000);
+            }
+            wake();
+        }
+
+        void handOff(Runnable command) {
+            handOffs.add(command);
+            wake();
+        }
+
+        /**
+         * Runs a step on this shard and completes result with its value once it is durable
+         */
+        <T> void apply(CompletableFuture<T> result, Supplier<T> step) {
+            T value;
+            try {
+                value = step.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            awaitingDurability.add(new Deferred<>(result, value, null));
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                if (drain() > 0) {
+                    idle = 0;
+                    settle();
+                    continue;
+                }
+                if (stopped) {
+                    return;
+                }
+
+                if (++idle < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+
+                parked = true;
+                // pairs with the fence in wake(): either the producer sees the flag or the
+                // ring check below sees its command
+                VarHandle.fullFence();
+                if (ring.isEmpty() && handOffs.isEmpty() && !stopped) {
+                    // bounded, so a missed wake-up costs a millisecond rather than the command
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                parked = false;
+                idle = 0;
+            }
+        }
+
+        private void wake() {
+            // the ring publishes with a release store, which a later load may pass
+            VarHandle.fullFence();
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private int drain() {
+            int drained = 0;
+            Runnable command;
+            while (drained < MAX_DRAIN && (command = handOffs.poll()) != null) {
+                execute(command);
+                drained++;
+            }
+            while (drained < MAX_DRAIN && (command = ring.poll()) != null) {
+                execute(command);
+                drained++;
+            }
+            return drained;
+        }
+
+        private void execute(Runnable command) {
+            try {
+                command.run();
+            } catch (RuntimeException e) {
+                // commands report their own failures; this only keeps the shard alive
+            }
+        }
+
+        private void settle() {
+            if (awaitingDurability.isEmpty()) {
+                return;
+            }
+
+            RuntimeException failure = null;
+            try {
+                transactionRepository.awaitDurability();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            for (Deferred<?> deferred : awaitingDurability) {
+                deferred.finish(failure);
+            }
+            awaitingDurability.clear();
+        }
+    }
+
+    private record Deferred<T>(CompletableFuture<T> future, T value, RuntimeException failure) {
+        void finish(RuntimeException durabilityFailure) {
+            if (durabilityFailure != null) {
+                future.completeExceptionally(durabilityFailure);
+            } else if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(value);
+            }
+        }
+    }
+}
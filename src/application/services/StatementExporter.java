@@ -0,0 +1,398 @@
+package application.services;
+
+import application.repositories.TransactionPage;
+import application.repositories.TransactionRepository;
+import domain.entity.Transaction;
+import domain.valueObject.AccountCode;
+import domain.valueObject.TransactionId;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+
+/**
+ * Streams account statements into a channel as CSV or as a fixed-width bank file.
+ * <p>
+ * The history is read from {@link TransactionRepository} one page at a time in time
+ * order and every line is encoded straight into a reusable buffer that is drained to
+ * the channel whenever it fills, so memory stays flat however long the statement is.
+ * Dates, amounts and ids are written digit by digit instead of through
+ * {@code String.format} or a {@code DateTimeFormatter}. Balances are the ones each
+ * record carries; credits taken by the split cells of a hot account carry the value of
+ * their cell.
+ */
+public class StatementExporter {
+    private static final int PAGE_SIZE = 1_000;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // widest UTF-8 sequence a single char, or a surrogate pair, can need
+    private static final int MAX_CHAR_BYTES = 4;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private static final byte[] CSV_HEADER = ("transaction_id,date_time,type,status,amount,balance_after,"
+            + "counterparty,description,authentication_code\n").getBytes();
+
+    // fixed-width layout, one record per line
+    private static final int RECORD_WIDTH = 160;
+    private static final int DATE_TIME_WIDTH = 14;
+    private static final int CENTS_WIDTH = 15;
+    private static final int ACCOUNT_CODE_WIDTH = 18;
+    private static final int DESCRIPTION_WIDTH = 40;
+    private static final int COUNT_WIDTH = 10;
+    private static final int TOTAL_WIDTH = 17;
+
+    private final TransactionRepository transactionRepository;
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    public StatementExporter(TransactionRepository transactionRepository) {
+        this.transactionRepository = transactionRepository;
+    }
+
+    public enum Format {
+        /**
+         * RFC 4180 CSV in UTF-8 with a header row, amounts signed and in decimal units
+         */
+        CSV,
+        /**
+         * ASCII records of 160 characters: a header ({@code 0}), one detail
+         * per transaction ({@code 1}) and a trailer ({@code 9}) with the count and the totals,
+         * amounts in zero-padded cents
+         */
+        FIXED_WIDTH
+    }
+
+    /**
+     * Writes the account transactions with {@code from <= dateTime < to} to channel; null
+     * bounds are open. The channel is left open.
+     *
+     * @return number of transactions written
+     */
+    public long export(String accountCode, LocalDateTime from, LocalDateTime to, Format format,
+                       WritableByteChannel channel) throws IOException {
+        long accountKey = AccountCode.parse(accountCode);
+        if (accountKey == AccountCode.INVALID) {
+            throw new IllegalArgumentException("Invalid account code: " + accountCode);
+        }
+
+        Output out = new Output(buffers.get(), channel);
+        long count = 0;
+        long credits = 0;
+        long debits = 0;
+
+        if (format == Format.CSV) {
+            out.ensure(CSV_HEADER.length);
+            out.buffer.put(CSV_HEADER);
+        } else {
+            writeFixedHeader(out, accountCode, from, to);
+        }
+
+        String cursor = null;
+        do {
+            TransactionPage page = transactionRepository.findPage(accountCode, from, to, cursor, PAGE_SIZE);
+            for (Transaction transaction : page.transactions()) {
+                long signedAmount = transaction.getBalanceAfterCents() - transaction.getPreviousBalanceCents();
+                if (format == Format.CSV) {
+                    writeCsvLine(out, transaction, accountKey, signedAmount);
+                } else {
+                    writeFixedDetail(out, transaction, accountKey, signedAmount);
+                }
+
+                count++;
+                if (signedAmount >= 0) {
+                    credits += signedAmount;
+                } else {
+                    debits -= signedAmount;
+                }
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        if (format == Format.FIXED_WIDTH) {
+            writeFixedTrailer(out, count, credits, debits);
+        }
+        out.flush();
+        return count;
+    }
+
+    private static void writeCsvLine(Output out, Transaction transaction, long accountKey, long signedAmount)
+            throws IOException {
+        out.ensure(192);
+        ByteBuffer buffer = out.buffer;
+
+        writeId(buffer, transaction.getTransactionId());
+        buffer.put((byte) ',');
+        writeIsoDateTime(buffer, transaction.getDateTime());
+        buffer.put((byte) ',');
+        writeAscii(buffer, transaction.getType().name());
+        buffer.put((byte) ',');
+        writeAscii(buffer, transaction.getStatus().name());
+        buffer.put((byte) ',');
+        writeDecimal(buffer, signedAmount);
+        buffer.put((byte) ',');
+        writeDecimal(buffer, transaction.getBalanceAfterCents());
+        buffer.put((byte) ',');
+        long counterparty = counterpartyOf(transaction, accountKey);
+        if (counterparty != AccountCode.INVALID) {
+            writeAscii(buffer, AccountCode.format(counterparty));
+        }
+        buffer.put((byte) ',');
+
+        writeCsvText(out, transaction.getDescription());
+
+        out.ensure(32);
+        out.buffer.put((byte) ',');
+        writeAscii(out.buffer, transaction.getAuthenticationCode());
+        out.buffer.put((byte) '\n');
+    }
+
+    private static void writeFixedHeader(Output out, String accountCode, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        out.ensure(RECORD_WIDTH + 1);
+        ByteBuffer buffer = out.buffer;
+        int start = buffer.position();
+
+        buffer.put((byte) '0');
+        writePadded(buffer, accountCode, ACCOUNT_CODE_WIDTH);
+        writeCompactDateTime(buffer, from);
+        writeCompactDateTime(buffer, to);
+        endRecord(buffer, start);
+    }
+
+    private static void writeFixedDetail(Output out, Transaction transaction, long accountKey, long signedAmount)
+            throws IOException {
+        out.ensure(RECORD_WIDTH + 1);
+        ByteBuffer buffer = out.buffer;
+        int start = buffer.position();
+
+        buffer.put((byte) '1');
+        writeId(buffer, transaction.getTransactionId());
+        writeCompactDateTime(buffer, transaction.getDateTime());
+        writeDigits(buffer, transaction.getType().ordinal(), 2);
+        writeDigits(buffer, transaction.getStatus().ordinal(), 1);
+        buffer.put((byte) (signedAmount >= 0 ? 'C' : 'D'));
+        writeDigits(buffer, Math.abs(signedAmount), CENTS_WIDTH);
+        long balance = transaction.getBalanceAfterCents();
+        buffer.put((byte) (balance >= 0 ? '+' : '-'));
+        writeDigits(buffer, Math.abs(balance), CENTS_WIDTH);
+
+        long counterparty = counterpartyOf(transaction, accountKey);
+        writePadded(buffer, counterparty != AccountCode.INVALID ? AccountCode.format(counterparty) : "",
+                ACCOUNT_CODE_WIDTH);
+        writePadded(buffer, transaction.getDescription(), DESCRIPTION_WIDTH);
+        writeAscii(buffer, transaction.getAuthenticationCode());
+        endRecord(buffer, start);
+    }
+
+    private static void writeFixedTrailer(Output out, long count, long credits, long debits) throws IOException {
+        out.ensure(RECORD_WIDTH + 1);
+        ByteBuffer buffer = out.buffer;
+        int start = buffer.position();
+
+        buffer.put((byte) '9');
+        writeDigits(buffer, count, COUNT_WIDTH);
+        writeDigits(buffer, credits, TOTAL_WIDTH);
+        writeDigits(buffer, debits, TOTAL_WIDTH);
+        endRecord(buffer, start);
+    }
+
+    // pads the record with spaces up to its fixed width
+    private static void endRecord(ByteBuffer buffer, int start) {
+        while (buffer.position() - start < RECORD_WIDTH) {
+            buffer.put((byte) ' ');
+        }
+        buffer.put((byte) '\n');
+    }
+
+    /**
+     * The other account of a transfer or reversal, from the point of view of the statement account
+     */
+    private static long counterpartyOf(Transaction transaction, long accountKey) {
+        return transaction.getOriginAccountKey() == accountKey
+                ? transaction.getDestinationAccountKey()
+                : transaction.getOriginAccountKey();
+    }
+
+    private static void writeId(ByteBuffer buffer, TransactionId id) {
+        long high = id.mostSignificantBits();
+        long low = id.leastSignificantBits();
+        writeHex(buffer, high >>> 32, 8);
+        buffer.put((byte) '-');
+        writeHex(buffer, high >>> 16, 4);
+        buffer.put((byte) '-');
+        writeHex(buffer, high, 4);
+        buffer.put((byte) '-');
+        writeHex(buffer, low >>> 48, 4);
+        buffer.put((byte) '-');
+        writeHex(buffer, low, 12);
+    }
+
+    private static void writeHex(ByteBuffer buffer, long value, int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            buffer.put(HEX[(int) (value >>> shift) & 0xF]);
+        }
+    }
+
+    // yyyy-MM-dd HH:mm:ss
+    private static void writeIsoDateTime(ByteBuffer buffer, LocalDateTime dateTime) {
+        writeDigits(buffer, dateTime.getYear(), 4);
+        buffer.put((byte) '-');
+        writeDigits(buffer, dateTime.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        writeDigits(buffer, dateTime.getDayOfMonth(), 2);
+        buffer.put((byte) ' ');
+        writeDigits(buffer, dateTime.getHour(), 2);
+        buffer.put((byte) ':');
+        writeDigits(buffer, dateTime.getMinute(), 2);
+        buffer.put((byte) ':');
+        writeDigits(buffer, dateTime.getSecond(), 2);
+    }
+
+    // yyyyMMddHHmmss, zeros for an open bound
+    private static void writeCompactDateTime(ByteBuffer buffer, LocalDateTime dateTime) {
+        if (dateTime == null) {
+            writeDigits(buffer, 0, DATE_TIME_WIDTH);
+            return;
+        }
+
+        writeDigits(buffer, dateTime.getYear(), 4);
+        writeDigits(buffer, dateTime.getMonthValue(), 2);
+        writeDigits(buffer, dateTime.getDayOfMonth(), 2);
+        writeDigits(buffer, dateTime.getHour(), 2);
+        writeDigits(buffer, dateTime.getMinute(), 2);
+        writeDigits(buffer, dateTime.getSecond(), 2);
+    }
+
+    /**
+     * Writes a non-negative value as exactly {@code width} zero-padded digits
+     */
+    private static void writeDigits(ByteBuffer buffer, long value, int width) {
+        int end = buffer.position() + width;
+        for (int position = end - 1; position >= end - width; position--) {
+            buffer.put(position, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Writes cents as a signed decimal with two fraction digits
+     */
+    private static void writeDecimal(ByteBuffer buffer, long cents) {
+        if (cents < 0) {
+            buffer.put((byte) '-');
+        }
+        long units = Math.abs(cents / 100);
+        long fraction = Math.abs(cents % 100);
+
+        int digits = 1;
+        for (long rest = units / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        writeDigits(buffer, units, digits);
+        buffer.put((byte) '.');
+        writeDigits(buffer, fraction, 2);
+    }
+
+    private static void writeAscii(ByteBuffer buffer, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    /**
+     * Writes text cut or space padded to width, with anything outside printable ASCII as {@code ?}
+     */
+    private static void writePadded(ByteBuffer buffer, String text, int width) {
+        int length = text == null ? 0 : Math.min(text.length(), width);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            buffer.put((byte) (c >= ' ' && c < 0x7F ? c : '?'));
+        }
+        for (int i = length; i < width; i++) {
+            buffer.put((byte) ' ');
+        }
+    }
+
+    /**
+     * Writes a CSV field in UTF-8, quoted when it holds a separator, a quote or a line break
+     */
+    private static void writeCsvText(Output out, String text) throws IOException {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+
+        boolean quoted = false;
+        for (int i = 0; i < text.length() && !quoted; i++) {
+            char c = text.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        out.ensure(1);
+        if (quoted) {
+            out.buffer.put((byte) '"');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            out.ensure(MAX_CHAR_BYTES + 1);
+            ByteBuffer buffer = out.buffer;
+            char c = text.charAt(i);
+
+            if (c < 0x80) {
+                if (c == '"') {
+                    buffer.put((byte) '"');
+                }
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18));
+                buffer.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12));
+                buffer.put((byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        if (quoted) {
+            out.ensure(1);
+            out.buffer.put((byte) '"');
+        }
+    }
+
+    /**
+     * The reusable buffer of the calling thread bound to the channel of one export
+     */
+    private static final class Output {
+        private final ByteBuffer buffer;
+        private final WritableByteChannel channel;
+
+        private Output(ByteBuffer buffer, WritableByteChannel channel) {
+            this.buffer = buffer;
+            this.channel = channel;
+            buffer.clear();
+        }
+
+        /**
+         * Drains the buffer to the channel unless it still has room for {@code bytes}
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package application.services;
 
+import application.metrics.Metrics;
+import application.metrics.OperationMetrics;
 import application.repositories.UserRepository;
 import domain.entity.User;
 import domain.exception.EmailAlreadyInUseException;
@@ -14,41 +16,85 @@ import java.util.List;
  */
 public class UserService {
     private final UserRepository userRepository;
+    private final OperationMetrics createMetrics = Metrics.getDefault().operation("user.create");
+    private final OperationMetrics getMetrics = Metrics.getDefault().operation("user.get");
+    private final OperationMetrics updateEmailMetrics = Metrics.getDefault().operation("user.update_email");
 
     public UserService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
 
     public User createUser(String name, String cpf, String email) {
-        if (userRepository.findByCPF(cpf).isPresent()) {
-            throw new IllegalArgumentException("CPF already exists");
-        }
+        return createMetrics.time(() -> {
+            if (userRepository.findByCPF(cpf).isPresent()) {
+                throw new IllegalArgumentException("CPF already exists");
+            }
 
-        User user = new User(name, cpf, email);
-        userRepository.save(user);
-        return user;
+            User user = new User(name, cpf, email);
+            userRepository.save(user);
+            return user;
+        });
     }
 
     public User getUserById(String id) {
-        return userRepository.findById(id)
-                .orElseThrow(UserNotFoundException::new);
+        return getMetrics.time(() -> userRepository.findById(id)
+                .orElseThrow(UserNotFoundException::withoutStackTrace));
+    }
+
+    /**
+     * Looks a user up, returning a missing one as a failed outcome instead of throwing
+     */
+    public Outcome<User> tryGetUser(String id) {
+        return getMetrics.time(() -> Outcome.counted(getMetrics, userRepository.findById(id)
+                .map(Outcome::success)
+                .orElseGet(() -> Outcome.failure(Outcome.Failure.USER_NOT_FOUND))));
     }
 
     /**
      * Updates user email if available; persists changes
      */
     public void updateEmail(String userId, String newEmail) {
-        User user = this.userRepository.findById(userId)
-                .orElseThrow(UserNotFoundException::new);
+        updateEmailMetrics.time(() -> {
+            User user = this.userRepository.findById(userId)
+                    .orElseThrow(UserNotFoundException::withoutStackTrace);
 
-        Email validatedEmail = new Email(newEmail);
+            Email validatedEmail = new Email(newEmail);
+
+            if (userRepository.findByEmail(validatedEmail).isPresent()) {
+                throw EmailAlreadyInUseException.withoutStackTrace("Email already in use.");
+            }
+
+            // claims the new address in the email index and applies the change atomically
+            userRepository.changeEmail(user, validatedEmail);
+        });
+    }
 
+    /**
+     * Updates user email like {@link #updateEmail}, but a missing user or a taken address
+     * comes back as a failed outcome; an invalid address still throws
+     */
+    public Outcome<User> tryUpdateEmail(String userId, String newEmail) {
+        return updateEmailMetrics.time(() -> Outcome.counted(updateEmailMetrics, changeEmail(userId, newEmail)));
+    }
+
+    private Outcome<User> changeEmail(String userId, String newEmail) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            return Outcome.failure(Outcome.Failure.USER_NOT_FOUND);
+        }
+
+        Email validatedEmail = new Email(newEmail);
         if (userRepository.findByEmail(validatedEmail).isPresent()) {
-            throw new EmailAlreadyInUseException("Email already in use.");
+            return Outcome.failure(Outcome.Failure.EMAIL_IN_USE);
         }
 
-        user.changeEmail(validatedEmail);
-        userRepository.save(user);
+        try {
+            userRepository.changeEmail(user, validatedEmail);
+        } catch (EmailAlreadyInUseException e) {
+            // another user claimed the address after the check
+            return Outcome.failure(Outcome.Failure.EMAIL_IN_USE);
+        }
+        return Outcome.success(user);
     }
 
     public List<User> getUsers() {
@@ -1,59 +1,234 @@
 package domain.entity;
 
+import domain.enums.TransactionType;
+import domain.exception.InsufficientFundsException;
+import domain.valueObject.AccountCode;
+import domain.valueObject.Money;
+import domain.valueObject.VersionedBalance;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigDecimal;
-import java.security.SecureRandom;
+import java.time.Clock;
 import java.time.LocalDateTime;
+import java.util.function.ObjIntConsumer;
 
+/**
+ * Bank account holding its balance in cents under a version stamp.
+ * <p>
+ * Every balance change claims the next version with a compare-and-set on the stamp and
+ * retries when another change got there first; the claim is only held while the new
+ * balance is stored, so reads such as {@link #getBalance} never block and deposits and
+ * withdrawals are safe without the account lock. A change allocates nothing but its
+ * transaction record. Changes spanning two accounts, and any change to an account with
+ * split credits, still rely on the account lock for their atomicity.
+ */
 public abstract class Account {
+    private static final VarHandle STAMP;
+
+    static {
+        try {
+            STAMP = MethodHandles.lookup().findVarHandle(Account.class, "stamp", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // checks a balance change runs on every attempt, besides its floor
+    protected static final int NO_CHECK = 0;
+    // the account must be active, refused with IllegalStateException
+    protected static final int ACTIVE = 1;
+    // the account must be active to receive a transfer, refused with IllegalArgumentException
+    protected static final int ACTIVE_DESTINATION = 2;
+    // floor of changes that may take the balance anywhere
+    protected static final long NO_FLOOR = Long.MIN_VALUE;
+
     protected String number;
     protected String branchCode;
-    protected BigDecimal balance;
+    // twice the balance version while no change is in flight, one more while a change is stored
+    private volatile long stamp;
+    // balance in cents; BigDecimal is only built at the API boundary
+    private volatile long cents;
     protected User holder;
     protected LocalDateTime createdAt;
-    protected boolean isActive;
+    protected volatile boolean isActive;
     protected String accountCode;
-
-    protected static final SecureRandom random = new SecureRandom();
+    // packed form of accountCode used for lookups and transaction records
+    protected long accountKey;
+    // source of every date the account and its transactions record
+    protected final Clock clock;
+    // striped transfer credits of a hot account, null for ordinary accounts
+    private volatile SplitCredits splitCredits;
 
     public Account(String branchCode, User holder) {
-        this.number = generateAccountNumber();
+        this(branchCode, holder, Clock.systemDefaultZone());
+    }
+
+    protected Account(String branchCode, User holder, Clock clock) {
+        this.clock = clock;
+        // numbers are allocated per branch, so the branch has to be known first
         this.branchCode = branchCode;
+        this.number = generateAccountNumber();
         this.holder = holder;
-        this.balance  = BigDecimal.ZERO;
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = LocalDateTime.now(clock);
         this.isActive = true;
         this.accountCode = generateAccountCode();
+        this.accountKey = AccountCode.pack(branchCode, number);
     }
 
-    public void deposit(BigDecimal amount,  String description) {
+    /**
+     * Restores a persisted account keeping its original number and state
+     */
+    protected Account(String number, String branchCode, User holder, BigDecimal balance,
+                      LocalDateTime createdAt, boolean isActive) {
+        this(number, branchCode, holder, balance, createdAt, isActive, Clock.systemDefaultZone());
+    }
+
+    protected Account(String number, String branchCode, User holder, BigDecimal balance,
+                      LocalDateTime createdAt, boolean isActive, Clock clock) {
+        this.clock = clock;
+        this.number = number;
+        this.branchCode = branchCode;
+        this.holder = holder;
+        this.cents = Money.toCents(balance);
+        this.createdAt = createdAt;
+        this.isActive = isActive;
+        this.accountCode = generateAccountCode();
+        this.accountKey = AccountCode.pack(branchCode, number);
+
+        AccountNumberAllocator.getDefault().reserve(branchCode, number);
+    }
+
+    /**
+     * Credits amount and returns the resulting transaction record
+     */
+    public Transaction deposit(BigDecimal amount,  String description) {
+        return deposit(Money.of(amount), description);
+    }
+
+    public Transaction deposit(Money amount, String description) {
         validateActiveAccount();
         validateAmount(amount);
 
-        this.balance = this.balance.add(amount);
+        // checked again on every attempt, since deactivating raises the version
+        return changeBalance(amount.cents(), NO_FLOOR, ACTIVE, TransactionType.DEPOSIT, accountKey,
+                AccountCode.INVALID, description, LocalDateTime.now(clock));
+    }
+
+    public Transaction withdraw(BigDecimal amount, String description) {
+        return withdraw(Money.of(amount), description);
+    }
+
+    public abstract Transaction withdraw(Money amount, String description);
+
+    /**
+     * Cents a withdrawal may take from this account
+     */
+    public long getAvailableCents() {
+        return getBalanceCents();
+    }
+
+    /**
+     * Tells whether {@link #withdraw} would take amount, without throwing; callers holding
+     * the account lock get an answer that still holds when they withdraw
+     */
+    public boolean canWithdraw(Money amount) {
+        return isActive && amount.isPositive() && amount.cents() <= getAvailableCents();
     }
 
-    public abstract void withdraw(BigDecimal amount, String description);
+    /**
+     * Tells whether this account could send amount through a transfer, without throwing
+     */
+    public boolean canTransfer(Money amount) {
+        return isActive && amount.isPositive() && amount.cents() <= getBalanceCents();
+    }
 
     public abstract BigDecimal calculateMonthlyFee();
 
+    public TransferTransactions transfer(BigDecimal amount, Account destinationAccount) {
+        return transfer(amount, destinationAccount, TransactionType.TRANSFER_SENT.getDescription());
+    }
+
+    /**
+     * Transfers amount to destination if validations pass; returns the sent and received records
+     */
+    public TransferTransactions transfer(BigDecimal amount, Account destinationAccount, String description) {
+        return transfer(Money.of(amount), destinationAccount, description);
+    }
+
     /**
-     * Transfers amount to destination if validations pass
+     * Each side is a compare-and-set of its own, so the pair is only atomic while both
+     * account locks are held; lock-free callers use {@link #debitTransfer} and {@link #creditTransfer}
      */
-    public void transfer(BigDecimal amount, Account destinationAccount) {
+    public TransferTransactions transfer(Money amount, Account destinationAccount, String description) {
         if (destinationAccount == null || !destinationAccount.isActive) {
             throw new IllegalArgumentException("Invalid destination account.");
         }
 
         validateActiveAccount();
         validateAmount(amount);
-        validateBalance(amount);
 
-        this.balance = this.balance.subtract(amount);
-        destinationAccount.balance = destinationAccount.balance.add(amount);
+        // both sides share one timestamp
+        LocalDateTime dateTime = LocalDateTime.now(clock);
+        return new TransferTransactions(
+                changeBalance(-amount.cents(), 0, NO_CHECK, TransactionType.TRANSFER_SENT, accountKey,
+                        destinationAccount.accountKey, description, dateTime),
+                destinationAccount.changeBalance(amount.cents(), NO_FLOOR, NO_CHECK,
+                        TransactionType.TRANSFER_RECEIVED, accountKey, destinationAccount.accountKey, description,
+                        dateTime)
+        );
     }
 
-    protected void validateAmount(BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+    /**
+     * First step of a transfer settled in two steps: debits this account and returns the
+     * pending sent record; the destination is credited later through {@link #creditTransfer}
+     */
+    public Transaction debitTransfer(Money amount, long destinationAccountKey, String description) {
+        validateActiveAccount();
+        validateAmount(amount);
+
+        return changeBalance(-amount.cents(), 0, ACTIVE, TransactionType.TRANSFER_SENT, accountKey,
+                destinationAccountKey, description, LocalDateTime.now(clock));
+    }
+
+    /**
+     * Second step of a two-step transfer: credits this account with the amount of a
+     * pending sent record addressed to it and returns the received record
+     */
+    public Transaction creditTransfer(Transaction sent) {
+        if (sent.getDestinationAccountKey() != accountKey) {
+            throw new IllegalArgumentException("Invalid destination account.");
+        }
+
+        return changeBalance(sent.getAmountCents(), NO_FLOOR, ACTIVE_DESTINATION, TransactionType.TRANSFER_RECEIVED,
+                sent.getOriginAccountKey(), accountKey, sent.getDescription(), sent.getDateTime());
+    }
+
+    /**
+     * Gives back the amount of a pending sent record whose credit failed, marking it as
+     * failed, and returns the reversal record; works on inactive accounts too
+     */
+    public Transaction reverseTransfer(Transaction sent) {
+        if (sent.getOriginAccountKey() != accountKey) {
+            throw new IllegalArgumentException("Transfer was not sent by this account.");
+        }
+
+        sent.fail();
+        return changeBalance(sent.getAmountCents(), NO_FLOOR, NO_CHECK, TransactionType.REVERSAL, accountKey,
+                sent.getDestinationAccountKey(), "Reversal of " + sent.getId(), LocalDateTime.now(clock));
+    }
+
+    /**
+     * Takes back the balance change of a record that could not be saved
+     */
+    public void undo(Transaction transaction) {
+        long claimed = claimNext();
+        publish(claimed, Money.add(getBalanceCents(),
+                Money.subtract(transaction.getPreviousBalanceCents(), transaction.getBalanceAfterCents())));
+    }
+
+    protected void validateAmount(Money amount) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("The amount must be greater than zero.");
         }
     }
@@ -64,16 +239,104 @@ public abstract class Account {
         }
     }
 
-    protected void validateBalance(BigDecimal amount) {
-        if (this.balance.compareTo(amount) < 0)  {
-            throw new IllegalArgumentException(
-                    "Insufficient funds. The balance must be greater than or equal to the requested amount."
-            );
+    /**
+     * Adds delta to the balance with a compare-and-set on the stamp, retrying on conflict,
+     * and returns the record of the change with the version it produced. {@code check}
+     * and the floor the balance may not fall below are checked against the balance each
+     * attempt starts from; the record amount is the size of delta.
+     */
+    protected final Transaction changeBalance(long delta, long floor, int check, TransactionType type,
+                                              long originAccountKey, long destinationAccountKey,
+                                              String description, LocalDateTime dateTime) {
+        long claimed;
+        long balance;
+        do {
+            claimed = stableStamp();
+            // includes split credits, which only move under the account lock with their cells held
+            balance = getBalanceCents();
+            checkChange(check);
+            if (Money.add(balance, delta) < floor) {
+                throw InsufficientFundsException.withoutStackTrace(Money.subtract(balance, floor), -delta);
+            }
+        } while (!claim(claimed));
+        publish(claimed, Money.add(balance, delta));
+
+        return versioned(new Transaction(type, Math.abs(delta), balance, originAccountKey, destinationAccountKey,
+                description, dateTime), versionAfter(claimed));
+    }
+
+    private void checkChange(int check) {
+        if (check == ACTIVE) {
+            validateActiveAccount();
+        } else if (check == ACTIVE_DESTINATION && !isActive) {
+            throw new IllegalArgumentException("Invalid destination account.");
+        }
+    }
+
+    /**
+     * Waits out a change being stored and returns the stamp; a change based on what was
+     * read after it is only valid if {@link #claim} still succeeds
+     */
+    protected final long stableStamp() {
+        long current;
+        while (((current = stamp) & 1) != 0) {
+            Thread.onSpinWait();
+        }
+        return current;
+    }
+
+    /**
+     * Claims the change that follows a stable stamp; fails if another change got there first
+     */
+    protected final boolean claim(long stableStamp) {
+        return STAMP.compareAndSet(this, stableStamp, stableStamp + 1);
+    }
+
+    /**
+     * Stores the balance of a claimed change and publishes it with the next version; split
+     * credits were part of the balance the change started from, so they are absorbed into it
+     */
+    protected final void publish(long claimed, long balance) {
+        SplitCredits split = splitCredits;
+        if (split != null) {
+            split.clear();
         }
+        this.cents = balance;
+        this.stamp = claimed + 2;
+    }
+
+    /**
+     * Ends a claimed change that left the balance alone, still raising the version
+     */
+    protected final void release(long claimed) {
+        this.stamp = claimed + 2;
+    }
+
+    /**
+     * Version a claimed change publishes
+     */
+    protected static long versionAfter(long claimed) {
+        return (claimed >>> 1) + 1;
+    }
+
+    private long claimNext() {
+        long claimed;
+        do {
+            claimed = stableStamp();
+        } while (!claim(claimed));
+        return claimed;
+    }
+
+    /**
+     * Stamps a record with the version its balance change produced
+     */
+    protected static Transaction versioned(Transaction transaction, long version) {
+        transaction.setAccountVersion(version);
+        return transaction;
     }
 
     protected String generateAccountNumber() {
-        return String.format("%08d", random.nextInt(100_000_000));
+        return AccountNumberAllocator.getDefault().next(branchCode);
     }
 
     protected String generateAccountCode() {
@@ -84,6 +347,10 @@ public abstract class Account {
         return accountCode;
     }
 
+    public long getAccountKey() {
+        return accountKey;
+    }
+
     public String getNumber() {
         return number;
     }
@@ -93,7 +360,138 @@ public abstract class Account {
     }
 
     public BigDecimal getBalance() {
-        return balance;
+        return Money.toBigDecimal(getBalanceCents());
+    }
+
+    /**
+     * Returns the balance including split credits; never blocks, and is exact for split
+     * accounts while the account lock is held
+     */
+    public long getBalanceCents() {
+        SplitCredits split = splitCredits;
+        long balance = cents;
+        return split == null ? balance : Money.add(balance, split.sum());
+    }
+
+    /**
+     * Version of the balance, raised by every change; 0 for an account never changed since it was loaded
+     */
+    public long getVersion() {
+        return stamp >>> 1;
+    }
+
+    /**
+     * Returns the balance and its version as read together; split credits are included
+     * but carry no version of their own
+     */
+    public VersionedBalance getVersionedBalance() {
+        while (true) {
+            long current = stableStamp();
+            long balance = getBalanceCents();
+            if (stamp == current) {
+                return new VersionedBalance(balance, current >>> 1);
+            }
+        }
+    }
+
+    /**
+     * Raises the version without changing the balance if it still is expectedVersion, so a
+     * writer holding an older copy of the account finds out; returns whether it was
+     */
+    public boolean claimVersion(long expectedVersion) {
+        long current = stableStamp();
+        if (current >>> 1 != expectedVersion || !claim(current)) {
+            return false;
+        }
+        release(current);
+        return true;
+    }
+
+    /**
+     * Lets incoming transfers credit {@code stripes} striped cells through {@link #creditSplit}
+     * instead of serializing on the account lock. The mode cannot be turned off; callers
+     * hold the account lock.
+     */
+    public void enableSplitCredits(int stripes) {
+        if (splitCredits == null) {
+            splitCredits = new SplitCredits(stripes);
+        }
+    }
+
+    public boolean hasSplitCredits() {
+        return splitCredits != null;
+    }
+
+    /**
+     * Number of split credit stripes, 0 if the mode is off
+     */
+    public int getSplitStripes() {
+        SplitCredits split = splitCredits;
+        return split == null ? 0 : split.stripes();
+    }
+
+    /**
+     * Blocks new split credits and waits for running ones, so the balance is stable until
+     * {@link #releaseSplitCredits}; called right after taking the account lock
+     */
+    public void holdSplitCredits() {
+        SplitCredits split = splitCredits;
+        if (split != null) {
+            split.hold();
+        }
+    }
+
+    public void releaseSplitCredits() {
+        SplitCredits split = splitCredits;
+        if (split != null) {
+            split.release();
+        }
+    }
+
+    /**
+     * Credits the amount of a sent record to a split cell without the account lock and
+     * returns the received record, whose balances are those of the cell. {@code recorder}
+     * gets the record and its stripe before any debit can observe the credit, so it is
+     * where the record must be saved.
+     */
+    public Transaction creditSplit(Transaction sent, ObjIntConsumer<Transaction> recorder) {
+        SplitCredits split = splitCredits;
+        if (split == null) {
+            throw new IllegalStateException("Split credits are not enabled.");
+        }
+        if (sent.getDestinationAccountKey() != accountKey) {
+            throw new IllegalArgumentException("Invalid destination account.");
+        }
+
+        long amount = sent.getAmountCents();
+        int stripe = split.stripeOfCurrentThread();
+        split.enter(stripe);
+        try {
+            if (!isActive) {
+                throw new IllegalArgumentException("Invalid destination account.");
+            }
+
+            long credited = split.add(stripe, amount);
+            Transaction received = new Transaction(TransactionType.TRANSFER_RECEIVED, amount, credited - amount,
+                    sent.getOriginAccountKey(), accountKey, sent.getDescription(), sent.getDateTime());
+            try {
+                recorder.accept(received, stripe);
+            } catch (RuntimeException e) {
+                split.add(stripe, -amount);
+                throw e;
+            }
+            return received;
+        } finally {
+            split.exit(stripe);
+        }
+    }
+
+    /**
+     * Returns the credits each stripe holds, empty if the mode is off
+     */
+    public long[] getSplitCredits() {
+        SplitCredits split = splitCredits;
+        return split == null ? new long[0] : split.values();
     }
 
     public User getHolder() {
@@ -108,8 +506,65 @@ public abstract class Account {
         return isActive;
     }
 
+    /**
+     * Overwrites the balance with a recovered value; only meant for crash recovery
+     */
+    public void restoreBalance(BigDecimal balance) {
+        publish(claimNext(), Money.toCents(balance));
+    }
+
+    /**
+     * Sets the version of a recovered balance; only meant for crash recovery
+     */
+    public void restoreVersion(long version) {
+        claimNext();
+        this.stamp = version << 1;
+    }
+
+    /**
+     * Applies the stripe value of a recovered split credit record; only meant for crash
+     * recovery. Stripe values only grow until the balance absorbs them.
+     */
+    public void restoreSplitCredit(int stripes, int stripe, long value) {
+        enableSplitCredits(stripes);
+        SplitCredits split = splitCredits;
+        if (value > split.get(stripe)) {
+            split.set(stripe, value);
+        }
+    }
+
+    /**
+     * Moves recovered stripe values out of a restored total balance; only meant for crash recovery
+     */
+    public void restoreSplitCredits(long[] values) {
+        if (values.length == 0) {
+            return;
+        }
+
+        enableSplitCredits(values.length);
+        SplitCredits split = splitCredits;
+        long total = getBalanceCents();
+        long credits = 0;
+        for (int stripe = 0; stripe < values.length; stripe++) {
+            split.set(stripe, values[stripe]);
+            credits = Money.add(credits, values[stripe]);
+        }
+        long claimed = claimNext();
+        this.cents = Money.subtract(total, credits);
+        this.stamp = claimed;
+    }
+
+    /**
+     * Deactivates the account and raises the version, so a lock-free change that checked
+     * the flag before it was cleared has to retry and sees it cleared. Disabling an inactive
+     * account leaves the version alone, so replaying account records cannot run it ahead.
+     */
     public void disable() {
+        if (!isActive) {
+            return;
+        }
         this.isActive = false;
+        release(claimNext());
     }
 
     public void enable() {
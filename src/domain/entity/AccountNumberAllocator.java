@@ -0,0 +1,108 @@
+package domain.entity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues unique account numbers per branch.
+ * <p>
+ * A number is a 7 digit sequence followed by a mod 11 check digit, so numbers keep
+ * the 8 digit format while never repeating within a branch. Each branch has its own
+ * atomic counter, so concurrent account opening never blocks. After a restart the
+ * counters are raised past every number seen during recovery through {@link #reserve}.
+ */
+public final class AccountNumberAllocator {
+    private static final AccountNumberAllocator DEFAULT = new AccountNumberAllocator();
+
+    private static final long MAX_SEQUENCE = 9_999_999;
+    private static final int LENGTH = 8;
+
+    private final Map<String, AtomicLong> sequencesByBranch = new ConcurrentHashMap<>();
+
+    public static AccountNumberAllocator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the next unused number of the branch
+     */
+    public String next(String branchCode) {
+        long sequence = sequenceOf(branchCode).incrementAndGet();
+        if (sequence > MAX_SEQUENCE) {
+            throw new IllegalStateException("No account numbers left for branch " + branchCode + ".");
+        }
+
+        return format(sequence);
+    }
+
+    /**
+     * Makes sure an existing number is never issued again. Numbers without a valid
+     * check digit were not issued by the allocator and cannot collide with its numbers.
+     */
+    public void reserve(String branchCode, String number) {
+        if (!isValid(number)) {
+            return;
+        }
+
+        long sequence = Long.parseLong(number, 0, LENGTH - 1, 10);
+        sequenceOf(branchCode).accumulateAndGet(sequence, Math::max);
+    }
+
+    /**
+     * Returns the highest issued or reserved sequence of each branch
+     */
+    public Map<String, Long> highWaterMarks() {
+        Map<String, Long> marks = new ConcurrentHashMap<>();
+        sequencesByBranch.forEach((branchCode, sequence) -> marks.put(branchCode, sequence.get()));
+        return marks;
+    }
+
+    /**
+     * Raises the branch counter to at least sequence; used to restore persisted high-water marks
+     */
+    public void reserveSequence(String branchCode, long sequence) {
+        sequenceOf(branchCode).accumulateAndGet(sequence, Math::max);
+    }
+
+    public static boolean isValid(String number) {
+        if (number == null || number.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            char c = number.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return checkDigit(Long.parseLong(number, 0, LENGTH - 1, 10)) == number.charAt(LENGTH - 1) - '0';
+    }
+
+    private AtomicLong sequenceOf(String branchCode) {
+        AtomicLong sequence = sequencesByBranch.get(branchCode);
+        return sequence != null ? sequence : sequencesByBranch.computeIfAbsent(branchCode, k -> new AtomicLong());
+    }
+
+    private static String format(long sequence) {
+        char[] digits = new char[LENGTH];
+        long remaining = sequence;
+        for (int i = LENGTH - 2; i >= 0; i--) {
+            digits[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        digits[LENGTH - 1] = (char) ('0' + checkDigit(sequence));
+        return new String(digits);
+    }
+
+    // weights 2, 3, 4... from the rightmost sequence digit
+    private static int checkDigit(long sequence) {
+        int sum = 0;
+        int weight = 2;
+        for (long remaining = sequence; weight <= LENGTH; remaining /= 10, weight++) {
+            sum += (int) (remaining % 10) * weight;
+        }
+
+        int digit = 11 - sum % 11;
+        return digit >= 10 ? 0 : digit;
+    }
+}
@@ -1,66 +1,186 @@
 package domain.entity;
 
 import domain.enums.TransactionType;
+import domain.valueObject.AccountCode;
+import domain.valueObject.Money;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
 
 public class CheckingAccount extends Account {
-    private BigDecimal overdraftLimit;
+    // overdraft limit in cents
+    private long overdraftLimit;
+    // last month whose fee was settled, charged or waived; only written while a balance change is claimed
+    private YearMonth lastFeePeriod;
 
     private static final BigDecimal MONTHLY_FEE =
             BigDecimal.valueOf(12.0).setScale(2, RoundingMode.HALF_EVEN);
 
-    private static final BigDecimal MINIMUM_BALANCE_FOR_WAIVER = BigDecimal.valueOf(1_000)
-                                                        .setScale(2, RoundingMode.HALF_EVEN);
+    private static final BigDecimal NO_FEE = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_EVEN);
+
+    private static final long MINIMUM_BALANCE_FOR_WAIVER = Money.toCents(BigDecimal.valueOf(1_000));
+
+    private static final long DEFAULT_OVERDRAFT_LIMIT = Money.toCents(BigDecimal.valueOf(500.0));
+
+    private static final String MONTHLY_FEE_DESCRIPTION = "Monthly fee ";
 
     public CheckingAccount(String agency, User holder) {
-        super(agency, holder);
-        this.overdraftLimit = BigDecimal.valueOf(500.0).setScale(2, RoundingMode.HALF_EVEN);
+        this(agency, holder, Clock.systemDefaultZone());
     }
 
     public CheckingAccount(String agency, User holder, BigDecimal overdraftLimit) {
-        super(agency, holder);
-        this.overdraftLimit = overdraftLimit;
+        this(agency, holder, overdraftLimit, Clock.systemDefaultZone());
+    }
+
+    public CheckingAccount(String agency, User holder, Clock clock) {
+        super(agency, holder, clock);
+        this.overdraftLimit = DEFAULT_OVERDRAFT_LIMIT;
+    }
+
+    public CheckingAccount(String agency, User holder, BigDecimal overdraftLimit, Clock clock) {
+        super(agency, holder, clock);
+        this.overdraftLimit = Money.toCents(overdraftLimit);
+    }
+
+    /**
+     * Restores a persisted checking account
+     */
+    public CheckingAccount(String number, String agency, User holder, BigDecimal balance,
+                           LocalDateTime createdAt, boolean isActive, BigDecimal overdraftLimit) {
+        this(number, agency, holder, balance, createdAt, isActive, overdraftLimit, null);
+    }
+
+    public CheckingAccount(String number, String agency, User holder, BigDecimal balance,
+                           LocalDateTime createdAt, boolean isActive, BigDecimal overdraftLimit,
+                           YearMonth lastFeePeriod) {
+        this(number, agency, holder, balance, createdAt, isActive, overdraftLimit, lastFeePeriod,
+                Clock.systemDefaultZone());
+    }
+
+    public CheckingAccount(String number, String agency, User holder, BigDecimal balance,
+                           LocalDateTime createdAt, boolean isActive, BigDecimal overdraftLimit,
+                           YearMonth lastFeePeriod, Clock clock) {
+        super(number, agency, holder, balance, createdAt, isActive, clock);
+        this.overdraftLimit = Money.toCents(overdraftLimit);
+        this.lastFeePeriod = lastFeePeriod;
     }
 
     @Override
-    public void withdraw(BigDecimal amount, String description) {
+    public Transaction withdraw(Money amount, String description) {
         super.validateAmount(amount);
-        super.validateActiveAccount();
 
-        BigDecimal previousBalance = this.balance;
-        BigDecimal totalAvailable = this.balance.add(overdraftLimit);
-
-        if (amount.compareTo(totalAvailable) > 0) {
-            throw new IllegalStateException(
-                    "Insufficient funds. Available balance: " + totalAvailable
-            );
-        }
+        return changeBalance(-amount.cents(), -overdraftLimit, ACTIVE, TransactionType.WITHDRAW, accountKey,
+                AccountCode.INVALID, description, LocalDateTime.now(clock));
+    }
 
-        this.balance = balance.subtract(amount);
+    /**
+     * Balance plus the overdraft limit
+     */
+    @Override
+    public long getAvailableCents() {
+        return Money.add(getBalanceCents(), overdraftLimit);
     }
 
+    /**
+     * Reads one balance snapshot, so it never blocks
+     */
     @Override
     public BigDecimal calculateMonthlyFee() {
-        if (this.balance.compareTo(MINIMUM_BALANCE_FOR_WAIVER) < 0) {
-            return CheckingAccount.MONTHLY_FEE;
+        return feeFor(getBalanceCents());
+    }
+
+    private static BigDecimal feeFor(long balance) {
+        return balance < MINIMUM_BALANCE_FOR_WAIVER ? MONTHLY_FEE : NO_FEE;
+    }
+
+    /**
+     * Charges the fee of the month containing date, once per month; returns empty when
+     * the month was already settled, the fee is waived or the account is inactive.
+     * <p>
+     * The flag, the settled month and the balance the fee depends on are all read at one
+     * version and the month is only written once the next version is claimed, so a race
+     * with another charge or any other balance change just retries.
+     */
+    public Optional<Transaction> chargeMonthlyFee(LocalDate date) {
+        YearMonth period = YearMonth.from(date);
+        while (true) {
+            long stamp = stableStamp();
+            if (!isActive || (lastFeePeriod != null && !period.isAfter(lastFeePeriod))) {
+                return Optional.empty();
+            }
+
+            long balance = getBalanceCents();
+            long fee = Money.toCents(feeFor(balance));
+            if (!claim(stamp)) {
+                continue;
+            }
+
+            this.lastFeePeriod = period;
+            if (fee == 0) {
+                release(stamp);
+                return Optional.empty();
+            }
+            publish(stamp, Money.subtract(balance, fee));
+
+            return Optional.of(versioned(new Transaction(TransactionType.FEE, fee, balance, accountKey,
+                    AccountCode.INVALID, MONTHLY_FEE_DESCRIPTION + period, LocalDateTime.now(clock)),
+                    versionAfter(stamp)));
+        }
+    }
+
+    /**
+     * Returns the month a fee record settled; the batch may post it after midnight,
+     * so the month is read from the description rather than the record date
+     */
+    public static Optional<YearMonth> feePeriodOf(Transaction transaction) {
+        String description = transaction.getDescription();
+        if (transaction.getType() != TransactionType.FEE || description == null
+                || !description.startsWith(MONTHLY_FEE_DESCRIPTION)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(YearMonth.parse(description.substring(MONTHLY_FEE_DESCRIPTION.length())));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    public YearMonth getLastFeePeriod() {
+        return lastFeePeriod;
+    }
+
+    /**
+     * Marks a month as settled; only meant for crash recovery
+     */
+    public void restoreLastFeePeriod(YearMonth period) {
+        if (lastFeePeriod == null || period.isAfter(lastFeePeriod)) {
+            this.lastFeePeriod = period;
         }
-        return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_EVEN);
     }
 
     public BigDecimal getOverdraftLimit() {
-        return overdraftLimit;
+        return Money.toBigDecimal(overdraftLimit);
     }
 
     public void setOverdraftLimit(BigDecimal overdraftLimit) {
-        if (this.overdraftLimit.compareTo(BigDecimal.ZERO) < 0) {
+        long limit = Money.toCents(overdraftLimit);
+        if (limit < 0) {
             throw new IllegalArgumentException("Overdraft limit must be greater than zero.");
         }
-        this.overdraftLimit = overdraftLimit;
+        this.overdraftLimit = limit;
     }
 
+    /**
+     * Balance plus the overdraft limit, read from one balance snapshot without blocking
+     */
     public BigDecimal getTotalAvailableBalance() {
-        return this.balance.add(this.overdraftLimit);
+        return Money.toBigDecimal(Money.add(getBalanceCents(), this.overdraftLimit));
     }
 }
@@ -1,29 +1,66 @@
 package domain.entity;
 
-import domain.exception.InsufficientFundsException;
+import domain.enums.TransactionType;
+import domain.valueObject.AccountCode;
+import domain.valueObject.Money;
 
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.util.Optional;
 
 public class SavingsAccount extends Account {
     private static final BigDecimal RATE_RETURN_STANDARD = BigDecimal.valueOf(0.005);
+    private static final String YIELD_DESCRIPTION = "Savings yield ";
 
     private BigDecimal rateReturn;
     private final LocalDate anniversaryDate;
+    // only written while a balance change is claimed
     private LocalDate lastIncome;
+    // next anniversary as seen on a given day, reused until the day changes
+    private volatile NextAnniversary nextAnniversary;
 
     public SavingsAccount(String agency, User holder) {
-        super(agency, holder);
-        this.anniversaryDate = LocalDate.now();
+        this(agency, holder, Clock.systemDefaultZone());
+    }
+
+    public SavingsAccount(String agency, User holder, Clock clock) {
+        super(agency, holder, clock);
+        this.anniversaryDate = createdAt.toLocalDate();
     }
 
     public SavingsAccount(String agency, User holder, BigDecimal rateReturn) {
-        super(agency, holder);
+        this(agency, holder, rateReturn, Clock.systemDefaultZone());
+    }
+
+    public SavingsAccount(String agency, User holder, BigDecimal rateReturn, Clock clock) {
+        super(agency, holder, clock);
         validateRateReturn(rateReturn);
         this.rateReturn = rateReturn;
-        this.anniversaryDate = LocalDate.now();
-        this.lastIncome = LocalDate.now();
+        this.anniversaryDate = createdAt.toLocalDate();
+        this.lastIncome = anniversaryDate;
+    }
+
+    /**
+     * Restores a persisted savings account
+     */
+    public SavingsAccount(String number, String agency, User holder, BigDecimal balance,
+                          LocalDateTime createdAt, boolean isActive, BigDecimal rateReturn,
+                          LocalDate anniversaryDate, LocalDate lastIncome) {
+        this(number, agency, holder, balance, createdAt, isActive, rateReturn, anniversaryDate, lastIncome,
+                Clock.systemDefaultZone());
+    }
+
+    public SavingsAccount(String number, String agency, User holder, BigDecimal balance,
+                          LocalDateTime createdAt, boolean isActive, BigDecimal rateReturn,
+                          LocalDate anniversaryDate, LocalDate lastIncome, Clock clock) {
+        super(number, agency, holder, balance, createdAt, isActive, clock);
+        this.rateReturn = rateReturn;
+        this.anniversaryDate = anniversaryDate;
+        this.lastIncome = lastIncome;
     }
 
     private void validateRateReturn(BigDecimal fee) {
@@ -38,19 +75,11 @@ public class SavingsAccount extends Account {
      * Withdraws amount if an account active and has sufficient funds
      */
     @Override
-    public void withdraw(BigDecimal amount, String description) {
+    public Transaction withdraw(Money amount, String description) {
         validateAmount(amount);
-        validateActiveAccount();
-
-        BigDecimal previousBalance = getBalance();
 
-        if (amount.compareTo(this.balance) > 0) {
-            throw new InsufficientFundsException(
-                    String.format("Insufficient funds. Available %.2f", this.balance)
-            );
-        }
-
-        this.balance = balance.subtract(amount);
+        return changeBalance(-amount.cents(), 0, ACTIVE, TransactionType.WITHDRAW, accountKey, AccountCode.INVALID,
+                description, LocalDateTime.now(clock));
     }
 
     @Override
@@ -59,38 +88,87 @@ public class SavingsAccount extends Account {
     }
 
     /**
-     * Verifies if the current date is not before the account anniversary date
-     * and ensures the income was not already applied in the anniversary date.
+     * Credits the yield if the anniversary of the month containing date has been reached
+     * and was not paid yet; returns empty otherwise.
+     * <p>
+     * Like a fee, the yield is worked out from the flag, the last payment and the balance
+     * read at one version, and the payment date is only written once the next version is
+     * claimed.
+     */
+    public Optional<Transaction> applyYield(LocalDate date) {
+        while (true) {
+            long stamp = stableStamp();
+            if (!isActive || !canApplyYield(date)) {
+                return Optional.empty();
+            }
+
+            long balance = getBalanceCents();
+            long yield = Money.toCents(yieldFor(balance));
+            if (yield <= 0) {
+                return Optional.empty();
+            }
+            if (!claim(stamp)) {
+                continue;
+            }
+
+            this.lastIncome = date;
+            publish(stamp, Money.add(balance, yield));
+
+            return Optional.of(versioned(new Transaction(TransactionType.INTEREST, yield, balance, accountKey,
+                    AccountCode.INVALID, YIELD_DESCRIPTION + date, LocalDateTime.now(clock)), versionAfter(stamp)));
+        }
+    }
+
+    /**
+     * Returns the date a yield record was paid for, which is not always the record date
      */
-    private boolean canApplyYield() {
-        LocalDate currentDate = LocalDate.now();
-        LocalDate nextAnniversaryDate = calculateNextAnniversary();
+    public static Optional<LocalDate> yieldDateOf(Transaction transaction) {
+        String description = transaction.getDescription();
+        if (transaction.getType() != TransactionType.INTEREST || description == null
+                || !description.startsWith(YIELD_DESCRIPTION)) {
+            return Optional.empty();
+        }
 
-        return !currentDate.isBefore(nextAnniversaryDate) &&
-                !lastIncome.isAfter(nextAnniversaryDate.minusDays(1));
+        try {
+            return Optional.of(LocalDate.parse(description.substring(YIELD_DESCRIPTION.length())));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
     }
 
     /**
-     * Calculates the next account anniversary date
-     * @return LocalDate
+     * Verifies if date is not before the anniversary of its month
+     * and ensures the income was not already applied on or after that anniversary.
      */
-    private LocalDate calculateNextAnniversary() {
-        LocalDate now = LocalDate.now();
-        int anniversaryDay = anniversaryDate.getDayOfMonth();
-
-        LocalDate candidate = LocalDate.of(
-                now.getYear(),
-                now.getMonth(),
-                // ensures that the day chosen for the next birthday is never
-                // greater than the number of days in the current month.
-                Math.min(anniversaryDay, now.getMonth().length(now.isLeapYear()))
-        );
+    private boolean canApplyYield(LocalDate date) {
+        LocalDate anniversary = anniversaryIn(date);
+        // accounts never paid start counting from the opening date
+        LocalDate lastPaid = lastIncome != null ? lastIncome : anniversaryDate;
+
+        return !date.isBefore(anniversary) && anniversary.isAfter(lastPaid);
+    }
 
+    private LocalDate anniversaryIn(LocalDate date) {
+        // the anniversary day is never greater than the number of days in the month
+        return date.withDayOfMonth(Math.min(anniversaryDate.getDayOfMonth(), date.lengthOfMonth()));
+    }
+
+    /**
+     * Returns the next anniversary on or after today, computed once per day
+     */
+    private LocalDate calculateNextAnniversary(LocalDate today) {
+        NextAnniversary cached = nextAnniversary;
+        if (cached != null && cached.today().equals(today)) {
+            return cached.date();
+        }
+
+        LocalDate candidate = anniversaryIn(today);
         // if the anniversary of this month has passed, take the next month
-        if (candidate.isBefore(now)) {
-            candidate = candidate.plusMonths(1);
+        if (candidate.isBefore(today)) {
+            candidate = anniversaryIn(today.plusMonths(1));
         }
 
+        nextAnniversary = new NextAnniversary(today, candidate);
         return candidate;
     }
 
@@ -98,7 +176,11 @@ public class SavingsAccount extends Account {
      * Calculates the yield value
      */
     private BigDecimal calculateYield() {
-        return this.balance.multiply(RATE_RETURN_STANDARD);
+        return yieldFor(getBalanceCents());
+    }
+
+    private static BigDecimal yieldFor(long balance) {
+        return Money.toBigDecimal(balance).multiply(RATE_RETURN_STANDARD);
     }
 
 
@@ -106,7 +188,8 @@ public class SavingsAccount extends Account {
      * Calculate how many days are left for the next yield
      */
     private long daysForTheNextYield() {
-        return ChronoUnit.DAYS.between(LocalDate.now(), calculateNextAnniversary());
+        LocalDate today = LocalDate.now(clock);
+        return ChronoUnit.DAYS.between(today, calculateNextAnniversary(today));
     }
 
     public BigDecimal getRateReturn() {
@@ -121,6 +204,31 @@ public class SavingsAccount extends Account {
         return lastIncome;
     }
 
+    /**
+     * Records a yield already paid; only meant for crash recovery
+     */
+    public void restoreLastIncome(LocalDate date) {
+        if (lastIncome == null || date.isAfter(lastIncome)) {
+            this.lastIncome = date;
+        }
+    }
+
+    /**
+     * Day of the month the yield is due, before clamping to shorter months; 0 if it has no anniversary
+     */
+    public int getAnniversaryDay() {
+        return anniversaryDate == null ? 0 : anniversaryDate.getDayOfMonth();
+    }
+
+    /**
+     * Returns true if the yield falls due on date; on the last day of a month this
+     * includes anniversary days the month does not have
+     */
+    public static boolean isAnniversaryDay(int anniversaryDay, LocalDate date) {
+        int day = date.getDayOfMonth();
+        return anniversaryDay == day || (day == date.lengthOfMonth() && anniversaryDay > day);
+    }
+
     /**
      * Return the estimated value for the next yield
      */
@@ -133,9 +241,12 @@ public class SavingsAccount extends Account {
         return String.format(
                 "SavingAccount[agency=%s, number=%s, balance=$ %.2f, +" +
                         "rateReturn=%.2f%%, nextYield=%d days]",
-                branchCode, number, balance,
-                rateReturn.multiply(BigDecimal.valueOf(100)),
+                branchCode, number, getBalance(),
+                (rateReturn != null ? rateReturn : RATE_RETURN_STANDARD).multiply(BigDecimal.valueOf(100)),
                 daysForTheNextYield()
         );
     }
+
+    private record NextAnniversary(LocalDate today, LocalDate date) {
+    }
 }
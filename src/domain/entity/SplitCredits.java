@@ -0,0 +1,144 @@
+package domain.entity;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Striped credit cells of an account that receives more transfers than one lock can serialize.
+ * <p>
+ * Each stripe sits on its own cache line and holds the credits added to it since the
+ * account balance last absorbed them, plus a count of credits still running on it.
+ * Credits only touch their stripe. The holder of the account lock calls {@link #hold}
+ * to stop new credits and wait for running ones, after which the cells are stable and
+ * can be summed or folded into the balance; {@link #release} lets credits in again.
+ */
+final class SplitCredits {
+    // longs per stripe: one 64-byte line holding the credits and the running count
+    private static final int LINE = 8;
+    private static final int RUNNING = 1;
+
+    private final AtomicLongArray cells;
+    private final int stripes;
+    private volatile Thread holder;
+    // only touched by the holder thread
+    private int holdCount;
+
+    SplitCredits(int stripes) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1 || stripes > 256) {
+            throw new IllegalArgumentException("Stripes must be a power of two up to 256.");
+        }
+
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * LINE);
+    }
+
+    int stripes() {
+        return stripes;
+    }
+
+    /**
+     * Picks the stripe of the calling thread, so one thread keeps hitting the same line
+     */
+    int stripeOfCurrentThread() {
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & (stripes - 1);
+    }
+
+    /**
+     * Registers a credit on the stripe, waiting while the credits are held by another thread
+     */
+    void enter(int stripe) {
+        int index = stripe * LINE + RUNNING;
+        while (true) {
+            cells.incrementAndGet(index);
+            if (holder == null) {
+                return;
+            }
+
+            // the holder waits for running credits, so step back before waiting for it
+            cells.decrementAndGet(index);
+            int spins = 0;
+            while (holder != null) {
+                if (++spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(1_000);
+                }
+            }
+        }
+    }
+
+    void exit(int stripe) {
+        cells.decrementAndGet(stripe * LINE + RUNNING);
+    }
+
+    /**
+     * Adds a credit to a stripe the caller entered and returns the stripe value after it
+     */
+    long add(int stripe, long amount) {
+        return cells.addAndGet(stripe * LINE, amount);
+    }
+
+    /**
+     * Stops new credits and waits for the running ones; reentrant for the holder thread
+     */
+    void hold() {
+        Thread current = Thread.currentThread();
+        if (holder == current) {
+            holdCount++;
+            return;
+        }
+
+        holder = current;
+        holdCount = 1;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            int spins = 0;
+            while (cells.get(stripe * LINE + RUNNING) != 0) {
+                if (++spins < 100) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(1_000);
+                }
+            }
+        }
+    }
+
+    void release() {
+        if (holder == Thread.currentThread() && --holdCount == 0) {
+            holder = null;
+        }
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            sum += cells.get(stripe * LINE);
+        }
+        return sum;
+    }
+
+    /**
+     * Empties every stripe; the balance has absorbed them
+     */
+    void clear() {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            cells.set(stripe * LINE, 0);
+        }
+    }
+
+    long[] values() {
+        long[] values = new long[stripes];
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            values[stripe] = cells.get(stripe * LINE);
+        }
+        return values;
+    }
+
+    void set(int stripe, long value) {
+        cells.set(stripe * LINE, value);
+    }
+
+    long get(int stripe) {
+        return cells.get(stripe * LINE);
+    }
+}
@@ -2,29 +2,41 @@ package domain.entity;
 
 import domain.enums.TransactionStatus;
 import domain.enums.TransactionType;
+import domain.valueObject.AccountCode;
+import domain.valueObject.Money;
+import domain.valueObject.TransactionId;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Objects;
-import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class Transaction {
-    private final String id;
+    private static final long AUTHENTICATION_RANGE = 1_000_000;
+    // formatters are immutable and thread safe, so they are built once
+    private static final DateTimeFormatter SHORT_DATE_TIME = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private static final DateTimeFormatter DETAILED_DATE_TIME = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    private final TransactionId id;
     private final TransactionType type;
-    private final BigDecimal amount;
-    private final BigDecimal previousBalance;
-    private final BigDecimal balanceAfter;
+    // amounts in cents
+    private final long amount;
+    private final long previousBalance;
+    private final long balanceAfter;
     private final LocalDateTime dateTime;
 
 
-    private final String originAccountCode;
-    private final String destinationAccountCode;
+    // packed account codes, AccountCode.INVALID when absent
+    private final long originAccount;
+    private final long destinationAccount;
     private final String description;
-    private TransactionStatus status;
-    private final String authenticationCode;
+    // changed by confirm and cancel after the record is shared with readers
+    private volatile TransactionStatus status;
+    // yyyyMMdd * 10^6 + random suffix; the text form is only built on request
+    private final long authenticationCode;
+    // version the change gave the account's balance, 0 when the record predates versions
+    private long accountVersion;
 
     /**
      * Creates transaction; sets amount, status, and authentication
@@ -32,32 +44,93 @@ public class Transaction {
     public Transaction(TransactionType type, BigDecimal amount,
                        BigDecimal previousBalance, String originAccount,
                        String destinationAccount, String description) {
-        this.id = UUID.randomUUID().toString();
+        this(type, amount, previousBalance, originAccount, destinationAccount, description,
+                Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates transaction dated by the given clock
+     */
+    public Transaction(TransactionType type, BigDecimal amount,
+                       BigDecimal previousBalance, String originAccount,
+                       String destinationAccount, String description, Clock clock) {
+        this(type, Money.toCents(amount), Money.toCents(previousBalance),
+                accountKeyOf(originAccount), accountKeyOf(destinationAccount), description,
+                LocalDateTime.now(clock));
+    }
+
+    /**
+     * Creates transaction from amounts in cents and packed account codes
+     */
+    Transaction(TransactionType type, long amount, long previousBalance, long originAccount,
+                long destinationAccount, String description, LocalDateTime dateTime) {
+        this.id = TransactionId.next();
         this.type = type;
-        this.amount = amount.setScale(2, RoundingMode.HALF_EVEN);
-        this.previousBalance = previousBalance.setScale(2, RoundingMode.HALF_EVEN);
+        this.amount = amount;
+        this.previousBalance = previousBalance;
         this.balanceAfter = calculateBalanceAfter();
-        this.dateTime = LocalDateTime.now();
-        this.originAccountCode = originAccount;
-        this.destinationAccountCode = destinationAccount;
+        this.dateTime = dateTime;
+        this.originAccount = originAccount;
+        this.destinationAccount = destinationAccount;
         this.description = description;
         this.status = TransactionStatus.PENDING;
         this.authenticationCode = generateAuthenticationCode();
     }
 
-    private BigDecimal calculateBalanceAfter() {
+    /**
+     * Restores a persisted transaction exactly as it was recorded
+     */
+    public Transaction(String id, TransactionType type, BigDecimal amount, BigDecimal previousBalance,
+                       BigDecimal balanceAfter, LocalDateTime dateTime, String originAccount,
+                       String destinationAccount, String description, TransactionStatus status,
+                       String authenticationCode) {
+        this.id = TransactionId.parse(id);
+        this.type = type;
+        this.amount = Money.toCents(amount);
+        this.previousBalance = Money.toCents(previousBalance);
+        this.balanceAfter = Money.toCents(balanceAfter);
+        this.dateTime = dateTime;
+        this.originAccount = accountKeyOf(originAccount);
+        this.destinationAccount = accountKeyOf(destinationAccount);
+        this.description = description;
+        this.status = status;
+        this.authenticationCode = parseAuthenticationCode(authenticationCode);
+    }
+
+    private long calculateBalanceAfter() {
         return switch (type) {
-            case DEPOSIT, TRANSFER_RECEIVED -> this.previousBalance.add(this.amount);
+            case DEPOSIT, TRANSFER_RECEIVED, INTEREST, REVERSAL -> Money.add(this.previousBalance, this.amount);
             case WITHDRAW, TRANSFER_SENT, BILL_PAYMENT, PIX_PAYMENT, TED, DOC, FEE ->
-                previousBalance.subtract(this.amount);
+                Money.subtract(previousBalance, this.amount);
             default -> previousBalance;
         };
     }
 
-    private String generateAuthenticationCode() {
-        return String.format("%s-%06d",
-                LocalDateTime.now().format(DateTimeFormatter.BASIC_ISO_DATE),
-                ThreadLocalRandom.current().nextInt(100000, 1_000_000));
+    private long generateAuthenticationCode() {
+        long date = dateTime.getYear() * 10_000L + dateTime.getMonthValue() * 100L + dateTime.getDayOfMonth();
+        return date * AUTHENTICATION_RANGE + ThreadLocalRandom.current().nextInt(100000, 1_000_000);
+    }
+
+    private static long parseAuthenticationCode(String authenticationCode) {
+        int separator = authenticationCode.indexOf('-');
+        try {
+            return Long.parseLong(authenticationCode, 0, separator, 10) * AUTHENTICATION_RANGE
+                    + Integer.parseInt(authenticationCode, separator + 1, authenticationCode.length(), 10);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid authentication code: " + authenticationCode);
+        }
+    }
+
+    private static long accountKeyOf(String accountCode) {
+        if (accountCode == null) {
+            return AccountCode.INVALID;
+        }
+
+        long key = AccountCode.parse(accountCode);
+        if (key == AccountCode.INVALID) {
+            throw new IllegalArgumentException("Invalid account code: " + accountCode);
+        }
+        return key;
     }
 
     public void confirm() {
@@ -80,7 +153,49 @@ public class Transaction {
         this.status = TransactionStatus.CANCELLED;
     }
 
+    /**
+     * Marks a pending transaction whose settlement could not complete
+     */
+    public void fail() {
+        if (this.status != TransactionStatus.PENDING) {
+            throw new IllegalStateException("Only a pending transaction can fail.");
+        }
+        this.status = TransactionStatus.FAILED;
+    }
+
+    /**
+     * Applies a status recorded after the transaction was first persisted; only meant for recovery
+     */
+    public void restoreStatus(TransactionStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * Records the account version a balance change produced; set by the account before the record is handed out
+     */
+    void setAccountVersion(long accountVersion) {
+        this.accountVersion = accountVersion;
+    }
+
+    /**
+     * Applies the account version read with a persisted record; only meant for recovery
+     */
+    public void restoreAccountVersion(long accountVersion) {
+        this.accountVersion = accountVersion;
+    }
+
     public String getId() {
+        return id.toString();
+    }
+
+    /**
+     * Version of the account balance this record carries in {@link #getBalanceAfter}, 0 if unknown
+     */
+    public long getAccountVersion() {
+        return accountVersion;
+    }
+
+    public TransactionId getTransactionId() {
         return id;
     }
 
@@ -89,14 +204,26 @@ public class Transaction {
     }
 
     public BigDecimal getAmount() {
-        return amount;
+        return Money.toBigDecimal(amount);
     }
 
     public BigDecimal getPreviousBalance() {
-        return previousBalance;
+        return Money.toBigDecimal(previousBalance);
     }
 
     public BigDecimal getBalanceAfter() {
+        return Money.toBigDecimal(balanceAfter);
+    }
+
+    public long getAmountCents() {
+        return amount;
+    }
+
+    public long getPreviousBalanceCents() {
+        return previousBalance;
+    }
+
+    public long getBalanceAfterCents() {
         return balanceAfter;
     }
 
@@ -105,11 +232,32 @@ public class Transaction {
     }
 
     public String getOriginAccountCode() {
-        return originAccountCode;
+        return originAccount == AccountCode.INVALID ? null : AccountCode.format(originAccount);
     }
 
     public String getDestinationAccountCode() {
-        return destinationAccountCode;
+        return destinationAccount == AccountCode.INVALID ? null : AccountCode.format(destinationAccount);
+    }
+
+    public long getOriginAccountKey() {
+        return originAccount;
+    }
+
+    public long getDestinationAccountKey() {
+        return destinationAccount;
+    }
+
+    /**
+     * Returns the account whose balance this record describes: the destination
+     * for received transfers, the origin for everything else
+     */
+    public String getLedgerAccountCode() {
+        long ledgerAccount = getLedgerAccountKey();
+        return ledgerAccount == AccountCode.INVALID ? null : AccountCode.format(ledgerAccount);
+    }
+
+    public long getLedgerAccountKey() {
+        return type == TransactionType.TRANSFER_RECEIVED ? destinationAccount : originAccount;
     }
 
     public String getDescription() {
@@ -121,17 +269,18 @@ public class Transaction {
     }
 
     public String getAuthenticationCode() {
-        return authenticationCode;
+        String suffix = Long.toString(authenticationCode % AUTHENTICATION_RANGE + AUTHENTICATION_RANGE);
+        return (authenticationCode / AUTHENTICATION_RANGE) + "-" + suffix.substring(1);
     }
 
     @Override
     public String toString() {
         return String.format(
                 "Transaction[ID: %s | %s | Amount: $ %.2f | Date: %s | Status: %s]",
-                id.substring(0, 8), // shows only part of the ID
+                getId().substring(0, 8), // shows only part of the ID
                 type.getDescription(),
-                amount,
-                dateTime.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")),
+                getAmount(),
+                dateTime.format(SHORT_DATE_TIME),
                 status.getDescription()
         );
     }
@@ -155,16 +304,16 @@ public class Transaction {
                 Auth Code: %s
                 Description: %s
                 """,
-                id,
+                getId(),
                 type.getDescription(),
-                amount,
-                previousBalance,
-                balanceAfter,
-                dateTime.format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")),
-                originAccountCode != null ? originAccountCode : "N/A",
-                destinationAccountCode != null ? destinationAccountCode : "N/A",
+                getAmount(),
+                getPreviousBalance(),
+                getBalanceAfter(),
+                dateTime.format(DETAILED_DATE_TIME),
+                originAccount != AccountCode.INVALID ? getOriginAccountCode() : "N/A",
+                destinationAccount != AccountCode.INVALID ? getDestinationAccountCode() : "N/A",
                 status.getDescription(),
-                authenticationCode,
+                getAuthenticationCode(),
                 description
         );
     }
@@ -173,11 +322,11 @@ public class Transaction {
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         Transaction that = (Transaction) o;
-        return Objects.equals(id, that.id) && Objects.equals(authenticationCode, that.authenticationCode);
+        return id.equals(that.id) && authenticationCode == that.authenticationCode;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, authenticationCode);
+        return 31 * id.hashCode() + Long.hashCode(authenticationCode);
     }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package domain.entity;
+
+/**
+ * Pair of records produced by a transfer: the debit on the origin account
+ * and the credit on the destination account.
+ */
+public record TransferTransactions(Transaction sent, Transaction received) {
+}
@@ -6,6 +6,7 @@ import domain.valueObject.Email;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.function.Function;
 
 public class User {
     private final String id;
@@ -17,11 +18,22 @@ public class User {
     public User(String name, String cpf, String email) {
         this.id = UUID.randomUUID().toString();
         this.name = name;
-        this.cpf = new CPF(cpf);
+        this.cpf = CPF.of(cpf);
         this.email = Email.of(email);
         this.createdAt = LocalDateTime.now();
     }
 
+    /**
+     * Restores a persisted user keeping its original identity
+     */
+    public User(String id, String name, String cpf, String email, LocalDateTime createdAt) {
+        this.id = id;
+        this.name = name;
+        this.cpf = CPF.restore(cpf);
+        this.email = Email.of(email);
+        this.createdAt = createdAt;
+    }
+
     public void setName(String name) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Name cannot be null or empty.");
@@ -38,18 +50,31 @@ public class User {
     }
 
     public String getCpf() {
-        return cpf.toString();
+        return cpf.value();
     }
 
     public String getEmail() {
         return email.toString();
     }
 
-    public void changeEmail(Email newEmail) {
+    public String getEmailAddress() {
+        return email.address();
+    }
+
+    /**
+     * Switches to newEmail once the email index, looked up through ownerOfAddress, holds
+     * the address for this user. Only {@code UserRepository.changeEmail} claims addresses
+     * in the index, so changes made anywhere else are refused instead of leaving the
+     * index pointing at the old address.
+     */
+    public void changeEmail(Email newEmail, Function<String, String> ownerOfAddress) {
 
         if (this.email.equals(newEmail)) {
             throw new EmailUnchangedException("The new email is equal to the current one.");
         }
+        if (!id.equals(ownerOfAddress.apply(newEmail.address()))) {
+            throw new IllegalStateException("Email must be claimed for the user before it changes.");
+        }
         this.email = newEmail;
     }
 
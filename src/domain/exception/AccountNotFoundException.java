@@ -1,7 +1,21 @@
 package domain.exception;
 
 public class AccountNotFoundException extends RuntimeException {
+    private static final String MESSAGE = "Account not found.";
+
     public AccountNotFoundException() {
-        super("Account not found.");
+        super(MESSAGE);
+    }
+
+    private AccountNotFoundException(boolean writableStackTrace) {
+        super(MESSAGE, null, false, writableStackTrace);
+    }
+
+    /**
+     * Returns an instance without a stack trace; a missing account is a routine outcome
+     * and capturing the trace would cost more than the lookup
+     */
+    public static AccountNotFoundException withoutStackTrace() {
+        return new AccountNotFoundException(false);
     }
 }
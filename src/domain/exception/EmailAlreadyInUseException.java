@@ -4,4 +4,15 @@ public class EmailAlreadyInUseException extends RuntimeException {
     public EmailAlreadyInUseException(String message) {
         super(message);
     }
+
+    private EmailAlreadyInUseException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
+    /**
+     * Returns an instance without a stack trace, for an expected conflict on a taken address
+     */
+    public static EmailAlreadyInUseException withoutStackTrace(String message) {
+        return new EmailAlreadyInUseException(message, false);
+    }
 }
@@ -1,28 +1,60 @@
 package domain.exception;
 
+import domain.valueObject.Money;
+
 import java.math.BigDecimal;
 
+/**
+ * Thrown when an account cannot cover a debit. Amounts are kept in cents and the message
+ * is only formatted when it is read, so a declined debit costs no formatting.
+ */
 public class InsufficientFundsException extends RuntimeException {
-    private BigDecimal currentBalance;
-    private  BigDecimal requestedAmount;
+    // cents; unknown when the exception was built from a message
+    private final long currentBalance;
+    private final long requestedAmount;
+    private final boolean amountsKnown;
+    private String message;
 
     public InsufficientFundsException(String message) {
         super(message);
+        this.currentBalance = 0;
+        this.requestedAmount = 0;
+        this.amountsKnown = false;
+        this.message = message;
     }
 
     public InsufficientFundsException(BigDecimal currentBalance, BigDecimal requestedAmount) {
-        super(String.format("Insufficient balance. Balance $ %.2f, Requested amount $ %.2f.%n",
-                currentBalance, requestedAmount));
+        this(Money.toCents(currentBalance), Money.toCents(requestedAmount), true);
+    }
 
+    private InsufficientFundsException(long currentBalance, long requestedAmount, boolean writableStackTrace) {
+        super(null, null, false, writableStackTrace);
         this.currentBalance = currentBalance;
         this.requestedAmount = requestedAmount;
+        this.amountsKnown = true;
+    }
+
+    /**
+     * Returns an instance without a stack trace for a declined debit, amounts in cents
+     */
+    public static InsufficientFundsException withoutStackTrace(long currentBalance, long requestedAmount) {
+        return new InsufficientFundsException(currentBalance, requestedAmount, false);
+    }
+
+    @Override
+    public String getMessage() {
+        if (message == null) {
+            message = String.format("Insufficient balance. Balance $ %.2f, Requested amount $ %.2f.%n",
+                    getCurrentBalance(), getRequestedAmount());
+        }
+        return message;
     }
 
     public BigDecimal getCurrentBalance() {
-        return currentBalance;
+        return amountsKnown ? Money.toBigDecimal(currentBalance) : null;
     }
 
     public BigDecimal getRequestedAmount() {
-        return requestedAmount;
+        return amountsKnown ? Money.toBigDecimal(requestedAmount) : null;
     }
 }
@@ -0,0 +1,22 @@
+package domain.exception;
+
+public class StaleAccountException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private static final String MESSAGE = "Account was changed by another operation.";
+
+    public StaleAccountException() {
+        super(MESSAGE);
+    }
+
+    private StaleAccountException(boolean writableStackTrace) {
+        super(MESSAGE, null, false, writableStackTrace);
+    }
+
+    /**
+     * Returns an instance without a stack trace; a lost optimistic race is expected and
+     * usually retried at once
+     */
+    public static StaleAccountException withoutStackTrace() {
+        return new StaleAccountException(false);
+    }
+}
@@ -1,7 +1,21 @@
 package domain.exception;
 
 public class UserNotFoundException extends RuntimeException {
+    private static final String MESSAGE = "User not found.";
+
     public UserNotFoundException() {
-        super("User not found.");
+        super(MESSAGE);
+    }
+
+    private UserNotFoundException(boolean writableStackTrace) {
+        super(MESSAGE, null, false, writableStackTrace);
+    }
+
+    /**
+     * Returns an instance without a stack trace; a missing user is a routine outcome
+     * and capturing the trace would cost more than the lookup
+     */
+    public static UserNotFoundException withoutStackTrace() {
+        return new UserNotFoundException(false);
     }
 }
@@ -0,0 +1,121 @@
+package domain.valueObject;
+
+/**
+ * Packs an account code ({@code branch-number}) into a single {@code long} key.
+ * <p>
+ * Branch codes are up to 9 digits and account numbers exactly 8 digits. The key
+ * holds {@code branch * 10^8 + number} in the low 57 bits and the branch width in
+ * the bits above, so leading zeros survive and {@link #format} rebuilds the exact
+ * code. Valid keys are always positive; {@link #INVALID} stands for a code that
+ * cannot exist.
+ */
+public final class AccountCode {
+    public static final long INVALID = -1;
+
+    private static final int MAX_BRANCH_LENGTH = 9;
+    private static final int NUMBER_LENGTH = 8;
+    private static final long NUMBER_RANGE = 100_000_000L;
+    private static final int WIDTH_SHIFT = 57;
+    private static final long VALUE_MASK = (1L << WIDTH_SHIFT) - 1;
+
+    private AccountCode() {
+    }
+
+    /**
+     * Returns the key of the account; throws if branch or number have an invalid format
+     */
+    public static long pack(String branchCode, String number) {
+        long key = keyOf(branchCode, number);
+        if (key == INVALID) {
+            throw new IllegalArgumentException("Invalid account code: " + branchCode + "-" + number);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the key of the account, or {@link #INVALID} when no account can have that code
+     */
+    public static long keyOf(String branchCode, String number) {
+        if (branchCode == null || number == null) {
+            return INVALID;
+        }
+
+        int branchLength = branchCode.length();
+        if (branchLength == 0 || branchLength > MAX_BRANCH_LENGTH || number.length() != NUMBER_LENGTH) {
+            return INVALID;
+        }
+
+        long branch = digitsOf(branchCode, 0, branchLength);
+        long accountNumber = digitsOf(number, 0, NUMBER_LENGTH);
+        if (branch < 0 || accountNumber < 0) {
+            return INVALID;
+        }
+        return ((long) branchLength << WIDTH_SHIFT) | (branch * NUMBER_RANGE + accountNumber);
+    }
+
+    /**
+     * Tells whether accounts can be opened under the branch code
+     */
+    public static boolean isValidBranch(String branchCode) {
+        return branchCode != null && !branchCode.isEmpty() && branchCode.length() <= MAX_BRANCH_LENGTH
+                && digitsOf(branchCode, 0, branchCode.length()) >= 0;
+    }
+
+    /**
+     * Parses a {@code branch-number} code, or returns {@link #INVALID}
+     */
+    public static long parse(String accountCode) {
+        if (accountCode == null) {
+            return INVALID;
+        }
+
+        int separator = accountCode.lastIndexOf('-');
+        int branchLength = separator;
+        if (branchLength <= 0 || branchLength > MAX_BRANCH_LENGTH
+                || accountCode.length() - separator - 1 != NUMBER_LENGTH) {
+            return INVALID;
+        }
+
+        long branch = digitsOf(accountCode, 0, separator);
+        long accountNumber = digitsOf(accountCode, separator + 1, accountCode.length());
+        if (branch < 0 || accountNumber < 0) {
+            return INVALID;
+        }
+        return ((long) branchLength << WIDTH_SHIFT) | (branch * NUMBER_RANGE + accountNumber);
+    }
+
+    public static String format(long key) {
+        return branchOf(key) + "-" + numberOf(key);
+    }
+
+    public static String branchOf(long key) {
+        return zeroPadded((key & VALUE_MASK) / NUMBER_RANGE, (int) (key >>> WIDTH_SHIFT));
+    }
+
+    public static String numberOf(long key) {
+        return zeroPadded((key & VALUE_MASK) % NUMBER_RANGE, NUMBER_LENGTH);
+    }
+
+    // returns -1 when the range holds anything other than ASCII digits
+    private static long digitsOf(String value, int from, int to) {
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static String zeroPadded(long value, int width) {
+        char[] digits = new char[width];
+        long remaining = value;
+        for (int i = width - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return new String(digits);
+    }
+}
@@ -1,9 +1,12 @@
 package domain.valueObject;
 
 public record CPF(String value) {
+    private static final int LENGTH = 11;
 
     /**
-     * Normalizes and validates CPF; throws on invalid input
+     * Normalizes CPF and checks its shape; throws on input that is not eleven digits or
+     * repeats a single digit. CPFs given by users go through {@link #of}, which also
+     * checks the check digits.
      */
     public CPF(String value) {
         if (value == null || value.isEmpty()) {
@@ -11,16 +14,81 @@ public record CPF(String value) {
         }
 
         // removes everything that is not number
-        String validCPF = value.replaceAll("\\D", "");
+        String validCPF = digitsOf(value);
 
-        if (validCPF.length() != 11) {
+        if (validCPF.length() != LENGTH) {
             throw new IllegalArgumentException("Invalid CPF: must contain 11 digits.");
         }
 
-        if (validCPF.matches("(\\d)\\1{10}")) {
+        if (hasRepeatedDigits(validCPF)) {
             throw new IllegalArgumentException("Invalid CPF: repeated digits are not allowed.");
         }
 
         this.value = validCPF;
     }
+
+    /**
+     * Normalizes and validates a CPF given by a user, check digits included; throws on invalid input
+     */
+    public static CPF of(String value) {
+        CPF cpf = new CPF(value);
+        if (!hasValidCheckDigits(cpf.value)) {
+            throw new IllegalArgumentException("Invalid CPF: check digits do not match.");
+        }
+        return cpf;
+    }
+
+    /**
+     * Rebuilds a persisted CPF without the check digit rule, which users saved before it
+     * was enforced may not satisfy
+     */
+    public static CPF restore(String value) {
+        return new CPF(value);
+    }
+
+    /**
+     * Returns only the ASCII digits of value, without copying when it has nothing to strip
+     */
+    public static String digitsOf(String value) {
+        StringBuilder digits = null;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean isDigit = c >= '0' && c <= '9';
+
+            if (!isDigit && digits == null) {
+                digits = new StringBuilder(LENGTH).append(value, 0, i);
+            } else if (isDigit && digits != null) {
+                digits.append(c);
+            }
+        }
+
+        return digits == null ? value : digits.toString();
+    }
+
+    private static boolean hasRepeatedDigits(String digits) {
+        char first = digits.charAt(0);
+        for (int i = 1; i < LENGTH; i++) {
+            if (digits.charAt(i) != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasValidCheckDigits(String digits) {
+        return checkDigit(digits, 9) == digits.charAt(9) - '0'
+                && checkDigit(digits, 10) == digits.charAt(10) - '0';
+    }
+
+    // mod 11 over the first length digits, weighted from length + 1 down to 2
+    private static int checkDigit(String digits, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += (digits.charAt(i) - '0') * (length + 1 - i);
+        }
+
+        int remainder = sum * 10 % 11;
+        return remainder == 10 ? 0 : remainder;
+    }
 }
@@ -1,11 +1,13 @@
 package domain.valueObject;
 
-import java.util.regex.Pattern;
-
+/**
+ * Email address, stored lower case.
+ * <p>
+ * Accepts the same addresses as the pattern
+ * {@code ^(?i)[a-z0-9._%+-]+@(?:[a-z0-9-]+\.)+[a-z]{2,}$}, checked with a single
+ * scan instead of a backtracking regex.
+ */
 public record Email(String address) {
-    private static final String EMAIL_REGEX =
-            "^(?i)[a-z0-9._%+-]+@(?:[a-z0-9-]+\\.)+[a-z]{2,}$";
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
 
     // Compact constructor para validação
     public Email {
@@ -13,9 +15,9 @@ public record Email(String address) {
             throw new IllegalArgumentException("Email cannot be null or empty.");
         }
 
-        address = address.toLowerCase().trim();
+        address = needsLowerCase(address) ? address.toLowerCase().trim() : address.trim();
 
-        if (!EMAIL_PATTERN.matcher(address).matches()) {
+        if (!matches(address)) {
             throw new IllegalArgumentException("Invalid email: " + address);
         }
     }
@@ -29,7 +31,7 @@ public record Email(String address) {
         if (email == null || email.trim().isEmpty()) {
             return false;
         }
-        return EMAIL_PATTERN.matcher(email.trim()).matches();
+        return matches(email.trim());
     }
 
     public String getUsuario() {
@@ -39,4 +41,66 @@ public record Email(String address) {
     public String getDominio() {
         return address.substring(address.indexOf('@') + 1);
     }
+
+    /**
+     * Checks local@label.label...tld ignoring ASCII case; the TLD is the last label and
+     * must have at least two letters
+     */
+    private static boolean matches(String email) {
+        int at = email.indexOf('@');
+        if (at <= 0) {
+            return false;
+        }
+
+        for (int i = 0; i < at; i++) {
+            if (!isLocalChar(email.charAt(i))) {
+                return false;
+            }
+        }
+
+        int labels = 0;
+        int labelStart = at + 1;
+        boolean lettersOnly = true;
+
+        for (int i = labelStart; i < email.length(); i++) {
+            char c = email.charAt(i);
+
+            if (c == '.') {
+                if (i == labelStart) {
+                    return false;
+                }
+                labels++;
+                labelStart = i + 1;
+                lettersOnly = true;
+            } else if (isLetter(c)) {
+                // still a TLD candidate
+            } else if ((c >= '0' && c <= '9') || c == '-') {
+                lettersOnly = false;
+            } else {
+                return false;
+            }
+        }
+
+        return labels > 0 && lettersOnly && email.length() - labelStart >= 2;
+    }
+
+    private static boolean isLocalChar(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9')
+                || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    // lower-casing is locale and Unicode aware, so it is only skipped when it cannot change anything
+    private static boolean needsLowerCase(String address) {
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if ((c >= 'A' && c <= 'Z') || c > 0x7F) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
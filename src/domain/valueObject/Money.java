@@ -0,0 +1,75 @@
+package domain.valueObject;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Monetary amount stored as a whole number of cents.
+ * <p>
+ * Entities keep balances as raw {@code long} cents and use the static helpers for
+ * overflow-checked arithmetic, so the posting path does not allocate; {@code BigDecimal}
+ * is only produced at the API boundary.
+ */
+public record Money(long cents) implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    /**
+     * Converts a decimal amount rounding to cents with HALF_EVEN, as transactions always did
+     */
+    public static Money of(BigDecimal amount) {
+        return new Money(toCents(amount));
+    }
+
+    public static Money ofCents(long cents) {
+        return new Money(cents);
+    }
+
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            throw new IllegalArgumentException("The amount must not be null.");
+        }
+        return amount.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+
+    public static long subtract(long cents, long otherCents) {
+        return Math.subtractExact(cents, otherCents);
+    }
+
+    public Money plus(Money other) {
+        return new Money(add(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return new Money(subtract(cents, other.cents));
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(cents);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
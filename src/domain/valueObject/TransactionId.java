@@ -0,0 +1,43 @@
+package domain.valueObject;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 128-bit transaction identifier held as two longs.
+ * <p>
+ * New ids follow the UUID version 7 layout: the high bits carry the creation time in
+ * milliseconds, so ids sort by creation time, and the rest is random. The text form
+ * is the usual UUID string and is only built for display and persistence; any UUID
+ * string, including ids issued before this type existed, can be parsed back.
+ */
+public record TransactionId(long mostSignificantBits, long leastSignificantBits)
+        implements Comparable<TransactionId> {
+
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+
+    public static TransactionId next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long high = (System.currentTimeMillis() << 16) | VERSION_7 | (random.nextInt() & 0x0FFF);
+        long low = VARIANT | (random.nextLong() >>> 2);
+        return new TransactionId(high, low);
+    }
+
+    public static TransactionId parse(String id) {
+        UUID uuid = UUID.fromString(id);
+        return new TransactionId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    @Override
+    public int compareTo(TransactionId other) {
+        int byHigh = Long.compareUnsigned(mostSignificantBits, other.mostSignificantBits);
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(leastSignificantBits, other.leastSignificantBits);
+    }
+
+    @Override
+    public String toString() {
+        return new UUID(mostSignificantBits, leastSignificantBits).toString();
+    }
+}
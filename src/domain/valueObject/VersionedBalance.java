@@ -0,0 +1,7 @@
+package domain.valueObject;
+
+/**
+ * Balance of an account, in cents, read together with the version of the change that produced it
+ */
+public record VersionedBalance(long cents, long version) {
+}
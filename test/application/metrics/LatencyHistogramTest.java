@@ -0,0 +1,89 @@
+package application.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverTheWholeLongRangeWithoutGaps() {
+        assertEquals(0, LatencyHistogram.indexOf(0));
+        assertEquals(63, LatencyHistogram.indexOf(63));
+        assertEquals(64, LatencyHistogram.indexOf(64));
+        assertEquals(64, LatencyHistogram.indexOf(65));
+        assertEquals(65, LatencyHistogram.indexOf(66));
+
+        int last = LatencyHistogram.indexOf(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestOf(last));
+        assertEquals(last, LatencyHistogram.indexOf(63L << 57));
+        assertEquals(last - 1, LatencyHistogram.indexOf((63L << 57) - 1));
+
+        for (int index = 0; index < last; index++) {
+            long highest = LatencyHistogram.highestOf(index);
+            assertEquals(index, LatencyHistogram.indexOf(highest), "bucket " + index);
+            assertEquals(index + 1, LatencyHistogram.indexOf(highest + 1), "bucket " + index);
+            if (index > 0) {
+                long lowest = LatencyHistogram.highestOf(index - 1) + 1;
+                // every bucket is at most 1/32 of the values it holds wide
+                assertTrue((highest - lowest) * 32 <= lowest, "bucket " + index);
+            }
+        }
+    }
+
+    @Test
+    void percentilesAreWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+        histogram.record(-5);
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(100_001, snapshot.count());
+        assertEquals(100_000L * 100_001 / 2, snapshot.totalNanos());
+        assertWithin(50_000, snapshot.p50Nanos());
+        assertWithin(90_000, snapshot.p90Nanos());
+        assertWithin(99_000, snapshot.p99Nanos());
+        assertWithin(99_900, snapshot.p999Nanos());
+        assertWithin(100_000, snapshot.maxNanos());
+
+        histogram.reset();
+        assertEquals(new LatencySnapshot(0, 0, 0, 0, 0, 0, 0), histogram.snapshot());
+    }
+
+    @Test
+    void weightedAndConcurrentRecordingsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000, 32);
+        histogram.record(Long.MAX_VALUE);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(2_000);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(32 + 1 + 40_000, snapshot.count());
+        assertEquals(Long.MAX_VALUE, snapshot.maxNanos());
+        assertWithin(2_000, snapshot.p50Nanos());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        // a bucket reports its highest value, never less than the recorded one
+        assertTrue(actual >= expected && actual <= expected + expected / 32, expected + " vs " + actual);
+    }
+}
@@ -0,0 +1,131 @@
+package application.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+    private static final int CALLS = 32_000;
+
+    @Test
+    void sampledTimingsEstimateTheCallCountAndFailuresAreExact() {
+        Metrics metrics = new Metrics();
+        OperationMetrics operation = metrics.operation("transfer");
+        for (int i = 0; i < CALLS; i++) {
+            operation.time(() -> { });
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalStateException.class, () -> operation.time(() -> {
+                throw new IllegalStateException("Declined");
+            }));
+        }
+        operation.countFailure(IllegalArgumentException.class);
+
+        OperationSnapshot snapshot = metrics.snapshot().operations().get(0);
+        assertEquals("transfer", snapshot.name());
+        assertEquals(0, snapshot.latency().count() % Metrics.SAMPLE_RATE);
+        // about a thousand samples, so half or double the calls is far out of reach
+        assertTrue(snapshot.latency().count() > CALLS / 2 && snapshot.latency().count() < CALLS * 2,
+                Long.toString(snapshot.latency().count()));
+        assertEquals(5, snapshot.failures().get("IllegalStateException"));
+        assertEquals(6, snapshot.failureCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().operations().get(0).latency().count());
+        assertEquals(0, metrics.snapshot().operations().get(0).failureCount());
+    }
+
+    @Test
+    void contendedLocksAreCountedOnEveryWait() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        ReentrantLock lock = new ReentrantLock();
+        lock.lock();
+        Thread waiter = new Thread(() -> {
+            metrics.locks().lock(lock);
+            lock.unlock();
+        });
+        waiter.start();
+        while (!lock.hasQueuedThreads()) {
+            Thread.onSpinWait();
+        }
+        lock.unlock();
+        waiter.join();
+
+        LockSnapshot locks = metrics.snapshot().locks();
+        assertEquals(1, locks.contended());
+        assertEquals(1, locks.waits().count());
+        assertTrue(locks.acquisitions() >= 1);
+    }
+
+    @Test
+    void prometheusTextListsEveryOperationAndTheLocks() {
+        Metrics metrics = new Metrics();
+        OperationMetrics operation = metrics.operation("deposit");
+        for (int i = 0; i < CALLS; i++) {
+            operation.time(() -> { });
+        }
+        operation.countFailure(IllegalStateException.class);
+        metrics.operation("withdraw");
+
+        String text = metrics.toPrometheusText();
+        long count = metrics.snapshot().operations().get(0).latency().count();
+        assertTrue(text.contains("# TYPE bank_operation_duration_seconds summary\n"));
+        assertTrue(text.contains("bank_operation_duration_seconds{operation=\"deposit\",quantile=\"0.99\"} "));
+        assertTrue(text.contains("bank_operation_duration_seconds_count{operation=\"deposit\"} " + count + "\n"));
+        assertTrue(text.contains("bank_operation_duration_seconds_count{operation=\"withdraw\"} 0\n"));
+        assertTrue(text.contains("bank_operation_duration_seconds_sum{operation=\"withdraw\"} 0.0\n"));
+        assertTrue(text.contains(
+                "bank_operation_failures_total{operation=\"deposit\",exception=\"IllegalStateException\"} 1\n"));
+        assertTrue(text.contains("bank_account_lock_contended_total 0\n"));
+        assertTrue(text.contains("bank_account_lock_wait_seconds{quantile=\"0.5\"} 0.0\n"));
+        assertTrue(text.contains("bank_account_lock_wait_seconds_count 0\n"));
+        assertTrue(text.indexOf("operation=\"deposit\"") < text.indexOf("operation=\"withdraw\""));
+    }
+
+    @Test
+    void turningMetricsOffRecordsNothing() throws Exception {
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-D" + Metrics.ENABLED_PROPERTY + "=false", "-cp", System.getProperty("java.class.path"),
+                DisabledMetrics.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        String output = new String(process.getInputStream().readAllBytes()).trim();
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        assertEquals(0, process.exitValue());
+        assertEquals("enabled=false calls=0 failures=0 acquisitions=0", output);
+        assertTrue(Metrics.isEnabled());
+    }
+
+    static final class DisabledMetrics {
+        public static void main(String[] args) {
+            Metrics metrics = new Metrics();
+            OperationMetrics operation = metrics.operation("transfer");
+            for (int i = 0; i < CALLS; i++) {
+                operation.time(() -> { });
+                metrics.locks().lock(new ReentrantLock());
+            }
+            operation.countFailure(IllegalStateException.class);
+            try {
+                operation.time(() -> {
+                    throw new IllegalStateException("Declined");
+                });
+            } catch (IllegalStateException expected) {
+                // not counted either
+            }
+
+            MetricsSnapshot snapshot = metrics.snapshot();
+            assertFalse(snapshot.enabled());
+            OperationSnapshot transfer = snapshot.operations().get(0);
+            System.out.println("enabled=" + snapshot.enabled() + " calls=" + transfer.latency().count()
+                    + " failures=" + transfer.failureCount() + " acquisitions=" + snapshot.locks().acquisitions());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package application.persistence;
+
+import domain.entity.AccountNumberAllocator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountNumberRecoveryTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void removedNumbersStayTakenWhenOnlyTheJournalRemembersThem() throws Exception {
+        Path journal = directory.resolve("journal");
+        List<String> first = run(journal, "-", 201, 5, 2, false);
+        List<String> second = run(journal, "-", 202, 1, 0, false);
+
+        assertAfter(first, second);
+    }
+
+    @Test
+    void removedNumbersStayTakenWhenOnlyTheSnapshotRemembersThem() throws Exception {
+        // the snapshot no longer lists the removed accounts and compaction drops their
+        // removal records, so only the persisted high-water mark keeps their numbers
+        Path journal = directory.resolve("journal");
+        List<String> first = run(journal, "-", 203, 5, 2, true);
+        List<String> second = run(journal, "-", 204, 1, 0, true);
+        List<String> third = run(journal, "-", 205, 1, 0, false);
+
+        assertAfter(first, second);
+        assertAfter(second, third);
+    }
+
+    @Test
+    void removedNumbersStayTakenInTheMappedAccountFile() throws Exception {
+        // a new journal each run, so only the removed records of the file keep their numbers
+        Path accounts = directory.resolve("accounts");
+        List<String> first = run(directory.resolve("first"), accounts.toString(), 206, 5, 2, false);
+        List<String> second = run(directory.resolve("second"), accounts.toString(), 207, 1, 0, false);
+
+        assertAfter(first, second);
+    }
+
+    private static void assertAfter(List<String> earlier, List<String> later) {
+        Set<String> all = new HashSet<>(earlier);
+        for (String number : later) {
+            assertTrue(AccountNumberAllocator.isValid(number), number);
+            assertTrue(all.add(number), number + " was issued again");
+            assertTrue(number.compareTo(earlier.get(earlier.size() - 1)) > 0, number);
+        }
+    }
+
+    private static List<String> run(Path journal, String accounts, int holder, int open, int remove,
+                                    boolean snapshot) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), AllocatingLedger.class.getName(), journal.toString(),
+                accounts, Integer.toString(holder), Integer.toString(open), Integer.toString(remove),
+                Boolean.toString(snapshot))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+        assertTrue(process.waitFor(1, TimeUnit.MINUTES));
+        assertEquals(0, process.exitValue());
+        List<String> numbers = new ArrayList<>(Arrays.asList(output.split(" ")));
+        assertEquals(open, numbers.size());
+        return numbers;
+    }
+}
@@ -0,0 +1,64 @@
+package application.persistence;
+
+import application.repositories.AccountRepository;
+import application.repositories.MappedAccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import application.services.AccountService;
+import domain.entity.Account;
+import domain.entity.User;
+import support.Cpfs;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Child process of {@link AccountNumberRecoveryTest}, so every run starts with a fresh
+ * process-wide allocator: recovers the storage, opens accounts in branch 7, removes the
+ * newest ones and prints the numbers it opened.
+ * <p>
+ * Arguments: journal directory, mapped account file or {@code -}, holder CPF seed,
+ * accounts to open, accounts to remove and whether to snapshot before closing.
+ */
+final class AllocatingLedger {
+    private AllocatingLedger() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        UserRepository userRepository = new UserRepository();
+        AccountRepository accountRepository = args[1].equals("-")
+                ? new AccountRepository()
+                : new MappedAccountRepository(Path.of(args[1]), userRepository);
+        AccountLocks accountLocks = new AccountLocks();
+        DurableStorage storage = DurableStorage.open(Path.of(args[0]), userRepository, accountRepository,
+                new TransactionRepository(), accountLocks);
+
+        User holder = new User("Holder", Cpfs.of(Integer.parseInt(args[2])), "holder" + args[2] + "@bank.test");
+        userRepository.save(holder);
+        AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+        List<Account> opened = new ArrayList<>();
+        for (int i = 0; i < Integer.parseInt(args[3]); i++) {
+            opened.add(accountService.createCheckingAccount("7", holder.getId()));
+        }
+        for (int i = 0; i < Integer.parseInt(args[4]); i++) {
+            Account removed = opened.get(opened.size() - 1 - i);
+            accountRepository.remove(removed.getBranchCode(), removed.getNumber());
+        }
+
+        if (Boolean.parseBoolean(args[5])) {
+            storage.snapshot();
+        }
+        storage.close();
+        if (accountRepository instanceof MappedAccountRepository mapped) {
+            mapped.close();
+        }
+
+        StringBuilder line = new StringBuilder();
+        for (Account account : opened) {
+            line.append(account.getNumber()).append(' ');
+        }
+        System.out.println(line.toString().trim());
+    }
+}
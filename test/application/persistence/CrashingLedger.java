@@ -0,0 +1,71 @@
+package application.persistence;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import application.services.AccountService;
+import application.services.LedgerBatchResult;
+import application.services.LedgerOperation;
+import application.services.LedgerService;
+import domain.entity.Account;
+import domain.entity.Transaction;
+import domain.entity.User;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Child process of {@link DurableStorageCrashTest}: posts deposit batches forever, with
+ * snapshots running alongside, and prints the ids of every batch once it returned
+ */
+final class CrashingLedger {
+    static final int ACCOUNTS = 16;
+    static final int BATCH = 64;
+
+    private CrashingLedger() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        UserRepository userRepository = new UserRepository();
+        AccountRepository accountRepository = new AccountRepository();
+        TransactionRepository transactionRepository = new TransactionRepository();
+        AccountLocks accountLocks = new AccountLocks();
+        DurableStorage storage = DurableStorage.open(Path.of(args[0]), userRepository, accountRepository,
+                transactionRepository, accountLocks);
+        storage.scheduleSnapshots(Duration.ofMillis(20));
+
+        User holder = new User("Holder", Cpfs.of(51), "holder@bank.test");
+        userRepository.save(holder);
+        AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(accountService.createCheckingAccount("7", holder.getId()));
+        }
+        System.out.println("ready");
+
+        LedgerService ledgerService = new LedgerService(accountRepository, transactionRepository, accountLocks);
+        SplittableRandom random = new SplittableRandom(7);
+        while (true) {
+            List<LedgerOperation> batch = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                Account account = accounts.get(random.nextInt(ACCOUNTS));
+                batch.add(new LedgerOperation.Deposit(account.getBranchCode(), account.getNumber(), BigDecimal.ONE,
+                        "Deposit"));
+            }
+
+            LedgerBatchResult result = ledgerService.postBatch(batch);
+            StringBuilder line = new StringBuilder("acked");
+            for (Transaction transaction : result.posted()) {
+                line.append(' ').append(transaction.getId());
+            }
+            // a line cut short by the kill lacks the closing mark
+            System.out.println(line.append(" ."));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package application.persistence;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import domain.entity.Account;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableStorageCrashTest {
+    private static final int ACKED_BATCHES = 300;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsEveryAcknowledgedPostingWhenKilledMidBatch() throws Exception {
+        Path journal = directory.resolve("journal");
+        Path output = directory.resolve("output.txt");
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), CrashingLedger.class.getName(), journal.toString())
+                .redirectOutput(output.toFile())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+            while (lines(output).size() <= ACKED_BATCHES && process.isAlive() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(process.isAlive());
+        } finally {
+            // whatever batch is being posted now is cut short
+            process.destroyForcibly();
+            assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        }
+
+        List<String> acked = new ArrayList<>();
+        for (String line : lines(output)) {
+            String[] fields = line.split(" ");
+            if (fields[0].equals("acked") && fields[fields.length - 1].equals(".")) {
+                acked.addAll(Arrays.asList(fields).subList(1, fields.length - 1));
+            }
+        }
+        assertTrue(acked.size() >= ACKED_BATCHES * CrashingLedger.BATCH);
+
+        AccountRepository accountRepository = new AccountRepository();
+        TransactionRepository transactionRepository = new TransactionRepository();
+        try (DurableStorage storage = DurableStorage.open(journal, new UserRepository(), accountRepository,
+                transactionRepository, new AccountLocks())) {
+            storage.loadHistory();
+
+            for (String id : acked) {
+                assertTrue(transactionRepository.findById(id).isPresent(), id);
+            }
+
+            // at most one batch past the last acknowledged one reached the journal
+            BigDecimal total = BigDecimal.ZERO;
+            for (Account account : accountRepository.getAll()) {
+                total = total.add(account.getBalance());
+            }
+            assertTrue(total.compareTo(BigDecimal.valueOf(acked.size())) >= 0);
+            assertTrue(total.compareTo(BigDecimal.valueOf(acked.size() + CrashingLedger.BATCH)) <= 0);
+        }
+    }
+
+    private static List<String> lines(Path file) throws IOException {
+        return Files.exists(file) ? Files.readAllLines(file, StandardCharsets.UTF_8) : List.of();
+    }
+}
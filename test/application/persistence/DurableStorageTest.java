@@ -0,0 +1,211 @@
+package application.persistence;
+
+import application.repositories.AccountRepository;
+import application.repositories.IdempotencyCache;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import application.services.AccountLocks;
+import application.services.AccountService;
+import application.services.LedgerService;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.Transaction;
+import domain.entity.User;
+import domain.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import support.Cpfs;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableStorageTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void snapshotsCompactTheJournalAndKeepTheHistory() throws IOException {
+        Account account;
+        try (Ledger ledger = new Ledger(directory)) {
+            account = ledger.createAccount(41);
+            ledger.deposit(account, 100);
+            ledger.storage.snapshot();
+            ledger.deposit(account, 10);
+            ledger.storage.snapshot();
+            ledger.deposit(account, 5);
+
+            assertEquals(1, Journal.segmentBases(directory).size());
+            assertTrue(Files.exists(directory.resolve("history.log")));
+        }
+
+        try (Ledger ledger = new Ledger(directory)) {
+            Account recovered = ledger.accountRepository.getByCode(account.getBranchCode(), account.getNumber())
+                    .orElseThrow();
+            assertEquals(0, new BigDecimal("115.00").compareTo(recovered.getBalance()));
+
+            ledger.storage.loadHistory();
+            assertEquals(115, ledger.transactionRepository.findByAccount(account.getAccountCode()).size());
+        }
+    }
+
+    @Test
+    void snapshotsWithNothingNewKeepTheSameSegment() throws IOException {
+        try (Ledger ledger = new Ledger(directory)) {
+            Account account = ledger.createAccount(42);
+            ledger.deposit(account, 3);
+            ledger.storage.snapshot();
+            List<Long> bases = Journal.segmentBases(directory);
+
+            ledger.storage.snapshot();
+            assertEquals(bases, Journal.segmentBases(directory));
+        }
+    }
+
+    @Test
+    void refusesACorruptSnapshotBeforeRestoringAnything() throws IOException {
+        try (Ledger ledger = new Ledger(directory)) {
+            ledger.deposit(ledger.createAccount(43), 1);
+            ledger.storage.snapshot();
+        }
+
+        // flips a byte of the last section, which is only read after every user and account
+        Path snapshot = directory.resolve("snapshot.bin");
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long offset = channel.size() - Integer.BYTES - 1;
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, offset);
+            value.put(0, (byte) (value.get(0) ^ 1)).rewind();
+            channel.write(value, offset);
+        }
+
+        UserRepository userRepository = new UserRepository();
+        AccountRepository accountRepository = new AccountRepository();
+        assertThrows(IOException.class, () -> DurableStorage.open(directory, userRepository, accountRepository,
+                new TransactionRepository(), new AccountLocks()));
+        assertTrue(userRepository.findAll().isEmpty());
+        assertTrue(accountRepository.getAll().isEmpty());
+    }
+
+    @Test
+    void historyCopiesEachRecordOnce() throws IOException {
+        Account account = new CheckingAccount("7", new User("Holder", Cpfs.of(44), "holder@bank.test"));
+
+        try (Journal journal = Journal.open(directory, 0, JournalReader.Position.START)) {
+            for (int i = 0; i < 3; i++) {
+                journal.logTransaction(account.deposit(BigDecimal.ONE, "Deposit"));
+            }
+            journal.roll();
+            journal.awaitDurable(journal.logTransaction(account.deposit(BigDecimal.ONE, "Deposit")));
+        }
+
+        // a crash before the segment was deleted copies it again on the next snapshot
+        new HistoryFile(directory.resolve("history.log")).append(directory, List.of(0L));
+        new HistoryFile(directory.resolve("history.log")).append(directory, List.of(0L));
+
+        int[] records = new int[1];
+        long last = new HistoryFile(directory.resolve("history.log"))
+                .read(Long.MAX_VALUE, (sequence, type, payload) -> records[0]++);
+        assertEquals(3, records[0]);
+        assertEquals(3, last);
+    }
+
+    @Test
+    void idempotencyKeysSurviveRecovery() throws IOException {
+        Account account;
+        Transaction snapshotted;
+        Transaction journaled;
+        try (Ledger ledger = new Ledger(directory)) {
+            account = ledger.createAccount(45);
+            snapshotted = ledger.ledgerService.deposit("deposit-1", account.getBranchCode(), account.getNumber(),
+                    BigDecimal.TEN, "Deposit");
+            ledger.storage.snapshot();
+            journaled = ledger.ledgerService.deposit("deposit-2", account.getBranchCode(), account.getNumber(),
+                    BigDecimal.ONE, "Deposit");
+        }
+
+        try (Ledger ledger = new Ledger(directory)) {
+            assertEquals(2, ledger.idempotencyCache.size());
+            assertEquals(snapshotted.getId(), ledger.ledgerService.deposit("deposit-1", account.getBranchCode(),
+                    account.getNumber(), BigDecimal.TEN, "Deposit").getId());
+            assertEquals(journaled.getId(), ledger.ledgerService.deposit("deposit-2", account.getBranchCode(),
+                    account.getNumber(), BigDecimal.ONE, "Deposit").getId());
+
+            Account recovered = ledger.accountRepository.getByCode(account.getBranchCode(), account.getNumber())
+                    .orElseThrow();
+            assertEquals(0, new BigDecimal("11.00").compareTo(recovered.getBalance()));
+        }
+    }
+
+    @Test
+    void keysWhoseTransactionsNeverReachedTheJournalAreDropped() throws IOException {
+        Account account;
+        try (Ledger ledger = new Ledger(directory)) {
+            account = ledger.createAccount(46);
+            ledger.ledgerService.deposit("kept", account.getBranchCode(), account.getNumber(), BigDecimal.TEN,
+                    "Deposit");
+
+            // a crash right after the key was written, before its transaction was
+            IdempotencyCache.Claim claim = ledger.idempotencyCache.claim("lost",
+                    "deposit|" + account.getBranchCode() + "-" + account.getNumber() + "|100");
+            claim.record(List.of(new Transaction(TransactionType.DEPOSIT, BigDecimal.ONE, BigDecimal.TEN,
+                    account.getAccountCode(), null, "Deposit")));
+        }
+
+        try (Ledger ledger = new Ledger(directory)) {
+            assertEquals(List.of("kept"), ledger.idempotencyCache.getRecorded().stream()
+                    .map(IdempotencyCache.RecordedKey::key)
+                    .toList());
+
+            Transaction retried = ledger.ledgerService.deposit("lost", account.getBranchCode(), account.getNumber(),
+                    BigDecimal.ONE, "Deposit");
+            assertEquals(0, new BigDecimal("11.00").compareTo(retried.getBalanceAfter()));
+        }
+    }
+
+    /**
+     * Repositories and services over one storage directory
+     */
+    private static final class Ledger implements AutoCloseable {
+        final UserRepository userRepository = new UserRepository();
+        final AccountRepository accountRepository = new AccountRepository();
+        final TransactionRepository transactionRepository = new TransactionRepository();
+        final AccountLocks accountLocks = new AccountLocks();
+        final IdempotencyCache idempotencyCache = new IdempotencyCache();
+        final LedgerService ledgerService = new LedgerService(accountRepository, transactionRepository,
+                accountLocks, idempotencyCache);
+        final DurableStorage storage;
+
+        Ledger(Path directory) throws IOException {
+            storage = DurableStorage.open(directory, userRepository, accountRepository, transactionRepository,
+                    accountLocks, idempotencyCache);
+        }
+
+        Account createAccount(int holder) {
+            User user = new User("Holder", Cpfs.of(holder), "holder" + holder + "@bank.test");
+            userRepository.save(user);
+            return new AccountService(accountRepository, userRepository, accountLocks)
+                    .createCheckingAccount("7", user.getId());
+        }
+
+        void deposit(Account account, int times) {
+            for (int i = 0; i < times; i++) {
+                ledgerService.deposit(account.getBranchCode(), account.getNumber(), BigDecimal.ONE, "Deposit");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            storage.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package application.repositories;
+
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.User;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountCacheTest {
+    private static final int CACHED = 1_000;
+
+    // the policy only looks at keys, so one instance stands for every account
+    private static Account account;
+
+    @BeforeAll
+    static void open() {
+        account = new CheckingAccount("1", new User("Holder", Cpfs.of(51), "holder@bank.test"));
+    }
+
+    @Test
+    void loadsOnceAndServesHits() {
+        AccountCache cache = AccountCache.ofEntries(CACHED);
+        int[] loads = {0};
+
+        for (int i = 0; i < 10; i++) {
+            assertSame(account, cache.get(7, key -> {
+                loads[0]++;
+                return account;
+            }));
+        }
+
+        assertEquals(1, loads[0]);
+        assertEquals(9, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void doesNotCacheMissingAccounts() {
+        AccountCache cache = AccountCache.ofEntries(CACHED);
+
+        assertNull(cache.get(7, key -> null));
+        assertSame(account, cache.get(7, key -> account));
+    }
+
+    @Test
+    void scanDoesNotEvictTheHotSet() {
+        AccountCache cache = AccountCache.ofEntries(CACHED);
+        int hot = CACHED / 2;
+
+        for (int round = 0; round < 20; round++) {
+            for (long key = 0; key < hot; key++) {
+                cache.get(key, k -> account);
+            }
+        }
+        // a batch job reading every other account once
+        for (long key = hot; key < 200_000; key++) {
+            cache.get(key, k -> account);
+        }
+
+        int stillCached = 0;
+        for (long key = 0; key < hot; key++) {
+            if (cache.get(key, k -> null) != null) {
+                stillCached++;
+            }
+        }
+        assertTrue(stillCached >= hot * 9 / 10, "hot entries left after the scan: " + stillCached);
+    }
+
+    @Test
+    void skewedLoadHitsMostOfTheTime() {
+        AccountCache cache = AccountCache.ofEntries(CACHED);
+        SplittableRandom random = new SplittableRandom(3);
+        int keys = 100_000;
+
+        // Zipf-like: key k is drawn with probability proportional to 1/(k + 1)
+        double harmonic = Math.log(keys) + 0.5772;
+        for (int i = 0; i < 500_000; i++) {
+            long key = (long) Math.exp(random.nextDouble() * harmonic) - 1;
+            cache.get(Math.min(key, keys - 1), k -> account);
+        }
+
+        AccountCacheStats stats = cache.stats();
+        assertTrue(stats.hitRate() > 0.55, "hit rate " + stats.hitRate());
+        assertTrue(stats.weight() <= CACHED);
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotCached() {
+        AccountCache cache = AccountCache.ofEntries(CACHED);
+
+        // the account is removed, and invalidated, while the loader still holds it
+        assertSame(account, cache.get(7, key -> {
+            cache.invalidate(key);
+            return account;
+        }));
+
+        assertNull(cache.get(7, key -> null));
+    }
+
+    @Test
+    void staysWithinItsWeight() {
+        AccountCache cache = AccountCache.ofEstimatedBytes(64 * 1024);
+
+        for (long key = 0; key < 10_000; key++) {
+            cache.put(key, account);
+        }
+
+        AccountCacheStats stats = cache.stats();
+        assertTrue(stats.weight() <= 64 * 1024);
+        assertTrue(stats.evictions() > 0);
+    }
+}
@@ -0,0 +1,103 @@
+package application.repositories;
+
+import application.services.AccountLocks;
+import application.services.AccountService;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import support.Cpfs;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountRepositoryTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void holderIndexFollowsDisableSaveAndRemove() {
+        checkHolderIndex(new UserRepository(), new AccountRepository(), 208);
+    }
+
+    @Test
+    void mappedHolderIndexFollowsDisableSaveAndRemoveAndSurvivesReopen() throws IOException {
+        UserRepository userRepository = new UserRepository();
+        Path file = directory.resolve("accounts");
+        List<Account> kept;
+        try (MappedAccountRepository repository = new MappedAccountRepository(file, userRepository)) {
+            kept = checkHolderIndex(userRepository, repository, 210);
+        }
+
+        // the index is rebuilt from the file, where removed records stay behind unused
+        try (MappedAccountRepository repository = new MappedAccountRepository(file, userRepository)) {
+            String holderId = kept.get(0).getHolder().getId();
+            assertEquals(codes(kept), codes(repository.getByHolder(holderId)));
+            assertFalse(repository.getByCode(kept.get(1).getBranchCode(), kept.get(1).getNumber())
+                    .orElseThrow().isActive());
+        }
+    }
+
+    /**
+     * Runs the holder index through disable, re-save and remove; returns the accounts left
+     */
+    private static List<Account> checkHolderIndex(UserRepository userRepository, AccountRepository repository,
+                                                  int cpf) {
+        User holder = new User("Holder", Cpfs.of(cpf), "holder" + cpf + "@bank.test");
+        User other = new User("Other", Cpfs.of(cpf + 1), "other" + cpf + "@bank.test");
+        userRepository.save(holder);
+        userRepository.save(other);
+        AccountService accountService = new AccountService(repository, userRepository, new AccountLocks());
+
+        Account checking = accountService.createCheckingAccount("1", holder.getId());
+        Account disabled = accountService.createCheckingAccount("0042", holder.getId());
+        Account savings = accountService.createSavingAccount("1", holder.getId());
+        Account others = accountService.createCheckingAccount("1", other.getId());
+        assertEquals(codes(List.of(checking, disabled, savings)), codes(repository.getByHolder(holder.getId())));
+        assertEquals(codes(List.of(others)), codes(repository.getByHolder(other.getId())));
+        assertTrue(repository.getByHolder("unknown").isEmpty());
+
+        // inactive accounts stay listed
+        accountService.deactivateAccount(disabled.getBranchCode(), disabled.getNumber());
+        List<Account> listed = repository.getByHolder(holder.getId());
+        assertEquals(3, listed.size());
+        assertFalse(listed.stream().filter(account -> account.getAccountCode().equals(disabled.getAccountCode()))
+                .findFirst().orElseThrow().isActive());
+        assertThrows(UnsupportedOperationException.class, () -> listed.remove(0));
+
+        // saving again does not list the account twice, a clash does not list the intruder
+        repository.save(checking);
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.save(new CheckingAccount(checking.getNumber(), "1", other, BigDecimal.ZERO,
+                        checking.getCreatedAt(), true, BigDecimal.ZERO)));
+        assertEquals(3, repository.getByHolder(holder.getId()).size());
+        assertEquals(1, repository.getByHolder(other.getId()).size());
+
+        repository.remove(savings.getBranchCode(), savings.getNumber());
+        repository.remove(others.getBranchCode(), others.getNumber());
+        repository.remove("1", "99999999");
+        assertEquals(codes(List.of(checking, disabled)), codes(repository.getByHolder(holder.getId())));
+        assertTrue(repository.getByHolder(other.getId()).isEmpty());
+
+        // a removed holder entry comes back with the next account
+        Account reopened = accountService.createCheckingAccount("1", other.getId());
+        assertEquals(codes(List.of(reopened)), codes(repository.getByHolder(other.getId())));
+        repository.remove(reopened.getBranchCode(), reopened.getNumber());
+
+        return List.of(checking, disabled);
+    }
+
+    private static Set<String> codes(List<Account> accounts) {
+        return accounts.stream().map(Account::getAccountCode).collect(Collectors.toSet());
+    }
+}
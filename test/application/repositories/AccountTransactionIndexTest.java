@@ -0,0 +1,140 @@
+package application.repositories;
+
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.Transaction;
+import domain.entity.User;
+import domain.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountTransactionIndexTest {
+    private final Account account = new CheckingAccount("1", new User("Holder", Cpfs.of(151), "holder@bank.test"),
+            Clock.systemUTC());
+
+    @Test
+    void lateArrivalsAreInsertedAfterEntriesWithTheSameKey() {
+        AccountTransactionIndex index = new AccountTransactionIndex();
+        Transaction first = deposit("1.00", 0, "2026-01-01T10:00:00Z");
+        Transaction second = deposit("2.00", 100, "2026-01-01T10:00:00Z");
+        Transaction third = deposit("3.00", 300, "2026-01-01T11:00:00Z");
+        Transaction late = deposit("4.00", 600, "2026-01-01T10:00:00Z");
+
+        index.add(10, first, true);
+        index.add(10, second, true);
+        index.add(11, third, true);
+        index.add(10, late, true);
+
+        assertEquals(List.of(first, second, late, third),
+                index.read(Long.MIN_VALUE, Long.MAX_VALUE, 0, 0, null, -1).transactions());
+        assertEquals(100 + 200 + 400, index.balanceAt(10));
+        assertEquals(1_000, index.balanceAt(11));
+        assertEquals(0, index.balanceAt(9));
+    }
+
+    @Test
+    void pagesResumeInsideRunsOfEqualKeys() {
+        AccountTransactionIndex index = new AccountTransactionIndex();
+        List<Transaction> added = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Transaction transaction = deposit("1.00", i * 100L, "2026-01-01T10:00:00Z");
+            // keys 0, 0, 0, 1, 1, 1, 2, ...
+            index.add(i / 3, transaction, true);
+            added.add(transaction);
+        }
+
+        List<Transaction> read = new ArrayList<>();
+        long cursorKey = 0;
+        int cursorTie = 0;
+        AccountTransactionIndex.Slice slice;
+        do {
+            slice = index.read(Long.MIN_VALUE, Long.MAX_VALUE, cursorKey, cursorTie, null, 2);
+            read.addAll(slice.transactions());
+            cursorKey = slice.nextKey();
+            cursorTie = slice.nextTie();
+        } while (slice.hasMore());
+
+        assertEquals(added, read);
+        assertFalse(index.read(1, 3, 0, 0, null, 6).hasMore());
+        assertEquals(added.subList(3, 9), index.read(1, 3, 0, 0, null, -1).transactions());
+    }
+
+    @Test
+    void balanceRangesSpanManyBlocks() {
+        AccountTransactionIndex index = new AccountTransactionIndex();
+        long balance = 0;
+        long low = Long.MAX_VALUE;
+        long high = Long.MIN_VALUE;
+        for (int i = 0; i < 1_000; i++) {
+            // up three, down two, dipping once in the middle
+            long change = i == 500 ? -100_000 : i % 5 < 3 ? 100 : -100;
+            Transaction transaction = change > 0
+                    ? deposit(BigDecimal.valueOf(change, 2).toPlainString(), balance, "2026-01-01T10:00:00Z")
+                    : withdraw(BigDecimal.valueOf(-change, 2).toPlainString(), balance);
+            balance += change;
+            index.add(i, transaction, true);
+            if (i >= 100 && i < 900) {
+                low = Math.min(low, balance);
+                high = Math.max(high, balance);
+            }
+        }
+
+        long[] range = index.balanceRange(100, 900);
+        assertEquals(index.balanceAt(99), range[0]);
+        assertEquals(index.balanceAt(899), range[1]);
+        assertEquals(Math.min(low, range[0]), range[2]);
+        assertEquals(Math.max(high, range[0]), range[3]);
+    }
+
+    @Test
+    void datesOutsideTheNanosecondRangeStillSortAndBound() {
+        TransactionRepository repository = new TransactionRepository();
+        Transaction ancient = deposit("1.00", 0, "1500-01-01T00:00:00Z");
+        Transaction recent = deposit("2.00", 100, "2026-01-01T00:00:00Z");
+        Transaction distant = deposit("3.00", 300, "3000-01-01T00:00:00Z");
+        repository.save(distant);
+        repository.save(recent);
+        repository.save(ancient);
+
+        String code = account.getAccountCode();
+        assertEquals(List.of(ancient, recent, distant), repository.findByAccount(code));
+        assertEquals(List.of(ancient, recent, distant),
+                repository.findByAccount(code, LocalDateTime.MIN, LocalDateTime.MAX));
+        assertEquals(List.of(recent, distant),
+                repository.findByAccount(code, LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.MAX));
+        assertEquals(List.of(ancient),
+                repository.findByAccount(code, LocalDateTime.MIN, LocalDateTime.of(2000, 1, 1, 0, 0)));
+
+        assertEquals(0, new BigDecimal("6.00").compareTo(repository.getBalanceAt(code, LocalDateTime.MAX)));
+        assertEquals(0, BigDecimal.ONE.compareTo(repository.getBalanceAt(code, LocalDateTime.of(2000, 1, 1, 0, 0))));
+        assertEquals(0, new BigDecimal("3.00").compareTo(
+                repository.getBalanceRange(code, LocalDateTime.MIN, LocalDateTime.of(2100, 1, 1, 0, 0)).closing()));
+
+        TransactionPage first = repository.findPage(code, LocalDateTime.MIN, LocalDateTime.MAX, null, 2);
+        assertTrue(first.hasNext());
+        assertEquals(List.of(distant), repository.findPage(code, LocalDateTime.MIN, LocalDateTime.MAX,
+                first.nextCursor(), 2).transactions());
+    }
+
+    private Transaction deposit(String amount, long previousCents, String instant) {
+        return new Transaction(TransactionType.DEPOSIT, new BigDecimal(amount), BigDecimal.valueOf(previousCents, 2),
+                account.getAccountCode(), null, "Deposit", Clock.fixed(Instant.parse(instant), ZoneOffset.UTC));
+    }
+
+    private Transaction withdraw(String amount, long previousCents) {
+        return new Transaction(TransactionType.WITHDRAW, new BigDecimal(amount), BigDecimal.valueOf(previousCents, 2),
+                account.getAccountCode(), null, "Withdraw", Clock.systemUTC());
+    }
+}
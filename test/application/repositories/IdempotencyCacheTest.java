@@ -0,0 +1,157 @@
+package application.repositories;
+
+import domain.entity.Transaction;
+import domain.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyCacheTest {
+    private final AdjustableClock clock = new AdjustableClock();
+
+    @Test
+    void retriesGetTheRecordedTransactions() {
+        IdempotencyCache cache = new IdempotencyCache(Duration.ofHours(1), 10, clock);
+        List<Transaction> posted = List.of(deposit());
+
+        IdempotencyCache.Claim first = cache.claim("key", "deposit|1");
+        assertFalse(first.isDuplicate());
+        assertThrows(IllegalStateException.class, first::getTransactions);
+        first.record(posted);
+        first.complete();
+
+        IdempotencyCache.Claim retry = cache.claim("key", "deposit|1");
+        assertTrue(retry.isDuplicate());
+        assertSame(posted.get(0), retry.getTransactions().get(0));
+        assertEquals(1, cache.getRecorded().size());
+    }
+
+    @Test
+    void aKeyReusedForAnotherRequestIsRejected() {
+        IdempotencyCache cache = new IdempotencyCache(Duration.ofHours(1), 10, clock);
+        IdempotencyCache.Claim first = cache.claim("key", "deposit|1");
+        first.record(List.of(deposit()));
+        first.complete();
+
+        assertThrows(IllegalArgumentException.class, () -> cache.claim("key", "deposit|2"));
+        assertThrows(IllegalArgumentException.class, () -> cache.claim(" ", "deposit|1"));
+        assertThrows(IllegalArgumentException.class, () -> cache.claim("k".repeat(256), "deposit|1"));
+    }
+
+    @Test
+    void keysExpireAfterTheirTimeToLive() {
+        IdempotencyCache cache = new IdempotencyCache(Duration.ofMinutes(10), 10, clock);
+        IdempotencyCache.Claim first = cache.claim("key", "deposit|1");
+        first.record(List.of(deposit()));
+        first.complete();
+
+        clock.advance(Duration.ofMinutes(9));
+        assertTrue(cache.claim("key", "deposit|1").isDuplicate());
+
+        clock.advance(Duration.ofMinutes(1));
+        assertTrue(cache.getRecorded().isEmpty());
+        // an expired key may be reused, even for another request
+        assertFalse(cache.claim("key", "deposit|2").isDuplicate());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void theOldestKeysAreDroppedOnceFull() {
+        IdempotencyCache cache = new IdempotencyCache(Duration.ofHours(1), 3, clock);
+        for (int i = 0; i < 5; i++) {
+            IdempotencyCache.Claim claim = cache.claim("key" + i, "deposit|1");
+            claim.record(List.of(deposit()));
+            claim.complete();
+        }
+
+        assertEquals(3, cache.size());
+        assertEquals(List.of("key2", "key3", "key4"),
+                cache.getRecorded().stream().map(IdempotencyCache.RecordedKey::key).toList());
+        assertFalse(cache.claim("key0", "deposit|1").isDuplicate());
+    }
+
+    @Test
+    void releasedKeysLetTheirRetryRunAndDoNotCountTowardTheLimit() {
+        IdempotencyCache cache = new IdempotencyCache(Duration.ofHours(1), 2, clock);
+        IdempotencyCache.Claim live = cache.claim("live", "deposit|1");
+        live.record(List.of(deposit()));
+        live.complete();
+
+        for (int i = 0; i < 10; i++) {
+            cache.claim("declined" + i, "withdraw|1").release(new IllegalStateException("Declined"));
+        }
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.claim("live", "deposit|1").isDuplicate());
+        assertFalse(cache.claim("declined0", "withdraw|1").isDuplicate());
+    }
+
+    @Test
+    void duplicatesInFlightWaitForTheFirstRequest() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(Duration.ofHours(1), 10, clock);
+        List<Transaction> posted = List.of(deposit());
+
+        IdempotencyCache.Claim first = cache.claim("key", "deposit|1");
+        CompletableFuture<IdempotencyCache.Claim> waiting = CompletableFuture.supplyAsync(
+                () -> cache.claim("key", "deposit|1"));
+        assertThrows(TimeoutException.class, () -> waiting.get(100, TimeUnit.MILLISECONDS));
+
+        first.record(posted);
+        first.complete();
+        assertSame(posted.get(0), waiting.get(5, TimeUnit.SECONDS).getTransactions().get(0));
+
+        IdempotencyCache.Claim failing = cache.claim("other", "deposit|1");
+        CompletableFuture<IdempotencyCache.Claim> failed = CompletableFuture.supplyAsync(
+                () -> cache.claim("other", "deposit|1"));
+        assertThrows(TimeoutException.class, () -> failed.get(100, TimeUnit.MILLISECONDS));
+        failing.release(new IllegalStateException("Declined"));
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, thrown.getCause());
+    }
+
+    private static Transaction deposit() {
+        return new Transaction(TransactionType.DEPOSIT, BigDecimal.ONE, BigDecimal.ZERO, "0001-00000001", null,
+                "Deposit");
+    }
+
+    private static final class AdjustableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package application.repositories;
+
+import application.persistence.DurableStorage;
+import application.services.AccountLocks;
+import application.services.AccountService;
+import application.services.LedgerService;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import support.Cpfs;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedAccountRepositoryTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsNineDigitBranchesAcrossReopen() throws IOException {
+        UserRepository userRepository = new UserRepository();
+        User holder = new User("Holder", Cpfs.of(31), "holder@bank.test");
+        userRepository.save(holder);
+
+        Account account = new CheckingAccount("123456789", holder);
+        try (MappedAccountRepository repository = new MappedAccountRepository(directory.resolve("accounts"),
+                userRepository)) {
+            repository.save(account);
+        }
+
+        try (MappedAccountRepository repository = new MappedAccountRepository(directory.resolve("accounts"),
+                userRepository)) {
+            Account loaded = repository.getByCode("123456789", account.getNumber()).orElseThrow();
+            assertEquals(account.getAccountCode(), loaded.getAccountCode());
+        }
+    }
+
+    @Test
+    void readsRecordsWrittenWithAsciiBranchCodes() throws IOException {
+        UserRepository userRepository = new UserRepository();
+        User holder = new User("Holder", Cpfs.of(32), "holder@bank.test");
+        userRepository.save(holder);
+
+        Account account = new CheckingAccount("0042", holder);
+        Path file = directory.resolve("accounts");
+        try (MappedAccountRepository repository = new MappedAccountRepository(file, userRepository)) {
+            repository.save(account);
+        }
+
+        // rewrites the first record the way the store used to lay the branch out
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer branch = ByteBuffer.allocate(8);
+            branch.put("0042".getBytes(StandardCharsets.US_ASCII)).rewind();
+            channel.write(branch, 56);
+        }
+
+        try (MappedAccountRepository repository = new MappedAccountRepository(file, userRepository)) {
+            assertTrue(repository.getByCode("0042", account.getNumber()).isPresent());
+        }
+    }
+
+    @Test
+    void journalsSavesAndRemovals() throws IOException {
+        UserRepository userRepository = new UserRepository();
+        AccountLocks accountLocks = new AccountLocks();
+        Account kept;
+        Account removed;
+
+        try (MappedAccountRepository accountRepository = new MappedAccountRepository(directory.resolve("first"),
+                userRepository)) {
+            DurableStorage storage = DurableStorage.open(directory.resolve("journal"), userRepository,
+                    accountRepository, new TransactionRepository(), accountLocks);
+            User holder = new User("Holder", Cpfs.of(33), "holder@bank.test");
+            userRepository.save(holder);
+            AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+
+            kept = accountService.createCheckingAccount("7", holder.getId());
+            removed = accountService.createCheckingAccount("7", holder.getId());
+            accountRepository.remove(removed.getBranchCode(), removed.getNumber());
+            storage.close();
+        }
+
+        // the mapped file is lost; the journal alone brings the accounts back
+        UserRepository recoveredUsers = new UserRepository();
+        try (MappedAccountRepository accountRepository = new MappedAccountRepository(directory.resolve("second"),
+                recoveredUsers)) {
+            DurableStorage.open(directory.resolve("journal"), recoveredUsers, accountRepository,
+                    new TransactionRepository(), new AccountLocks()).close();
+            assertTrue(accountRepository.getByCode(kept.getBranchCode(), kept.getNumber()).isPresent());
+            assertFalse(accountRepository.getByCode(removed.getBranchCode(), removed.getNumber()).isPresent());
+        }
+    }
+
+    @Test
+    void refusesSplitCreditsWithoutChangingTheAccount() throws IOException {
+        UserRepository userRepository = new UserRepository();
+        User holder = new User("Holder", Cpfs.of(34), "holder@bank.test");
+        userRepository.save(holder);
+
+        try (MappedAccountRepository accountRepository = new MappedAccountRepository(directory.resolve("accounts"),
+                userRepository)) {
+            AccountLocks accountLocks = new AccountLocks();
+            AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+            LedgerService ledgerService = new LedgerService(accountRepository, new TransactionRepository(),
+                    accountLocks);
+            Account origin = accountService.createCheckingAccount("7", holder.getId());
+            Account destination = accountService.createCheckingAccount("7", holder.getId());
+
+            assertThrows(UnsupportedOperationException.class,
+                    () -> accountService.enableSplitCredits(destination.getBranchCode(), destination.getNumber()));
+            assertFalse(destination.hasSplitCredits());
+
+            ledgerService.deposit(origin.getBranchCode(), origin.getNumber(), BigDecimal.TEN, "Deposit");
+            ledgerService.transfer(origin.getBranchCode(), origin.getNumber(),
+                    destination.getBranchCode(), destination.getNumber(), BigDecimal.ONE, "Transfer");
+            assertEquals(0, new BigDecimal("1.00").compareTo(destination.getBalance()));
+        }
+    }
+}
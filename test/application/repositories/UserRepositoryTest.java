@@ -0,0 +1,163 @@
+package application.repositories;
+
+import domain.entity.User;
+import domain.exception.EmailAlreadyInUseException;
+import domain.exception.EmailUnchangedException;
+import domain.valueObject.Email;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserRepositoryTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 2_000;
+
+    @Test
+    void findsUsersByFormattedCpfAndByEmail() {
+        UserRepository repository = new UserRepository();
+        User user = new User("Ana", Cpfs.of(10), "ana@bank.test");
+        repository.save(user);
+
+        String cpf = user.getCpf();
+        String formatted = cpf.substring(0, 3) + "." + cpf.substring(3, 6) + "." + cpf.substring(6, 9)
+                + "-" + cpf.substring(9);
+        assertEquals(user, repository.findByCPF(formatted).orElseThrow());
+        assertEquals(user, repository.findByEmail(Email.of("ana@bank.test")).orElseThrow());
+    }
+
+    @Test
+    void rejectsDuplicateCpfAndEmail() {
+        UserRepository repository = new UserRepository();
+        repository.save(new User("Ana", Cpfs.of(10), "ana@bank.test"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> repository.save(new User("Bia", Cpfs.of(10), "bia@bank.test")));
+        assertThrows(EmailAlreadyInUseException.class,
+                () -> repository.save(new User("Bia", Cpfs.of(11), "ana@bank.test")));
+        assertTrue(repository.findByCPF(Cpfs.of(11)).isEmpty());
+        assertEquals(1, repository.findAll().size());
+    }
+
+    @Test
+    void changeEmailReleasesTheOldAddress() {
+        UserRepository repository = new UserRepository();
+        User ana = new User("Ana", Cpfs.of(10), "ana@bank.test");
+        repository.save(ana);
+
+        repository.changeEmail(ana, Email.of("ana.silva@bank.test"));
+        repository.save(new User("Bia", Cpfs.of(11), "ana@bank.test"));
+
+        assertEquals(ana, repository.findByEmail(Email.of("ana.silva@bank.test")).orElseThrow());
+        assertEquals(2, repository.findAll().size());
+    }
+
+    @Test
+    void emailsOnlyChangeThroughTheRepository() {
+        UserRepository repository = new UserRepository();
+        User ana = new User("Ana", Cpfs.of(212), "ana@bank.test");
+        User bia = new User("Bia", Cpfs.of(213), "bia@bank.test");
+        repository.save(ana);
+        repository.save(bia);
+
+        // an address the index does not hold for the user is refused
+        assertThrows(IllegalStateException.class,
+                () -> ana.changeEmail(Email.of("ana.silva@bank.test"), address -> null));
+        assertThrows(IllegalStateException.class,
+                () -> ana.changeEmail(Email.of("bia@bank.test"), address -> bia.getId()));
+        assertEquals("ana@bank.test", ana.getEmailAddress());
+        assertEquals(ana, repository.findByEmail(Email.of("ana@bank.test")).orElseThrow());
+
+        assertThrows(EmailAlreadyInUseException.class, () -> repository.changeEmail(ana, Email.of("bia@bank.test")));
+        assertThrows(EmailUnchangedException.class, () -> repository.changeEmail(ana, Email.of("ana@bank.test")));
+        assertEquals(ana, repository.findByEmail(Email.of("ana@bank.test")).orElseThrow());
+        assertEquals(bia, repository.findByEmail(Email.of("bia@bank.test")).orElseThrow());
+
+        repository.changeEmail(ana, Email.of("ana.silva@bank.test"));
+        assertEquals("ana.silva@bank.test", ana.getEmailAddress());
+        assertTrue(repository.findByEmail(Email.of("ana@bank.test")).isEmpty());
+    }
+
+    @Test
+    void concurrentRegistrationsNeverShareCpfOrEmail() throws Exception {
+        UserRepository repository = new UserRepository();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            // lookups run all along, as they did when they used to drop claimed entries
+            Future<?> reader = executor.submit(() -> {
+                while (running.get()) {
+                    for (int round = 0; round < ROUNDS; round++) {
+                        repository.findByCPF(Cpfs.of(round));
+                        repository.findByEmail(Email.of("shared" + round + "@bank.test"));
+                    }
+                }
+            });
+
+            for (int round = 0; round < ROUNDS; round++) {
+                int sameCpf = race(executor, repository, round, true);
+                int sameEmail = race(executor, repository, round, false);
+                assertEquals(1, sameCpf, "users registered with one CPF in round " + round);
+                assertEquals(1, sameEmail, "users registered with one email in round " + round);
+            }
+
+            running.set(false);
+            reader.get();
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(2 * ROUNDS, repository.findAll().size());
+        for (User user : repository.findAll()) {
+            assertEquals(user, repository.findByCPF(user.getCpf()).orElseThrow());
+            assertEquals(user, repository.findByEmail(Email.of(user.getEmailAddress())).orElseThrow());
+        }
+    }
+
+    /**
+     * Registers THREADS users that share either a CPF or an email at the same moment and
+     * returns how many got in
+     */
+    private static int race(ExecutorService executor, UserRepository repository, int round, boolean shareCpf)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger saved = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            long unique = 1_000_000L + (long) round * THREADS * 2 + t + (shareCpf ? 0 : THREADS);
+            String cpf = shareCpf ? Cpfs.of(round) : Cpfs.of(unique);
+            String email = shareCpf ? "user" + unique + "@bank.test" : "shared" + round + "@bank.test";
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    repository.save(new User("User", cpf, email));
+                    saved.incrementAndGet();
+                } catch (IllegalArgumentException | EmailAlreadyInUseException e) {
+                    // lost the race for the key
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return saved.get();
+    }
+}
@@ -0,0 +1,116 @@
+package application.services;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import domain.entity.Account;
+import domain.entity.Transaction;
+import domain.entity.User;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Puts a hundred thousand concurrent clients on the asynchronous ledger, each with one
+ * deposit outstanding, and checks that every one settles in the order its account got it.
+ */
+class AsyncLedgerLoadTest {
+    private static final int CLIENTS = 100_000;
+    private static final int ACCOUNTS = 1_000;
+    private static final BigDecimal CENT = new BigDecimal("0.01");
+
+    @Test
+    void settlesEveryClientInAccountOrder() throws Exception {
+        Bank bank = new Bank();
+        try (RequestExecutor requestExecutor = new RequestExecutor(RequestExecutor.newDefaultExecutor(), CLIENTS,
+                Duration.ofSeconds(30))) {
+            AsyncLedgerService ledger = new AsyncLedgerService(bank.ledgerService, requestExecutor);
+
+            SplittableRandom random = new SplittableRandom(11);
+            List<List<CompletableFuture<Transaction>>> byAccount = new ArrayList<>();
+            for (int i = 0; i < ACCOUNTS; i++) {
+                byAccount.add(new ArrayList<>());
+            }
+            for (int client = 0; client < CLIENTS; client++) {
+                int i = random.nextInt(ACCOUNTS);
+                Account account = bank.accounts.get(i);
+                byAccount.get(i).add(ledger.deposit(account.getBranchCode(), account.getNumber(), CENT, "Deposit"));
+            }
+
+            for (List<CompletableFuture<Transaction>> deposits : byAccount) {
+                for (int n = 0; n < deposits.size(); n++) {
+                    Transaction deposit = deposits.get(n).get(60, TimeUnit.SECONDS);
+                    // the n-th deposit submitted for an account is the n-th one applied
+                    assertEquals(n + 1, deposit.getBalanceAfterCents());
+                }
+            }
+            assertEquals(CLIENTS, requestExecutor.availablePermits());
+        }
+    }
+
+    @Test
+    void overloadIsRefusedAndEveryPermitComesBack() {
+        Bank bank = new Bank();
+        int maxInFlight = 1_000;
+        try (RequestExecutor requestExecutor = new RequestExecutor(RequestExecutor.newDefaultExecutor(), maxInFlight,
+                Duration.ZERO)) {
+            AsyncLedgerService ledger = new AsyncLedgerService(bank.ledgerService, requestExecutor);
+
+            List<CompletableFuture<Transaction>> results = new ArrayList<>();
+            for (int client = 0; client < CLIENTS; client++) {
+                Account account = bank.accounts.get(client % ACCOUNTS);
+                results.add(ledger.deposit(account.getBranchCode(), account.getNumber(), CENT, "Deposit"));
+            }
+
+            long settled = 0;
+            long refused = 0;
+            for (CompletableFuture<Transaction> result : results) {
+                try {
+                    result.join();
+                    settled++;
+                } catch (CompletionException e) {
+                    assertInstanceOf(RejectedExecutionException.class, e.getCause());
+                    refused++;
+                }
+            }
+
+            assertEquals(CLIENTS, settled + refused);
+            assertTrue(settled >= maxInFlight);
+            BigDecimal total = bank.accounts.stream().map(Account::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+            assertEquals(CENT.multiply(BigDecimal.valueOf(settled)), total);
+            assertEquals(maxInFlight, requestExecutor.availablePermits());
+        }
+    }
+
+    private static final class Bank {
+        private final LedgerService ledgerService;
+        private final List<Account> accounts = new ArrayList<>();
+
+        Bank() {
+            UserRepository userRepository = new UserRepository();
+            AccountRepository accountRepository = new AccountRepository();
+            AccountLocks accountLocks = new AccountLocks();
+            AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+            ledgerService = new LedgerService(accountRepository, new TransactionRepository(), accountLocks);
+
+            User holder = new User("Holder", Cpfs.of(41), "holder@bank.test");
+            userRepository.save(holder);
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accounts.add(accountService.createCheckingAccount("3", holder.getId()));
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package application.services;
+
+import application.repositories.AccountRepository;
+import application.repositories.UserRepository;
+import domain.entity.Account;
+import domain.entity.SavingsAccount;
+import domain.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import support.Cpfs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkImportServiceTest {
+    @TempDir
+    Path directory;
+
+    private final UserRepository userRepository = new UserRepository();
+    private final AccountRepository accountRepository = new AccountRepository();
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void importsValidRowsAndReportsEveryRejection() throws IOException {
+        userRepository.save(new User("Existing", Cpfs.of(139), "existing@bank.test"));
+
+        List<String> report = importRows(100,
+                "name,cpf,email,agency,account_type",
+                "Ana," + Cpfs.of(131) + ",ana@bank.test,1,CHECKING",
+                "\"Silva, Bruno\"," + Cpfs.of(132) + ",bruno@bank.test,2,savings",
+                "Carla," + Cpfs.of(131) + ",carla@bank.test,1,CHECKING",
+                "Dan," + Cpfs.of(133) + ",ana@bank.test,1,CHECKING",
+                "Eve," + Cpfs.of(134) + ",eve@bank.test,1,LOAN",
+                "",
+                "\"Fay," + Cpfs.of(135) + ",fay@bank.test,1,CHECKING",
+                "Gus," + Cpfs.of(136) + ",gus@bank.test,1",
+                "Hal," + Cpfs.of(139) + ",hal@bank.test,1,CHECKING",
+                "Ivy,123,ivy@bank.test,1,CHECKING");
+
+        // the existing user, Ana and Bruno
+        assertEquals(3, userRepository.findAll().size());
+        assertEquals(2, accountRepository.getAll().size());
+        Account savings = accountRepository.getAll().stream()
+                .filter(account -> account.getBranchCode().equals("2"))
+                .findFirst()
+                .orElseThrow();
+        assertInstanceOf(SavingsAccount.class, savings);
+        assertEquals("Silva, Bruno", savings.getHolder().getName());
+
+        assertEquals("line,reason,row", report.get(0));
+        assertEquals("4,CPF repeated in the file,\"Carla," + Cpfs.of(131) + ",carla@bank.test,1,CHECKING\"",
+                report.get(1));
+        assertTrue(report.get(2).startsWith("5,Email repeated in the file,"));
+        assertTrue(report.get(3).startsWith("6,Invalid account type: LOAN,"));
+        // the blank line 7 is skipped without a rejection
+        assertTrue(report.get(4).startsWith("8,Unterminated quoted field,\"\"\"Fay,"));
+        assertTrue(report.get(5).startsWith("9,\"Expected 5 fields, found 4\","));
+        assertTrue(report.get(6).startsWith("10,CPF already exists,"));
+        assertTrue(report.get(7).startsWith("11,"));
+        assertEquals(8, report.size());
+    }
+
+    @Test
+    void repeatsAcrossBatchesAreRejectedOnce() throws IOException {
+        String[] rows = new String[50];
+        for (int i = 0; i < rows.length; i++) {
+            // every CPF appears twice, five rows apart
+            int holder = i % 5 + 10 * (i / 10);
+            rows[i] = "User " + i + "," + Cpfs.of(140 + holder) + ",user" + i + "@bank.test,1,CHECKING";
+        }
+
+        BulkImportService importService = new BulkImportService(userRepository, accountRepository, pool,
+                Clock.systemDefaultZone(), 3);
+        Path input = Files.write(directory.resolve("users.csv"), List.of(rows));
+        BulkImportResult result = importService.importFile(input, directory.resolve("rejected.csv"));
+
+        assertEquals(50, result.rowsRead());
+        assertEquals(25, result.usersCreated());
+        assertEquals(25, result.accountsCreated());
+        assertEquals(25, result.rejected());
+        assertEquals(25, userRepository.findAll().size());
+        assertEquals(1 + 25, Files.readAllLines(directory.resolve("rejected.csv")).size());
+    }
+
+    private List<String> importRows(int batchSize, String... rows) throws IOException {
+        BulkImportService importService = new BulkImportService(userRepository, accountRepository, pool,
+                Clock.systemDefaultZone(), batchSize);
+        Path input = Files.write(directory.resolve("users.csv"), List.of(rows), StandardCharsets.UTF_8);
+        Path report = directory.resolve("rejected.csv");
+
+        BulkImportResult result = importService.importFile(input, report);
+        assertEquals(rows.length - 2, result.rowsRead());
+        return Files.readAllLines(report, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+package application.services;
+
+import application.persistence.DurableStorage;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import domain.entity.Account;
+import domain.entity.Transaction;
+import domain.entity.TransferTransactions;
+import domain.entity.User;
+import domain.exception.InsufficientFundsException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import support.Cpfs;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerServiceTest {
+    @TempDir
+    Path directory;
+
+    private final UserRepository userRepository = new UserRepository();
+    private final AccountRepository accountRepository = new AccountRepository();
+    private final TransactionRepository transactionRepository = new TransactionRepository();
+    private final AccountLocks accountLocks = new AccountLocks();
+    private final LedgerService ledgerService = new LedgerService(accountRepository, transactionRepository,
+            accountLocks);
+
+    @Test
+    void refusedDepositLeavesTheBalanceAsItWas() throws IOException {
+        DurableStorage storage = open();
+        Account account = createAccount(61);
+        ledgerService.deposit(account.getBranchCode(), account.getNumber(), BigDecimal.TEN, "Deposit");
+        storage.close();
+
+        // the journal is closed, so every append is refused
+        assertThrows(IllegalStateException.class,
+                () -> ledgerService.deposit(account.getBranchCode(), account.getNumber(), BigDecimal.ONE, "Deposit"));
+        assertThrows(IllegalStateException.class,
+                () -> ledgerService.withdraw(account.getBranchCode(), account.getNumber(), BigDecimal.ONE, "Withdraw"));
+
+        assertEquals(0, new BigDecimal("10.00").compareTo(account.getBalance()));
+        assertEquals(1, transactionRepository.findByAccount(account.getAccountCode()).size());
+    }
+
+    @Test
+    void refusedTransferLeavesBothBalancesAsTheyWere() throws IOException {
+        DurableStorage storage = open();
+        Account origin = createAccount(62);
+        Account destination = createAccount(63);
+        ledgerService.deposit(origin.getBranchCode(), origin.getNumber(), BigDecimal.TEN, "Deposit");
+        storage.close();
+
+        assertThrows(IllegalStateException.class, () -> ledgerService.transfer(origin.getBranchCode(),
+                origin.getNumber(), destination.getBranchCode(), destination.getNumber(), BigDecimal.ONE, "Transfer"));
+
+        assertEquals(0, new BigDecimal("10.00").compareTo(origin.getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(destination.getBalance()));
+        assertEquals(1, transactionRepository.findByAccount(origin.getAccountCode()).size());
+        assertTrue(transactionRepository.findByAccount(destination.getAccountCode()).isEmpty());
+    }
+
+    @Test
+    void recoveryMatchesTheBalanceKeptAfterARefusal() throws IOException {
+        DurableStorage storage = open();
+        Account account = createAccount(64);
+        ledgerService.deposit(account.getBranchCode(), account.getNumber(), BigDecimal.TEN, "Deposit");
+        storage.close();
+        assertThrows(IllegalStateException.class,
+                () -> ledgerService.deposit(account.getBranchCode(), account.getNumber(), BigDecimal.ONE, "Deposit"));
+
+        AccountRepository recovered = new AccountRepository();
+        DurableStorage.open(directory, new UserRepository(), recovered, new TransactionRepository(),
+                new AccountLocks()).close();
+        Account restored = recovered.getByCode(account.getBranchCode(), account.getNumber()).orElseThrow();
+        assertEquals(0, account.getBalance().compareTo(restored.getBalance()));
+    }
+
+    @Test
+    void keyedRetriesReturnTheFirstTransactionsAndPostOnce() {
+        Account origin = createAccount(65);
+        Account destination = createAccount(66);
+
+        Transaction deposit = ledgerService.deposit("deposit-1", origin.getBranchCode(), origin.getNumber(),
+                BigDecimal.TEN, "Deposit");
+        assertSame(deposit, ledgerService.deposit("deposit-1", origin.getBranchCode(), origin.getNumber(),
+                BigDecimal.TEN, "Deposit"));
+
+        Transaction withdrawal = ledgerService.withdraw("withdraw-1", origin.getBranchCode(), origin.getNumber(),
+                BigDecimal.ONE, "Withdraw");
+        assertSame(withdrawal, ledgerService.withdraw("withdraw-1", origin.getBranchCode(), origin.getNumber(),
+                BigDecimal.ONE, "Withdraw"));
+
+        TransferTransactions transfer = ledgerService.transfer("transfer-1", origin.getBranchCode(),
+                origin.getNumber(), destination.getBranchCode(), destination.getNumber(), new BigDecimal("2.00"), "Transfer");
+        TransferTransactions retried = ledgerService.transfer("transfer-1", origin.getBranchCode(),
+                origin.getNumber(), destination.getBranchCode(), destination.getNumber(), new BigDecimal("2.00"), "Transfer");
+        assertSame(transfer.sent(), retried.sent());
+        assertSame(transfer.received(), retried.received());
+
+        assertEquals(0, new BigDecimal("7.00").compareTo(origin.getBalance()));
+        assertEquals(0, new BigDecimal("2.00").compareTo(destination.getBalance()));
+        assertEquals(3, transactionRepository.findByAccount(origin.getAccountCode()).size());
+    }
+
+    @Test
+    void aKeyReusedForAnotherRequestIsRejected() {
+        Account account = createAccount(67);
+        ledgerService.deposit("deposit-1", account.getBranchCode(), account.getNumber(), BigDecimal.TEN, "Deposit");
+
+        assertThrows(IllegalArgumentException.class, () -> ledgerService.deposit("deposit-1",
+                account.getBranchCode(), account.getNumber(), BigDecimal.ONE, "Deposit"));
+        assertThrows(IllegalArgumentException.class, () -> ledgerService.withdraw("deposit-1",
+                account.getBranchCode(), account.getNumber(), BigDecimal.TEN, "Withdraw"));
+        assertEquals(0, new BigDecimal("10.00").compareTo(account.getBalance()));
+    }
+
+    @Test
+    void aDeclinedRequestLetsItsRetryRunAgain() {
+        Account account = createAccount(68);
+        BigDecimal amount = new BigDecimal("600.00");
+
+        // past the 500.00 overdraft limit
+        assertThrows(InsufficientFundsException.class, () -> ledgerService.withdraw("withdraw-1",
+                account.getBranchCode(), account.getNumber(), amount, "Withdraw"));
+        ledgerService.deposit(account.getBranchCode(), account.getNumber(), new BigDecimal("200.00"), "Deposit");
+
+        Transaction withdrawal = ledgerService.withdraw("withdraw-1", account.getBranchCode(), account.getNumber(),
+                amount, "Withdraw");
+        assertEquals(0, new BigDecimal("-400.00").compareTo(withdrawal.getBalanceAfter()));
+        assertSame(withdrawal, ledgerService.withdraw("withdraw-1", account.getBranchCode(), account.getNumber(),
+                amount, "Withdraw"));
+    }
+
+    private DurableStorage open() throws IOException {
+        return DurableStorage.open(directory, userRepository, accountRepository, transactionRepository,
+                accountLocks);
+    }
+
+    private Account createAccount(int holder) {
+        User user = new User("Holder", Cpfs.of(holder), "holder" + holder + "@bank.test");
+        userRepository.save(user);
+        return new AccountService(accountRepository, userRepository, accountLocks)
+                .createCheckingAccount("7", user.getId());
+    }
+}
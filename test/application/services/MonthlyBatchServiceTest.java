@@ -0,0 +1,172 @@
+package application.services;
+
+import application.persistence.DurableStorage;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.SavingsAccount;
+import domain.entity.User;
+import domain.enums.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import support.Cpfs;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonthlyBatchServiceTest {
+    // accounts open on January 10th, so savings yields fall due on the 10th of each month
+    private static final Clock OPENING = Clock.fixed(Instant.parse("2026-01-10T12:00:00Z"), ZoneOffset.UTC);
+
+    @TempDir
+    Path directory;
+
+    private final AccountRepository accountRepository = new AccountRepository();
+    private final TransactionRepository transactionRepository = new TransactionRepository();
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final MonthlyBatchService batchService = new MonthlyBatchService(accountRepository,
+            transactionRepository, new AccountLocks(), pool);
+    private final User holder = new User("Holder", Cpfs.of(121), "holder@bank.test");
+
+    @AfterEach
+    void shutDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void settlesEveryPartitionOncePerMonth() {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Account account = i % 4 == 0
+                    ? new SavingsAccount("1", holder, OPENING)
+                    : new CheckingAccount("1", holder, OPENING);
+            // every tenth checking account keeps enough to have its fee waived
+            account.deposit(new BigDecimal(i % 10 == 1 ? "2000.00" : "100.00"), "Opening");
+            accountRepository.save(account);
+            accounts.add(account);
+        }
+
+        MonthlyBatchResult first = batchService.run(LocalDate.of(2026, 2, 27));
+        assertEquals(10_000, first.processed());
+        assertEquals(7_500 - 1_000, first.feesCharged());
+        assertEquals(2_500, first.yieldsPaid());
+        assertFalse(first.hasFailures());
+
+        MonthlyBatchResult rerun = batchService.run(LocalDate.of(2026, 2, 28));
+        assertEquals(10_000, rerun.processed());
+        assertEquals(0, rerun.feesCharged() + rerun.yieldsPaid());
+
+        for (int i = 0; i < accounts.size(); i++) {
+            long expected = i % 4 == 0 ? 10_050 : i % 10 == 1 ? 200_000 : 8_800;
+            assertEquals(expected, accounts.get(i).getBalanceCents());
+        }
+        assertEquals(1, transactionRepository.findByAccountAndType(accounts.get(2).getAccountCode(),
+                TransactionType.FEE).size());
+    }
+
+    @Test
+    void dailyYieldsOnlyVisitAccountsDueThatDay() {
+        SavingsAccount due = new SavingsAccount("1", holder, OPENING);
+        SavingsAccount later = new SavingsAccount("1", holder,
+                Clock.fixed(Instant.parse("2026-01-20T12:00:00Z"), ZoneOffset.UTC));
+        CheckingAccount checking = new CheckingAccount("1", holder, OPENING);
+        for (Account account : List.of(due, later, checking)) {
+            account.deposit(new BigDecimal("1000.00"), "Opening");
+            accountRepository.save(account);
+        }
+
+        MonthlyBatchResult result = batchService.runDailyYields(LocalDate.of(2026, 2, 10));
+
+        assertEquals(1, result.processed());
+        assertEquals(1, result.yieldsPaid());
+        assertEquals(100_500, due.getBalanceCents());
+        assertEquals(100_000, later.getBalanceCents());
+        assertEquals(100_000, checking.getBalanceCents());
+    }
+
+    @Test
+    void waivedMonthsStaySettledAfterARestart() throws IOException {
+        CheckingAccount account = new CheckingAccount("1", holder, OPENING);
+        try (Ledger ledger = new Ledger(directory)) {
+            ledger.userRepository.save(holder);
+            ledger.accountRepository.save(account);
+            ledger.ledgerService.deposit("1", account.getNumber(), new BigDecimal("2000.00"), "Opening");
+
+            assertEquals(0, ledger.batchService.run(LocalDate.of(2026, 2, 27)).feesCharged());
+            // closed without a snapshot, so the waived month is only in the journal
+        }
+
+        try (Ledger ledger = new Ledger(directory)) {
+            CheckingAccount recovered = (CheckingAccount) ledger.accountRepository
+                    .getByCode("1", account.getNumber())
+                    .orElseThrow();
+            assertEquals(YearMonth.of(2026, 2), recovered.getLastFeePeriod());
+
+            // below the waiver minimum now, which must not bring the settled month back
+            ledger.ledgerService.withdraw("1", account.getNumber(), new BigDecimal("1500.00"), "Withdraw");
+            MonthlyBatchResult rerun = ledger.batchService.run(LocalDate.of(2026, 2, 28));
+            assertEquals(0, rerun.feesCharged());
+            assertEquals(50_000, recovered.getBalanceCents());
+        }
+    }
+
+    @Test
+    void reportsProgressUntilTheEnd() {
+        for (int i = 0; i < 100; i++) {
+            Account account = new CheckingAccount("1", holder, OPENING);
+            accountRepository.save(account);
+        }
+
+        List<MonthlyBatchProgress> reports = new CopyOnWriteArrayList<>();
+        MonthlyBatchResult result = batchService.run(LocalDate.of(2026, 2, 1), Duration.ofMillis(1), reports::add);
+
+        MonthlyBatchProgress last = reports.get(reports.size() - 1);
+        assertEquals(100, last.processed());
+        assertEquals(100, last.total());
+        assertEquals(100, result.feesCharged());
+        assertTrue(result.accountsPerSecond() > 0);
+    }
+
+    /**
+     * Durable repositories and the services over them
+     */
+    private final class Ledger implements AutoCloseable {
+        final UserRepository userRepository = new UserRepository();
+        final AccountRepository accountRepository = new AccountRepository();
+        final TransactionRepository transactionRepository = new TransactionRepository();
+        final AccountLocks accountLocks = new AccountLocks();
+        final LedgerService ledgerService = new LedgerService(accountRepository, transactionRepository,
+                accountLocks);
+        final MonthlyBatchService batchService = new MonthlyBatchService(accountRepository,
+                transactionRepository, accountLocks, pool);
+        final DurableStorage storage;
+
+        Ledger(Path directory) throws IOException {
+            storage = DurableStorage.open(directory, userRepository, accountRepository, transactionRepository,
+                    accountLocks);
+        }
+
+        @Override
+        public void close() throws IOException {
+            storage.close();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package application.services;
+
+import application.metrics.Metrics;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import domain.entity.Account;
+import domain.entity.Transaction;
+import domain.entity.TransferTransactions;
+import domain.entity.User;
+import domain.exception.InsufficientFundsException;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutcomeTest {
+    private final UserRepository userRepository = new UserRepository();
+    private final AccountRepository accountRepository = new AccountRepository();
+    private final AccountLocks accountLocks = new AccountLocks();
+    private final AccountService accountService = new AccountService(accountRepository, userRepository,
+            accountLocks);
+    private final LedgerService ledgerService = new LedgerService(accountRepository, new TransactionRepository(),
+            accountLocks);
+    private final UserService userService = new UserService(userRepository);
+
+    @Test
+    void declinedWithdrawalsComeBackAsSharedFailures() {
+        User holder = saveUser(111);
+        Account savings = accountService.createSavingAccount("1", holder.getId());
+        Account checking = accountService.createCheckingAccount("1", holder.getId());
+
+        Outcome<Transaction> declined = ledgerService.tryWithdraw(savings.getBranchCode(), savings.getNumber(),
+                BigDecimal.ONE, "Withdraw");
+        assertEquals(Outcome.Failure.INSUFFICIENT_FUNDS, declined.getFailure());
+        assertSame(declined, ledgerService.tryWithdraw(checking.getBranchCode(), checking.getNumber(),
+                new BigDecimal("500.01"), "Withdraw"));
+        assertThrows(IllegalStateException.class, declined::getValue);
+
+        Outcome<Transaction> overdraft = ledgerService.tryWithdraw(checking.getBranchCode(), checking.getNumber(),
+                new BigDecimal("500.00"), "Withdraw");
+        assertTrue(overdraft.isSuccess());
+        assertEquals(0, new BigDecimal("-500.00").compareTo(overdraft.getValue().getBalanceAfter()));
+    }
+
+    @Test
+    void missingAndInactiveAccountsAreFailures() {
+        User holder = saveUser(112);
+        Account origin = accountService.createCheckingAccount("1", holder.getId());
+        Account destination = accountService.createCheckingAccount("1", holder.getId());
+
+        assertEquals(Outcome.Failure.ACCOUNT_NOT_FOUND,
+                ledgerService.tryWithdraw("1", "99999999", BigDecimal.ONE, "Withdraw").getFailure());
+        assertEquals(Outcome.Failure.ACCOUNT_NOT_FOUND,
+                accountService.tryGetAccount("1", "99999999").getFailure());
+        assertSame(origin, accountService.tryGetAccount(origin.getBranchCode(), origin.getNumber()).getValue());
+
+        accountService.deactivateAccount(destination.getBranchCode(), destination.getNumber());
+        Outcome<TransferTransactions> refused = ledgerService.tryTransfer(origin.getBranchCode(), origin.getNumber(),
+                destination.getBranchCode(), destination.getNumber(), BigDecimal.ONE, "Transfer");
+        assertEquals(Outcome.Failure.ACCOUNT_INACTIVE, refused.getFailure());
+        assertEquals(0, origin.getBalanceCents());
+
+        // invalid arguments are programming errors and still throw
+        assertThrows(IllegalArgumentException.class, () -> ledgerService.tryWithdraw(origin.getBranchCode(),
+                origin.getNumber(), BigDecimal.ZERO, "Withdraw"));
+    }
+
+    @Test
+    void userLookupsAndEmailChangesReportFailures() {
+        User first = saveUser(113);
+        User second = saveUser(114);
+
+        assertEquals(Outcome.Failure.USER_NOT_FOUND, userService.tryGetUser("missing").getFailure());
+        assertSame(first, userService.tryGetUser(first.getId()).getValue());
+        assertEquals(Outcome.Failure.EMAIL_IN_USE,
+                userService.tryUpdateEmail(first.getId(), second.getEmailAddress()).getFailure());
+        assertTrue(userService.tryUpdateEmail(first.getId(), "renamed@bank.test").isSuccess());
+    }
+
+    @Test
+    void failedOutcomesAreCountedLikeTheExceptionTheyStandFor() {
+        User holder = saveUser(115);
+        Account savings = accountService.createSavingAccount("1", holder.getId());
+
+        long before = failures(InsufficientFundsException.class);
+        ledgerService.tryWithdraw(savings.getBranchCode(), savings.getNumber(), BigDecimal.ONE, "Withdraw");
+        assertThrows(InsufficientFundsException.class, () -> ledgerService.withdraw(savings.getBranchCode(),
+                savings.getNumber(), BigDecimal.ONE, "Withdraw"));
+
+        assertEquals(Metrics.isEnabled() ? 2 : 0, failures(InsufficientFundsException.class) - before);
+    }
+
+    private User saveUser(int n) {
+        User user = new User("User " + n, Cpfs.of(n), "user" + n + "@bank.test");
+        userRepository.save(user);
+        return user;
+    }
+
+    private static long failures(Class<?> type) {
+        return Metrics.getDefault().operation("ledger.withdraw").snapshot().failures()
+                .getOrDefault(type.getSimpleName(), 0L);
+    }
+}
@@ -0,0 +1,157 @@
+package application.services;
+
+import domain.valueObject.AccountCode;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RequestExecutorTest {
+    private static final int MAX_IN_FLIGHT = 8;
+    private static final long ACCOUNT = AccountCode.pack("1", "00000001");
+    private static final long OTHER_ACCOUNT = AccountCode.pack("1", "00000002");
+
+    @Test
+    void runsCallsOfOneAccountInSubmissionOrder() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (RequestExecutor requestExecutor = new RequestExecutor(pool, 1_000, Duration.ofSeconds(1))) {
+            List<Integer> order = new ArrayList<>();
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                int call = i;
+                results.add(requestExecutor.submit(ACCOUNT, () -> {
+                    order.add(call);
+                    return call;
+                }));
+            }
+
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 500; i++) {
+                assertEquals(i, order.get(i));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void callOnTwoAccountsWaitsForBothChains() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (RequestExecutor requestExecutor = new RequestExecutor(pool, MAX_IN_FLIGHT, Duration.ofSeconds(1))) {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Void> blocked = requestExecutor.submit(OTHER_ACCOUNT, () -> {
+                await(release);
+                return null;
+            });
+
+            CompletableFuture<String> transfer = requestExecutor.submit(ACCOUNT, OTHER_ACCOUNT, () -> "transfer");
+            Thread.sleep(50);
+            assertFalse(transfer.isDone());
+
+            release.countDown();
+            assertEquals("transfer", transfer.get(5, TimeUnit.SECONDS));
+            blocked.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void refusedStartReleasesThePermitAndLeavesTheChainUsable() throws Exception {
+        RefusingExecutor executor = new RefusingExecutor();
+        try (RequestExecutor requestExecutor = new RequestExecutor(executor, MAX_IN_FLIGHT, Duration.ZERO)) {
+            executor.refusing.set(true);
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                    () -> requestExecutor.submit(ACCOUNT, () -> "refused").get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+            assertEquals(MAX_IN_FLIGHT, requestExecutor.availablePermits());
+
+            executor.refusing.set(false);
+            assertEquals("accepted", requestExecutor.submit(ACCOUNT, () -> "accepted").get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.pool.shutdown();
+        }
+    }
+
+    @Test
+    void refusedQueuedCallFailsAndReleasesThePermit() throws Exception {
+        RefusingExecutor executor = new RefusingExecutor();
+        try (RequestExecutor requestExecutor = new RequestExecutor(executor, MAX_IN_FLIGHT, Duration.ZERO)) {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Void> running = requestExecutor.submit(ACCOUNT, () -> {
+                await(release);
+                return null;
+            });
+            CompletableFuture<String> queued = requestExecutor.submit(ACCOUNT, () -> "queued");
+
+            executor.refusing.set(true);
+            release.countDown();
+            running.get(5, TimeUnit.SECONDS);
+
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+            assertEquals(MAX_IN_FLIGHT, requestExecutor.availablePermits());
+
+            executor.refusing.set(false);
+            assertEquals("next", requestExecutor.submit(ACCOUNT, () -> "next").get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.pool.shutdown();
+        }
+    }
+
+    @Test
+    void callsWithoutAValidAccountAreNotOrderedTogether() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (RequestExecutor requestExecutor = new RequestExecutor(pool, MAX_IN_FLIGHT, Duration.ofSeconds(1))) {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Void> blocked = requestExecutor.submit(AccountCode.keyOf("x", "y"), () -> {
+                await(release);
+                return null;
+            });
+
+            CompletableFuture<String> other = requestExecutor.submit(AccountCode.keyOf("bad", "code"), () -> "ran");
+            assertEquals("ran", other.get(5, TimeUnit.SECONDS));
+
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class RefusingExecutor implements Executor {
+        private final ExecutorService pool = Executors.newFixedThreadPool(2);
+        private final AtomicBoolean refusing = new AtomicBoolean();
+
+        @Override
+        public void execute(Runnable command) {
+            if (refusing.get()) {
+                throw new RejectedExecutionException("Refused.");
+            }
+            pool.execute(command);
+        }
+    }
+}
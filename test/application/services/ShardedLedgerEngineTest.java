@@ -0,0 +1,141 @@
+package application.services;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import domain.entity.Account;
+import domain.entity.TransferTransactions;
+import domain.entity.User;
+import domain.enums.TransactionStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedLedgerEngineTest {
+    private static final int ACCOUNTS = 32;
+    private static final BigDecimal OPENING = new BigDecimal("500.00");
+
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private ShardedLedgerEngine engine;
+    private final List<Account> accounts = new ArrayList<>();
+
+    @BeforeEach
+    void open() {
+        UserRepository userRepository = new UserRepository();
+        accountRepository = new AccountRepository();
+        transactionRepository = new TransactionRepository();
+        AccountLocks accountLocks = new AccountLocks();
+        AccountService accountService = new AccountService(accountRepository, userRepository, accountLocks);
+        engine = new ShardedLedgerEngine(accountRepository, transactionRepository, accountLocks, 4, 64);
+
+        User holder = new User("Holder", Cpfs.of(21), "holder@bank.test");
+        userRepository.save(holder);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = accountService.createCheckingAccount("1", holder.getId());
+            engine.deposit(account.getBranchCode(), account.getNumber(), OPENING, "Opening").join();
+            accounts.add(account);
+        }
+    }
+
+    @AfterEach
+    void close() {
+        engine.close();
+    }
+
+    @Test
+    void transfersAcrossShardsKeepTheTotal() {
+        SplittableRandom random = new SplittableRandom(5);
+        List<CompletableFuture<TransferTransactions>> results = new ArrayList<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            Account origin = accounts.get(random.nextInt(ACCOUNTS));
+            Account destination = accounts.get(random.nextInt(ACCOUNTS));
+            if (origin != destination) {
+                results.add(engine.transfer(origin.getBranchCode(), origin.getNumber(),
+                        destination.getBranchCode(), destination.getNumber(),
+                        BigDecimal.valueOf(1 + random.nextInt(10_000), 2), "Transfer"));
+            }
+        }
+
+        for (CompletableFuture<TransferTransactions> result : results) {
+            try {
+                assertEquals(TransactionStatus.CONFIRMED, result.join().sent().getStatus());
+            } catch (CompletionException e) {
+                // declined for lack of funds
+            }
+        }
+        BigDecimal total = accounts.stream().map(Account::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(OPENING.multiply(BigDecimal.valueOf(ACCOUNTS)), total);
+    }
+
+    @Test
+    void wakesAParkedShardForEveryCommand() throws Exception {
+        Account account = accounts.get(0);
+
+        for (int i = 0; i < 200; i++) {
+            // long enough for the shard to stop spinning and park
+            if (i % 20 == 0) {
+                Thread.sleep(5);
+            }
+            engine.deposit(account.getBranchCode(), account.getNumber(), BigDecimal.ONE, "Deposit")
+                    .get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(OPENING.add(BigDecimal.valueOf(200)), account.getBalance());
+    }
+
+    @Test
+    void commandsRacingCloseAreSettledOrRefused() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<CompletableFuture<?>>>> submitters = new ArrayList<>();
+        try {
+            for (int t = 0; t < 4; t++) {
+                Account account = accounts.get(t);
+                submitters.add(executor.submit(() -> {
+                    List<CompletableFuture<?>> accepted = new ArrayList<>();
+                    while (true) {
+                        try {
+                            accepted.add(engine.deposit(account.getBranchCode(), account.getNumber(),
+                                    BigDecimal.ONE, "Deposit"));
+                        } catch (RejectedExecutionException e) {
+                            return accepted;
+                        }
+                    }
+                }));
+            }
+
+            Thread.sleep(50);
+            engine.close();
+
+            for (Future<List<CompletableFuture<?>>> submitter : submitters) {
+                for (CompletableFuture<?> accepted : submitter.get(10, TimeUnit.SECONDS)) {
+                    assertTrue(accepted.isDone(), "command accepted before close was dropped");
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Account account = accounts.get(0);
+        assertThrows(RejectedExecutionException.class,
+                () -> engine.deposit(account.getBranchCode(), account.getNumber(), BigDecimal.ONE, "Deposit"));
+    }
+}
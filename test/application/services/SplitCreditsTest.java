@@ -0,0 +1,161 @@
+package application.services;
+
+import application.persistence.DurableStorage;
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import domain.entity.Account;
+import domain.entity.User;
+import domain.exception.InsufficientFundsException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import support.Cpfs;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends transfers to one destination whose credits are split across striped cells.
+ */
+class SplitCreditsTest {
+    private static final int THREADS = 8;
+    private static final int SENDERS = 32;
+    private static final BigDecimal OPENING = new BigDecimal("1000.00");
+
+    @TempDir
+    Path directory;
+
+    private final UserRepository userRepository = new UserRepository();
+    private final AccountRepository accountRepository = new AccountRepository();
+    private final TransactionRepository transactionRepository = new TransactionRepository();
+    private final AccountLocks accountLocks = new AccountLocks();
+    private final AccountService accountService = new AccountService(accountRepository, userRepository,
+            accountLocks);
+    private final LedgerService ledgerService = new LedgerService(accountRepository, transactionRepository,
+            accountLocks);
+
+    @Test
+    void hotDestinationKeepsEveryCreditWhileItIsDebited() throws Exception {
+        List<Account> origins = openAccounts(SENDERS);
+        Account destination = openSplitDestination();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                boolean debits = t == 0;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        if (debits) {
+                            withdrawIfCovered(destination, new BigDecimal("0.05"));
+                        } else {
+                            Account origin = origins.get(random.nextInt(SENDERS));
+                            transfer(origin, destination, new BigDecimal("0.01"));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long withdrawn = transactionRepository.findByAccount(destination.getAccountCode()).stream()
+                .filter(transaction -> transaction.getOriginAccountKey() == destination.getAccountKey())
+                .mapToLong(transaction -> transaction.getAmountCents())
+                .sum();
+        long received = origins.stream().mapToLong(origin -> Math.subtractExact(100_000, origin.getBalanceCents()))
+                .sum();
+        assertEquals((THREADS - 1) * 20_000, received);
+        assertEquals(received - withdrawn, destination.getBalanceCents());
+    }
+
+    @Test
+    void deactivationSeesSplitCredits() {
+        Account origin = openAccounts(1).get(0);
+        Account destination = openSplitDestination();
+        transfer(origin, destination, new BigDecimal("2.50"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> accountService.deactivateAccount(destination.getBranchCode(), destination.getNumber()));
+
+        ledgerService.withdraw(destination.getBranchCode(), destination.getNumber(), new BigDecimal("2.50"),
+                "Withdraw");
+        accountService.deactivateAccount(destination.getBranchCode(), destination.getNumber());
+
+        assertThrows(IllegalArgumentException.class, () -> transfer(origin, destination, BigDecimal.ONE));
+        assertEquals(0, OPENING.subtract(new BigDecimal("2.50")).compareTo(origin.getBalance()));
+    }
+
+    @Test
+    void splitCreditsSurviveRecoveryWithAndWithoutASnapshot() throws IOException {
+        DurableStorage storage = DurableStorage.open(directory, userRepository, accountRepository,
+                transactionRepository, accountLocks);
+        Account origin = openAccounts(1).get(0);
+        Account destination = openSplitDestination();
+        for (int i = 0; i < 10; i++) {
+            transfer(origin, destination, BigDecimal.ONE);
+        }
+        storage.snapshot();
+        for (int i = 0; i < 5; i++) {
+            transfer(origin, destination, BigDecimal.ONE);
+        }
+        storage.close();
+
+        AccountRepository recovered = new AccountRepository();
+        DurableStorage reopened = DurableStorage.open(directory, new UserRepository(), recovered,
+                new TransactionRepository(), new AccountLocks());
+        Account hot = recovered.getByCode(destination.getBranchCode(), destination.getNumber()).orElseThrow();
+        assertTrue(hot.hasSplitCredits());
+        assertEquals(1_500, hot.getBalanceCents());
+        assertEquals(origin.getBalanceCents(),
+                recovered.getByCode(origin.getBranchCode(), origin.getNumber()).orElseThrow().getBalanceCents());
+        reopened.close();
+    }
+
+    private List<Account> openAccounts(int count) {
+        User holder = new User("Sender", Cpfs.of(91), "sender@bank.test");
+        userRepository.save(holder);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Account account = accountService.createCheckingAccount("1", holder.getId());
+            ledgerService.deposit(account.getBranchCode(), account.getNumber(), OPENING, "Opening");
+            accounts.add(account);
+        }
+        return accounts;
+    }
+
+    private Account openSplitDestination() {
+        User holder = new User("Merchant", Cpfs.of(92), "merchant@bank.test");
+        userRepository.save(holder);
+        Account account = accountService.createCheckingAccount("1", holder.getId());
+        return accountService.enableSplitCredits(account.getBranchCode(), account.getNumber(), 4);
+    }
+
+    private void transfer(Account origin, Account destination, BigDecimal amount) {
+        ledgerService.transfer(origin.getBranchCode(), origin.getNumber(), destination.getBranchCode(),
+                destination.getNumber(), amount, "Transfer");
+    }
+
+    private void withdrawIfCovered(Account account, BigDecimal amount) {
+        try {
+            ledgerService.withdraw(account.getBranchCode(), account.getNumber(), amount, "Withdraw");
+        } catch (InsufficientFundsException e) {
+            // the overdraft keeps most withdrawals covered; a declined one moves nothing
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package application.services;
+
+import application.repositories.TransactionRepository;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.Transaction;
+import domain.entity.TransferTransactions;
+import domain.entity.User;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementExporterTest {
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 9, 0);
+
+    private final TransactionRepository transactionRepository = new TransactionRepository();
+    private final StatementExporter exporter = new StatementExporter(transactionRepository);
+    private final Clock clock = new TickingClock();
+    private final User holder = new User("Holder", Cpfs.of(101), "holder@bank.test");
+    private final Account account = new CheckingAccount("1", holder, clock);
+
+    @Test
+    void csvLinesCarrySignedAmountsAndQuotedText() throws IOException {
+        save(account.deposit(new BigDecimal("10.00"), "Salary"));
+        save(account.withdraw(new BigDecimal("2.50"), "Rent, \"May\""));
+        Account other = new CheckingAccount("2", holder, clock);
+        TransferTransactions transfer = account.transfer(new BigDecimal("0.75"), other, "Café ☕ 😀");
+        save(transfer.sent());
+        save(transfer.received());
+
+        List<String> lines = export(StatementExporter.Format.CSV, null, null);
+
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).startsWith("transaction_id,date_time,type,status,amount,balance_after,"));
+        assertTrue(lines.get(1).contains(",2026-03-01 09:00:02,DEPOSIT,CONFIRMED,10.00,10.00,,Salary,"));
+        assertTrue(lines.get(2).contains(",WITHDRAW,CONFIRMED,-2.50,7.50,,\"Rent, \"\"May\"\"\","));
+        assertTrue(lines.get(3).contains(",TRANSFER_SENT,CONFIRMED,-0.75,6.75," + other.getAccountCode()
+                + ",Café ☕ 😀,"));
+    }
+
+    @Test
+    void fixedWidthRecordsKeepTheirWidthAndTotals() throws IOException {
+        save(account.deposit(new BigDecimal("10.00"), "Salary"));
+        save(account.withdraw(new BigDecimal("2.50"), "Rent"));
+        save(account.withdraw(new BigDecimal("1.00"), "Descrição"));
+
+        List<String> lines = export(StatementExporter.Format.FIXED_WIDTH, null, null);
+
+        assertEquals(5, lines.size());
+        for (String line : lines) {
+            assertEquals(160, line.length());
+        }
+        assertTrue(lines.get(0).startsWith("0" + account.getAccountCode()));
+        assertTrue(lines.get(3).contains("Descri??o"));
+        assertEquals("9" + "0000000003" + "00000000000001000" + "00000000000000350", lines.get(4).trim());
+    }
+
+    @Test
+    void pagesThroughLongHistoriesInTimeOrder() throws IOException {
+        for (int i = 0; i < 2_500; i++) {
+            save(account.deposit(new BigDecimal("0.01"), "Deposit"));
+        }
+
+        List<String> lines = export(StatementExporter.Format.CSV, null, null);
+        assertEquals(2_501, lines.size());
+        for (int i = 2; i < lines.size(); i++) {
+            assertTrue(dateTimeOf(lines.get(i - 1)).compareTo(dateTimeOf(lines.get(i))) < 0);
+        }
+        assertTrue(lines.get(2_500).contains(",0.01,25.00,"));
+
+        // records are one second apart, the first two seconds after START as opening the account took one
+        List<String> window = export(StatementExporter.Format.CSV, START.plusSeconds(1_001),
+                START.plusSeconds(2_201));
+        assertEquals(1 + 1_200, window.size());
+        assertEquals("2026-03-01 09:16:41", dateTimeOf(window.get(1)));
+    }
+
+    private void save(Transaction transaction) {
+        transaction.confirm();
+        transactionRepository.save(transaction);
+    }
+
+    private List<String> export(StatementExporter.Format format, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(account.getAccountCode(), from, to, format, Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private static String dateTimeOf(String csvLine) {
+        return csvLine.split(",")[1];
+    }
+
+    /**
+     * Moves one second forward on every read, starting at {@link #START}
+     */
+    private static final class TickingClock extends Clock {
+        private Instant now = START.toInstant(ZoneOffset.UTC);
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized Instant instant() {
+            now = now.plus(Duration.ofSeconds(1));
+            return now;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package application.services;
+
+import application.repositories.AccountRepository;
+import application.repositories.TransactionRepository;
+import application.repositories.UserRepository;
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.User;
+import domain.exception.InsufficientFundsException;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs random transfers between a small set of accounts from many threads and checks that
+ * no money is created or lost along the way.
+ */
+class TransferStressTest {
+    private static final int THREADS = 8;
+    private static final int ACCOUNTS = 64;
+    private static final BigDecimal OPENING = new BigDecimal("1000.00");
+
+    @Test
+    void transfersUnderAccountLocksKeepTheTotal() throws Exception {
+        List<Account> accounts = openAccounts(ACCOUNTS);
+        AccountLocks accountLocks = new AccountLocks(16);
+
+        runConcurrently(2_000_000, random -> {
+            Account origin = accounts.get(random.nextInt(ACCOUNTS));
+            Account destination = accounts.get(random.nextInt(ACCOUNTS));
+            if (origin == destination) {
+                return;
+            }
+            BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(50_000), 2);
+            accountLocks.withLocks(origin.getAccountKey(), destination.getAccountKey(),
+                    () -> origin.transfer(amount, destination));
+        });
+
+        assertEquals(OPENING.multiply(BigDecimal.valueOf(ACCOUNTS)), total(accounts));
+    }
+
+    @Test
+    void ledgerTransfersKeepTheTotal() throws Exception {
+        UserRepository userRepository = new UserRepository();
+        AccountRepository accountRepository = new AccountRepository();
+        AccountService accountService = new AccountService(accountRepository, userRepository);
+        LedgerService ledgerService = new LedgerService(accountRepository, new TransactionRepository());
+
+        User holder = new User("Holder", Cpfs.of(7), "holder@bank.test");
+        userRepository.save(holder);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = accountService.createCheckingAccount("1", holder.getId());
+            ledgerService.deposit(account.getBranchCode(), account.getNumber(), OPENING, "Opening");
+            accounts.add(account);
+        }
+
+        runConcurrently(200_000, random -> {
+            Account origin = accounts.get(random.nextInt(ACCOUNTS));
+            Account destination = accounts.get(random.nextInt(ACCOUNTS));
+            if (origin == destination) {
+                return;
+            }
+            ledgerService.transfer(origin.getBranchCode(), origin.getNumber(),
+                    destination.getBranchCode(), destination.getNumber(),
+                    BigDecimal.valueOf(1 + random.nextInt(50_000), 2), "Stress");
+        });
+
+        assertEquals(OPENING.multiply(BigDecimal.valueOf(ACCOUNTS)), total(accounts));
+    }
+
+    private static List<Account> openAccounts(int count) {
+        User holder = new User("Holder", Cpfs.of(3), "holder@bank.test");
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Account account = new CheckingAccount("1", holder);
+            account.deposit(OPENING, "Opening");
+            accounts.add(account);
+        }
+        return accounts;
+    }
+
+    private static BigDecimal total(List<Account> accounts) {
+        return accounts.stream().map(Account::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private interface Step {
+        void run(SplittableRandom random);
+    }
+
+    private static void runConcurrently(int transfers, Step step) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                SplittableRandom random = new SplittableRandom(t);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < transfers / THREADS; i++) {
+                        try {
+                            step.run(random);
+                        } catch (InsufficientFundsException e) {
+                            // declined transfers move nothing
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package domain.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountNumberAllocatorTest {
+    private static final int THREADS = 4;
+    private static final int NUMBERS = 20_000;
+
+    @Test
+    void concurrentCallsNeverGetTheSameNumber() throws Exception {
+        AccountNumberAllocator allocator = new AccountNumberAllocator();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    List<String> issued = new ArrayList<>(NUMBERS);
+                    for (int i = 0; i < NUMBERS; i++) {
+                        issued.add(allocator.next("1"));
+                    }
+                    return issued;
+                }));
+            }
+
+            Set<String> numbers = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                for (String number : future.get()) {
+                    assertTrue(numbers.add(number), number);
+                    assertTrue(AccountNumberAllocator.isValid(number), number);
+                }
+            }
+            assertEquals(THREADS * NUMBERS, numbers.size());
+            assertEquals(Map.of("1", (long) THREADS * NUMBERS), allocator.highWaterMarks());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void numbersEndInTheirMod11CheckDigit() {
+        AccountNumberAllocator allocator = new AccountNumberAllocator();
+        // 1 * 2 = 2, 11 - 2 = 9
+        assertEquals("00000019", allocator.next("1"));
+        // 2 * 2 = 4, 11 - 4 = 7
+        assertEquals("00000027", allocator.next("1"));
+        // branches count on their own
+        assertEquals("00000019", allocator.next("2"));
+
+        for (int i = 0; i < 1_000; i++) {
+            String number = allocator.next("3");
+            String sequence = number.substring(0, 7);
+            for (char digit = '0'; digit <= '9'; digit++) {
+                assertEquals(digit == number.charAt(7), AccountNumberAllocator.isValid(sequence + digit), number);
+            }
+        }
+
+        assertFalse(AccountNumberAllocator.isValid(null));
+        assertFalse(AccountNumberAllocator.isValid("0000019"));
+        assertFalse(AccountNumberAllocator.isValid("000000019"));
+        assertFalse(AccountNumberAllocator.isValid("0000001a"));
+        assertFalse(AccountNumberAllocator.isValid("-0000019"));
+    }
+
+    @Test
+    void reservedNumbersAndSequencesAreNeverIssued() {
+        AccountNumberAllocator other = new AccountNumberAllocator();
+        String taken = null;
+        for (int i = 0; i < 500; i++) {
+            taken = other.next("1");
+        }
+
+        AccountNumberAllocator allocator = new AccountNumberAllocator();
+        allocator.reserve("1", taken);
+        // numbers the allocator could not have issued do not move the counter
+        allocator.reserve("1", "99999990");
+        allocator.reserve("1", "00000019");
+        assertEquals(Map.of("1", 500L), allocator.highWaterMarks());
+        assertEquals(other.next("1"), allocator.next("1"));
+
+        allocator.reserveSequence("1", 10);
+        assertEquals(Map.of("1", 501L), allocator.highWaterMarks());
+
+        allocator.reserveSequence("2", 9_999_998);
+        allocator.next("2");
+        assertThrows(IllegalStateException.class, () -> allocator.next("2"));
+    }
+
+    @Test
+    void restoredHighWaterMarksContinueEveryBranch() {
+        AccountNumberAllocator before = new AccountNumberAllocator();
+        for (int i = 0; i < 30; i++) {
+            before.next(i % 3 == 0 ? "1" : "123456789");
+        }
+
+        AccountNumberAllocator after = new AccountNumberAllocator();
+        before.highWaterMarks().forEach(after::reserveSequence);
+        assertEquals(before.highWaterMarks(), after.highWaterMarks());
+        assertEquals(before.next("1"), after.next("1"));
+        assertEquals(before.next("123456789"), after.next("123456789"));
+        assertEquals(before.next("9"), after.next("9"));
+    }
+}
@@ -0,0 +1,159 @@
+package domain.entity;
+
+import domain.enums.TransactionType;
+import domain.exception.InsufficientFundsException;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountTest {
+    private static final int THREADS = 4;
+    private static final int CHANGES = 20_000;
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-01-10T12:00:00Z"), ZoneOffset.UTC);
+
+    private final User holder = new User("Holder", Cpfs.of(71), "holder@bank.test");
+
+    @Test
+    void concurrentChangesKeepEveryCentAndVersion() throws Exception {
+        Account account = new CheckingAccount("1", holder);
+        account.deposit(new BigDecimal("1000.00"), "Opening");
+
+        List<Transaction> records = race(() -> {
+            List<Transaction> changed = new ArrayList<>(CHANGES);
+            for (int i = 0; i < CHANGES; i++) {
+                changed.add(i % 2 == 0
+                        ? account.deposit(new BigDecimal("0.03"), "Deposit")
+                        : account.withdraw(new BigDecimal("0.01"), "Withdraw"));
+            }
+            return changed;
+        });
+
+        // each pair of changes adds two cents
+        assertEquals(100_000 + THREADS * CHANGES, account.getBalanceCents());
+        assertEquals(1 + THREADS * CHANGES, account.getVersion());
+
+        Set<Long> versions = new HashSet<>();
+        for (Transaction record : records) {
+            long delta = record.getType() == TransactionType.DEPOSIT
+                    ? record.getAmountCents() : -record.getAmountCents();
+            assertEquals(record.getPreviousBalanceCents() + delta, record.getBalanceAfterCents());
+            assertTrue(versions.add(record.getAccountVersion()));
+        }
+    }
+
+    @Test
+    void declinedWithdrawalLeavesBalanceAndVersion() {
+        Account account = new CheckingAccount("1", holder);
+        account.deposit(new BigDecimal("100.00"), "Opening");
+        account.withdraw(new BigDecimal("600.00"), "Into the overdraft");
+        long version = account.getVersion();
+
+        InsufficientFundsException declined = assertThrows(InsufficientFundsException.class,
+                () -> account.withdraw(new BigDecimal("0.01"), "Past the limit"));
+        assertEquals(0, BigDecimal.ZERO.compareTo(declined.getCurrentBalance()));
+        assertEquals(-50_000, account.getBalanceCents());
+        assertEquals(version, account.getVersion());
+    }
+
+    @Test
+    void disabledAccountRefusesChangesAndRaisesTheVersion() {
+        Account account = new SavingsAccount("1", holder);
+        account.deposit(BigDecimal.TEN, "Opening");
+        long version = account.getVersion();
+
+        account.disable();
+        assertEquals(version + 1, account.getVersion());
+        assertThrows(IllegalStateException.class, () -> account.deposit(BigDecimal.ONE, "Deposit"));
+        assertEquals(1_000, account.getBalanceCents());
+    }
+
+    @Test
+    void monthlyFeeIsChargedOnceWhileTheBalanceMoves() throws Exception {
+        CheckingAccount account = new CheckingAccount("1", holder, CLOCK);
+        account.deposit(new BigDecimal("100.00"), "Opening");
+
+        List<Optional<Transaction>> charges = race(() -> {
+            List<Optional<Transaction>> charged = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                account.deposit(new BigDecimal("0.01"), "Deposit");
+                charged.add(account.chargeMonthlyFee(LocalDate.of(2026, 2, 1)));
+            }
+            return charged;
+        });
+
+        assertEquals(1, charges.stream().filter(Optional::isPresent).count());
+        assertEquals(10_000 + THREADS * 1_000 - 1_200, account.getBalanceCents());
+    }
+
+    @Test
+    void waivedFeeStillSettlesTheMonth() {
+        CheckingAccount account = new CheckingAccount("1", holder, CLOCK);
+        account.deposit(new BigDecimal("5000.00"), "Opening");
+
+        assertTrue(account.chargeMonthlyFee(LocalDate.of(2026, 2, 1)).isEmpty());
+        account.withdraw(new BigDecimal("4900.00"), "Withdraw");
+        assertTrue(account.chargeMonthlyFee(LocalDate.of(2026, 2, 20)).isEmpty());
+        assertTrue(account.chargeMonthlyFee(LocalDate.of(2026, 3, 1)).isPresent());
+    }
+
+    @Test
+    void yieldIsPaidOnceWhileTheBalanceMoves() throws Exception {
+        SavingsAccount account = new SavingsAccount("1", holder, CLOCK);
+        account.deposit(new BigDecimal("1000.00"), "Opening");
+
+        List<Optional<Transaction>> yields = race(() -> {
+            List<Optional<Transaction>> paid = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                account.deposit(new BigDecimal("0.01"), "Deposit");
+                paid.add(account.applyYield(LocalDate.of(2026, 2, 10)));
+            }
+            return paid;
+        });
+
+        List<Transaction> paid = yields.stream().flatMap(Optional::stream).toList();
+        assertEquals(1, paid.size());
+        Transaction yield = paid.get(0);
+        // worked out from the balance the yield was applied to
+        assertEquals(Math.round(yield.getPreviousBalanceCents() * 0.005), yield.getAmountCents());
+        assertEquals(LocalDate.of(2026, 2, 10), account.getLastIncome());
+    }
+
+    /**
+     * Runs the task on every thread at once and collects what each returned
+     */
+    private static <T> List<T> race(Callable<List<T>> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<T>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(task));
+            }
+
+            List<T> results = new ArrayList<>();
+            for (Future<List<T>> future : futures) {
+                results.addAll(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
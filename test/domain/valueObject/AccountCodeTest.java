@@ -0,0 +1,61 @@
+package domain.valueObject;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountCodeTest {
+
+    @Test
+    void codesRoundTripWithTheirLeadingZeros() {
+        String[] branches = {"0", "1", "0001", "1000", "0042", "42", "000000000", "000000001", "123456789",
+                "999999999"};
+        String[] numbers = {"00000000", "00000019", "12345678", "99999999"};
+        Set<Long> keys = new HashSet<>();
+
+        for (String branch : branches) {
+            for (String number : numbers) {
+                String code = branch + "-" + number;
+                long key = AccountCode.pack(branch, number);
+                assertTrue(key > 0, code);
+                assertEquals(key, AccountCode.keyOf(branch, number), code);
+                assertEquals(key, AccountCode.parse(code), code);
+                assertEquals(code, AccountCode.format(key));
+                assertEquals(branch, AccountCode.branchOf(key));
+                assertEquals(number, AccountCode.numberOf(key));
+                // "42" and "0042" are different branches
+                assertTrue(keys.add(key), code);
+            }
+        }
+    }
+
+    @Test
+    void malformedCodesAreInvalid() {
+        String[] codes = {null, "", "-", "1-", "-00000019", "1-0000001", "1-000000190", "1234567890-00000019",
+                "1a-00000019", "1-0000001a", "1 -00000019", "+1-00000019", "1-+0000019", "1--0000001",
+                "1_00000019", "١-00000019", "1-00000019 "};
+        for (String code : codes) {
+            assertEquals(AccountCode.INVALID, AccountCode.parse(code), code);
+        }
+
+        assertEquals(AccountCode.INVALID, AccountCode.keyOf(null, "00000019"));
+        assertEquals(AccountCode.INVALID, AccountCode.keyOf("1", null));
+        assertEquals(AccountCode.INVALID, AccountCode.keyOf("", "00000019"));
+        assertEquals(AccountCode.INVALID, AccountCode.keyOf("1234567890", "00000019"));
+        assertEquals(AccountCode.INVALID, AccountCode.keyOf("1", "1234567"));
+        assertEquals(AccountCode.INVALID, AccountCode.keyOf("-1", "00000019"));
+        assertThrows(IllegalArgumentException.class, () -> AccountCode.pack("1", "0000001x"));
+
+        assertTrue(AccountCode.isValidBranch("000000001"));
+        assertFalse(AccountCode.isValidBranch("1234567890"));
+        assertFalse(AccountCode.isValidBranch(""));
+        assertFalse(AccountCode.isValidBranch(null));
+        assertFalse(AccountCode.isValidBranch("1.2"));
+    }
+}
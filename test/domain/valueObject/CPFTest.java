@@ -0,0 +1,96 @@
+package domain.valueObject;
+
+import domain.entity.User;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CPFTest {
+    private static final String ALPHABET = "0123456789012345678901234567890123456789.-/ aZ\t١１";
+    private static final int INPUTS = 300_000;
+
+    @Test
+    void agreesWithTheRegexValidationItReplaced() {
+        SplittableRandom random = new SplittableRandom(10);
+        for (int i = 0; i < INPUTS; i++) {
+            String input = i % 3 == 0 ? formatted(random) : randomString(random);
+            String legacy = legacy(input);
+
+            String current;
+            try {
+                current = new CPF(input).value();
+            } catch (IllegalArgumentException e) {
+                current = null;
+            }
+            assertEquals(legacy, current, input);
+        }
+    }
+
+    @Test
+    void ofAlsoChecksTheCheckDigits() {
+        assertEquals("52998224725", CPF.of("529.982.247-25").value());
+        assertThrows(IllegalArgumentException.class, () -> CPF.of("529.982.247-26"));
+        assertThrows(IllegalArgumentException.class, () -> CPF.of("111.111.111-11"));
+        assertThrows(IllegalArgumentException.class, () -> CPF.of("529.982.247"));
+
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 10_000; i++) {
+            String cpf = Cpfs.of(random.nextLong(100_000_000));
+            assertEquals(cpf, CPF.of(cpf).value());
+
+            String wrong = cpf.substring(0, 10) + (char) ('0' + (cpf.charAt(10) - '0' + 1) % 10);
+            assertThrows(IllegalArgumentException.class, () -> CPF.of(wrong));
+        }
+    }
+
+    @Test
+    void restoresUsersSavedBeforeCheckDigitsWereEnforced() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new User("Holder", "529.982.247-26", "holder@bank.test"));
+
+        User restored = new User("id", "Holder", "52998224726", "holder@bank.test", LocalDateTime.now());
+        assertEquals("52998224726", restored.getCpf());
+    }
+
+    /**
+     * The validation before the character scan: strip non-digits, eleven digits, not all the same
+     */
+    private static String legacy(String input) {
+        if (input == null || input.isEmpty()) {
+            return null;
+        }
+        String digits = input.replaceAll("\\D", "");
+        if (digits.length() != 11 || digits.matches("(\\d)\\1{10}")) {
+            return null;
+        }
+        return digits;
+    }
+
+    private static String formatted(SplittableRandom random) {
+        StringBuilder digits = new StringBuilder();
+        int length = 9 + random.nextInt(4);
+        char repeated = (char) ('0' + random.nextInt(10));
+        boolean repeat = random.nextInt(10) == 0;
+        for (int i = 0; i < length; i++) {
+            digits.append(repeat ? repeated : (char) ('0' + random.nextInt(10)));
+        }
+        if (random.nextBoolean() && digits.length() >= 11) {
+            digits.insert(9, '-').insert(6, '.').insert(3, '.');
+        }
+        return digits.toString();
+    }
+
+    private static String randomString(SplittableRandom random) {
+        int length = random.nextInt(18);
+        StringBuilder input = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return input.toString();
+    }
+}
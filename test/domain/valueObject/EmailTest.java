@@ -0,0 +1,66 @@
+package domain.valueObject;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmailTest {
+    private static final Pattern LEGACY_PATTERN = Pattern.compile("^(?i)[a-z0-9._%+-]+@(?:[a-z0-9-]+\\.)+[a-z]{2,}$");
+    private static final String ALPHABET = "abcxyzABCXYZ0189._%+-@@..-- \t\nİıKéß#";
+    private static final String[] LOCALS = {"ana", "Ana.Silva", "a+b", "x_y%z", "", "a b", "é"};
+    private static final String[] DOMAINS = {"bank.test", "Bank.COM", "a-b.c-d.org", "b.c", "b..com", ".b.com",
+            "b.c0m", "b.co.", "b", "b.çom", "b.İO"};
+    private static final int INPUTS = 300_000;
+
+    @Test
+    void agreesWithTheRegexValidationItReplaced() {
+        SplittableRandom random = new SplittableRandom(12);
+        for (int i = 0; i < INPUTS; i++) {
+            String input = i % 2 == 0 ? structured(random) : randomString(random);
+
+            assertEquals(legacy(input), current(input), input);
+            assertEquals(input != null && !input.trim().isEmpty() && LEGACY_PATTERN.matcher(input.trim()).matches(),
+                    Email.isValid(input), input);
+        }
+    }
+
+    private static String current(String input) {
+        try {
+            return new Email(input).address();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The validation before the character scan: lower case, trim, then the pattern
+     */
+    private static String legacy(String input) {
+        if (input == null || input.trim().isEmpty()) {
+            return null;
+        }
+        String address = input.toLowerCase().trim();
+        return LEGACY_PATTERN.matcher(address).matches() ? address : null;
+    }
+
+    private static String structured(SplittableRandom random) {
+        String email = LOCALS[random.nextInt(LOCALS.length)] + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+        if (random.nextInt(4) == 0) {
+            int at = random.nextInt(email.length() + 1);
+            email = email.substring(0, at) + ALPHABET.charAt(random.nextInt(ALPHABET.length())) + email.substring(at);
+        }
+        return random.nextInt(8) == 0 ? " " + email + "\t" : email;
+    }
+
+    private static String randomString(SplittableRandom random) {
+        int length = random.nextInt(16);
+        StringBuilder input = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            input.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return input.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package domain.valueObject;
+
+import domain.entity.Account;
+import domain.entity.CheckingAccount;
+import domain.entity.Transaction;
+import domain.entity.User;
+import org.junit.jupiter.api.Test;
+import support.Cpfs;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyTest {
+
+    @Test
+    void convertsToCentsWithHalfEven() {
+        assertEquals(1_234, Money.toCents(new BigDecimal("12.345")));
+        assertEquals(1_236, Money.toCents(new BigDecimal("12.355")));
+        assertEquals(-1_234, Money.toCents(new BigDecimal("-12.345")));
+        assertEquals(1_000, Money.toCents(BigDecimal.TEN));
+        assertEquals(new BigDecimal("12.30"), Money.toBigDecimal(1_230));
+    }
+
+    @Test
+    void refusesAmountsThatDoNotFit() {
+        assertThrows(IllegalArgumentException.class, () -> Money.toCents(null));
+        assertThrows(ArithmeticException.class, () -> Money.toCents(new BigDecimal("1e20")));
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)));
+    }
+
+    @Test
+    void comparesAndPrintsByCents() {
+        Money amount = Money.of(new BigDecimal("2.5"));
+        assertEquals(Money.ofCents(250), amount);
+        assertTrue(amount.compareTo(Money.ofCents(251)) < 0);
+        assertEquals(Money.ofCents(50), amount.minus(Money.ofCents(200)));
+        assertTrue(Money.ofCents(-1).isNegative());
+        assertEquals("2.50", amount.toString());
+    }
+
+    @Test
+    void recordsKeepAmountsAtTwoDecimalPlaces() {
+        Account account = new CheckingAccount("1", new User("Holder", Cpfs.of(81), "holder@bank.test"));
+        account.deposit(new BigDecimal("10.005"), "Deposit");
+        Transaction withdrawal = account.withdraw(new BigDecimal("12.5"), "Withdraw");
+
+        assertEquals(new BigDecimal("12.50"), withdrawal.getAmount());
+        assertEquals(new BigDecimal("10.00"), withdrawal.getPreviousBalance());
+        assertEquals(new BigDecimal("-2.50"), withdrawal.getBalanceAfter());
+        assertEquals(new BigDecimal("-2.50"), account.getBalance());
+    }
+}
@@ -0,0 +1,57 @@
+package domain.valueObject;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionIdTest {
+
+    @Test
+    void idsRoundTripThroughTheirText() {
+        Set<TransactionId> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            TransactionId id = TransactionId.next();
+            String text = id.toString();
+            assertEquals(id, TransactionId.parse(text));
+            assertEquals(7, UUID.fromString(text).version(), text);
+            assertEquals(2, UUID.fromString(text).variant(), text);
+            assertTrue(ids.add(id), text);
+        }
+
+        // ids issued as random UUIDs before this type existed still parse
+        UUID legacy = UUID.fromString("f47ac10b-58cc-4372-a567-0e02b2c3d479");
+        assertEquals(legacy.toString(), TransactionId.parse(legacy.toString()).toString());
+        assertThrows(IllegalArgumentException.class, () -> TransactionId.parse("not-an-id"));
+    }
+
+    @Test
+    void idsSortByCreationTime() throws InterruptedException {
+        List<TransactionId> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(TransactionId.next());
+            // ids created within the same millisecond are ordered by their random bits
+            Thread.sleep(2);
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            TransactionId earlier = ids.get(i - 1);
+            TransactionId later = ids.get(i);
+            assertTrue(earlier.compareTo(later) < 0, earlier + " " + later);
+            // the text form sorts the same way
+            assertTrue(earlier.toString().compareTo(later.toString()) < 0, earlier + " " + later);
+        }
+
+        // the high bit set must not sort an id first
+        TransactionId high = new TransactionId(0x8000_0000_0000_0000L, 0);
+        assertTrue(ids.get(0).compareTo(high) < 0);
+        assertEquals(0, high.compareTo(TransactionId.parse(high.toString())));
+    }
+}
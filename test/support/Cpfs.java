@@ -0,0 +1,30 @@
+package support;
+
+/**
+ * Builds valid CPF numbers from a sequence, so tests and benchmarks can create as many
+ * distinct users as they need.
+ */
+public final class Cpfs {
+    private Cpfs() {
+    }
+
+    /**
+     * Returns the n-th CPF, with both check digits; distinct and valid for every n below
+     * 111,111,110, where the base number would repeat a single digit
+     */
+    public static String of(long n) {
+        String base = String.format("%09d", n + 1);
+        int first = checkDigit(base, 10);
+        int second = checkDigit(base + first, 11);
+        return base + first + second;
+    }
+
+    private static int checkDigit(String digits, int weight) {
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            sum += (digits.charAt(i) - '0') * (weight - i);
+        }
+        int digit = sum * 10 % 11;
+        return digit == 10 ? 0 : digit;
+    }
+}